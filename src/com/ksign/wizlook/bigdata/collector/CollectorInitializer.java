@@ -8,20 +8,27 @@ import org.apache.logging.log4j.Logger;
 import com.ksign.license.exception.LicenseException;
 import com.ksign.license.verifier.NewLicenseVerifier;
 import com.ksign.wizlook.bigdata.collector.collect.agent.receiver.AgentTcpReceiverManager;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.collect.backup.BackupCompactScheduler;
 import com.ksign.wizlook.bigdata.collector.collect.history.CollectHistoryDashboardInsertThread;
 import com.ksign.wizlook.bigdata.collector.collect.history.CollectHistoryInsertThread;
 import com.ksign.wizlook.bigdata.collector.collect.poll.PollJobManager;
 import com.ksign.wizlook.bigdata.collector.collect.purge.PurgeBackupDataScheduler;
 import com.ksign.wizlook.bigdata.collector.collect.purge.PurgeCollectHistoryScheduler;
-import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiveLogRollingThread;
+import com.ksign.wizlook.bigdata.collector.collect.push.AllowHostRefreshScheduler;
+import com.ksign.wizlook.bigdata.collector.collect.push.PushCollectHistoryScheduler;
 import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiverManager;
+import com.ksign.wizlook.bigdata.collector.collect.replay.ErrorReplayScheduler;
 import com.ksign.wizlook.bigdata.collector.collect.send.FileSendThread;
+import com.ksign.wizlook.bigdata.collector.collect.send.SendCommitLog;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 import com.ksign.wizlook.bigdata.collector.itf.avro.CollectorInterfaceService;
 import com.ksign.wizlook.bigdata.collector.log.FileRollingLogger.RollingIntervalUnit;
 import com.ksign.wizlook.bigdata.collector.log.Log4j2ForceRollingThread;
 import com.ksign.wizlook.bigdata.collector.log.LoggerManager;
+import com.ksign.wizlook.bigdata.collector.util.DiskIoExecutorManager;
+import com.ksign.wizlook.bigdata.collector.util.NettyTransportManager;
 import com.ksign.wizlook.common.WizLookException;
 import com.ksign.wizlook.common.crypto.KsignJCEUtils;
 
@@ -38,8 +45,6 @@ public class CollectorInitializer {
 	private Thread collectHistoryInsertThread;
 	/** log4j2 강제 Rolling Thread ( 추가 로그가 발생하지 않으면 Rolling되지 않기 때문 ) */
 	private Thread log4j2ForceRollingThread;
-	/** Push 수신 로그 Rolling Thread ( 추가 로그를 수신하지 않으면 Rolling되지 않기 때문 ) */
-	private Thread pushReceiveLogRollingThread;
 	/** logger */
 	private Logger logger = LogManager.getLogger();
 
@@ -87,6 +92,10 @@ public class CollectorInitializer {
 				 ConfigLoader.getInstance().get(Config.COLLECT_LOGGING_BASE_DIR) + File.separator + "collectHistory_%d{yyyyMMddHHmmss}.log",
 				 RollingIntervalUnit.SECOND,
 				 3L);
+
+		// 6. 전송 commit log 초기화
+		SendCommitLog.INSTANCE.init();
+		logger.info("	Initialize SendCommitLog");
 	}
 
 	/**
@@ -118,10 +127,19 @@ public class CollectorInitializer {
 			fileSendThread = new Thread(new FileSendThread()); 
 			fileSendThread.start();
 
+			// Start 전송 대기 로그 / 디스크 여유공간 감시
+			if(BacklogMonitor.INSTANCE.start()) logger.info("	Start BacklogMonitor");
+
+			// Start 에러 로그파일 재전송
+			if(ErrorReplayScheduler.INSTANCE.start()) logger.info("	Start ErrorReplayScheduler");
+
 			// Start Purge Backup log
 			PurgeBackupDataScheduler.INSTANCE.start();
 			logger.info("	Start PurgeBackupDataScheduler");
 
+			// Start Backup log compaction
+			if(BackupCompactScheduler.INSTANCE.start()) logger.info("	Start BackupCompactScheduler");
+
 			// Start Purge Collect history Log Data
 			PurgeCollectHistoryScheduler.INSTANCE.start();
 			logger.info("	Start PurgeDetailLogScheduler");
@@ -130,11 +148,11 @@ public class CollectorInitializer {
 			log4j2ForceRollingThread = new Thread(new Log4j2ForceRollingThread(1000));
 			log4j2ForceRollingThread.start();
 
-			// Start Push Receive log 강제 Rolling Thread
-			if(ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED)) {
-				pushReceiveLogRollingThread = new Thread(new PushReceiveLogRollingThread(1000));
-				pushReceiveLogRollingThread.start();
-			}
+			// Start Push Receive 허용 호스트 목록 갱신
+			if(AllowHostRefreshScheduler.INSTANCE.start()) logger.info("	Start AllowHostRefreshScheduler");
+
+			// Start Push Receive 수집 이력 집계
+			if(PushCollectHistoryScheduler.INSTANCE.start()) logger.info("	Start PushCollectHistoryScheduler");
 
 			// request DataSource
 			CollectorInterfaceService.INSTANCE.requestDataSource();
@@ -164,18 +182,38 @@ public class CollectorInitializer {
 	public void destroy() {
 		logger.info("### WizLook Collector ( " + ProductVersion.getProductVertion() + " ) Shutdown Start ###");
 
+		// Stop BacklogMonitor
+		BacklogMonitor.INSTANCE.destroy();
+		logger.info("	Stop BacklogMonitor");
+
+		// Stop Push Receive 수집 이력 집계 ( 남은 이력은 PushReceiverManager 중지 시 기록 )
+		PushCollectHistoryScheduler.INSTANCE.destroy();
+		logger.info("	Stop PushCollectHistoryScheduler");
+
 		// Stop PushReceiver (push policy)
 		PushReceiverManager.INSTANCE.destroy();
 		logger.info("	Stop PushReceiverManager");
 
+		// Stop Push Receive 허용 호스트 목록 갱신
+		AllowHostRefreshScheduler.INSTANCE.destroy();
+		logger.info("	Stop AllowHostRefreshScheduler");
+
 		// Stop JobScheduler (poll policy)
 		PollJobManager.INSTANCE.destroy();
 		logger.info("	Stop PollJobManager");
 
+		// Stop ErrorReplayScheduler
+		ErrorReplayScheduler.INSTANCE.destroy();
+		logger.info("	Stop ErrorReplayScheduler");
+
 		// Stop PurgeDataScheduler
 		PurgeBackupDataScheduler.INSTANCE.destroy();
 		logger.info("	Stop PurgeBackupDataScheduler");
 
+		// Stop BackupCompactScheduler
+		BackupCompactScheduler.INSTANCE.destroy();
+		logger.info("	Stop BackupCompactScheduler");
+
 		// Stop PurgeCollectHistoryScheduler
 		PurgeCollectHistoryScheduler.INSTANCE.destroy();
 		logger.info("	Stop PurgeDetailLogScheduler");
@@ -188,9 +226,21 @@ public class CollectorInitializer {
 		AgentTcpReceiverManager.INSTANCE.destroy();
 		logger.info("	Stop AgentTcpReceiverManager");
 
+		// Stop shared Netty event loop (TcpReceiver, NettySyslogReceiver, AgentTcpReceiver)
+		NettyTransportManager.INSTANCE.destroy();
+		logger.info("	Stop NettyTransportManager");
+
+		// Stop disk I/O executor (TcpReceiver, AgentTcpReceiver). 남은 파일 기록을 처리한 뒤 종료
+		DiskIoExecutorManager.INSTANCE.destroy();
+		logger.info("	Stop DiskIoExecutorManager");
+
 		// Stop FileSendThread ( collector -> engine node )
 		fileSendThread.interrupt();
 
+		// Close SendCommitLog
+		SendCommitLog.INSTANCE.destroy();
+		logger.info("	Stop SendCommitLog");
+
 		if(ConfigLoader.getInstance().getBoolean(Config.LOG_DB_ENABLED)) {
 			// Stop collectDashboardHistoryThread
 			collectHistoryDashboardInsertThread.interrupt();
@@ -204,10 +254,6 @@ public class CollectorInitializer {
 		// Stop log4j2RollingThread
 		log4j2ForceRollingThread.interrupt();
 
-		if(ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED)) {
-			pushReceiveLogRollingThread.interrupt();
-		}
-
 		logger.info("### WizLook Collector ( " + ProductVersion.getProductVertion() + " ) Shutdown complete ###");
 	}
 
@@ -1,21 +1,25 @@
 package com.ksign.wizlook.bigdata.collector.collect;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import ch.ethz.ssh2.SFTPv3Client;
 import ch.ethz.ssh2.SFTPv3FileHandle;
 
 import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode;
+import com.ksign.wizlook.bigdata.collector.collect.send.SendCommitLog;
+import com.ksign.wizlook.bigdata.collector.collect.sink.ByteBufferSink;
+import com.ksign.wizlook.bigdata.collector.collect.sink.ChannelSink;
+import com.ksign.wizlook.bigdata.collector.collect.sink.CollectSink;
+import com.ksign.wizlook.bigdata.collector.collect.sink.SftpSink;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 
@@ -30,8 +34,6 @@ public abstract class AbstractCollect {
 	protected String logpolicyId;
 	/** 데이터소스아이디 */
 	protected String dataSourceId;
-	/** 버퍼크기 */
-	private int bufferSize = 4096;
 
 	/** 콜렉터가 내부적으로 사용하는 구분자 */
 	public static final String COLLECTOR_SEPARATOR = "α";
@@ -70,7 +72,7 @@ public abstract class AbstractCollect {
 	 * @throws CollectException
 	 */
 	public long save(byte[] byteData, String fileName, String logEncoding, boolean append) throws CollectException {
-		return this.writeToFile(byteData, fileName, logEncoding, append);
+		return this.writeToFile(logpolicyId, ByteBufferSink.wrap(byteData), null, fileName, logEncoding, append);
 	}
 
 	/**
@@ -83,7 +85,7 @@ public abstract class AbstractCollect {
 	 * @throws CollectException
 	 */
 	public long save(InputStream inputStream, String fileName, String logEncoding, boolean append) throws CollectException {
-		return this.writeToFile(inputStream, fileName, logEncoding, append);
+		return this.writeToFile(logpolicyId, ChannelSink.wrap(inputStream), null, fileName, logEncoding, append);
 	}
 
 	/**
@@ -96,7 +98,7 @@ public abstract class AbstractCollect {
 	 * @throws CollectException
 	 */
 	public long save(SFTPv3FileHandle sftpHandle, String fileName, String logEncoding, boolean append) throws CollectException {
-		return this.writeToFile(sftpHandle, fileName, logEncoding, append);
+		return this.writeToFile(logpolicyId, new SftpSink(sftpHandle), null, fileName, logEncoding, append);
 	}
 
 	/**
@@ -109,18 +111,76 @@ public abstract class AbstractCollect {
 	 * @throws CollectException
 	 */
 	public long save(File file, String fileName, String logEncoding, boolean append) throws CollectException {
-		return this.writeToFile(file, fileName, logEncoding, append);
+		return this.writeToFile(logpolicyId, null, file, fileName, logEncoding, append);
+	}
+
+	/**
+	 * 수집데이터 저장
+	 * @param sink 수집데이터를 저장 파일로 전달할 CollectSink
+	 * @param fileName 저장 파일명
+	 * @param logEncoding 저장로그 인코딩
+	 * @param append append 여부
+	 * @return 수집로그 크기
+	 * @throws CollectException
+	 */
+	public long save(CollectSink sink, String fileName, String logEncoding, boolean append) throws CollectException {
+		return this.writeToFile(logpolicyId, sink, null, fileName, logEncoding, append);
+	}
+
+	/**
+	 * 수집데이터를 다른 정책으로 저장 ( 수신 로그의 내용에 따라 정책을 나누어 저장하는 경우 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param byteData 수집한 byte[] 데이터
+	 * @param fileName 저장 파일명
+	 * @param logEncoding 저장로그 인코딩
+	 * @param append append 여부
+	 * @return 수집로그 크기
+	 * @throws CollectException
+	 */
+	protected long save(String logpolicyId, byte[] byteData, String fileName, String logEncoding, boolean append) throws CollectException {
+		return this.writeToFile(logpolicyId, ByteBufferSink.wrap(byteData), null, fileName, logEncoding, append);
+	}
+
+	/**
+	 * 수집데이터를 다른 정책으로 저장 ( 수신 로그의 내용에 따라 정책을 나누어 저장하는 경우 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param file 수집한 파일
+	 * @param fileName 저장 파일명
+	 * @param logEncoding 저장로그 인코딩
+	 * @param append append 여부
+	 * @return 수집로그 크기
+	 * @throws CollectException
+	 */
+	protected long save(String logpolicyId, File file, String fileName, String logEncoding, boolean append) throws CollectException {
+		return this.writeToFile(logpolicyId, null, file, fileName, logEncoding, append);
+	}
+
+	/**
+	 * 수집데이터를 다른 정책으로 저장 ( 수신 로그의 내용에 따라 정책을 나누어 저장하는 경우 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param sink 수집데이터를 저장 파일로 전달할 CollectSink
+	 * @param fileName 저장 파일명
+	 * @param logEncoding 저장로그 인코딩
+	 * @param append append 여부
+	 * @return 수집로그 크기
+	 * @throws CollectException
+	 */
+	protected long save(String logpolicyId, CollectSink sink, String fileName, String logEncoding, boolean append) throws CollectException {
+		return this.writeToFile(logpolicyId, sink, null, fileName, logEncoding, append);
 	}
 
 	/**
 	 * 모든 Protocol이 공통적으로 사용하는 Data 저장 메소드
 	 * 파일명 : logpolicyId,dataSourceId,yyyyMMddHHmmss,utf-8,fileName,UUID 형태로 저장
 	 * 수집로그 인코딩에 따라 해당 파일의 encoding을 UTF-8로 변환하여 저장한다.
-	 * 저장이 완료되면 파일명 뒤에 .log를 붙여 FileSendThread 의 타겟이 되도록 한다.
-	 * @param object 각 Protocol 별 저장할 데이터가 담겨 있는 Object
-	 * 		  -> InputStream      : FtpDirScannerJob, SshShellExecuterJob
-	 * 		  -> byte[]           : LocalFileTailerJob, LocalShellExecuterJob, SnmpJob
-	 * 		  -> SFTPv3FileHandle : SFtpDirScannerJob
+	 * 저장이 완료되면 파일명 뒤에 .log를 붙이고 SendCommitLog 에 append 하여 FileSendThread 의 타겟이 되도록 한다.
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param sink 각 Protocol 별 저장할 데이터를 전달하는 CollectSink ( collectedFile 이 있을 경우 null )
+	 * 		  -> ChannelSink      : FtpDirScannerJob, SshShellExecuterJob
+	 * 		  -> ByteBufferSink   : LocalShellExecuterJob, SnmpJob, TelnetShellExecuterJob
+	 * 		  -> FileRegionSink   : LocalFileTailerJob
+	 * 		  -> SftpSink         : SFtpDirScannerJob
+	 * @param collectedFile 이미 수집 디렉토리에 저장된 파일 ( sink 가 있을 경우 null )
 	 * 		  -> file			  : JdbcSqlExecuterJob, WizlookQueryJob, LocalFileScannerJob, ModbusPacketParserJob, AgentReceiver, TcpReceiver
 	 * @param fileName 저장 파일명
 	 * @param logEncoding 원본로그의 인코딩. UTF-8이 아닌경우 UTF-8로 변환
@@ -128,7 +188,7 @@ public abstract class AbstractCollect {
 	 * @return 저장 파일 크기
 	 * @throws IOException
 	 */
-	private long writeToFile(Object object, String fileName, String logEncoding, boolean append) throws CollectException {
+	private long writeToFile(String logpolicyId, CollectSink sink, File collectedFile, String fileName, String logEncoding, boolean append) throws CollectException {
 
 		long startTime = System.currentTimeMillis();
 		File savedFile = null;
@@ -146,19 +206,20 @@ public abstract class AbstractCollect {
 																 .append(",").append(Strings.nullToEmpty(logEncoding))
 																 .append(",").append(fileName)
 																 .append(",").append(java.util.UUID.randomUUID().toString());
-			if(object instanceof File) {
-				savedFile = (File)object;
+			if(collectedFile != null) {
+				savedFile = collectedFile;
 			} else {
-				savedFile = saveObject(object, collectDirectory, formattedFileName.toString());
+				savedFile = saveSink(sink, collectDirectory, formattedFileName.toString());
 			}
 
 			if(savedFile != null && savedFile.exists()) {
 				long saveFileLen = savedFile.length();
-				// 파일명.log 로 변경.. (FileSendThread의 타겟이 됨)
-
-				savedFile.renameTo(new File(collectDirectory, formattedFileName.toString() + ".log"));
+				// 파일명.log 로 변경 후 전송 commit log 에 등록.. (FileSendThread의 타겟이 됨)
+				if(!SendCommitLog.INSTANCE.publish(logpolicyId, savedFile, new File(collectDirectory, formattedFileName.toString() + ".log"))) {
+					logger.error(this.getClass().getSimpleName() + ". It failed to rename collect file. path=[" + savedFile.getAbsolutePath() + "]");
+				}
 				logger.debug("Save collect file. Name=[" + formattedFileName.toString()+".log], size=[" + saveFileLen + "], elepsedTime=["+(System.currentTimeMillis()-startTime) + "]");
-				loggingCollectHistoryForDashboard(nowDate.getTime(), fileName, saveFileLen);
+				loggingCollectHistoryForDashboard(logpolicyId, nowDate.getTime(), fileName, saveFileLen);
 				return saveFileLen;
 			}
 		} catch (IOException e) {
@@ -168,61 +229,55 @@ public abstract class AbstractCollect {
 	}
 
 	/**
-	 * Object의 instance형태에 따라 데이터를 파일로 저장
-	 * @param object byte[], InputStream, SFTPv3FileHandle Object
+	 * 수집 도중 에러가 발생한 파일을 에러 디렉토리로 이동
+	 * 전송 대상 파일과 같은 형식의 파일명으로 저장하여 ErrorReplayScheduler 의 재전송 대상이 되도록 한다.
+	 * 저장 시 경로 : collect.error.base.dir / logpolicyId / dataSourceId / yyyyMMdd / logpolicyId,dataSourceId,yyyyMMddHHmmss,logEncoding,fileName,UUID.log
+	 * @param errorFile 에러가 발생하기 전까지 수집된 파일
+	 * @param fileName 저장 파일명
+	 * @param logEncoding 수집로그 인코딩
+	 * @return 이동 결과
+	 */
+	public boolean saveErrorFile(File errorFile, String fileName, String logEncoding) {
+		String saveTime = logDf.format(new Date());
+		StringBuilder formattedFileName = new StringBuilder().append(logpolicyId)
+															 .append(",").append(dataSourceId)
+															 .append(",").append(saveTime)
+															 .append(",").append(Strings.nullToEmpty(logEncoding))
+															 .append(",").append(fileName)
+															 .append(",").append(java.util.UUID.randomUUID().toString())
+															 .append(".log");
+		File file = new File(new StringBuilder().append(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR))
+												.append(File.separator).append(logpolicyId)
+												.append(File.separator).append(dataSourceId)
+												.append(File.separator).append(saveTime.substring(0, 8))
+												.append(File.separator).append(formattedFileName).toString());
+		if(!file.getParentFile().exists()) file.getParentFile().mkdirs();
+		return errorFile.renameTo(file);
+	}
+
+	/**
+	 * CollectSink 의 데이터를 파일로 저장
+	 * 저장 파일의 FileChannel 을 sink 에 넘겨 중간 버퍼 복사 없이 저장한다.
+	 * @param sink 저장할 데이터를 전달하는 CollectSink
 	 * @param saveDirectory 파일 저장 디렉토리
 	 * @param fileName 파일명
 	 * @return 저장된 파일 반환
 	 * @throws IOException
 	 */
-	private File saveObject(Object object, File saveDirectory, String fileName) throws IOException {
-		BufferedOutputStream bos = null;
-		File file = null;
-
-		try {
-			file = new File(saveDirectory, fileName);
-
-			byte[] buffer = new byte[bufferSize];
-			bos = new BufferedOutputStream(new FileOutputStream(file, false), bufferSize); // true => 이어쓰기, false => 파일새로생성
-
-			// 파일 이어쓰기일 경우.. 파일크기가 0보다 크면 줄바꿈
-			if(file.length() > 0) {
-				bos.write(System.lineSeparator().getBytes());
-			}
-
-			// byte[] 데이터 저장
-			if(object instanceof byte[]) {
+	private File saveSink(CollectSink sink, File saveDirectory, String fileName) throws IOException {
+		if(sink == null) throw new IllegalArgumentException("CollectSink cannot be null.");
 
-				bos.write((byte[])object);
+		FileOutputStream outStream = null;
+		FileChannel fileChannel = null;
+		File file = new File(saveDirectory, fileName);
 
-			// InputStream 데이터 저장
-			} else if(object instanceof InputStream) {
-
-				int readLength = 0;
-	    	    while( (readLength = ((InputStream)object).read(buffer)) != -1 ) {
-	    	    	bos.write(buffer, 0, readLength);
-	    	    }
-
-	    	// Sftp 데이터 저장
-			} else if(object instanceof SFTPv3FileHandle) {
-
-				SFTPv3FileHandle sftpFileHandle = (SFTPv3FileHandle)object;
-				SFTPv3Client sftp = sftpFileHandle.getClient();
-
-				long offset = 0;
-				int readLength = 0;
-				while ( (readLength = sftp.read(sftpFileHandle, offset, buffer, 0, buffer.length)) != -1 ) {
-					bos.write(buffer, 0, readLength);
-					offset += readLength;
-				}
-			} else {
-				throw new IllegalArgumentException("invalid Object type.. ["+object.getClass()+"]");
-			}
-			bos.flush();
-		} catch (IOException e) {
-			throw e;
+		try {
+			outStream = new FileOutputStream(file, false); // 파일새로생성
+			fileChannel = outStream.getChannel();
+			sink.transferTo(fileChannel);
 		} finally {
-			if(bos != null) { try { bos.close(); } catch (IOException ie) { } }
+			if(fileChannel != null) { try { fileChannel.close(); } catch (IOException ie) { } }
+			if(outStream != null) { try { outStream.close(); } catch (IOException ie) { } }
 		}
 		return file;
 	}
@@ -235,6 +290,17 @@ public abstract class AbstractCollect {
 	 * @param collectFileSize 파일사이즈
 	 */
 	public void loggingCollectHistoryForDashboard(long collectTime, String fileName, long collectFileSize) {
+		loggingCollectHistoryForDashboard(logpolicyId, collectTime, fileName, collectFileSize);
+	}
+
+	/**
+	 * log4j2의 collectHiostoryDashboardLogger를 통해 특정 파일에 로그를 남긴다.
+	 * @param logpolicyId 저장한 정책아이디
+	 * @param collectTime 수집시간
+	 * @param fileName 파일명
+	 * @param collectFileSize 파일사이즈
+	 */
+	protected void loggingCollectHistoryForDashboard(String logpolicyId, long collectTime, String fileName, long collectFileSize) {
 		if(!ConfigLoader.getInstance().getBoolean(Config.LOG_DB_ENABLED)) return;
 		String collectHistoryLog = new StringBuilder().append(collectTime)
 						   					   		  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(logpolicyId)
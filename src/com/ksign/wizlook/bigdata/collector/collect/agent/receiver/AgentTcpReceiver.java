@@ -4,11 +4,8 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.GlobalEventExecutor;
 
 import java.net.InetSocketAddress;
@@ -17,9 +14,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ksign.wizlook.bigdata.collector.collect.agent.receiver.netty.AgentReceiverChannelInitializer;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.util.NettyTransportManager;
 
 /**
  * Netty Server 구동 및 중지 클래스
+ * event loop 는 NettyTransportManager 의 공용 thread group 을 사용한다.
  * @author byw
  */
 public class AgentTcpReceiver {
@@ -28,10 +28,6 @@ public class AgentTcpReceiver {
 	private Channel channel;
 	/** Channel groups that the client is connected */
 	private ChannelGroup channelGroup;
-	/** Netty nio boss thread group */
-	private EventLoopGroup bossGroup;
-	/** Netty nio worker thread group */
-	private EventLoopGroup workerGroup;
 	/** logger */
 	private final Logger logger = LogManager.getLogger();
 
@@ -42,16 +38,14 @@ public class AgentTcpReceiver {
 	 */
 	public boolean start(int port) {
 
-		bossGroup = new NioEventLoopGroup();
-		workerGroup = new NioEventLoopGroup(); // default : core count * 2; java option -Dio.netty.eventLoopThreads=30
-
 		// channelGroup은 단순히 현재 connection 중인 client목록을 확인하기 위한 용도로 사용
 		channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
 		ServerBootstrap bootStrap = new ServerBootstrap();
 
-		bootStrap.group(bossGroup, workerGroup)
-				 .channel(NioServerSocketChannel.class)
+		// 공용 event loop 사용 ( thread 수 : netty.worker.thread.count )
+		bootStrap.group(NettyTransportManager.INSTANCE.getBossGroup(), NettyTransportManager.INSTANCE.getWorkerGroup())
+				 .channel(NettyTransportManager.INSTANCE.getServerChannelClass())
 				 .childOption(ChannelOption.SO_REUSEADDR, true)
 				 .childOption(ChannelOption.SO_KEEPALIVE, true)
 				 .childOption(ChannelOption.TCP_NODELAY, true)
@@ -64,6 +58,7 @@ public class AgentTcpReceiver {
 			ChannelFuture future = bootStrap.bind(new InetSocketAddress(port)).sync();
 			if(future.isSuccess()) {
 				channel = future.channel();
+				BacklogMonitor.INSTANCE.registerChannelGroup(channelGroup);
 				return true;
 			}
 		} catch (Exception e) {
@@ -82,6 +77,7 @@ public class AgentTcpReceiver {
 
 		// Server 에 연결되어 있는 client socket close
 		if(channelGroup != null) {
+			BacklogMonitor.INSTANCE.unregisterChannelGroup(channelGroup);
 			try { channelGroup.close().await(); } catch (InterruptedException e) { }
 		}
 
@@ -93,14 +89,6 @@ public class AgentTcpReceiver {
 		} catch (InterruptedException e) {
 			logger.error(this.getClass().getSimpleName(), e);
 		}
-
-		if(bossGroup != null && !bossGroup.isShutdown()) {
-			bossGroup.shutdownGracefully();
-		}
-
-		if(workerGroup != null && !workerGroup.isShutdown()) {
-			workerGroup.shutdownGracefully();
-		}
 		return result;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,272 @@
+package com.ksign.wizlook.bigdata.collector.collect.agent.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Agent 압축 로그파일 수신 중 압축 해제 클래스
+ *  - 압축된 파일을 저장한 후 압축 해제하지 않고, 수신한 내용을 바로 압축 해제하여 수집 파일에 기록한다.
+ *  - STREAM : 파일 전체가 하나의 gzip 또는 zlib stream ( compressYn Y )
+ *  - BLOCK  : 8 byte ( String ) 압축 block 길이 + 해당 길이의 zlib stream 이 반복 ( compressYn B )
+ *             agent 가 파일 전체를 압축하지 않고 일정 크기씩 압축하여 바로 전송할 수 있다.
+ * 수신 buffer 의 내용을 나누어 전달해도 되며 ( header, trailer 가 나뉘어도 됨 ), 파일 한 건 수신마다 생성한다.
+ * @author byw
+ */
+final class AgentInflateWriter {
+	/** 파일 전체가 하나의 gzip 또는 zlib stream */
+	static final int MODE_STREAM = 0;
+	/** 압축 block 반복 */
+	static final int MODE_BLOCK  = 1;
+
+	/** block 길이 header 길이 */
+	private static final int BLOCK_LENGTH_HEADER_LENGTH = 8;
+	/** 압축 해제 buffer 크기 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int GZIP_MAGIC_1 = 0x1f;
+	private static final int GZIP_MAGIC_2 = 0x8b;
+	private static final int GZIP_FLAG_FHCRC    = 0x02;
+	private static final int GZIP_FLAG_FEXTRA   = 0x04;
+	private static final int GZIP_FLAG_FNAME    = 0x08;
+	private static final int GZIP_FLAG_FCOMMENT = 0x10;
+	/** gzip 고정 header 길이 */
+	private static final int GZIP_HEADER_LENGTH = 10;
+	/** gzip trailer 길이 ( CRC32 + ISIZE ) */
+	private static final int GZIP_TRAILER_LENGTH = 8;
+
+	/** gzip header 읽는 중 */
+	private static final int STATE_GZIP_HEADER = 0;
+	/** 압축 해제 중 */
+	private static final int STATE_INFLATE     = 1;
+	/** gzip trailer 읽는 중 */
+	private static final int STATE_GZIP_TRAILER = 2;
+	/** block 길이 header 읽는 중 */
+	private static final int STATE_BLOCK_LENGTH = 3;
+	/** stream 종료 */
+	private static final int STATE_DONE        = 4;
+
+	private final FileChannel fileChannel;
+	private final boolean blockMode;
+	private final boolean gzip;
+	private final Inflater inflater;
+	private final CRC32 crc = new CRC32();
+	private final byte[] inputBuffer = new byte[BUFFER_SIZE];
+	private final byte[] outputBuffer = new byte[BUFFER_SIZE];
+
+	private int state;
+	/** gzip header / trailer, block 길이 header 임시 저장 */
+	private final byte[] headerBuffer = new byte[GZIP_HEADER_LENGTH];
+	private int headerCount = 0;
+	/** gzip header flag */
+	private int gzipFlag = 0;
+	/** gzip header 가변 영역 ( FEXTRA, FHCRC ) 에서 읽은 길이 */
+	private int gzipFieldCount = 0;
+	/** gzip header FEXTRA 길이 ( XLEN ) */
+	private int gzipExtraLength = 0;
+	/** 현재 block 의 남은 압축 데이터 길이 */
+	private long blockRemaining = 0;
+	/** 압축 해제 후 크기 */
+	private long outputSize = 0;
+
+	/**
+	 * @param fileChannel 압축 해제한 내용을 기록할 수집 파일
+	 * @param mode MODE_STREAM, MODE_BLOCK
+	 * @param gzip gzip stream 여부 ( MODE_STREAM 인 경우. false 인 경우 zlib )
+	 */
+	AgentInflateWriter(FileChannel fileChannel, int mode, boolean gzip) {
+		this.fileChannel = fileChannel;
+		this.blockMode = mode == MODE_BLOCK;
+		this.gzip = !blockMode && gzip;
+		this.inflater = new Inflater(this.gzip);
+		if(blockMode) state = STATE_BLOCK_LENGTH;
+		else if(this.gzip) state = STATE_GZIP_HEADER;
+		else state = STATE_INFLATE;
+	}
+
+	/**
+	 * 압축 파일 앞 2 byte 로 압축 형식 확인 ( compressYn Y )
+	 * @param byteBuf 수신 buffer ( 2 byte 이상 read 가능해야 한다. readerIndex 는 변경하지 않는다 )
+	 * @return gzip 인 경우 1, zlib 인 경우 0, 그 외 ( 압축 해제할 수 없는 형식 ) -1
+	 */
+	static int detect(ByteBuf byteBuf) {
+		int b0 = byteBuf.getUnsignedByte(byteBuf.readerIndex());
+		int b1 = byteBuf.getUnsignedByte(byteBuf.readerIndex() + 1);
+		if(b0 == GZIP_MAGIC_1 && b1 == GZIP_MAGIC_2) return 1;
+		// zlib header : CM 8 ( deflate ), ( CMF * 256 + FLG ) % 31 == 0, preset dictionary 없음
+		if((b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0 && (b1 & 0x20) == 0) return 0;
+		return -1;
+	}
+
+	/**
+	 * 수신 buffer 의 readerIndex 부터 length 만큼 압축 해제하여 기록 ( readerIndex 는 length 만큼 증가 )
+	 * @param byteBuf 수신 buffer
+	 * @param length 압축 데이터 길이
+	 * @throws IOException 압축 형식이 잘못된 경우
+	 */
+	void write(ByteBuf byteBuf, int length) throws IOException {
+		int end = byteBuf.readerIndex() + length;
+		while(byteBuf.readerIndex() < end) {
+			switch(state) {
+			case STATE_GZIP_HEADER:
+				readGzipHeader(byteBuf.readUnsignedByte());
+				break;
+			case STATE_BLOCK_LENGTH:
+				readBlockLength(byteBuf.readByte());
+				break;
+			case STATE_INFLATE:
+				int size = Math.min(end - byteBuf.readerIndex(), inputBuffer.length);
+				if(blockMode) size = (int) Math.min(size, blockRemaining);
+				byteBuf.readBytes(inputBuffer, 0, size);
+				inflate(size);
+				break;
+			case STATE_GZIP_TRAILER:
+				readGzipTrailer(byteBuf.readByte());
+				break;
+			default:
+				throw new IOException("Invalid compressed data. Data remains after end of compressed stream.");
+			}
+		}
+	}
+
+	/**
+	 * 압축 stream 이 정상적으로 끝났는지 확인 ( 마지막 byte 수신 후 호출 )
+	 * @throws IOException 압축 stream 이 끝나지 않은 경우
+	 */
+	void finish() throws IOException {
+		boolean complete = blockMode ? state == STATE_BLOCK_LENGTH && headerCount == 0 : state == STATE_DONE;
+		if(!complete) throw new IOException("Invalid compressed data. Unexpected end of compressed stream.");
+	}
+
+	/**
+	 * Inflater native 자원 해제
+	 */
+	void end() {
+		inflater.end();
+	}
+
+	long getOutputSize() {
+		return outputSize;
+	}
+
+	private void inflate(int size) throws IOException {
+		inflater.setInput(inputBuffer, 0, size);
+		if(blockMode) blockRemaining -= size;
+		try {
+			while(true) {
+				int inflated = inflater.inflate(outputBuffer);
+				if(inflated > 0) {
+					if(gzip) crc.update(outputBuffer, 0, inflated);
+					ByteBuffer buffer = ByteBuffer.wrap(outputBuffer, 0, inflated);
+					while(buffer.hasRemaining()) fileChannel.write(buffer);
+					outputSize += inflated;
+				}
+				if(inflater.finished()) {
+					endStream(size - inflater.getRemaining(), size);
+					return;
+				}
+				if(inflated == 0) {
+					if(inflater.needsDictionary()) throw new IOException("Invalid compressed data. Preset dictionary is not supported.");
+					if(inflater.needsInput()) break;
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid compressed data. " + e.getMessage(), e);
+		}
+		if(blockMode && blockRemaining == 0) throw new IOException("Invalid compressed data. Block ended before end of compressed stream.");
+	}
+
+	/**
+	 * 압축 stream 종료 처리
+	 * @param offset inputBuffer 에서 압축 stream 이 끝난 위치
+	 * @param size inputBuffer 의 데이터 길이
+	 */
+	private void endStream(int offset, int size) throws IOException {
+		if(gzip) {
+			state = STATE_GZIP_TRAILER;
+			headerCount = 0;
+			for(int i=offset; i<size; i++) readGzipTrailer(inputBuffer[i]);
+			return;
+		}
+		if(offset < size) throw new IOException("Invalid compressed data. Data remains after end of compressed stream.");
+		if(blockMode) {
+			if(blockRemaining != 0) throw new IOException("Invalid compressed data. Compressed stream ended before end of block.");
+			inflater.reset();
+			state = STATE_BLOCK_LENGTH;
+			headerCount = 0;
+		} else {
+			state = STATE_DONE;
+		}
+	}
+
+	private void readBlockLength(byte b) throws IOException {
+		headerBuffer[headerCount++] = b;
+		if(headerCount < BLOCK_LENGTH_HEADER_LENGTH) return;
+		String value = new String(headerBuffer, 0, BLOCK_LENGTH_HEADER_LENGTH, "US-ASCII").trim();
+		try {
+			blockRemaining = Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid compressed block length. value=[" + value + "]");
+		}
+		if(blockRemaining < 1) throw new IOException("Invalid compressed block length. value=[" + value + "]");
+		headerCount = 0;
+		state = STATE_INFLATE;
+	}
+
+	/**
+	 * gzip header ( RFC 1952 ) 확인. 고정 영역 이후 FEXTRA, FNAME, FCOMMENT, FHCRC 순서로 건너뛴다.
+	 */
+	private void readGzipHeader(int b) throws IOException {
+		if(headerCount < GZIP_HEADER_LENGTH) {
+			headerBuffer[headerCount++] = (byte) b;
+			if(headerCount < GZIP_HEADER_LENGTH) return;
+			if((headerBuffer[0] & 0xff) != GZIP_MAGIC_1 || (headerBuffer[1] & 0xff) != GZIP_MAGIC_2 || headerBuffer[2] != 8) {
+				throw new IOException("Invalid compressed data. Not in gzip format.");
+			}
+			gzipFlag = headerBuffer[3] & 0xff;
+			if(gzipFlag == 0) state = STATE_INFLATE;
+			return;
+		}
+		if((gzipFlag & GZIP_FLAG_FEXTRA) != 0) {
+			// XLEN ( 2 byte, little endian ) 이후 XLEN 만큼 건너뜀
+			gzipFieldCount++;
+			if(gzipFieldCount == 1) gzipExtraLength = b;
+			else if(gzipFieldCount == 2) gzipExtraLength |= b << 8;
+			if(gzipFieldCount >= 2 && gzipFieldCount == gzipExtraLength + 2) {
+				gzipFlag &= ~GZIP_FLAG_FEXTRA;
+				gzipFieldCount = 0;
+			}
+		} else if((gzipFlag & GZIP_FLAG_FNAME) != 0) {
+			if(b == 0) gzipFlag &= ~GZIP_FLAG_FNAME;
+		} else if((gzipFlag & GZIP_FLAG_FCOMMENT) != 0) {
+			if(b == 0) gzipFlag &= ~GZIP_FLAG_FCOMMENT;
+		} else if((gzipFlag & GZIP_FLAG_FHCRC) != 0) {
+			// header CRC16 ( 2 byte ) 는 확인하지 않음
+			if(++gzipFieldCount == 2) gzipFlag &= ~GZIP_FLAG_FHCRC;
+		}
+		if((gzipFlag & (GZIP_FLAG_FEXTRA | GZIP_FLAG_FNAME | GZIP_FLAG_FCOMMENT | GZIP_FLAG_FHCRC)) == 0) state = STATE_INFLATE;
+	}
+
+	/**
+	 * gzip trailer ( CRC32, ISIZE ) 확인
+	 */
+	private void readGzipTrailer(byte b) throws IOException {
+		if(state == STATE_DONE) throw new IOException("Invalid compressed data. Data remains after end of compressed stream.");
+		headerBuffer[headerCount++] = b;
+		if(headerCount < GZIP_TRAILER_LENGTH) return;
+		long trailerCrc = readIntLE(headerBuffer, 0);
+		long trailerSize = readIntLE(headerBuffer, 4);
+		if(trailerCrc != crc.getValue()) throw new IOException("Invalid compressed data. CRC32 mismatch.");
+		if(trailerSize != (outputSize & 0xffffffffL)) throw new IOException("Invalid compressed data. Size mismatch.");
+		state = STATE_DONE;
+	}
+
+	private static long readIntLE(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xffL) | ((buffer[offset + 1] & 0xffL) << 8) | ((buffer[offset + 2] & 0xffL) << 16) | ((buffer[offset + 3] & 0xffL) << 24);
+	}
+}
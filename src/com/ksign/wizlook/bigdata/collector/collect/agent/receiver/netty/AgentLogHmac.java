@@ -0,0 +1,156 @@
+package com.ksign.wizlook.bigdata.collector.collect.agent.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.google.common.io.BaseEncoding;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.common.crypto.KsignCryptoUtils;
+import com.ksign.wizlook.common.crypto.KsignInterfaceUtils;
+import com.ksign.wizlook.common.util.HMACUtil;
+
+/**
+ * Agent 로그파일 수신 중 hmac 계산 클래스
+ *  - 파일 전체를 저장한 후 다시 읽어서 계산하지 않고, 수신한 내용을 파일에 쓰기 전에 누적하여 계산한다.
+ *  - agent.receiver.hmac.key 가 설정되지 않은 경우 사용하지 않는다. ( 저장 후 HMACUtil.validate 로 검증 )
+ *  - key 최초 사용 시 같은 내용에 대한 HMACUtil 의 결과와 비교하여, 다른 경우 사용하지 않는다. ( 저장 후 HMACUtil.validate 로 검증 )
+ * 파일 한 건 수신마다 생성한다.
+ * @author byw
+ */
+final class AgentLogHmac {
+	/** default hmac 알고리즘 */
+	private static final String DEFAULT_ALGORITHM = "HmacSHA256";
+	/** HMACUtil 결과와 비교할 내용 */
+	private static final byte[] KNOWN_ANSWER_CONTENT = "WizLook AgentLogHmac known answer check".getBytes(Charset.forName("UTF-8"));
+	/** logger */
+	private static final Logger logger = LogManager.getLogger();
+	/** hmac key ( 최초 사용 시 복호화 ) */
+	private static volatile SecretKeySpec secretKey;
+	/** HMACUtil 결과와 달라 사용하지 않는지 여부 */
+	private static volatile boolean disabled = false;
+
+	private final Mac mac;
+	/** 계산된 hmac ( base64. verify 후 설정 ) */
+	private String computedHmac;
+
+	private AgentLogHmac(Mac mac) {
+		this.mac = mac;
+	}
+
+	/**
+	 * 설정된 key 로 hmac 계산 객체 생성
+	 * @return key 가 설정되지 않은 경우 null
+	 * @throws GeneralSecurityException 알고리즘 또는 key 가 잘못된 경우
+	 */
+	static AgentLogHmac create() throws GeneralSecurityException {
+		SecretKeySpec key = getSecretKey();
+		if(key == null) return null;
+		Mac mac = Mac.getInstance(key.getAlgorithm());
+		mac.init(key);
+		return new AgentLogHmac(mac);
+	}
+
+	private static synchronized SecretKeySpec getSecretKey() {
+		SecretKeySpec key = secretKey;
+		if(key != null || disabled) return key;
+
+		String encryptedKey = ConfigLoader.getInstance().get(Config.AGENT_RECEIVER_HMAC_KEY);
+		if(Strings.isNullOrEmpty(encryptedKey)) return null;
+		String algorithm = ConfigLoader.getInstance().get(Config.AGENT_RECEIVER_HMAC_ALGORITHM);
+		if(Strings.isNullOrEmpty(algorithm)) algorithm = DEFAULT_ALGORITHM;
+
+		String decryptedKey = KsignInterfaceUtils.dec(encryptedKey.trim(), KsignCryptoUtils.getInstance().getKey());
+		key = new SecretKeySpec(decryptedKey.getBytes(Charset.forName("UTF-8")), algorithm.trim());
+		if(!matchHmacUtil(key)) {
+			disabled = true;
+			return null;
+		}
+		secretKey = key;
+		return key;
+	}
+
+	/**
+	 * 같은 내용에 대해 key 로 계산한 hmac 과 HMACUtil.encode 의 결과가 같은지 확인
+	 * @param key hmac key
+	 * @return 일치 여부 ( 다른 경우 수신 중 계산한 hmac 으로 검증하면 정상 파일도 실패하므로 사용하지 않는다 )
+	 */
+	private static boolean matchHmacUtil(SecretKeySpec key) {
+		File checkFile = null;
+		FileOutputStream outStream = null;
+		try {
+			checkFile = File.createTempFile(AgentLogHmac.class.getSimpleName(), ".chk");
+			outStream = new FileOutputStream(checkFile);
+			outStream.write(KNOWN_ANSWER_CONTENT);
+			outStream.close();
+			outStream = null;
+
+			Mac mac = Mac.getInstance(key.getAlgorithm());
+			mac.init(key);
+			String computedHmac = BaseEncoding.base64().encode(mac.doFinal(KNOWN_ANSWER_CONTENT));
+			String expectedHmac = HMACUtil.encode(checkFile);
+			if(computedHmac.equals(Strings.nullToEmpty(expectedHmac).trim())) return true;
+			logger.error(AgentLogHmac.class.getSimpleName() + ". HMAC of agent.receiver.hmac.key does not match HMACUtil. Validate after save. algorithm=[" + key.getAlgorithm() + "]");
+		} catch (Exception e) {
+			logger.error(AgentLogHmac.class.getSimpleName() + ". It failed to check HMAC key. Validate after save.", e);
+		} finally {
+			if(outStream != null) try { outStream.close(); } catch (IOException e) {}
+			if(checkFile != null && !checkFile.delete()) checkFile.deleteOnExit();
+		}
+		return false;
+	}
+
+	/**
+	 * 수신 buffer 의 index 부터 length 만큼 hmac 에 누적 ( readerIndex 는 변경하지 않는다 )
+	 * @param byteBuf 수신 buffer
+	 * @param index 시작 위치
+	 * @param length 길이
+	 */
+	void update(ByteBuf byteBuf, int index, int length) {
+		if(length <= 0) return;
+		for(ByteBuffer buffer : byteBuf.nioBuffers(index, length)) mac.update(buffer);
+	}
+
+	/**
+	 * buffer 의 position 부터 limit 까지 hmac 에 누적 ( 이어받기 시 이미 수신한 파일 내용 )
+	 * @param buffer 누적할 내용
+	 */
+	void update(ByteBuffer buffer) {
+		mac.update(buffer);
+	}
+
+	/**
+	 * 누적한 hmac 을 수신한 hmac 과 비교
+	 * @param logHmac 수신한 hmac ( base64 )
+	 * @return 일치 여부
+	 */
+	boolean verify(String logHmac) {
+		byte[] computed = mac.doFinal();
+		computedHmac = BaseEncoding.base64().encode(computed);
+		byte[] received;
+		try {
+			received = BaseEncoding.base64().decode(Strings.nullToEmpty(logHmac).trim());
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		return MessageDigest.isEqual(computed, received);
+	}
+
+	String getComputedHmac() {
+		return computedHmac;
+	}
+}
@@ -9,6 +9,9 @@ import io.netty.channel.group.ChannelGroup;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+
 /**
  * Netty의 Event가 발생하였을 때 비동기로 호출되는 Method를 구현한 클래스
  * 아래 구현된 Event 외 추가적인 Event를 Override하여 구현할 수 있다
@@ -37,6 +40,8 @@ public class AgentReceiverChannelHandler extends ChannelInboundHandlerAdapter {
 	@Override
 	public void channelActive(ChannelHandlerContext ctx) throws Exception {
 		channelGroup.add(ctx.channel());
+		// 수집이 일시 중지된 경우 read 중지
+		BacklogMonitor.INSTANCE.applyAutoRead(ctx.channel());
 		InetSocketAddress sockAddress = (InetSocketAddress)ctx.channel().remoteAddress();
 		logger.info("Connected Agent. Remote address=[" + sockAddress.getAddress().getHostAddress() + "]");
 	}
@@ -2,14 +2,12 @@ package com.ksign.wizlook.bigdata.collector.collect.agent.receiver.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
-import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -20,16 +18,25 @@ import com.ksign.wizlook.bigdata.collector.collect.agent.AgentCollect;
 import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.DiskIoDecoder;
 import com.ksign.wizlook.common.entity.CollectDataBean;
 import com.ksign.wizlook.common.util.FileUtil;
 import com.ksign.wizlook.common.util.HMACUtil;
 
 /**
  * client로 부터 메시지를 수신할 때 거치는 클래스
+ * agent.receiver.hmac.key 가 설정된 경우 수신한 내용을 파일에 쓰기 전에 hmac 을 누적 계산하여 마지막 byte 수신 시 바로 검증한다.
+ * 설정되지 않은 경우 파일 저장 후 HMACUtil 로 검증한다.
+ * 압축된 로그파일은 아래와 같이 압축 해제한다.
+ *  - compressYn Y : agent.receiver.inline.decompress 가 true 이고 수신 중 hmac 을 계산하는 경우 수신하면서 바로 압축 해제 ( gzip, zlib )
+ *                   그 외 ( 형식을 알 수 없는 경우 포함 ) 압축 파일을 저장한 후 압축 해제
+ *  - compressYn B : block 단위 압축. 수신하면서 바로 압축 해제 ( AgentInflateWriter. agent.receiver.hmac.key 필요 )
+ * header 가 'V2' 로 시작하는 경우 이어받기 전문으로 AgentResumableTransfer 에서 처리한다.
+ * 파일 기록, hmac 검증, 압축 해제, 저장은 event loop 가 아닌 disk I/O thread 에서 수신 순서대로 처리한다. ( DiskIoDecoder )
  * 각 connection 별 Decoder가 생성된다.
  * @author byw
  */
-public class AgentReceiverDecoder extends ByteToMessageDecoder {
+public class AgentReceiverDecoder extends DiskIoDecoder {
 
 	/** read charset */
 	private Charset charset;
@@ -54,6 +61,8 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 	private int FILE_NAME_LENGTH 			= 4;
 	/** 로그파일 hmac 길이 */
 	private int LOG_HMAC_LENGTH				= 44;
+	/** 압축 여부 - block 단위 압축 */
+	private static final String COMPRESS_BLOCK = "B";
 
 	private long readSize   = 0;
 	private long bodyLength = 0;
@@ -67,13 +76,23 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 	private final Logger logger = LogManager.getLogger();
 	private long startDate = 0;
 	private CollectLogger collectLogger;
+	/** hmac 검증 실패 여부 ( 검증에 실패한 파일은 재전송 대상에서 제외 ) */
+	private boolean hmacInvalid = false;
+	/** 수신 중 hmac 계산 ( agent.receiver.hmac.key 가 설정되지 않은 경우 null ) */
+	private AgentLogHmac logHmac;
+	/** 수신 중 압축 해제 ( 압축 파일을 저장한 후 압축 해제하는 경우 null ) */
+	private AgentInflateWriter inflateWriter;
+	/** 수신 중 압축 해제를 위해 압축 형식 확인 대기 여부 */
+	private boolean inflateDetectPending = false;
+	/** 이어받기 ( v2 ) 전문 처리 ( v2 전문을 수신한 경우 생성 ) */
+	private AgentResumableTransfer resumableTransfer;
 
 	public AgentReceiverDecoder(Charset charSet) {
 		this.charset = charSet;
 	}
 
 	/**
-	 * 메시지를 수신할 때 마다 호출되는 메소드
+	 * 메시지를 수신할 때 마다 disk I/O thread 에서 호출되는 메소드
 	 * 수신되는 data의 길이는 통신상황에 따라 상이하다.
 	 * 메시지 전문 구성은 아래와 같다.
 	 * header - 20 byte (String)  -> bodyLength
@@ -87,10 +106,21 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 	 *        - n  byte (byte[])  -> file (파일 또는 logData)
 	 * @param ctx Netty ChannelHandlerContext
 	 * @param byteBuf 수신된 data가 들어있는 Netty ByteBuf
-	 * @param out Handler로 전달할 Object
 	 */
 	@Override
-	protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
+	protected void decodeFile(ChannelHandlerContext ctx, ByteBuf byteBuf) throws Exception {
+
+		// 이어받기 ( v2 ) 전문
+		if(!headerReadComplete && (resumableTransfer != null && resumableTransfer.isFrameInProgress() || AgentResumableTransfer.isV2Frame(byteBuf))) {
+			if(resumableTransfer == null) resumableTransfer = new AgentResumableTransfer(charset);
+			try {
+				resumableTransfer.decode(ctx, byteBuf);
+			} catch(Exception e) {
+				logger.error(this.getClass().getName(), e);
+				throw e;
+			}
+			return;
+		}
 
 		this.byteBuf = byteBuf;
 
@@ -135,7 +165,7 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 				// 2byte (String) -> collectLogEncoding
 				String collectLogEncoding = new String(byteBuf.readBytes(COLLECT_LOG_ENCODING_LENGTH).array(), charset).trim();
 				// 44byte (String) -> logHmac
-				String logHmac = new String(byteBuf.readBytes(LOG_HMAC_LENGTH).array(), charset).trim();
+				String receivedHmac = new String(byteBuf.readBytes(LOG_HMAC_LENGTH).array(), charset).trim();
 				// 4byte (String) -> fileNameLength
 				int nameLength = Integer.parseInt(new String(byteBuf.readBytes(FILE_NAME_LENGTH).array(), charset).trim());
 
@@ -162,13 +192,21 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 
 				bean = new CollectDataBean(logpolicyId, dataSourceId, logFileName, saveFile, compressYn);
 				bean.setSendDate(sendDate);
-				bean.setLogHmac(logHmac);
+				bean.setLogHmac(receivedHmac);
 				bean.setCollectLogEncoding(collectLogEncoding);
 
 				fileLength = bodyLength - (POLICY_ID_LENGTH + DATA_SOURCE_ID_LENGTH + SEND_DATE_LENGTH + COMPRESS_YN_LENGTH + COLLECT_LOG_ENCODING_LENGTH + LOG_HMAC_LENGTH + FILE_NAME_LENGTH + nameLength);
 
 				outStream = new FileOutputStream(saveFile);
 				fileChannel = outStream.getChannel();
+				this.logHmac = AgentLogHmac.create();
+				if(COMPRESS_BLOCK.equals(compressYn)) {
+					// hmac 은 압축된 내용으로 계산하므로 수신 중 계산하는 경우에만 가능
+					if(logHmac == null) throw new IOException("Block compressed logFile requires agent.receiver.hmac.key. file=[" + logFileName + "]");
+					inflateWriter = new AgentInflateWriter(fileChannel, AgentInflateWriter.MODE_BLOCK, false);
+				} else if(UseYn.Y.toString().equals(compressYn) && logHmac != null && ConfigLoader.getInstance().getBoolean(Config.AGENT_RECEIVER_INLINE_DECOMPRESS)) {
+					inflateDetectPending = true;
+				}
 				headerReadComplete = true;
 				startDate = System.currentTimeMillis();
 
@@ -177,6 +215,18 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 				collectLogger.loggingCollectStart(startDate);
 			}
 
+			// 압축 형식 확인 ( 앞 2 byte ). 수신 중 압축 해제할 수 없는 형식은 저장 후 압축 해제한다.
+			if(inflateDetectPending) {
+				if(byteBuf.readableBytes() < 2 && fileLength - readSize >= 2) return;
+				inflateDetectPending = false;
+				int format = fileLength - readSize >= 2 ? AgentInflateWriter.detect(byteBuf) : -1;
+				if(format >= 0) {
+					inflateWriter = new AgentInflateWriter(fileChannel, AgentInflateWriter.MODE_STREAM, format == 1);
+				} else {
+					collectLogger.loggingCollectDetailLog("[Decompress] Unknown compress format. Decompress after receive.");
+				}
+			}
+
 			// 한 connection으로 데이터를 계속 수신하기 위해
 			// 모든 data를 읽으면 전역 파라미터들을 모두 초기화 해준다.
 			int readableBytesSize = byteBuf.readableBytes();
@@ -189,17 +239,36 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 				readSize = 0;
 				headerReadComplete = false;
 
-				fileChannel.write(byteBuf.readBytes((int)size).nioBuffer());
+				writeFully((int)size);
 				fileChannel.close();
 				outStream.close();
 
 				// 수신한 데이터의 hmac 유효성 검사
-				if(!HMACUtil.validate(bean.getLogFile(), bean.getLogHmac())) {
+				if(logHmac != null) {
+					// 수신하면서 계산한 hmac 으로 검증 ( 파일을 다시 읽지 않음 )
+					AgentLogHmac receivedLogHmac = logHmac;
+					logHmac = null;
+					if(!receivedLogHmac.verify(bean.getLogHmac())) {
+						hmacInvalid = true;
+						throw new Exception("Receive logFile HMAC is invalid. file=[" + bean.getLogFile().getName() + "], receiveHMAC=[" + bean.getLogHmac() + "], fileHMAC=[" + receivedLogHmac.getComputedHmac() + "]");
+					}
+				} else if(!HMACUtil.validate(bean.getLogFile(), bean.getLogHmac())) {
+					hmacInvalid = true;
 					throw new Exception("Receive logFile HMAC is invalid. file=[" + bean.getLogFile().getName() + "], receiveHMAC=[" + bean.getLogHmac() + "], fileHMAC=[" + HMACUtil.encode(bean.getLogFile()));
 				}
 
 				// 압축 여부에 따라 압축을 해제한다.
-				if(UseYn.Y.toString().equals(bean.getCompressYn())) {
+				if(inflateWriter != null) {
+					// 수신 중 압축 해제한 경우 stream 이 정상적으로 끝났는지 확인
+					AgentInflateWriter receivedInflateWriter = inflateWriter;
+					inflateWriter = null;
+					try {
+						receivedInflateWriter.finish();
+					} finally {
+						receivedInflateWriter.end();
+					}
+					collectLogger.loggingCollectDetailLog("[Decompress] SUCCESS. Inline decompress. compressedSize=[" + size + "], fileSize=[" + receivedInflateWriter.getOutputSize() + "]");
+				} else if(UseYn.Y.toString().equals(bean.getCompressYn())) {
 					collectLogger.loggingCollectDetailLog("[Decompress] Start Decompress logFile.");
 					long decompressStartTime = System.currentTimeMillis();
 					File decompressedFile = new File(bean.getLogFile() + "_decompress");
@@ -228,8 +297,8 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 			}
 
 			readSize+=readableBytesSize;
-			// Netty byteBuf에 들어있는 data를 fileChannel에 ByteBuffer형태로 바로 전달하여 write한다.
-			fileChannel.write(byteBuf.readBytes(readableBytesSize).nioBuffer());
+			// Netty byteBuf에 들어있는 data를 fileChannel에 바로 전달하여 write한다.
+			writeFully(readableBytesSize);
 
 		} catch(Exception e) {
 			byteBuf.resetReaderIndex();
@@ -239,23 +308,43 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 	}
 
 	/**
-	 * client의 connection이 종료되었을 때 호출되는 메소드
-	 * @param ctx Netty ChannelHandlerContext
+	 * 수신 buffer 의 readerIndex 부터 length 만큼 hmac 계산 후 파일에 기록 ( readerIndex 는 기록한 만큼 증가 )
+	 * 수신 중 압축 해제하는 경우 압축 해제한 내용을 기록한다.
+	 * @param length 기록할 길이
+	 * @throws IOException
+	 */
+	private void writeFully(int length) throws IOException {
+		if(logHmac != null) logHmac.update(byteBuf, byteBuf.readerIndex(), length);
+		if(inflateWriter != null) {
+			inflateWriter.write(byteBuf, length);
+			return;
+		}
+		int remaining = length;
+		while(remaining > 0) {
+			int written = byteBuf.readBytes(fileChannel, remaining);
+			if(written < 0) throw new IOException("It failed to write file. remaining=[" + remaining + "]");
+			remaining -= written;
+		}
+	}
+
+	/**
+	 * client의 connection이 종료되었을 때 호출되는 메소드 ( disk I/O thread )
 	 */
 	@Override
-	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+	protected void closeFile() {
 		if(saveFile != null) errorProcess();
-		super.channelInactive(ctx);
+		// 수신 중인 이어받기 전송은 staging 에 보관
+		if(resumableTransfer != null) resumableTransfer.suspend();
 	}
 
 	/**
-	 * 통신 도중 Exception이 발생하였을 경우 호출되는 메소드
-	 * @param ctx Netty ChannelHandlerContext
+	 * 통신 도중 Exception이 발생하였을 경우 호출되는 메소드 ( disk I/O thread )
 	 * @param cause 통신도중 발생된 Throwable 객체
 	 */
 	@Override
-	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+	protected void failFile(Throwable cause) {
 		if(saveFile != null) errorProcess();
+		if(resumableTransfer != null) resumableTransfer.suspend();
 
 		// logging
 		if(collectLogger != null) {
@@ -263,15 +352,15 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 			collectLogger.loggingCollectDetailLog("[Exception]", cause);
 			collectLogger.loggingCollectEnd(endTime, 0, CollectStatus.ERROR);
 		}
-		super.exceptionCaught(ctx, cause);
 	}
 
 	/**
 	 * File에 저장 중 exception 발생 시 버퍼에 남은 내용을 마저 파일에 쓰고 해당 파일을 에러디렉토리로 이동
 	 */
 	private synchronized void errorProcess() {
-		if(byteBuf != null && byteBuf.readableBytes() > 0 && fileChannel != null) {
-			try { fileChannel.write(byteBuf.readBytes(byteBuf.readableBytes()).nioBuffer()); 
+		// 수신 중 압축 해제하는 경우 남은 압축 데이터는 기록하지 않는다.
+		if(byteBuf != null && byteBuf.readableBytes() > 0 && fileChannel != null && inflateWriter == null) {
+			try { writeFully(byteBuf.readableBytes());
 			} catch (Exception e) { logger.error(this.getClass().getSimpleName(), e); }
 		}
 
@@ -281,15 +370,25 @@ public class AgentReceiverDecoder extends ByteToMessageDecoder {
 		if(saveFile != null && saveFile.length() > 0) {
 			logger.error("Error occurred while AgentReceiver file receiving. File=[" + saveFile.getName() + "], Size=[" + saveFile.length() + "], elapsedTime=[" + (System.currentTimeMillis()-startDate) + "]");
 			try {
-				File file = new File(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR) + File.separator +
-																	bean.getLogpolicyId() + File.separator +
-																	bean.getDataSourceId() + File.separator +
-																	saveFile.getName());
-				if(!file.getParentFile().exists()) file.getParentFile().mkdirs();
-				saveFile.renameTo(file);
+				if(hmacInvalid || UseYn.Y.toString().equals(bean.getCompressYn()) || COMPRESS_BLOCK.equals(bean.getCompressYn())) {
+					// 압축된 파일의 일부 또는 hmac 이 맞지 않는 파일은 재전송하지 않는다.
+					File file = new File(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR) + File.separator +
+																		bean.getLogpolicyId() + File.separator +
+																		bean.getDataSourceId() + File.separator +
+																		saveFile.getName());
+					if(!file.getParentFile().exists()) file.getParentFile().mkdirs();
+					saveFile.renameTo(file);
+				} else {
+					new AgentCollect(bean.getLogpolicyId(), bean.getDataSourceId()).saveErrorFile(saveFile, saveFile.getName(), bean.getCollectLogEncoding());
+				}
 			} catch (Exception e) { logger.error(this.getClass().getSimpleName(), e); }
 		}
 		byteBuf = null;
 		saveFile = null;
+		logHmac = null;
+		if(inflateWriter != null) inflateWriter.end();
+		inflateWriter = null;
+		inflateDetectPending = false;
+		hmacInvalid = false;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,550 @@
+package com.ksign.wizlook.bigdata.collector.collect.agent.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CollectStatus;
+import com.ksign.wizlook.bigdata.collector.code.CollectorCode.UseYn;
+import com.ksign.wizlook.bigdata.collector.collect.agent.AgentCollect;
+import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.common.util.FileUtil;
+import com.ksign.wizlook.common.util.HMACUtil;
+
+/**
+ * Agent 로그파일 이어받기 ( v2 ) 전문 처리 클래스
+ * 연결이 끊어져도 수신한 부분을 staging 디렉토리에 보관하고, agent 가 다시 연결하면 보관한 위치부터 이어서 수신한다.
+ * 전문 구성은 아래와 같다. ( header 20 byte 는 v1 과 같은 길이이며 'V2' 로 시작하는 경우 v2 로 처리한다. )
+ * header - 2  byte (String)  -> 'V2'
+ *        - 1  byte (String)  -> 전문 유형 ( Q : 전송 시작 / 이어받기 요청, D : 데이터 )
+ *        - 17 byte (String)  -> bodyLength
+ * Q body - 36 byte (String)  -> transferId ( 영문, 숫자, '-', '_' )
+ *        - 20 byte (String)  -> 파일 전체 길이
+ *        - 6  byte (String)  -> logpolicyId
+ *        - 20 byte (String)  -> dataSourceId
+ *        - 14 byte (String)  -> sendDate
+ *        - 1  byte (String)  -> compressYn ( Y / N / B )
+ *        - 20 byte (String)  -> collectLogEncoding
+ *        - 44 byte (String)  -> logHmac
+ *        - 4  byte (String)  -> fileNameLength
+ *        - n  byte (String)  -> fileName
+ * D body - 36 byte (String)  -> transferId
+ *        - 20 byte (String)  -> 파일 내 위치 ( offset )
+ *        - n  byte (byte[])  -> 파일 내용
+ * 응답 ( AgentReceiverEncoder ) 은 아래와 같다.
+ *  - RESUME transferId offset  : Q 수신 시. agent 는 offset 부터 D 로 전송한다.
+ *  - ACK transferId offset     : agent.receiver.ack.interval.bytes 만큼 수신할 때마다. offset 까지는 disk 에 기록되어 재전송하지 않아도 된다.
+ *  - SUCCESS transferId        : 파일 전체를 수신하여 저장한 경우
+ * 수신한 파일은 마지막 byte 를 받은 후 v1 과 같이 hmac 검증, 압축 해제 후 저장한다.
+ * 각 connection 별로 생성된다.
+ * @author byw
+ */
+class AgentResumableTransfer {
+	/** v2 header 시작 문자 */
+	private static final String VERSION_PREFIX = "V2";
+	/** 전송 시작 / 이어받기 요청 */
+	private static final char TYPE_QUERY = 'Q';
+	/** 데이터 */
+	private static final char TYPE_DATA  = 'D';
+
+	private static final int HEADER_LENGTH 				= 20;
+	private static final int TRANSFER_ID_LENGTH 		= 36;
+	private static final int FILE_LENGTH_LENGTH 		= 20;
+	private static final int OFFSET_LENGTH 				= 20;
+	private static final int POLICY_ID_LENGTH 			= 6;
+	private static final int DATA_SOURCE_ID_LENGTH   	= 20;
+	private static final int SEND_DATE_LENGTH 			= 14;
+	private static final int COMPRESS_YN_LENGTH 		= 1;
+	private static final int COLLECT_LOG_ENCODING_LENGTH = 20;
+	private static final int LOG_HMAC_LENGTH			= 44;
+	private static final int FILE_NAME_LENGTH 			= 4;
+	/** Q body 최대 길이 */
+	private static final int MAX_QUERY_LENGTH			= 64 * 1024;
+	/** 압축 여부 - block 단위 압축 */
+	private static final String COMPRESS_BLOCK = "B";
+
+	/** staging 파일 확장자 */
+	private static final String PART_SUFFIX = ".part";
+	private static final String META_SUFFIX = ".meta";
+	/** staging 정리 주기 */
+	private static final long CLEANUP_INTERVAL_MILLIS = 10L * 60 * 1000;
+	private static final Pattern TRANSFER_ID_PATTERN = Pattern.compile("[A-Za-z0-9_\\-]{1,36}");
+	private static final Charset META_CHARSET = Charset.forName("UTF-8");
+
+	/** 수신 중인 transferId ( 같은 파일을 여러 connection 에서 동시에 수신하지 않도록 ) */
+	private static final ConcurrentHashMap<String, Boolean> activeTransferMap = new ConcurrentHashMap<String, Boolean>();
+	/** 마지막 staging 정리 시간 */
+	private static volatile long lastCleanupTime = 0;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** read charset */
+	private final Charset charset;
+	/** staging 디렉토리 */
+	private final File stagingDir;
+	/** ACK 전송 간격 ( byte ) */
+	private final long ackIntervalBytes;
+
+	/** 수신 중인 전송 */
+	private String transferId;
+	private Properties meta;
+	private File partFile;
+	private File metaFile;
+	private RandomAccessFile partAccessFile;
+	private FileChannel fileChannel;
+	private AgentLogHmac logHmac;
+	private CollectLogger collectLogger;
+	/** 파일 전체 길이 */
+	private long fileLength;
+	/** 수신한 길이 */
+	private long receivedLength;
+	/** 마지막으로 ACK 한 길이 */
+	private long ackedLength;
+	/** 현재 D 전문의 남은 데이터 길이 */
+	private long dataRemaining = 0;
+
+	AgentResumableTransfer(Charset charset) {
+		this.charset = charset;
+		ConfigLoader config = ConfigLoader.getInstance();
+		String dir = config.get(Config.AGENT_RECEIVER_STAGING_DIR);
+		this.stagingDir = new File(Strings.isNullOrEmpty(dir) ? "collect_staging" : dir.trim());
+		String interval = config.get(Config.AGENT_RECEIVER_ACK_INTERVAL_BYTES);
+		this.ackIntervalBytes = Strings.isNullOrEmpty(interval) ? 4L * 1024 * 1024 : Long.parseLong(interval.trim());
+	}
+
+	/**
+	 * v2 전문 여부 확인 ( header 앞 2 byte )
+	 * @param byteBuf 수신 buffer
+	 * @return v2 전문 여부
+	 */
+	static boolean isV2Frame(ByteBuf byteBuf) {
+		return byteBuf.readableBytes() >= 2
+				&& byteBuf.getByte(byteBuf.readerIndex()) == VERSION_PREFIX.charAt(0)
+				&& byteBuf.getByte(byteBuf.readerIndex() + 1) == VERSION_PREFIX.charAt(1);
+	}
+
+	/**
+	 * D 전문의 데이터를 수신 중인지 여부 ( 다음 수신 내용은 header 가 아님 )
+	 * @return 수신 중 여부
+	 */
+	boolean isFrameInProgress() {
+		return dataRemaining > 0;
+	}
+
+	/**
+	 * v2 전문 처리 ( AgentReceiverDecoder 에서 호출 )
+	 * 한 전문을 처리하거나 수신 데이터가 부족한 경우 반환한다.
+	 * @param ctx Netty ChannelHandlerContext
+	 * @param byteBuf 수신 buffer
+	 * @throws Exception
+	 */
+	void decode(ChannelHandlerContext ctx, ByteBuf byteBuf) throws Exception {
+		if(dataRemaining > 0) {
+			readData(ctx, byteBuf);
+			return;
+		}
+
+		if(byteBuf.readableBytes() < HEADER_LENGTH) return;
+		int index = byteBuf.readerIndex();
+		char type = (char) byteBuf.getByte(index + VERSION_PREFIX.length());
+		long bodyLength = parseLong(byteBuf.toString(index + VERSION_PREFIX.length() + 1, HEADER_LENGTH - VERSION_PREFIX.length() - 1, charset), "BodyLength");
+
+		if(TYPE_QUERY == type) {
+			if(bodyLength > MAX_QUERY_LENGTH) throw new IOException("Invalid BodyLength. value=[" + bodyLength + "]");
+			if(byteBuf.readableBytes() < HEADER_LENGTH + bodyLength) return;
+			byteBuf.skipBytes(HEADER_LENGTH);
+			open(ctx, byteBuf, (int) bodyLength);
+		} else if(TYPE_DATA == type) {
+			if(bodyLength < TRANSFER_ID_LENGTH + OFFSET_LENGTH) throw new IOException("Invalid BodyLength. value=[" + bodyLength + "]");
+			if(byteBuf.readableBytes() < HEADER_LENGTH + TRANSFER_ID_LENGTH + OFFSET_LENGTH) return;
+			byteBuf.skipBytes(HEADER_LENGTH);
+			String dataTransferId = readString(byteBuf, TRANSFER_ID_LENGTH);
+			long offset = parseLong(readString(byteBuf, OFFSET_LENGTH), "Offset");
+			long dataLength = bodyLength - TRANSFER_ID_LENGTH - OFFSET_LENGTH;
+
+			if(transferId == null || !transferId.equals(dataTransferId)) {
+				throw new IOException("Transfer is not opened. transferId=[" + dataTransferId + "]");
+			}
+			if(offset != receivedLength) {
+				throw new IOException("Invalid offset. transferId=[" + transferId + "], offset=[" + offset + "], expected=[" + receivedLength + "]");
+			}
+			if(receivedLength + dataLength > fileLength) {
+				throw new IOException("Data exceeds file length. transferId=[" + transferId + "], fileLength=[" + fileLength + "]");
+			}
+			dataRemaining = dataLength;
+			if(dataRemaining > 0) readData(ctx, byteBuf);
+			else if(receivedLength == fileLength) complete(ctx);
+		} else {
+			throw new IOException("Invalid message type. type=[" + type + "]");
+		}
+	}
+
+	/**
+	 * Q 전문 처리. staging 에 같은 transferId 의 파일이 있으면 이어받을 위치를 응답한다.
+	 */
+	private void open(ChannelHandlerContext ctx, ByteBuf byteBuf, int bodyLength) throws Exception {
+		int start = byteBuf.readerIndex();
+		String openTransferId = readString(byteBuf, TRANSFER_ID_LENGTH);
+		if(!TRANSFER_ID_PATTERN.matcher(openTransferId).matches()) {
+			byteBuf.readerIndex(start + bodyLength);
+			throw new IOException("Invalid transferId. transferId=[" + openTransferId + "]");
+		}
+		Properties openMeta = new Properties();
+		openMeta.setProperty("fileLength", String.valueOf(parseLong(readString(byteBuf, FILE_LENGTH_LENGTH), "FileLength")));
+		openMeta.setProperty("logpolicyId", readString(byteBuf, POLICY_ID_LENGTH));
+		openMeta.setProperty("dataSourceId", readString(byteBuf, DATA_SOURCE_ID_LENGTH));
+		openMeta.setProperty("sendDate", readString(byteBuf, SEND_DATE_LENGTH));
+		openMeta.setProperty("compressYn", readString(byteBuf, COMPRESS_YN_LENGTH));
+		openMeta.setProperty("collectLogEncoding", readString(byteBuf, COLLECT_LOG_ENCODING_LENGTH));
+		openMeta.setProperty("logHmac", readString(byteBuf, LOG_HMAC_LENGTH));
+		int nameLength = (int) parseLong(readString(byteBuf, FILE_NAME_LENGTH), "FileNameLength");
+		if(byteBuf.readerIndex() - start + nameLength != bodyLength) {
+			byteBuf.readerIndex(start + bodyLength);
+			throw new IOException("Invalid BodyLength!");
+		}
+		openMeta.setProperty("fileName", readString(byteBuf, nameLength));
+
+		// 이전 전송은 보관 ( 다시 연결하여 이어받을 수 있도록 )
+		suspend();
+		cleanupStaging();
+
+		if(activeTransferMap.putIfAbsent(openTransferId, Boolean.TRUE) != null) {
+			throw new IOException("Transfer is in progress on another connection. transferId=[" + openTransferId + "]");
+		}
+		transferId = openTransferId;
+		try {
+			openStaging(openMeta);
+		} catch (Exception e) {
+			suspend();
+			throw e;
+		}
+
+		ctx.channel().writeAndFlush("RESUME " + transferId + " " + receivedLength);
+		if(receivedLength == fileLength) complete(ctx);
+	}
+
+	/**
+	 * staging 파일 생성 또는 이어받기 준비
+	 *  - 같은 transferId 의 staging 파일이 있고 파일 정보가 같은 경우 마지막으로 ACK 한 위치부터 이어받는다.
+	 *  - hmac 을 수신 중 계산하는 경우 이미 수신한 내용을 읽어 hmac 에 누적한다.
+	 */
+	private void openStaging(Properties openMeta) throws Exception {
+		if(!stagingDir.exists()) stagingDir.mkdirs();
+		partFile = new File(stagingDir, transferId + PART_SUFFIX);
+		metaFile = new File(stagingDir, transferId + META_SUFFIX);
+
+		long resumeLength = 0;
+		Properties stagedMeta = metaFile.exists() ? loadMeta(metaFile) : null;
+		if(stagedMeta != null && partFile.exists() && isSameFile(stagedMeta, openMeta)) {
+			resumeLength = Math.min(partFile.length(), parseLong(stagedMeta.getProperty("ackedLength", "0"), "AckedLength"));
+		}
+		meta = openMeta;
+		fileLength = Long.parseLong(meta.getProperty("fileLength"));
+		receivedLength = resumeLength;
+		ackedLength = resumeLength;
+		dataRemaining = 0;
+
+		// ACK 하지 않은 부분은 disk 에 기록되었는지 알 수 없으므로 버리고 다시 받는다.
+		partAccessFile = new RandomAccessFile(partFile, "rw");
+		fileChannel = partAccessFile.getChannel();
+		fileChannel.truncate(resumeLength);
+		fileChannel.position(resumeLength);
+		saveMeta();
+
+		logHmac = AgentLogHmac.create();
+		if(logHmac != null && resumeLength > 0) {
+			ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+			long position = 0;
+			while(position < resumeLength) {
+				buffer.clear();
+				if(resumeLength - position < buffer.capacity()) buffer.limit((int) (resumeLength - position));
+				int read = fileChannel.read(buffer, position);
+				if(read < 0) throw new IOException("It failed to read staging file. path=[" + partFile.getAbsolutePath() + "]");
+				buffer.flip();
+				logHmac.update(buffer);
+				position += read;
+			}
+		}
+
+		collectLogger = new CollectLogger(meta.getProperty("logpolicyId"), meta.getProperty("dataSourceId"));
+		collectLogger.loggingCollectStart(System.currentTimeMillis());
+		if(resumeLength > 0) collectLogger.loggingCollectDetailLog("[Resume] transferId=[" + transferId + "], offset=[" + resumeLength + "], fileLength=[" + fileLength + "]");
+	}
+
+	/**
+	 * D 전문의 데이터를 staging 파일에 기록
+	 */
+	private void readData(ChannelHandlerContext ctx, ByteBuf byteBuf) throws Exception {
+		int length = (int) Math.min(dataRemaining, byteBuf.readableBytes());
+		if(length <= 0) return;
+		if(logHmac != null) logHmac.update(byteBuf, byteBuf.readerIndex(), length);
+		int remaining = length;
+		while(remaining > 0) {
+			int written = byteBuf.readBytes(fileChannel, remaining);
+			if(written < 0) throw new IOException("It failed to write file. remaining=[" + remaining + "]");
+			remaining -= written;
+		}
+		dataRemaining -= length;
+		receivedLength += length;
+
+		if(receivedLength == fileLength) {
+			complete(ctx);
+		} else if(receivedLength - ackedLength >= ackIntervalBytes) {
+			// ACK 한 위치까지는 disk 에 기록되어 있어야 한다.
+			fileChannel.force(false);
+			ackedLength = receivedLength;
+			saveMeta();
+			ctx.channel().writeAndFlush("ACK " + transferId + " " + ackedLength);
+		}
+	}
+
+	/**
+	 * 파일 전체를 수신한 경우 hmac 검증, 압축 해제 후 수집 디렉토리에 저장
+	 */
+	private void complete(ChannelHandlerContext ctx) throws Exception {
+		String completeTransferId = transferId;
+		String compressYn = meta.getProperty("compressYn");
+		String logHmacValue = meta.getProperty("logHmac");
+		fileChannel.close();
+		partAccessFile.close();
+		fileChannel = null;
+		partAccessFile = null;
+
+		try {
+			// 수신한 데이터의 hmac 유효성 검사
+			boolean valid;
+			String computedHmac;
+			if(logHmac != null) {
+				valid = logHmac.verify(logHmacValue);
+				computedHmac = logHmac.getComputedHmac();
+			} else {
+				valid = HMACUtil.validate(partFile, logHmacValue);
+				computedHmac = valid ? logHmacValue : HMACUtil.encode(partFile);
+			}
+			if(!valid) {
+				// hmac 이 맞지 않는 파일은 재전송하지 않는다.
+				moveToErrorDir(partFile);
+				throw new Exception("Receive logFile HMAC is invalid. transferId=[" + completeTransferId + "], receiveHMAC=[" + logHmacValue + "], fileHMAC=[" + computedHmac + "]");
+			}
+
+			File saveFile = new File(ConfigLoader.getInstance().get(Config.COLLECT_DIR)
+											+ File.separator + meta.getProperty("fileName") + "_" + java.util.UUID.randomUUID().toString());
+			if(!saveFile.getParentFile().exists()) saveFile.getParentFile().mkdirs();
+
+			// 압축 여부에 따라 압축을 해제한다.
+			if(UseYn.Y.toString().equals(compressYn) || COMPRESS_BLOCK.equals(compressYn)) {
+				long decompressStartTime = System.currentTimeMillis();
+				if(COMPRESS_BLOCK.equals(compressYn)) decompressBlockFile(partFile, saveFile);
+				else FileUtil.decompressFile(partFile, saveFile);
+				partFile.delete();
+				collectLogger.loggingCollectDetailLog("[Decompress] SUCCESS. fileSize=[" + saveFile.length() + "], elapsedTime=[" + (System.currentTimeMillis() - decompressStartTime) + "]");
+			} else {
+				moveFile(partFile, saveFile);
+			}
+			metaFile.delete();
+
+			AgentCollect agentCollect = new AgentCollect(meta.getProperty("logpolicyId"), meta.getProperty("dataSourceId"));
+			long logFileSize = agentCollect.save(saveFile, saveFile.getName(), meta.getProperty("collectLogEncoding"), false);
+
+			CollectStatus result = CollectStatus.ERROR;
+			if(logFileSize > -1) result = CollectStatus.SUCCESS;
+			collectLogger.loggingCollectEnd(System.currentTimeMillis(), logFileSize, result);
+			collectLogger = null;
+		} catch (Exception e) {
+			if(collectLogger != null) {
+				collectLogger.loggingCollectDetailLog("[Exception]", e);
+				collectLogger.loggingCollectEnd(System.currentTimeMillis(), 0, CollectStatus.ERROR);
+				collectLogger = null;
+			}
+			throw e;
+		} finally {
+			release();
+		}
+		ctx.channel().writeAndFlush("SUCCESS " + completeTransferId);
+	}
+
+	/**
+	 * 수신 중인 전송을 중지하고 staging 파일은 보관한다. ( 연결 종료, 오류, 다른 전송 시작 시 )
+	 */
+	void suspend() {
+		if(transferId == null) return;
+		if(collectLogger != null) {
+			collectLogger.loggingCollectDetailLog("[Suspend] transferId=[" + transferId + "], offset=[" + ackedLength + "], fileLength=[" + fileLength + "]");
+			collectLogger.loggingCollectEnd(System.currentTimeMillis(), 0, CollectStatus.ERROR);
+			collectLogger = null;
+		}
+		if(fileChannel != null) try { fileChannel.close(); } catch (IOException e) {}
+		if(partAccessFile != null) try { partAccessFile.close(); } catch (IOException e) {}
+		fileChannel = null;
+		partAccessFile = null;
+		release();
+	}
+
+	private void release() {
+		if(transferId != null) activeTransferMap.remove(transferId);
+		transferId = null;
+		meta = null;
+		logHmac = null;
+		dataRemaining = 0;
+	}
+
+	/**
+	 * block 단위 압축 파일 압축 해제 ( AgentInflateWriter )
+	 */
+	private void decompressBlockFile(File compressedFile, File decompressedFile) throws IOException {
+		FileInputStream inStream = null;
+		FileOutputStream outStream = null;
+		AgentInflateWriter inflateWriter = null;
+		try {
+			inStream = new FileInputStream(compressedFile);
+			outStream = new FileOutputStream(decompressedFile);
+			inflateWriter = new AgentInflateWriter(outStream.getChannel(), AgentInflateWriter.MODE_BLOCK, false);
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while((read = inStream.read(buffer)) > 0) {
+				inflateWriter.write(Unpooled.wrappedBuffer(buffer, 0, read), read);
+			}
+			inflateWriter.finish();
+		} finally {
+			if(inflateWriter != null) inflateWriter.end();
+			if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+			if(outStream != null) try { outStream.close(); } catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * staging 파일을 수집 디렉토리로 이동 ( 다른 filesystem 인 경우 복사 )
+	 */
+	private void moveFile(File source, File target) throws IOException {
+		if(source.renameTo(target)) return;
+		FileInputStream inStream = null;
+		FileOutputStream outStream = null;
+		try {
+			inStream = new FileInputStream(source);
+			outStream = new FileOutputStream(target);
+			FileChannel in = inStream.getChannel();
+			FileChannel out = outStream.getChannel();
+			long position = 0;
+			long size = in.size();
+			while(position < size) position += in.transferTo(position, size - position, out);
+		} finally {
+			if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+			if(outStream != null) try { outStream.close(); } catch (IOException e) {}
+		}
+		source.delete();
+	}
+
+	/**
+	 * hmac 이 맞지 않는 파일을 에러 디렉토리로 이동 ( 재전송 대상 아님 )
+	 */
+	private void moveToErrorDir(File errorFile) {
+		File file = new File(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR) + File.separator +
+															meta.getProperty("logpolicyId") + File.separator +
+															meta.getProperty("dataSourceId") + File.separator +
+															meta.getProperty("fileName") + "_" + transferId);
+		if(!file.getParentFile().exists()) file.getParentFile().mkdirs();
+		if(!errorFile.renameTo(file)) errorFile.delete();
+		metaFile.delete();
+	}
+
+	/**
+	 * 이어받지 않은 채 보관 기간이 지난 staging 파일 삭제 ( CLEANUP_INTERVAL_MILLIS 마다 )
+	 */
+	private void cleanupStaging() {
+		long now = System.currentTimeMillis();
+		if(now - lastCleanupTime < CLEANUP_INTERVAL_MILLIS) return;
+		lastCleanupTime = now;
+
+		String retention = ConfigLoader.getInstance().get(Config.AGENT_RECEIVER_STAGING_RETENTION_HOUR);
+		long retentionMillis = (Strings.isNullOrEmpty(retention) ? 24 : Long.parseLong(retention.trim())) * 60 * 60 * 1000;
+		File[] files = stagingDir.listFiles();
+		if(files == null) return;
+		for(File file : files) {
+			if(!file.getName().endsWith(META_SUFFIX) || now - file.lastModified() < retentionMillis) continue;
+			String staleTransferId = file.getName().substring(0, file.getName().length() - META_SUFFIX.length());
+			if(activeTransferMap.containsKey(staleTransferId)) continue;
+			File stalePartFile = new File(stagingDir, staleTransferId + PART_SUFFIX);
+			logger.warn(this.getClass().getSimpleName() + ". Delete expired staging file. transferId=[" + staleTransferId + "], size=[" + stalePartFile.length() + "]");
+			stalePartFile.delete();
+			file.delete();
+		}
+	}
+
+	/**
+	 * 파일 정보 저장 ( 임시 파일에 기록 후 변경 )
+	 */
+	private void saveMeta() throws IOException {
+		meta.setProperty("ackedLength", String.valueOf(ackedLength));
+		File tempFile = new File(stagingDir, transferId + META_SUFFIX + ".tmp");
+		FileOutputStream outStream = null;
+		try {
+			outStream = new FileOutputStream(tempFile);
+			meta.store(new OutputStreamWriter(outStream, META_CHARSET), transferId);
+			outStream.getFD().sync();
+		} finally {
+			if(outStream != null) try { outStream.close(); } catch (IOException e) {}
+		}
+		if(!tempFile.renameTo(metaFile)) {
+			metaFile.delete();
+			if(!tempFile.renameTo(metaFile)) throw new IOException("It failed to save staging meta file. path=[" + metaFile.getAbsolutePath() + "]");
+		}
+	}
+
+	private static Properties loadMeta(File file) {
+		Properties properties = new Properties();
+		FileInputStream inStream = null;
+		try {
+			inStream = new FileInputStream(file);
+			properties.load(new InputStreamReader(inStream, META_CHARSET));
+			return properties;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+		}
+	}
+
+	private static boolean isSameFile(Properties stagedMeta, Properties openMeta) {
+		String[] keys = { "fileLength", "logpolicyId", "dataSourceId", "compressYn", "logHmac", "fileName" };
+		for(String key : keys) {
+			if(!Strings.nullToEmpty(stagedMeta.getProperty(key)).equals(openMeta.getProperty(key))) return false;
+		}
+		return true;
+	}
+
+	private String readString(ByteBuf byteBuf, int length) {
+		String value = byteBuf.toString(byteBuf.readerIndex(), length, charset).trim();
+		byteBuf.skipBytes(length);
+		return value;
+	}
+
+	private static long parseLong(String value, String name) throws IOException {
+		try {
+			long result = Long.parseLong(value.trim());
+			if(result < 0) throw new NumberFormatException();
+			return result;
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid " + name + ". value=[" + value.trim() + "]");
+		}
+	}
+}
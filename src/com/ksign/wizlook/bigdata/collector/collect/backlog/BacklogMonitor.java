@@ -0,0 +1,256 @@
+package com.ksign.wizlook.bigdata.collector.collect.backlog;
+
+import io.netty.channel.Channel;
+import io.netty.channel.group.ChannelGroup;
+
+import java.io.File;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.collect.poll.PollJobManager;
+import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiverManager;
+import com.ksign.wizlook.bigdata.collector.collect.send.SendCommitLog;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * 전송 대기 로그와 디스크 여유공간을 감시하여 수집을 일시 중지/재개하는 클래스
+ *  - 전송 대기 파일 수, 전송 대기 byte 수, 수집/전송/backup 디렉토리의 디스크 여유공간(%)을 주기적으로 확인한다.
+ *  - 하나라도 high watermark 를 넘으면 일시 중지
+ *     -> Poll : Quartz trigger 일시 중지
+ *     -> TCP 수신 ( Netty ) : autoRead=false 로 socket read 중지 ( client 쪽으로 TCP backpressure 전달 )
+ *     -> Syslog, SNMP Trap : 수집 디렉토리 대신 collect.spill.dir 에 저장. spill 디렉토리도 여유공간이 없으면 버린다.
+ *  - 모두 low watermark 아래로 내려가면 재개하고 spill 된 로그를 수집 디렉토리로 옮긴다.
+ * @author byw
+ */
+public enum BacklogMonitor {
+	INSTANCE;
+	/** default 확인 주기 ( second ) */
+	private static final long DEFAULT_CHECK_INTERVAL_SEC = 5;
+	/** default 전송 대기 파일 수 high / low watermark */
+	private static final long DEFAULT_FILES_HIGH = 100000;
+	private static final long DEFAULT_FILES_LOW = 50000;
+	/** default 전송 대기 크기 high / low watermark ( MB ) */
+	private static final long DEFAULT_BYTES_HIGH_MB = 20480;
+	private static final long DEFAULT_BYTES_LOW_MB = 10240;
+	/** default 디스크 여유공간 일시 중지 / 재개 기준 ( % ) */
+	private static final long DEFAULT_DISK_FREE_PAUSE_PERCENT = 10;
+	private static final long DEFAULT_DISK_FREE_RESUME_PERCENT = 15;
+	/** default spill 디스크 최소 여유공간 ( % ) */
+	private static final long DEFAULT_SPILL_DISK_FREE_MIN_PERCENT = 5;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	private final Timer timer;
+	/** autoRead 를 제어할 Netty channel group */
+	private final CopyOnWriteArraySet<ChannelGroup> channelGroupSet = new CopyOnWriteArraySet<ChannelGroup>();
+	/** spill 디렉토리 여유공간 부족으로 버린 로그 수 */
+	private final AtomicLong dropCount = new AtomicLong();
+
+	/** 일시 중지 여부 */
+	private volatile boolean paused = false;
+	/** spill 가능 여부 */
+	private volatile boolean spillAvailable = true;
+
+	private final long filesHigh;
+	private final long filesLow;
+	private final long bytesHigh;
+	private final long bytesLow;
+	private final long diskFreePausePercent;
+	private final long diskFreeResumePercent;
+	private final long spillDiskFreeMinPercent;
+
+	private BacklogMonitor() {
+		timer = new Timer(true);
+		filesHigh = getLong(Config.COLLECT_BACKLOG_FILES_HIGH, DEFAULT_FILES_HIGH);
+		filesLow = getLong(Config.COLLECT_BACKLOG_FILES_LOW, DEFAULT_FILES_LOW);
+		bytesHigh = getLong(Config.COLLECT_BACKLOG_BYTES_HIGH, DEFAULT_BYTES_HIGH_MB) * 1024 * 1024;
+		bytesLow = getLong(Config.COLLECT_BACKLOG_BYTES_LOW, DEFAULT_BYTES_LOW_MB) * 1024 * 1024;
+		diskFreePausePercent = getLong(Config.COLLECT_BACKLOG_DISK_FREE_PAUSE, DEFAULT_DISK_FREE_PAUSE_PERCENT);
+		diskFreeResumePercent = getLong(Config.COLLECT_BACKLOG_DISK_FREE_RESUME, DEFAULT_DISK_FREE_RESUME_PERCENT);
+		spillDiskFreeMinPercent = getLong(Config.COLLECT_SPILL_DISK_FREE_MIN, DEFAULT_SPILL_DISK_FREE_MIN_PERCENT);
+	}
+
+	/**
+	 * Run BacklogMonitor
+	 * collect.backlog.check.interval.sec 주기로 동작
+	 * @return
+	 */
+	public boolean start() {
+		String enabled = ConfigLoader.getInstance().get(Config.COLLECT_BACKLOG_ENABLED);
+		if(!Strings.isNullOrEmpty(enabled) && !Boolean.parseBoolean(enabled.trim())) return false;
+		try {
+			long interval = getLong(Config.COLLECT_BACKLOG_CHECK_INTERVAL, DEFAULT_CHECK_INTERVAL_SEC);
+			timer.schedule(new CheckThread(), 0, 1000 * interval);
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Stop BacklogMonitor
+	 * @return 중지 결과 반환
+	 */
+	public boolean stop() {
+		try {
+			timer.cancel();
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Destroy BacklogMonitor
+	 * @return 중지 결과 반환
+	 */
+	public boolean destroy() {
+		return stop();
+	}
+
+	/**
+	 * 수집 일시 중지 여부
+	 * @return 일시 중지 여부
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * spill 디렉토리에 저장 가능 여부
+	 * @return spill 가능 여부
+	 */
+	public boolean isSpillAvailable() {
+		return spillAvailable;
+	}
+
+	/**
+	 * spill 하지 못하고 버린 로그 수 증가
+	 */
+	public void countDrop() {
+		if(dropCount.incrementAndGet() % 10000 == 1) {
+			logger.warn(this.getClass().getSimpleName() + ". Not enough disk space to spill. Drop receive log. dropCount=[" + dropCount.get() + "]");
+		}
+	}
+
+	public long getDropCount() {
+		return dropCount.get();
+	}
+
+	/**
+	 * autoRead 를 제어할 Netty channel group 등록 ( 수신 서버 구동 시 )
+	 * @param channelGroup 연결된 client channel group
+	 */
+	public void registerChannelGroup(ChannelGroup channelGroup) {
+		channelGroupSet.add(channelGroup);
+	}
+
+	/**
+	 * Netty channel group 등록 해제 ( 수신 서버 중지 시 )
+	 * @param channelGroup 연결된 client channel group
+	 */
+	public void unregisterChannelGroup(ChannelGroup channelGroup) {
+		channelGroupSet.remove(channelGroup);
+	}
+
+	/**
+	 * 신규 연결된 channel 의 autoRead 설정
+	 * channel group 에 추가한 뒤 호출해야 재개 시점과 겹치더라도 read 가 중지된 상태로 남지 않는다.
+	 * @param channel 연결된 client channel
+	 */
+	public void applyAutoRead(Channel channel) {
+		if(!paused) return;
+		channel.config().setAutoRead(false);
+		// 설정 도중 재개된 경우
+		if(!paused) channel.config().setAutoRead(true);
+	}
+
+	/**
+	 * 수집 일시 중지
+	 * @param reason 일시 중지 사유
+	 */
+	private void pause(String reason) {
+		paused = true;
+		logger.warn(this.getClass().getSimpleName() + ". Pause collect. " + reason);
+		PollJobManager.INSTANCE.pauseAll();
+		setAutoRead(false);
+	}
+
+	/**
+	 * 수집 재개
+	 * @param reason 재개 사유
+	 */
+	private void resume(String reason) {
+		paused = false;
+		logger.warn(this.getClass().getSimpleName() + ". Resume collect. " + reason);
+		setAutoRead(true);
+		PollJobManager.INSTANCE.resumeAll();
+	}
+
+	private void setAutoRead(boolean autoRead) {
+		for(ChannelGroup channelGroup : channelGroupSet) {
+			for(Channel channel : channelGroup) {
+				channel.config().setAutoRead(autoRead);
+			}
+		}
+	}
+
+	/**
+	 * 디렉토리가 위치한 디스크의 여유공간 ( % )
+	 * @param path 디렉토리 경로
+	 * @return 여유공간 %. 확인할 수 없는 경우 100
+	 */
+	private long getFreePercent(String path) {
+		if(Strings.isNullOrEmpty(path)) return 100;
+		File directory = new File(path).getAbsoluteFile();
+		while(directory != null && !directory.exists()) directory = directory.getParentFile();
+		if(directory == null || directory.getTotalSpace() <= 0) return 100;
+		return directory.getUsableSpace() * 100 / directory.getTotalSpace();
+	}
+
+	private long getLong(String key, long defaultValue) {
+		String value = ConfigLoader.getInstance().get(key);
+		return Strings.isNullOrEmpty(value) ? defaultValue : Long.parseLong(value.trim());
+	}
+
+	/**
+	 * 1. 전송 대기 파일 수 / 크기, 디스크 여유공간 확인 후 일시 중지 또는 재개
+	 * 2. 수집 중인 경우 spill 된 로그를 수집 디렉토리로 옮긴다.
+	 * @author byw
+	 */
+	class CheckThread extends TimerTask {
+		@Override
+		public void run() {
+			try {
+				long pendingFiles = SendCommitLog.INSTANCE.getLag();
+				long pendingBytes = SendCommitLog.INSTANCE.getPendingBytes();
+				long freePercent = getFreePercent(ConfigLoader.getInstance().get(Config.COLLECT_DIR));
+				freePercent = Math.min(freePercent, getFreePercent(ConfigLoader.getInstance().get(Config.SEND_LOG_DIR)));
+				if(ConfigLoader.getInstance().getBoolean(Config.BACKUP_LOG_ENABLED)) {
+					freePercent = Math.min(freePercent, getFreePercent(ConfigLoader.getInstance().get(Config.BACKUP_LOG_BASE_DIR)));
+				}
+				spillAvailable = getFreePercent(ConfigLoader.getInstance().get(Config.COLLECT_SPILL_DIR)) > spillDiskFreeMinPercent;
+
+				String status = "pendingFiles=[" + pendingFiles + "], pendingBytes=[" + pendingBytes + "], diskFreePercent=[" + freePercent + "]";
+				if(!paused) {
+					if(pendingFiles >= filesHigh || pendingBytes >= bytesHigh || freePercent < diskFreePausePercent) pause(status);
+				} else {
+					if(pendingFiles <= filesLow && pendingBytes <= bytesLow && freePercent >= diskFreeResumePercent) resume(status);
+				}
+
+				if(!paused) PushReceiverManager.INSTANCE.drainSpill();
+			} catch (Exception e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.ksign.wizlook.bigdata.collector.collect.backup;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.zip.Deflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * 지난 일자의 Backup 로그를 일자 디렉토리별 압축 보관 파일( BackupPackFile )로 모으는 스케줄러 클래스
+ *  - backup.log.compression 이 true 인 경우에만 동작한다.
+ *  - 전송 중에는 파일 단위 backup 을 그대로 유지하고, 일자가 지난 디렉토리만 압축한다.
+ *  - 기록 중인 임시 파일( .tmp )과 최근 수정된 파일은 제외한다.
+ *  - 압축 보관 파일에 추가된 원본 파일은 삭제한다.
+ * @author byw
+ */
+public enum BackupCompactScheduler {
+	INSTANCE;
+	/** default 압축 주기 ( minute ) */
+	private static final long DEFAULT_INTERVAL_MIN = 60;
+	/** 최초 실행 지연 시간 ( millisecond ) */
+	private static final long START_DELAY_MILLIS = 1000 * 60;
+	/** 압축 제외 시간 ( millisecond ). 마지막 수정 후 이 시간이 지나지 않은 파일은 압축하지 않는다. */
+	private static final long COMPACT_GRACE_MILLIS = 1000 * 60 * 10;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	private final Timer timer;
+
+	private BackupCompactScheduler() {
+		timer = new Timer(true);
+	}
+
+	/**
+	 * Run BackupCompactScheduler
+	 * backup.log.compaction.interval.min 주기로 동작
+	 * @return
+	 */
+	public boolean start() {
+		if(!ConfigLoader.getInstance().getBoolean(Config.BACKUP_LOG_COMPRESSION)) return false;
+		try {
+			String intervalMin = ConfigLoader.getInstance().get(Config.BACKUP_LOG_COMPACTION_INTERVAL);
+			long interval = Strings.isNullOrEmpty(intervalMin) ? DEFAULT_INTERVAL_MIN : Long.parseLong(intervalMin.trim());
+			timer.scheduleAtFixedRate(new CompactThread(), START_DELAY_MILLIS, 1000 * 60 * interval);
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Stop BackupCompactScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean stop() {
+		try {
+			timer.cancel();
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Destroy BackupCompactScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean destroy() {
+		return stop();
+	}
+
+	/**
+	 * 1. backup 디렉토리에서 오늘 이전 일자의 디렉토리를 찾는다.
+	 *    backup 디렉토리 하위 구조 ex) logpolicyId / dataSourceId / 20140501
+	 * 2. 일자 디렉토리의 원본 파일을 backup.pack 에 추가 후 원본 파일 삭제
+	 * @author byw
+	 */
+	class CompactThread extends TimerTask {
+		@Override
+		public void run() {
+			logger.info(" ###### Start BackupCompactScheduler ######");
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				String todayDirName = new SimpleDateFormat("yyyyMMdd").format(new Date());
+
+				File backupBaseDir = new File(ConfigLoader.getInstance().get(Config.BACKUP_LOG_BASE_DIR));
+				if(!backupBaseDir.exists()) return;
+
+				// Logpolicy Directory
+				File[] logpolicyDirList = backupBaseDir.listFiles(new DirectoryFilter());
+				if(logpolicyDirList == null) return;
+
+				for(File logpolicyDir : logpolicyDirList) {
+					// DataSource Directory
+					File[] dataSourceDirList = logpolicyDir.listFiles(new DirectoryFilter());
+					if(dataSourceDirList == null) continue;
+
+					for(File dataSourceDir : dataSourceDirList) {
+						// Date Directory
+						File[] dateDirList = dataSourceDir.listFiles(new DirectoryFilter());
+						if(dateDirList == null) continue;
+
+						for(File dateDir : dateDirList) {
+							if(dateDir.getName().compareTo(todayDirName) >= 0) continue;
+							if(Thread.currentThread().isInterrupted()) return;
+							compact(dateDir, deflater);
+						}
+					}
+				}
+			} catch (Exception e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			} finally {
+				deflater.end();
+			}
+		}
+
+		/**
+		 * 일자 디렉토리의 원본 파일을 압축 보관 파일로 모은다.
+		 * @param dateDir 일자 디렉토리
+		 * @param deflater Deflater
+		 */
+		private void compact(File dateDir, Deflater deflater) {
+			File[] fileList = dateDir.listFiles(new LooseFileFilter());
+			if(fileList == null || fileList.length == 0) return;
+
+			try {
+				BackupPackFile packFile = new BackupPackFile(dateDir);
+				packFile.load();
+
+				long rawSize = 0;
+				long packSize = 0;
+				for(File file : fileList) {
+					BackupPackFile.Entry entry = packFile.getEntry(file.getName());
+					// 이전 압축 후 삭제하지 못한 파일
+					if(entry == null || entry.getSize() != file.length()) {
+						entry = packFile.append(file, deflater);
+						rawSize += entry.getSize();
+						packSize += entry.getLength();
+					}
+					if(!file.delete()) logger.warn(this.getClass().getSimpleName() + ". It failed to delete backup file. file=[" + file.getAbsolutePath() + "]");
+				}
+				logger.debug("Compact backup directory : " + dateDir.getAbsolutePath() + ", files=[" + fileList.length + "], size=[" + rawSize + " -> " + packSize + "]");
+			} catch (IOException e) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to compact backup directory. dir=[" + dateDir.getAbsolutePath() + "]", e);
+			}
+		}
+
+		class DirectoryFilter implements FileFilter {
+			@Override
+			public boolean accept(File file) {
+				if(file.isDirectory()) return true;
+				return false;
+			}
+		}
+
+		/**
+		 * 압축 보관 파일에 추가되지 않은 원본 파일 필터
+		 *  - 기록 중인 임시 파일과 최근 수정된 파일( 지연 수집되어 지난 일자로 기록 중일 수 있음 )은 다음 주기에 처리한다.
+		 */
+		class LooseFileFilter implements FileFilter {
+			private final long modifiedLimitTime = System.currentTimeMillis() - COMPACT_GRACE_MILLIS;
+
+			@Override
+			public boolean accept(File file) {
+				if(!file.isFile()) return false;
+				String name = file.getName();
+				if(BackupPackFile.PACK_FILE_NAME.equals(name) || BackupPackFile.INDEX_FILE_NAME.equals(name)) return false;
+				if(name.endsWith(BackupPackFile.TEMP_FILE_SUFFIX)) return false;
+				return file.lastModified() < modifiedLimitTime;
+			}
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package com.ksign.wizlook.bigdata.collector.collect.backup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 일자별 backup 디렉토리의 압축 보관 파일
+ *  - backup.pack : 원본 파일들을 블록 단위로 deflate 압축하여 이어 붙인 파일
+ *                  블록 형식 : [압축 크기(4)][원본 크기(4)][deflate 데이터]
+ *  - backup.idx  : 원본 파일별 위치 정보 ( 파일명 \t pack 내 위치 \t pack 내 크기 \t 블록 수 \t 원본 크기 )
+ *  - 원본 파일 하나를 복원할 때 해당 위치로 바로 이동하여 필요한 블록만 읽는다. ( BackupRestore )
+ *  - 일자 디렉토리 안에 생성되므로 PurgeBackupDataScheduler 의 보관주기 삭제 대상이 된다.
+ * @author byw
+ */
+public class BackupPackFile {
+	/** pack 파일명 */
+	public static final String PACK_FILE_NAME = "backup.pack";
+	/** index 파일명 */
+	public static final String INDEX_FILE_NAME = "backup.idx";
+	/** 기록 중인 backup 파일의 임시 확장자. 기록이 끝나면 원래 파일명으로 rename 한다. */
+	public static final String TEMP_FILE_SUFFIX = ".tmp";
+	/** 원본 블록 크기 */
+	private static final int BLOCK_SIZE = 256 * 1024;
+	/** 블록 header 크기 */
+	private static final int BLOCK_HEADER_SIZE = 4 + 4;
+	/** index 파일 charset */
+	private static final Charset INDEX_CHARSET = Charset.forName("UTF-8");
+
+	/** pack 파일 */
+	private final File packFile;
+	/** index 파일 */
+	private final File indexFile;
+	/** 파일명 별 index 항목 */
+	private final Map<String, Entry> entryMap = new LinkedHashMap<String, Entry>();
+	/** pack 파일의 유효한 크기 ( index 에 기록된 마지막 위치 ) */
+	private long packLength = 0;
+
+	public BackupPackFile(File dateDir) {
+		this.packFile = new File(dateDir, PACK_FILE_NAME);
+		this.indexFile = new File(dateDir, INDEX_FILE_NAME);
+	}
+
+	/**
+	 * index 로딩
+	 *  - 기록 도중 중단된 index 의 마지막 줄과 index 에 없는 pack 의 뒷부분은 다음 append 시 잘라낸다.
+	 * @throws IOException
+	 */
+	public synchronized void load() throws IOException {
+		entryMap.clear();
+		packLength = 0;
+		if(!indexFile.exists()) return;
+
+		RandomAccessFile indexRaf = new RandomAccessFile(indexFile, "rw");
+		try {
+			byte[] indexBytes = new byte[(int) indexRaf.length()];
+			indexRaf.readFully(indexBytes);
+			int validLength = indexBytes.length;
+			while(validLength > 0 && indexBytes[validLength - 1] != '\n') validLength--;
+			if(validLength < indexBytes.length) indexRaf.setLength(validLength);
+
+			for(String line : new String(indexBytes, 0, validLength, INDEX_CHARSET).split("\n")) {
+				String[] fields = line.split("\t");
+				if(fields.length != 5) continue;
+				Entry entry = new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), Integer.parseInt(fields[3]), Long.parseLong(fields[4]));
+				entryMap.put(entry.getName(), entry);
+				packLength = Math.max(packLength, entry.getOffset() + entry.getLength());
+			}
+		} finally {
+			indexRaf.close();
+		}
+	}
+
+	public synchronized boolean contains(String name) {
+		return entryMap.containsKey(name);
+	}
+
+	public synchronized Entry getEntry(String name) {
+		return entryMap.get(name);
+	}
+
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<Entry>(entryMap.values());
+	}
+
+	/**
+	 * 원본 파일을 압축하여 pack 파일에 추가하고 index 를 기록한다.
+	 * ( 원본 파일 삭제는 호출하는 쪽에서 처리 )
+	 * @param file 원본 파일
+	 * @param deflater 압축에 사용할 Deflater ( nowrap )
+	 * @return 추가된 index 항목
+	 * @throws IOException
+	 */
+	public synchronized Entry append(File file, Deflater deflater) throws IOException {
+		RandomAccessFile packRaf = null;
+		FileInputStream inStream = null;
+		FileOutputStream indexStream = null;
+		try {
+			packRaf = new RandomAccessFile(packFile, "rw");
+			FileChannel packChannel = packRaf.getChannel();
+			if(packChannel.size() > packLength) packChannel.truncate(packLength);
+			packChannel.position(packLength);
+
+			inStream = new FileInputStream(file);
+			byte[] rawBlock = new byte[BLOCK_SIZE];
+			byte[] packedBlock = new byte[BLOCK_SIZE + BLOCK_SIZE / 10 + 64];
+			ByteBuffer headerBuffer = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+
+			long offset = packLength;
+			long rawSize = 0;
+			int blockCount = 0;
+			int readLength;
+			while((readLength = readBlock(inStream, rawBlock)) > 0) {
+				deflater.reset();
+				deflater.setInput(rawBlock, 0, readLength);
+				deflater.finish();
+				int packedLength = 0;
+				while(!deflater.finished()) {
+					if(packedLength == packedBlock.length) {
+						byte[] expandBlock = new byte[packedBlock.length * 2];
+						System.arraycopy(packedBlock, 0, expandBlock, 0, packedLength);
+						packedBlock = expandBlock;
+					}
+					packedLength += deflater.deflate(packedBlock, packedLength, packedBlock.length - packedLength);
+				}
+
+				headerBuffer.clear();
+				headerBuffer.putInt(packedLength).putInt(readLength).flip();
+				while(headerBuffer.hasRemaining()) packChannel.write(headerBuffer);
+				ByteBuffer packedBuffer = ByteBuffer.wrap(packedBlock, 0, packedLength);
+				while(packedBuffer.hasRemaining()) packChannel.write(packedBuffer);
+
+				rawSize += readLength;
+				blockCount++;
+			}
+			packChannel.force(false);
+
+			Entry entry = new Entry(file.getName(), offset, packChannel.position() - offset, blockCount, rawSize);
+			indexStream = new FileOutputStream(indexFile, true);
+			indexStream.write(new StringBuilder().append(entry.getName())
+												 .append("\t").append(entry.getOffset())
+												 .append("\t").append(entry.getLength())
+												 .append("\t").append(entry.getBlockCount())
+												 .append("\t").append(entry.getSize())
+												 .append("\n").toString().getBytes(INDEX_CHARSET));
+			indexStream.getFD().sync();
+
+			entryMap.put(entry.getName(), entry);
+			packLength = offset + entry.getLength();
+			return entry;
+		} finally {
+			if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+			if(indexStream != null) try { indexStream.close(); } catch (IOException e) {}
+			if(packRaf != null) try { packRaf.close(); } catch (IOException e) {}
+		}
+	}
+
+	/**
+	 * pack 파일에서 원본 파일 하나를 복원
+	 * @param name 원본 파일명
+	 * @param out 복원 데이터를 write 할 stream
+	 * @return 복원된 크기. 해당 파일이 없는 경우 -1
+	 * @throws IOException
+	 */
+	public long extract(String name, OutputStream out) throws IOException {
+		Entry entry = getEntry(name);
+		if(entry == null) return -1;
+
+		RandomAccessFile packRaf = new RandomAccessFile(packFile, "r");
+		Inflater inflater = new Inflater(true);
+		try {
+			packRaf.seek(entry.getOffset());
+			byte[] packedBlock = new byte[0];
+			byte[] rawBlock = new byte[BLOCK_SIZE];
+			long extractSize = 0;
+			for(int i=0; i<entry.getBlockCount(); i++) {
+				int packedLength = packRaf.readInt();
+				int rawLength = packRaf.readInt();
+				if(packedBlock.length < packedLength + 1) packedBlock = new byte[packedLength + 1];
+				if(rawBlock.length < rawLength) rawBlock = new byte[rawLength];
+				packRaf.readFully(packedBlock, 0, packedLength);
+
+				inflater.reset();
+				// nowrap 인 경우 마지막에 dummy byte 가 필요
+				inflater.setInput(packedBlock, 0, packedLength + 1);
+				int inflateLength = 0;
+				while(inflateLength < rawLength) {
+					int length = inflater.inflate(rawBlock, inflateLength, rawLength - inflateLength);
+					if(length == 0 && (inflater.finished() || inflater.needsInput())) break;
+					inflateLength += length;
+				}
+				if(inflateLength != rawLength) throw new IOException("Invalid backup block. name=[" + name + "], block=[" + i + "]");
+				out.write(rawBlock, 0, rawLength);
+				extractSize += rawLength;
+			}
+			return extractSize;
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid backup block. name=[" + name + "]", e);
+		} finally {
+			inflater.end();
+			packRaf.close();
+		}
+	}
+
+	/**
+	 * pack 파일에서 원본 파일 하나를 복원하여 파일로 저장
+	 * @param name 원본 파일명
+	 * @param targetFile 저장할 파일
+	 * @return 복원된 크기. 해당 파일이 없는 경우 -1
+	 * @throws IOException
+	 */
+	public long extract(String name, File targetFile) throws IOException {
+		if(getEntry(name) == null) return -1;
+		FileOutputStream outStream = new FileOutputStream(targetFile);
+		try {
+			return extract(name, outStream);
+		} finally {
+			outStream.close();
+		}
+	}
+
+	private int readBlock(FileInputStream inStream, byte[] block) throws IOException {
+		int readLength = 0;
+		while(readLength < block.length) {
+			int length = inStream.read(block, readLength, block.length - readLength);
+			if(length < 0) break;
+			readLength += length;
+		}
+		return readLength;
+	}
+
+	/**
+	 * index 항목
+	 */
+	public static class Entry {
+		/** 원본 파일명 */
+		private final String name;
+		/** pack 내 위치 */
+		private final long offset;
+		/** pack 내 크기 */
+		private final long length;
+		/** 블록 수 */
+		private final int blockCount;
+		/** 원본 크기 */
+		private final long size;
+
+		Entry(String name, long offset, long length, int blockCount, long size) {
+			this.name = name;
+			this.offset = offset;
+			this.length = length;
+			this.blockCount = blockCount;
+			this.size = size;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getOffset() {
+			return offset;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public int getBlockCount() {
+			return blockCount;
+		}
+
+		public long getSize() {
+			return size;
+		}
+	}
+}
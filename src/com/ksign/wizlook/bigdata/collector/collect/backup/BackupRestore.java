@@ -0,0 +1,91 @@
+package com.ksign.wizlook.bigdata.collector.collect.backup;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.ksign.wizlook.common.util.FileUtil;
+
+/**
+ * 일자별 backup 디렉토리에서 원본 파일을 복원하는 클래스
+ *  - 아직 압축되지 않은 원본 파일은 그대로 복사한다.
+ *  - 압축 보관 파일( BackupPackFile )에 추가된 파일은 index 의 위치로 바로 이동하여 해당 파일의 블록만 풀어서 저장한다.
+ * 사용법 ( 운영자가 수동으로 재수집할 파일을 복원하는 경우 )
+ *  - 목록 조회 : BackupRestore backup.log.base.dir/logpolicyId/dataSourceId/yyyyMMdd
+ *  - 파일 복원 : BackupRestore backup.log.base.dir/logpolicyId/dataSourceId/yyyyMMdd fileName [targetDir]
+ *  - 전체 복원 : BackupRestore backup.log.base.dir/logpolicyId/dataSourceId/yyyyMMdd * [targetDir]
+ * @author byw
+ */
+public class BackupRestore {
+	/** 전체 복원 */
+	private static final String ALL_FILES = "*";
+
+	private final File dateDir;
+	private final BackupPackFile packFile;
+
+	/**
+	 * @param dateDir 일자별 backup 디렉토리
+	 * @throws IOException index 로딩 실패
+	 */
+	public BackupRestore(File dateDir) throws IOException {
+		this.dateDir = dateDir;
+		this.packFile = new BackupPackFile(dateDir);
+		this.packFile.load();
+	}
+
+	/**
+	 * 원본 파일 하나를 복원
+	 * @param fileName 원본 파일명
+	 * @param targetFile 저장할 파일 ( 이미 있는 경우 복원하지 않는다 )
+	 * @return 복원된 크기. 해당 파일이 없는 경우 -1
+	 * @throws IOException
+	 */
+	public long restore(String fileName, File targetFile) throws IOException {
+		if(targetFile.exists()) throw new IOException("Restore file already exists. path=[" + targetFile.getAbsolutePath() + "]");
+		File looseFile = new File(dateDir, fileName);
+		if(looseFile.isFile()) {
+			FileUtil.transferTo(looseFile, targetFile);
+			return targetFile.length();
+		}
+		if(!packFile.contains(fileName)) return -1;
+		return packFile.extract(fileName, targetFile);
+	}
+
+	/**
+	 * 압축 보관 파일에 추가된 파일을 모두 복원
+	 * @param targetDir 저장할 디렉토리
+	 * @return 복원된 파일 수
+	 * @throws IOException
+	 */
+	public int restoreAll(File targetDir) throws IOException {
+		int count = 0;
+		for(BackupPackFile.Entry entry : packFile.getEntries()) {
+			File targetFile = new File(targetDir, entry.getName());
+			if(targetFile.exists()) continue;
+			if(packFile.extract(entry.getName(), targetFile) > -1) count++;
+		}
+		return count;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if(args == null || args.length < 1) {
+			System.out.println("Usage : BackupRestore <backup date directory> [fileName | *] [targetDir]");
+			return;
+		}
+		BackupRestore backupRestore = new BackupRestore(new File(args[0]));
+		if(args.length < 2) {
+			for(BackupPackFile.Entry entry : backupRestore.packFile.getEntries()) {
+				System.out.println(entry.getName() + "\t" + entry.getSize() + "\t" + entry.getLength());
+			}
+			return;
+		}
+
+		File targetDir = new File(args.length > 2 ? args[2] : ".");
+		if(!targetDir.exists()) targetDir.mkdirs();
+		if(ALL_FILES.equals(args[1])) {
+			System.out.println("Restored files : " + backupRestore.restoreAll(targetDir));
+			return;
+		}
+		long size = backupRestore.restore(args[1], new File(targetDir, args[1]));
+		System.out.println(size < 0 ? "Not found : " + args[1] : "Restored : " + args[1] + ", size=[" + size + "]");
+	}
+}
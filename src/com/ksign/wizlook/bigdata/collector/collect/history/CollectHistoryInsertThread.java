@@ -35,6 +35,8 @@ public class CollectHistoryInsertThread implements Runnable {
 	private String insertQuery;
 	/** collect history data merge query */
 	private String updateQuery;
+	/** push receiver aggregate collect history insert query */
+	private String aggregateQuery;
 
 	public CollectHistoryInsertThread() throws RuntimeException, ConnectException, IOException, SQLException {
 		FileRollingLogger fileRollingLogger = LoggerManager.getInstance().getFileRollingLogger("collectHistoryLogger");
@@ -62,11 +64,17 @@ public class CollectHistoryInsertThread implements Runnable {
 								  					   " START_DATE_DAY VARCHAR ) ";
 
 		String createIndexQuery = "CREATE INDEX IF NOT EXISTS HISTORY_IDX01 ON TBL_COLLECT_HISTORY(START_DATE)";
+		// PushReceiver 집계 이력 컬럼 ( 기존 DB 에도 추가 )
+		String[] addColumnQueries = { "ALTER TABLE PUBLIC.TBL_COLLECT_HISTORY ADD COLUMN IF NOT EXISTS MESSAGE_COUNT BIGINT(19)",
+									  "ALTER TABLE PUBLIC.TBL_COLLECT_HISTORY ADD COLUMN IF NOT EXISTS ERROR_COUNT BIGINT(19)",
+									  "ALTER TABLE PUBLIC.TBL_COLLECT_HISTORY ADD COLUMN IF NOT EXISTS MIN_LATENCY BIGINT(19)",
+									  "ALTER TABLE PUBLIC.TBL_COLLECT_HISTORY ADD COLUMN IF NOT EXISTS MAX_LATENCY BIGINT(19)" };
 		Connection conn = null;
 		try {
 			conn = H2ConnectionManager.INSTANCE.getCollectorConnection();
 			conn.createStatement().execute(createTableQuery);
 			conn.createStatement().execute(createIndexQuery);
+			for(String addColumnQuery : addColumnQueries) conn.createStatement().execute(addColumnQuery);
 			conn.commit();
 		} catch(SQLException e) {
 			throw e;
@@ -103,6 +111,22 @@ public class CollectHistoryInsertThread implements Runnable {
 										 .append("				START_DATE_DAY )			")
 										 .append("		 KEY(SESSION_ID) 					")
 										 .append("		 VALUES( ?, ?, ?, ?, ?, ?, ?, ?, ? ) ").toString();
+
+		aggregateQuery = new StringBuilder().append(" INSERT INTO TBL_COLLECT_HISTORY		  		 ")
+										 .append("			  ( SESSION_ID, 					 ")
+										 .append("				START_DATE, 					 ")
+										 .append("				END_DATE, 						 ")
+										 .append("				LOGPOLICY_ID, 					 ")
+										 .append("				DATA_SOURCE_ID, 				 ")
+										 .append("				STATUS, 						 ")
+										 .append("				ELAPSED_TIME,					 ")
+										 .append("				LOG_SIZE,						 ")
+										 .append("				START_DATE_DAY,					 ")
+										 .append("				MESSAGE_COUNT,					 ")
+										 .append("				ERROR_COUNT,					 ")
+										 .append("				MIN_LATENCY,					 ")
+										 .append("				MAX_LATENCY )				 	 ")
+										 .append(" VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ").toString();
 	}
 
 	@Override
@@ -132,6 +156,7 @@ public class CollectHistoryInsertThread implements Runnable {
 				Connection conn = null;
 				PreparedStatement insertPstmt = null;
 				PreparedStatement updatePstmt = null;
+				PreparedStatement aggregatePstmt = null;
 				BufferedReader reader = null;
 				boolean result = false;
 
@@ -140,11 +165,12 @@ public class CollectHistoryInsertThread implements Runnable {
 					conn.setAutoCommit(true);
 					insertPstmt = conn.prepareStatement(insertQuery.toString());
 					updatePstmt = conn.prepareStatement(updateQuery.toString());
+					aggregatePstmt = conn.prepareStatement(aggregateQuery.toString());
 					String readLine = null;
 					reader = new BufferedReader(new FileReader(file));
 					while((readLine = reader.readLine()) != null) {
 						if(readLine.length() < 1) continue;
-						String[] valueArr = readLine.split(AbstractCollect.COLLECTOR_SEPARATOR, 9);
+						String[] valueArr = readLine.split(AbstractCollect.COLLECTOR_SEPARATOR, 13);
 						int idx = 1;
 						String type = valueArr[0];
 						PreparedStatement pstmt = null;
@@ -152,6 +178,8 @@ public class CollectHistoryInsertThread implements Runnable {
 							pstmt = insertPstmt;
 						} else if(CollectLogger.COLLECT_LOGGING_END.equals(type)){
 							pstmt = updatePstmt;
+						} else if(CollectLogger.COLLECT_LOGGING_AGGREGATE.equals(type) && valueArr.length == 13) {
+							pstmt = aggregatePstmt;
 						} else {
 							logger.error(this.getClass().getSimpleName() + " :: Is invalid COLLECT_LOGGING_TYPE. value=[" + type + "]");
 							continue;
@@ -178,6 +206,12 @@ public class CollectHistoryInsertThread implements Runnable {
 							if(Strings.isNullOrEmpty(logSize)) pstmt.setNull(idx++, Types.BIGINT); 
 							else pstmt.setLong(idx++, Long.parseLong(logSize));
 							pstmt.setString(idx++, startDate.substring(0, 8));
+							if(pstmt == aggregatePstmt) {
+								for(int i=9; i<13; i++) {
+									if(Strings.isNullOrEmpty(valueArr[i])) pstmt.setNull(idx++, Types.BIGINT);
+									else pstmt.setLong(idx++, Long.parseLong(valueArr[i]));
+								}
+							}
 							pstmt.executeUpdate();
 							pstmt.clearParameters();
 						} catch (SQLException e) {
@@ -196,6 +230,7 @@ public class CollectHistoryInsertThread implements Runnable {
 					if(reader != null) try { reader.close(); } catch (IOException e) {}
 					if(insertPstmt != null) try { insertPstmt.close(); } catch (SQLException e) {}
 					if(updatePstmt != null) try { updatePstmt.close(); } catch (SQLException e) {}
+					if(aggregatePstmt != null) try { aggregatePstmt.close(); } catch (SQLException e) {}
 					if(conn != null) try { conn.close(); } catch (SQLException e) {}
 					file.delete();
 				}
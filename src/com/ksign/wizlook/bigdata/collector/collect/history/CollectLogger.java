@@ -31,6 +31,8 @@ public class CollectLogger {
 	public static final String COLLECT_LOGGING_START = "S";
 	/** 수집 이력 종료 */
 	public static final String COLLECT_LOGGING_END = "E";
+	/** 수집 이력 집계 ( PushReceiver 의 주기별 이력 ) */
+	public static final String COLLECT_LOGGING_AGGREGATE = "A";
 
 	/** 로그 날짜 포맷 */
 	private final SimpleDateFormat logDf = new SimpleDateFormat("yyyyMMddHHmmss");
@@ -56,6 +58,17 @@ public class CollectLogger {
 		this.sessionId = UUID.randomUUID().toString();
 	}
 
+	/**
+	 * 수집 시작 이력 없이 집계 이력만 기록하는 경우 사용 ( PushCollectHistory )
+	 * @param logpolicyId 정책아이디
+	 * @param dataSourceId 데이터소스아이디
+	 * @param startDate 집계 시작 일자
+	 */
+	public CollectLogger(String logpolicyId, String dataSourceId, long startDate) {
+		this(logpolicyId, dataSourceId);
+		this.startDate = startDate;
+	}
+
 	/**
 	 * 수집 상세 이력 기록
 	 * @param jobDetailLog
@@ -140,4 +153,32 @@ public class CollectLogger {
 													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(collectFileSize);
 		LoggerManager.getInstance().getFileRollingLogger("collectHistoryLogger").write(collectHistoryLog.toString());
 	}
+
+	/**
+	 * 수집 집계 이력 로깅 ( 시작 ~ 종료 일자 동안의 수집 결과를 한 건으로 기록 )
+	 * @param endDate 종료 일자
+	 * @param messageCount 수집 메시지 수
+	 * @param collectFileSize 수집 로그 크기
+	 * @param errorCount 오류 수
+	 * @param minLatency 최소 처리시간 ( micro second. 없는 경우 -1 )
+	 * @param maxLatency 최대 처리시간 ( micro second. 없는 경우 -1 )
+	 */
+	public void loggingCollectAggregate(long endDate, long messageCount, long collectFileSize, long errorCount, long minLatency, long maxLatency) {
+		if(!ConfigLoader.getInstance().getBoolean(Config.COLLECT_LOGGING_ENABLED)) return;
+		CollectStatus status = errorCount > 0 ? CollectStatus.ERROR : CollectStatus.SUCCESS;
+		StringBuilder collectHistoryLog = new StringBuilder().append(COLLECT_LOGGING_AGGREGATE)
+			   		  								  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(sessionId)
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(logDf.format(new Date(startDate)))
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(logDf.format(new Date(endDate)))
+						   					   		  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(logpolicyId)
+						   					   		  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(dataSourceId)
+						   					   		  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(status.toString())
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(endDate - startDate)
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(collectFileSize)
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(messageCount)
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(errorCount)
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(minLatency < 0 ? "" : String.valueOf(minLatency))
+													  .append(AbstractCollect.COLLECTOR_SEPARATOR).append(maxLatency < 0 ? "" : String.valueOf(maxLatency));
+		LoggerManager.getInstance().getFileRollingLogger("collectHistoryLogger").write(collectHistoryLog.toString());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package com.ksign.wizlook.bigdata.collector.collect.history;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PushReceiver 의 수집 이력을 일정 주기 단위로 모아서 기록하는 클래스
+ *  - 메시지마다 수집 시작/종료 이력을 남기지 않고, 주기 동안의 메시지 수, 로그 크기, 오류 수, 최소/최대 처리시간을
+ *    누적하였다가 flush 시 한 건의 이력 ( CollectLogger.COLLECT_LOGGING_AGGREGATE ) 으로 기록한다.
+ *  - 오류 상세 로그는 기존과 같이 건별로 기록하며, 해당 주기 이력의 세션아이디로 조회할 수 있다.
+ *  - 기록은 여러 수신 thread 에서 동시에 호출하고, flush 는 PushCollectHistoryScheduler 에서만 호출한다.
+ * @author byw
+ */
+public class PushCollectHistory {
+	/** 정책아이디 */
+	private final String logpolicyId;
+	/** 데이터소스아이디 */
+	private final String dataSourceId;
+
+	/** 누적 메시지 수 */
+	private final AtomicLong messageCount = new AtomicLong();
+	/** 누적 로그 크기 */
+	private final AtomicLong logSize = new AtomicLong();
+	/** 누적 오류 수 */
+	private final AtomicLong errorCount = new AtomicLong();
+	/** 주기 내 최소 처리시간 ( micro second ) */
+	private final AtomicLong minLatency = new AtomicLong(Long.MAX_VALUE);
+	/** 주기 내 최대 처리시간 ( micro second ) */
+	private final AtomicLong maxLatency = new AtomicLong(-1);
+
+	/** 마지막 flush 시점의 누적 메시지 수 */
+	private long flushedMessageCount;
+	/** 마지막 flush 시점의 누적 로그 크기 */
+	private long flushedLogSize;
+	/** 마지막 flush 시점의 누적 오류 수 */
+	private long flushedErrorCount;
+
+	/** 현재 주기의 이력 logger ( 상세 로그 기록용 ) */
+	private volatile CollectLogger collectLogger;
+	/** 현재 주기 시작 시간 */
+	private long windowStartDate;
+
+	public PushCollectHistory(String logpolicyId, String dataSourceId) {
+		this.logpolicyId = logpolicyId;
+		this.dataSourceId = dataSourceId;
+		this.windowStartDate = System.currentTimeMillis();
+		this.collectLogger = new CollectLogger(logpolicyId, dataSourceId, windowStartDate);
+	}
+
+	/**
+	 * 메시지 한 건의 저장 성공 기록
+	 * @param size 저장한 로그 크기
+	 * @param startNanos 수신 시점의 System.nanoTime()
+	 */
+	public void loggingSuccess(long size, long startNanos) {
+		loggingSuccess(1, size, startNanos);
+	}
+
+	/**
+	 * 여러 건의 메시지를 한번에 저장한 경우의 성공 기록
+	 * @param count 메시지 수
+	 * @param size 저장한 로그 크기
+	 * @param startNanos 가장 먼저 수신한 메시지의 System.nanoTime()
+	 */
+	public void loggingSuccess(long count, long size, long startNanos) {
+		messageCount.addAndGet(count);
+		if(size > 0) logSize.addAndGet(size);
+		updateLatency((System.nanoTime() - startNanos) / 1000L);
+	}
+
+	/**
+	 * 메시지 처리 오류 기록 ( 상세 로그는 현재 주기 세션의 상세이력 파일에 기록 )
+	 * @param jobDetailLog 상세 로그
+	 */
+	public void loggingError(String jobDetailLog) {
+		loggingError(jobDetailLog, null);
+	}
+
+	/**
+	 * 메시지 처리 오류 기록 ( 상세 로그는 현재 주기 세션의 상세이력 파일에 기록 )
+	 * @param jobDetailLog 상세 로그
+	 * @param t exception
+	 */
+	public void loggingError(String jobDetailLog, Throwable t) {
+		errorCount.incrementAndGet();
+		collectLogger.loggingCollectDetailLog(jobDetailLog, t);
+	}
+
+	/**
+	 * 현재 주기의 집계 이력을 기록하고 새 주기를 시작한다.
+	 * 주기 동안 수신한 메시지와 오류가 없는 경우 이력을 남기지 않는다.
+	 */
+	public synchronized void flush() {
+		long endDate = System.currentTimeMillis();
+		long totalMessageCount = messageCount.get();
+		long totalLogSize = logSize.get();
+		long totalErrorCount = errorCount.get();
+		long min = minLatency.getAndSet(Long.MAX_VALUE);
+		long max = maxLatency.getAndSet(-1);
+
+		long windowMessageCount = totalMessageCount - flushedMessageCount;
+		long windowErrorCount = totalErrorCount - flushedErrorCount;
+		if(windowMessageCount > 0 || windowErrorCount > 0) {
+			collectLogger.loggingCollectAggregate(endDate, windowMessageCount, totalLogSize - flushedLogSize, windowErrorCount,
+												  max < 0 ? -1 : min, max);
+		}
+		flushedMessageCount = totalMessageCount;
+		flushedLogSize = totalLogSize;
+		flushedErrorCount = totalErrorCount;
+
+		windowStartDate = endDate;
+		collectLogger = new CollectLogger(logpolicyId, dataSourceId, windowStartDate);
+	}
+
+	private void updateLatency(long latency) {
+		if(latency < 0) latency = 0;
+		long current;
+		while(latency < (current = minLatency.get())) {
+			if(minLatency.compareAndSet(current, latency)) break;
+		}
+		while(latency > (current = maxLatency.get())) {
+			if(maxLatency.compareAndSet(current, latency)) break;
+		}
+	}
+}
@@ -20,6 +20,7 @@ import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CollectStatus;
 import com.ksign.wizlook.bigdata.collector.collect.AbstractCollect;
 import com.ksign.wizlook.bigdata.collector.collect.CollectException;
 import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
+import com.ksign.wizlook.bigdata.collector.collect.sink.CollectSink;
 import com.ksign.wizlook.bigdata.collector.itf.avro.CollectorInterfaceService;
 import com.ksign.wizlook.bigdata.collector.itf.avro.InterfaceException;
 
@@ -157,6 +158,14 @@ public abstract class PollJob extends AbstractCollect implements InterruptableJo
 		return fileSize;
 	}
 
+	@Override
+	public long save(CollectSink sink, String fileName, String logEncoding, boolean append) throws CollectException {
+		initIndexData(logpolicyId);
+		long fileSize = super.save(sink, fileName, logEncoding, append);
+		collectFileSize += fileSize;
+		return fileSize;
+	}
+
 	/**
 	 * Job 수행
 	 * @param jobDataMap Job수행 시 필요한 DataMap
@@ -299,6 +299,37 @@ public enum PollJobManager {
 		return scheduler.interrupt(jobDetail.getKey());
 	}
 
+	/**
+	 * 모든 job 의 trigger 를 일시 중지한다. ( 동작중인 job 은 계속 수행 )
+	 * BacklogMonitor 에서 전송 대기 로그가 많은 경우 호출한다.
+	 * @return 중지 결과
+	 */
+	public synchronized boolean pauseAll() {
+		if(scheduler == null) return false;
+		try {
+			scheduler.pauseAll();
+			return true;
+		} catch (SchedulerException e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * 일시 중지된 모든 job 의 trigger 를 재개한다.
+	 * @return 재개 결과
+	 */
+	public synchronized boolean resumeAll() {
+		if(scheduler == null) return false;
+		try {
+			scheduler.resumeAll();
+			return true;
+		} catch (SchedulerException e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
 	/**
 	 * 잡 스케줄러 상태 반환 (상태코드 정의 필요)
 	 * @param dataSourceId 스케줄 아이디
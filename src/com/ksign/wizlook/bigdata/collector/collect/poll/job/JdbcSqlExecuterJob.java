@@ -35,6 +35,7 @@ import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode.IntervalUnit;
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode.RtMessage;
 import com.ksign.wizlook.bigdata.collector.collect.poll.PollJob;
+import com.ksign.wizlook.bigdata.collector.collect.sink.CollectBufferPool;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 import com.ksign.wizlook.bigdata.collector.itf.avro.CollectorInterfaceService;
@@ -52,8 +53,6 @@ import com.ksign.wizlook.common.util.StringUtil;
  * @author byw
  */
 public class JdbcSqlExecuterJob extends PollJob {
-	/** Nio ByteBuffer Size */
-	private int BUFFER_SIZE = 1000000;
 	/** wizlook encoding */
 	private String WIZLOOK_ENCODING = "UTF-8";
 	/** Default JDBC fetch size */
@@ -198,7 +197,7 @@ public class JdbcSqlExecuterJob extends PollJob {
 			byte[] bytes = null;
 			stream = new FileOutputStream(tempSaveFile);
 			channel = stream.getChannel();
-			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			buffer = CollectBufferPool.INSTANCE.acquireDirect();
 
 			if("Y".equals(createPatternYn)) {
 				if(!registLogpolicyPattern(rs.getMetaData(), separator)) {
@@ -234,7 +233,7 @@ public class JdbcSqlExecuterJob extends PollJob {
 				}
 				putBuffer(lineSeparatorBytes, channel, buffer);
 			}
-			if(buffer != null && buffer.remaining() < BUFFER_SIZE) writeBuffer(channel, buffer);
+			if(buffer != null && buffer.position() > 0) writeBuffer(channel, buffer);
 			channel.close();
 			stream.close();
 
@@ -256,6 +255,7 @@ public class JdbcSqlExecuterJob extends PollJob {
 		} finally{
 			if(channel != null) try { channel.close(); } catch (IOException e) { logger.error(this.getClass().getSimpleName(), e); };
 			if(stream != null) try { stream.close(); } catch (IOException e) { logger.error(this.getClass().getSimpleName(), e); };
+			CollectBufferPool.INSTANCE.release(buffer);
 			File file = new File(tempSaveFilePath);
 			if(file != null && file.exists()) file.delete();
 			try { if(preQueryRs != null) { preQueryRs.close();   } } catch(SQLException se) { logger.error(this.getClass().getSimpleName(), se); }
@@ -294,7 +294,8 @@ public class JdbcSqlExecuterJob extends PollJob {
 			// buffer size보다 데이터가 큰 경우를 위한 처리
 			buffer.put(bytes);
 		} catch(BufferOverflowException e) {
-			channel.write(ByteBuffer.wrap(bytes));
+			ByteBuffer wrapBuffer = ByteBuffer.wrap(bytes);
+			while(wrapBuffer.hasRemaining()) channel.write(wrapBuffer);
 		}
 	}
 
@@ -306,7 +307,7 @@ public class JdbcSqlExecuterJob extends PollJob {
 	 */
 	private void writeBuffer(FileChannel channel, ByteBuffer buffer) throws IOException {
 		buffer.flip();
-		channel.write(buffer);
+		while(buffer.hasRemaining()) channel.write(buffer);
 		buffer.clear();
 	}
 
@@ -5,10 +5,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Map;
 
 import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.collect.poll.PollJob;
+import com.ksign.wizlook.bigdata.collector.collect.sink.FileRegionSink;
 
 /**
  * 수집유형 TAIL ( Agentless ) 구현 클래스
@@ -49,6 +51,22 @@ public class LocalFileTailerJob extends PollJob {
 				}
 
 				long readSize = fileLength - readPosition;
+				if(readSize <= 0) {
+					jobConfigDataMap.put("readPosition", String.valueOf(fileLength));
+					return true;
+				}
+
+				// UTF-8 파일은 인코딩 변환이 필요 없으므로 해당 영역을 그대로 수집 파일로 전달한다.
+				// 인코딩이 설정되지 않은 경우 기존과 같이 platform default charset 으로 판단한다.
+				String readEncoding = Strings.isNullOrEmpty(collectLogEncoding) ? Charset.defaultCharset().name() : collectLogEncoding;
+				if("UTF-8".equalsIgnoreCase(readEncoding)) {
+					if(isInterruptedJob()) return false;
+					long saveFileSize = super.save(new FileRegionSink(new File(targetFilePath), readPosition, readSize), new File(targetFilePath).getName(), "UTF-8", false);
+					collectLogger.loggingCollectDetailLog("[Save data] SUCCESS. data size=[" + saveFileSize + "byte]");
+					jobConfigDataMap.put("readPosition", String.valueOf(readPosition + readSize));
+					return true;
+				}
+
 				targetFile.seek(readPosition);
 				ByteBuffer byteBuffer = ByteBuffer.allocateDirect(2048);
 				StringBuilder sb = new StringBuilder();
@@ -98,6 +98,9 @@ public enum PurgeBackupDataScheduler {
 				// purge errorLog
 				deleteTargetFiles(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR), checkDirName);
 
+				// purge dead letter errorLog
+				deleteTargetFiles(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_DEAD_LETTER_DIR), checkDirName);
+
 			} catch (Exception e) {
 				logger.error(this.getClass().getSimpleName(), e);
 			}
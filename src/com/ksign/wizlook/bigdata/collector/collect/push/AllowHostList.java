@@ -0,0 +1,327 @@
+package com.ksign.wizlook.bigdata.collector.collect.push;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.google.common.net.InetAddresses;
+
+/**
+ * PushReceiver 의 허용 호스트 목록 ( allowHosts ) 을 미리 변환해 둔 불변 클래스
+ *  - allowHosts 는 ,로 구분하며 IP ( IPv4 / IPv6 ), CIDR ( 10.0.0.0/8, fd00::/8 ), 호스트명을 사용할 수 있다.
+ *  - 호스트명은 생성 시점에 IP 로 변환하며, 변경된 IP 는 AllowHostRefreshScheduler 가 주기적으로 다시 생성하여 반영한다.
+ *  - IPv4 는 prefix 길이별 hash table 에서 바로 확인한다. ( 객체 생성 없음 )
+ *  - IPv6 는 address byte 를 가져올 때 객체가 생성되므로 원격지별 확인 결과를 cache 하여 사용한다.
+ *  - 원격지가 loopback 인 경우 자신의 실제 IP 중 허용된 IP 가 있으면 허용한다.
+ * @author byw
+ */
+public final class AllowHostList {
+	/** 원격지별 확인 결과 cache 최대 개수 */
+	private static final int MAX_VERDICT_CACHE_SIZE = 4096;
+	/** logger */
+	private static final Logger logger = LogManager.getLogger();
+
+	/** 원본 허용 호스트 목록 */
+	private final String allowHosts;
+	/** 모든 호스트 허용 여부 ( allowHosts 가 비어있는 경우 ) */
+	private final boolean allowAll;
+	/** loopback 허용 여부 */
+	private final boolean loopbackAllowed;
+	/** IPv4 prefix 길이별 network table ( prefix 길이 내림차순 ) */
+	private final int[] ipv4Masks;
+	private final IntTable[] ipv4Tables;
+	/** IPv6 prefix 길이별 network table ( prefix 길이 내림차순 ) */
+	private final int[] ipv6PrefixLengths;
+	private final LongPairTable[] ipv6Tables;
+	/** 호스트명별 조회한 주소 ( DNS 조회 실패 시 이전 결과 사용 ) */
+	private final Map<String, InetAddress[]> resolvedHostMap;
+	/** 원격지별 확인 결과 cache ( IPv6 ) */
+	private final ConcurrentHashMap<InetAddress, Boolean> verdictCache = new ConcurrentHashMap<InetAddress, Boolean>();
+
+	private AllowHostList(String allowHosts, boolean allowAll, Map<Integer, List<byte[]>> networkMap, Map<String, InetAddress[]> resolvedHostMap) {
+		this.allowHosts = allowHosts;
+		this.allowAll = allowAll;
+		this.resolvedHostMap = resolvedHostMap;
+
+		List<Integer> ipv4PrefixList = new ArrayList<Integer>();
+		List<Integer> ipv6PrefixList = new ArrayList<Integer>();
+		for(int prefix = 128; prefix >= 0; prefix--) {
+			if(prefix <= 32 && networkMap.containsKey(prefix)) ipv4PrefixList.add(prefix);
+			if(networkMap.containsKey(-prefix - 1)) ipv6PrefixList.add(prefix);
+		}
+
+		ipv4Masks = new int[ipv4PrefixList.size()];
+		ipv4Tables = new IntTable[ipv4PrefixList.size()];
+		for(int i=0; i<ipv4Masks.length; i++) {
+			int prefix = ipv4PrefixList.get(i);
+			ipv4Masks[i] = prefix == 0 ? 0 : -1 << (32 - prefix);
+			List<byte[]> networkList = networkMap.get(prefix);
+			ipv4Tables[i] = new IntTable(networkList.size());
+			for(byte[] network : networkList) ipv4Tables[i].add(toInt(network) & ipv4Masks[i]);
+		}
+
+		ipv6PrefixLengths = new int[ipv6PrefixList.size()];
+		ipv6Tables = new LongPairTable[ipv6PrefixList.size()];
+		for(int i=0; i<ipv6PrefixLengths.length; i++) {
+			int prefix = ipv6PrefixList.get(i);
+			ipv6PrefixLengths[i] = prefix;
+			List<byte[]> networkList = networkMap.get(-prefix - 1);
+			ipv6Tables[i] = new LongPairTable(networkList.size());
+			for(byte[] network : networkList) ipv6Tables[i].add(toLong(network, 0) & highMask(prefix), toLong(network, 8) & lowMask(prefix));
+		}
+
+		this.loopbackAllowed = !allowAll && matchLocalAddress();
+	}
+
+	/**
+	 * 허용 호스트 목록 생성
+	 * @param allowHosts ,로 구분한 허용 호스트 목록
+	 * @param previous 이전 허용 호스트 목록 ( 호스트명 조회 실패 시 이전 조회 결과 사용. 없으면 null )
+	 * @return 허용 호스트 목록
+	 */
+	public static AllowHostList compile(String allowHosts, AllowHostList previous) {
+		if(Strings.isNullOrEmpty(allowHosts) || allowHosts.trim().isEmpty()) {
+			return new AllowHostList(allowHosts, true, new HashMap<Integer, List<byte[]>>(), new HashMap<String, InetAddress[]>());
+		}
+
+		Map<Integer, List<byte[]>> networkMap = new HashMap<Integer, List<byte[]>>();
+		Map<String, InetAddress[]> resolvedHostMap = new HashMap<String, InetAddress[]>();
+		for(String allowHost : allowHosts.split(",")) {
+			allowHost = allowHost.trim();
+			if(allowHost.isEmpty()) continue;
+
+			int slashIndex = allowHost.indexOf('/');
+			String host = slashIndex < 0 ? allowHost : allowHost.substring(0, slashIndex);
+			if(InetAddresses.isInetAddress(host)) {
+				byte[] address = InetAddresses.forString(host).getAddress();
+				int maxPrefix = address.length * 8;
+				int prefix = maxPrefix;
+				if(slashIndex > -1) {
+					try {
+						prefix = Integer.parseInt(allowHost.substring(slashIndex + 1).trim());
+					} catch (NumberFormatException e) {
+						prefix = -1;
+					}
+					if(prefix < 0 || prefix > maxPrefix) {
+						logger.error(AllowHostList.class.getSimpleName() + ". Invalid allow host. allowHost=[" + allowHost + "]");
+						continue;
+					}
+				}
+				addNetwork(networkMap, address, prefix);
+			} else if(slashIndex > -1) {
+				logger.error(AllowHostList.class.getSimpleName() + ". Invalid allow host. allowHost=[" + allowHost + "]");
+			} else {
+				// 호스트명인 경우 실제 IP 를 조회
+				InetAddress[] addresses = null;
+				try {
+					addresses = InetAddress.getAllByName(allowHost);
+				} catch (Exception e) {
+					logger.error(AllowHostList.class.getSimpleName() + ". It failed to resolve allow host. allowHost=[" + allowHost + "]", e);
+					if(previous != null) addresses = previous.resolvedHostMap.get(allowHost);
+				}
+				if(addresses == null) continue;
+				resolvedHostMap.put(allowHost, addresses);
+				for(InetAddress address : addresses) {
+					byte[] bytes = address.getAddress();
+					addNetwork(networkMap, bytes, bytes.length * 8);
+				}
+			}
+		}
+		return new AllowHostList(allowHosts, false, networkMap, resolvedHostMap);
+	}
+
+	/**
+	 * 허용된 주소인지 확인
+	 * @param address 원격지 주소
+	 * @return 허용 여부
+	 */
+	public boolean isAllowed(InetAddress address) {
+		if(allowAll) return true;
+		if(address == null) return false;
+		if(address instanceof Inet4Address) {
+			// Inet4Address 의 hashCode 는 IPv4 주소값
+			if(matchIpv4(address.hashCode())) return true;
+			return loopbackAllowed && address.isLoopbackAddress();
+		}
+
+		Boolean verdict = verdictCache.get(address);
+		if(verdict == null) {
+			verdict = matchAddress(address.getAddress()) || (loopbackAllowed && address.isLoopbackAddress());
+			if(verdictCache.size() >= MAX_VERDICT_CACHE_SIZE) verdictCache.clear();
+			verdictCache.put(address, verdict);
+		}
+		return verdict;
+	}
+
+	public String getAllowHosts() {
+		return allowHosts;
+	}
+
+	private boolean matchAddress(byte[] address) {
+		if(address.length == 4) return matchIpv4(toInt(address));
+		long high = toLong(address, 0);
+		long low = toLong(address, 8);
+		for(int i=0; i<ipv6Tables.length; i++) {
+			int prefix = ipv6PrefixLengths[i];
+			if(ipv6Tables[i].contains(high & highMask(prefix), low & lowMask(prefix))) return true;
+		}
+		return false;
+	}
+
+	private boolean matchIpv4(int address) {
+		for(int i=0; i<ipv4Tables.length; i++) {
+			if(ipv4Tables[i].contains(address & ipv4Masks[i])) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 자신의 실제 IP ( loopback 제외 ) 중 허용된 IP 가 있는지 확인
+	 * @return 허용된 IP 존재 여부
+	 */
+	private boolean matchLocalAddress() {
+		try {
+			Enumeration<NetworkInterface> niEnum = NetworkInterface.getNetworkInterfaces();
+			if(niEnum == null) return false;
+			while(niEnum.hasMoreElements()) {
+				Enumeration<InetAddress> inetAddresses = niEnum.nextElement().getInetAddresses();
+				while(inetAddresses.hasMoreElements()) {
+					InetAddress address = inetAddresses.nextElement();
+					if(address.isLoopbackAddress()) continue;
+					if(matchAddress(address.getAddress())) return true;
+				}
+			}
+		} catch (SocketException e) {
+			logger.error(AllowHostList.class.getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * prefix 길이별 network 추가 ( IPv4 : prefix, IPv6 : -prefix - 1 을 key 로 사용 )
+	 */
+	private static void addNetwork(Map<Integer, List<byte[]>> networkMap, byte[] address, int prefix) {
+		Integer key = address.length == 4 ? prefix : -prefix - 1;
+		List<byte[]> networkList = networkMap.get(key);
+		if(networkList == null) {
+			networkList = new ArrayList<byte[]>();
+			networkMap.put(key, networkList);
+		}
+		networkList.add(address);
+	}
+
+	private static int toInt(byte[] address) {
+		return ((address[0] & 0xff) << 24) | ((address[1] & 0xff) << 16) | ((address[2] & 0xff) << 8) | (address[3] & 0xff);
+	}
+
+	private static long toLong(byte[] address, int offset) {
+		long value = 0;
+		for(int i=offset; i<offset + 8; i++) value = (value << 8) | (address[i] & 0xff);
+		return value;
+	}
+
+	private static long highMask(int prefix) {
+		if(prefix >= 64) return -1L;
+		return prefix == 0 ? 0 : -1L << (64 - prefix);
+	}
+
+	private static long lowMask(int prefix) {
+		if(prefix <= 64) return 0;
+		return prefix == 128 ? -1L : -1L << (128 - prefix);
+	}
+
+	/**
+	 * int open addressing hash table ( 생성 후 조회만 )
+	 */
+	private static final class IntTable {
+		private final int[] keys;
+		private final boolean[] used;
+		private final int mask;
+
+		IntTable(int expectedSize) {
+			int size = 2;
+			while(size < expectedSize * 2) size <<= 1;
+			keys = new int[size];
+			used = new boolean[size];
+			mask = size - 1;
+		}
+
+		void add(int key) {
+			int index = mix(key) & mask;
+			while(used[index]) {
+				if(keys[index] == key) return;
+				index = (index + 1) & mask;
+			}
+			keys[index] = key;
+			used[index] = true;
+		}
+
+		boolean contains(int key) {
+			int index = mix(key) & mask;
+			while(used[index]) {
+				if(keys[index] == key) return true;
+				index = (index + 1) & mask;
+			}
+			return false;
+		}
+
+		private static int mix(int key) {
+			int h = key * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+
+	/**
+	 * ( long, long ) open addressing hash table ( 생성 후 조회만 )
+	 */
+	private static final class LongPairTable {
+		private final long[] keys;
+		private final boolean[] used;
+		private final int mask;
+
+		LongPairTable(int expectedSize) {
+			int size = 2;
+			while(size < expectedSize * 2) size <<= 1;
+			keys = new long[size * 2];
+			used = new boolean[size];
+			mask = size - 1;
+		}
+
+		void add(long high, long low) {
+			int index = mix(high, low) & mask;
+			while(used[index]) {
+				if(keys[index * 2] == high && keys[index * 2 + 1] == low) return;
+				index = (index + 1) & mask;
+			}
+			keys[index * 2] = high;
+			keys[index * 2 + 1] = low;
+			used[index] = true;
+		}
+
+		boolean contains(long high, long low) {
+			int index = mix(high, low) & mask;
+			while(used[index]) {
+				if(keys[index * 2] == high && keys[index * 2 + 1] == low) return true;
+				index = (index + 1) & mask;
+			}
+			return false;
+		}
+
+		private static int mix(long high, long low) {
+			long h = (high * 0x9E3779B97F4A7C15L) ^ low;
+			h *= 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.ksign.wizlook.bigdata.collector.collect.push;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * PushReceiver 의 허용 호스트 목록을 주기적으로 다시 생성하는 스케쥴러
+ *  - 허용 호스트에 포함된 호스트명의 IP 변경 및 자신의 network 설정 변경을 반영한다.
+ *  - DNS 조회는 이 스케쥴러에서만 수행하며, 로그 수신 thread 에서는 수행하지 않는다.
+ * @author byw
+ */
+public enum AllowHostRefreshScheduler {
+	INSTANCE;
+	/** default 갱신 주기 ( second ) */
+	private static final long DEFAULT_REFRESH_INTERVAL_SEC = 300;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	private final Timer timer;
+
+	private AllowHostRefreshScheduler() {
+		timer = new Timer(true);
+	}
+
+	/**
+	 * Run AllowHostRefreshScheduler
+	 * push.allow.host.refresh.interval.sec 주기로 동작
+	 * @return
+	 */
+	public boolean start() {
+		try {
+			String value = ConfigLoader.getInstance().get(Config.PUSH_ALLOW_HOST_REFRESH_INTERVAL);
+			long interval = Strings.isNullOrEmpty(value) ? DEFAULT_REFRESH_INTERVAL_SEC : Long.parseLong(value.trim());
+			if(interval <= 0) return false;
+			timer.schedule(new RefreshThread(), 1000 * interval, 1000 * interval);
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Stop AllowHostRefreshScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean stop() {
+		try {
+			timer.cancel();
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Destroy AllowHostRefreshScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean destroy() {
+		return stop();
+	}
+
+	/**
+	 * 구동 중인 모든 PushReceiver 의 허용 호스트 목록 갱신
+	 * @author byw
+	 */
+	class RefreshThread extends TimerTask {
+		@Override
+		public void run() {
+			try {
+				PushReceiverManager.INSTANCE.refreshAllowHostList();
+			} catch (Exception e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			}
+		}
+	}
+}
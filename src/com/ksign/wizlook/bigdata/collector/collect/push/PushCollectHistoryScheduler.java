@@ -0,0 +1,86 @@
+package com.ksign.wizlook.bigdata.collector.collect.push;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * PushReceiver 의 수집 이력을 주기적으로 기록하는 스케쥴러
+ *  - PushReceiver 는 메시지마다 수집 이력을 남기지 않고 PushCollectHistory 에 누적하며,
+ *    이 스케쥴러가 주기마다 누적된 내용을 한 건의 집계 이력으로 기록한다.
+ * @author byw
+ */
+public enum PushCollectHistoryScheduler {
+	INSTANCE;
+	/** default 집계 주기 ( second ) */
+	private static final long DEFAULT_FLUSH_INTERVAL_SEC = 60;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	private final Timer timer;
+
+	private PushCollectHistoryScheduler() {
+		timer = new Timer(true);
+	}
+
+	/**
+	 * Run PushCollectHistoryScheduler
+	 * push.collect.history.interval.sec 주기로 동작
+	 * @return
+	 */
+	public boolean start() {
+		try {
+			String value = ConfigLoader.getInstance().get(Config.PUSH_COLLECT_HISTORY_INTERVAL);
+			long interval = Strings.isNullOrEmpty(value) ? DEFAULT_FLUSH_INTERVAL_SEC : Long.parseLong(value.trim());
+			if(interval <= 0) return false;
+			timer.schedule(new FlushThread(), 1000 * interval, 1000 * interval);
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Stop PushCollectHistoryScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean stop() {
+		try {
+			timer.cancel();
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Destroy PushCollectHistoryScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean destroy() {
+		return stop();
+	}
+
+	/**
+	 * 구동 중인 모든 PushReceiver 의 집계 이력 기록
+	 * @author byw
+	 */
+	class FlushThread extends TimerTask {
+		@Override
+		public void run() {
+			try {
+				PushReceiverManager.INSTANCE.flushCollectHistory();
+			} catch (Exception e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package com.ksign.wizlook.bigdata.collector.collect.push;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.util.TokenBucket;
+
+/**
+ * PushReceiver 의 수신량 제한 클래스
+ * 특정 장비가 대량으로 로그를 보내는 경우 다른 장비의 로그 수신이 지연되지 않도록 저장 전에 초과분을 처리한다.
+ * 데이터소스 수신 설정 ( receiverConfigData ) 의 아래 항목으로 생성한다.
+ *  - rateLimit                  : receiver 전체 초당 허용 메시지 수 ( 0 또는 지정하지 않은 경우 제한 없음 )
+ *  - rateLimitBurst             : receiver 전체 순간 허용 메시지 수 ( default rateLimit )
+ *  - rateLimitAction            : receiver 전체 초과 시 처리 ( DROP, SAMPLE, SPILL. default DROP )
+ *  - sourceRateLimit            : 송신 IP 별 초당 허용 메시지 수 ( 0 또는 지정하지 않은 경우 제한 없음 )
+ *  - sourceRateLimitBurst       : 송신 IP 별 순간 허용 메시지 수 ( default sourceRateLimit )
+ *  - sourceRateLimitAction      : 송신 IP 별 초과 시 처리 ( DROP, SAMPLE, SPILL. default rateLimitAction )
+ *  - rateLimitSampleRate        : SAMPLE 인 경우 초과분 중 저장할 비율 ( N 건 중 1 건. default 100 )
+ * 송신 IP 별 제한을 먼저 확인하고, 통과한 메시지에 대해 receiver 전체 제한을 확인한다.
+ * @author byw
+ */
+public class PushRateLimiter {
+	/** 초과 시 처리 */
+	public static enum Action {
+		/** 버림 */
+		DROP,
+		/** 초과분 중 일부만 저장 */
+		SAMPLE,
+		/** spill 디렉토리에 저장하였다가 BacklogMonitor 확인 주기에 수집 디렉토리로 옮김 */
+		SPILL
+	}
+
+	/** 저장 */
+	public static final int PASS = 0;
+	/** 버림 */
+	public static final int DROP = 1;
+	/** spill 디렉토리에 저장 */
+	public static final int SPILL = 2;
+
+	/** default SAMPLE 비율 ( N 건 중 1 건 ) */
+	private static final int DEFAULT_SAMPLE_RATE = 100;
+	/** 송신 IP 별 bucket 최대 보관 개수 ( 초과 시 오래 사용하지 않은 bucket 부터 정리 ) */
+	private static final int MAX_SOURCE_COUNT = 10000;
+	/** 정리 대상 bucket 의 최소 미사용 시간 ( nano ) */
+	private static final long SOURCE_IDLE_NANOS = 60L * 1000 * 1000 * 1000;
+	/** 미사용 bucket 정리 후에도 최대 개수인 경우 추가로 정리할 비율 ( 오래 사용하지 않은 순 ) */
+	private static final int EVICT_PERCENT = 10;
+
+	/** receiver 전체 bucket ( 제한하지 않는 경우 null ) */
+	private final LimitBucket receiverBucket;
+	/** 송신 IP 별 초당 허용 메시지 수 ( 0 인 경우 제한 없음 ) */
+	private final long sourceRate;
+	/** 송신 IP 별 순간 허용 메시지 수 */
+	private final long sourceBurst;
+	/** 송신 IP 별 초과 시 처리 */
+	private final Action sourceAction;
+	/** SAMPLE 비율 */
+	private final int sampleRate;
+	/** 송신 IP 별 bucket */
+	private final ConcurrentHashMap<InetAddress, LimitBucket> sourceBucketMap = new ConcurrentHashMap<InetAddress, LimitBucket>();
+	/** bucket 정리 lock */
+	private final Object evictLock = new Object();
+
+	/** 제한 없이 저장한 메시지 수 */
+	private final AtomicLong passCount = new AtomicLong();
+	/** 초과하여 버린 메시지 수 */
+	private final AtomicLong dropCount = new AtomicLong();
+	/** 초과분 중 SAMPLE 로 저장한 메시지 수 */
+	private final AtomicLong sampleCount = new AtomicLong();
+	/** 초과하여 spill 한 메시지 수 */
+	private final AtomicLong spillCount = new AtomicLong();
+	/** 송신 IP 별 제한을 초과한 메시지 수 */
+	private final AtomicLong sourceLimitCount = new AtomicLong();
+	/** receiver 전체 제한을 초과한 메시지 수 */
+	private final AtomicLong receiverLimitCount = new AtomicLong();
+
+	/**
+	 * @param jobDataMap 데이터소스 수신 설정
+	 */
+	public PushRateLimiter(Map<String, String> jobDataMap) {
+		long rate = getLong(jobDataMap, "rateLimit", 0);
+		Action action = getAction(jobDataMap, "rateLimitAction", Action.DROP);
+		this.receiverBucket = rate > 0 ? new LimitBucket(rate, getLong(jobDataMap, "rateLimitBurst", rate), action) : null;
+		this.sourceRate = getLong(jobDataMap, "sourceRateLimit", 0);
+		this.sourceBurst = getLong(jobDataMap, "sourceRateLimitBurst", sourceRate);
+		this.sourceAction = getAction(jobDataMap, "sourceRateLimitAction", action);
+		this.sampleRate = (int) Math.max(1, getLong(jobDataMap, "rateLimitSampleRate", DEFAULT_SAMPLE_RATE));
+	}
+
+	/**
+	 * 제한 설정 여부 ( 없는 경우 acquire 를 호출하지 않아도 된다 )
+	 * @return 사용 여부
+	 */
+	public boolean isEnabled() {
+		return receiverBucket != null || sourceRate > 0;
+	}
+
+	/**
+	 * 메시지 한 건의 처리 방법 결정
+	 * @param source 송신 IP ( 알 수 없는 경우 null. 송신 IP 별 제한은 확인하지 않음 )
+	 * @return PASS, DROP, SPILL
+	 */
+	public int acquire(InetAddress source) {
+		if(sourceRate > 0 && source != null) {
+			LimitBucket sourceBucket = sourceBucketMap.get(source);
+			if(sourceBucket == null) {
+				if(sourceBucketMap.size() >= MAX_SOURCE_COUNT) evictSourceBucket();
+				sourceBucket = new LimitBucket(sourceRate, sourceBurst, sourceAction);
+				LimitBucket previous = sourceBucketMap.putIfAbsent(source, sourceBucket);
+				if(previous != null) sourceBucket = previous;
+			}
+			sourceBucket.lastAccessNanos = System.nanoTime();
+			if(!sourceBucket.tokenBucket.tryAcquire(1)) {
+				sourceLimitCount.incrementAndGet();
+				return exceed(sourceBucket);
+			}
+		}
+		if(receiverBucket != null && !receiverBucket.tokenBucket.tryAcquire(1)) {
+			receiverLimitCount.incrementAndGet();
+			return exceed(receiverBucket);
+		}
+		passCount.incrementAndGet();
+		return PASS;
+	}
+
+	/**
+	 * 수신량 제한 현황을 상태 정보에 추가 ( getDataSourceStatus )
+	 * @param statusMap receiver 상태 정보
+	 */
+	public void putStatus(Map<String, String> statusMap) {
+		if(!isEnabled()) return;
+		statusMap.put("rateLimitPassCount", String.valueOf(passCount.get()));
+		statusMap.put("rateLimitDropCount", String.valueOf(dropCount.get()));
+		statusMap.put("rateLimitSampleCount", String.valueOf(sampleCount.get()));
+		statusMap.put("rateLimitSpillCount", String.valueOf(spillCount.get()));
+		statusMap.put("rateLimitSourceExceedCount", String.valueOf(sourceLimitCount.get()));
+		statusMap.put("rateLimitReceiverExceedCount", String.valueOf(receiverLimitCount.get()));
+		statusMap.put("rateLimitSourceCount", String.valueOf(sourceBucketMap.size()));
+	}
+
+	/**
+	 * 송신 IP 별 bucket 정리
+	 *  - SOURCE_IDLE_NANOS 동안 사용하지 않은 bucket 을 정리한다.
+	 *  - 그래도 최대 개수인 경우 오래 사용하지 않은 순으로 EVICT_PERCENT 만큼 정리한다.
+	 *  - 동작 중인 송신 IP 의 bucket 은 유지되므로 한번에 비워서 제한이 초기화되지 않는다.
+	 */
+	private void evictSourceBucket() {
+		synchronized(evictLock) {
+			if(sourceBucketMap.size() < MAX_SOURCE_COUNT) return;
+			long now = System.nanoTime();
+			Iterator<LimitBucket> iterator = sourceBucketMap.values().iterator();
+			while(iterator.hasNext()) {
+				if(now - iterator.next().lastAccessNanos >= SOURCE_IDLE_NANOS) iterator.remove();
+			}
+			if(sourceBucketMap.size() < MAX_SOURCE_COUNT) return;
+
+			// 정리 중에도 사용 시간이 바뀌므로 복사한 값으로 기준 시간을 구한다.
+			long[] accessNanosArr = new long[sourceBucketMap.size()];
+			int count = 0;
+			for(LimitBucket bucket : sourceBucketMap.values()) {
+				if(count == accessNanosArr.length) break;
+				accessNanosArr[count++] = bucket.lastAccessNanos;
+			}
+			if(count == 0) return;
+			Arrays.sort(accessNanosArr, 0, count);
+			int evictCount = Math.max(1, count * EVICT_PERCENT / 100);
+			long evictNanos = accessNanosArr[evictCount - 1];
+			iterator = sourceBucketMap.values().iterator();
+			while(iterator.hasNext() && evictCount > 0) {
+				if(iterator.next().lastAccessNanos - evictNanos <= 0) {
+					iterator.remove();
+					evictCount--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 제한을 초과한 메시지 처리 방법 결정
+	 */
+	private int exceed(LimitBucket bucket) {
+		switch(bucket.action) {
+		case SPILL:
+			spillCount.incrementAndGet();
+			return SPILL;
+		case SAMPLE:
+			if(bucket.exceedCount.getAndIncrement() % sampleRate == 0) {
+				sampleCount.incrementAndGet();
+				return PASS;
+			}
+			dropCount.incrementAndGet();
+			return DROP;
+		default:
+			dropCount.incrementAndGet();
+			return DROP;
+		}
+	}
+
+	private static long getLong(Map<String, String> jobDataMap, String key, long defaultValue) {
+		String value = jobDataMap == null ? null : jobDataMap.get(key);
+		if(Strings.isNullOrEmpty(value)) return defaultValue;
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Is invalid " + key + ". " + key + "=[" + value + "]", e);
+		}
+	}
+
+	private static Action getAction(Map<String, String> jobDataMap, String key, Action defaultValue) {
+		String value = jobDataMap == null ? null : jobDataMap.get(key);
+		if(Strings.isNullOrEmpty(value)) return defaultValue;
+		try {
+			return Action.valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Is invalid " + key + ". " + key + "=[" + value + "]", e);
+		}
+	}
+
+	/**
+	 * token bucket 과 초과 시 처리 방법
+	 */
+	private static class LimitBucket {
+		private final TokenBucket tokenBucket;
+		private final Action action;
+		/** 초과한 메시지 수 ( SAMPLE ) */
+		private final AtomicLong exceedCount = new AtomicLong();
+		/** 마지막 사용 시간 ( nano. 송신 IP 별 bucket 정리 시 사용 ) */
+		private volatile long lastAccessNanos = System.nanoTime();
+
+		LimitBucket(long rate, long burst, Action action) {
+			this.tokenBucket = new TokenBucket(rate, burst);
+			this.action = action;
+		}
+	}
+}
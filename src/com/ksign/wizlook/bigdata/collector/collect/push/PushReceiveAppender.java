@@ -0,0 +1,263 @@
+package com.ksign.wizlook.bigdata.collector.collect.push;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.collect.CollectException;
+import com.ksign.wizlook.bigdata.collector.collect.sink.CollectBufferPool;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.MpscRingBuffer;
+
+/**
+ * PushReceiver 의 bufferSave 로그를 임시 저장 파일에 기록하는 writer thread
+ *  - 수신 thread 는 ring buffer 에 로그를 넣기만 하고 바로 반환한다. ( disk I/O 대기 없음 )
+ *  - writer thread 가 ring buffer 의 로그를 모아 한번에 write 하며, 임시 저장 파일의 FileChannel 은 롤링 시까지 열어둔다.
+ *  - 임시 저장 파일 생성 시 롤링 시간을 계산해 두고, 롤링 시간이 지나면 PushReceiver 를 통해 수집 디렉토리에 저장한다.
+ *  - 롤링 최대 크기를 지정한 경우 임시 저장 파일이 해당 크기 이상이 되면 롤링 시간 전이라도 저장한다.
+ *  - ring buffer 가 가득 찬 경우 로그를 버리고 건수를 기록한다.
+ *  - 임시 저장 파일 기록 중 오류가 발생하면 기록된 부분까지 롤링하여 저장한다. ( write 하지 못한 batch 는 버린다 )
+ * @author byw
+ */
+class PushReceiveAppender implements Runnable {
+	/** default ring buffer 크기 */
+	private static final int DEFAULT_RING_SIZE = 65536;
+	/** 한번에 write 할 최대 로그 수 */
+	private static final int MAX_BATCH_COUNT = 4096;
+	/** 로그가 없을 때 최대 대기 시간 ( nano ) */
+	private static final long IDLE_PARK_NANOS = 100L * 1000 * 1000;
+	/** 로그 charset */
+	private static final Charset LOG_CHARSET = Charset.forName("UTF-8");
+	/** 줄바꿈 */
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(LOG_CHARSET);
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 로그를 저장할 PushReceiver */
+	private final PushReceiver pushReceiver;
+	/** 저장할 정책아이디 */
+	private final String logpolicyId;
+	/** 수신 로그 ring buffer */
+	private final MpscRingBuffer<byte[]> ringBuffer;
+	/** 롤링 주기 */
+	private final long fileRollingIntervalMillis;
+	/** 롤링 최대 크기 ( 0 인 경우 크기로 롤링하지 않음 ) */
+	private final long fileRollingMaxSize;
+	/** ring buffer 가 가득 차서 버린 로그 수 */
+	private final AtomicLong overflowCount = new AtomicLong();
+	/** 롤링파일 날짜 포맷 */
+	private final SimpleDateFormat fileRollingDateFormat = new SimpleDateFormat("yyyyMMddHHmmss");
+
+	/** writer thread */
+	private volatile Thread writerThread;
+	/** 동작 여부 */
+	private volatile boolean running = true;
+	/** writer thread 대기 여부 ( 대기 중인 경우에만 깨운다 ) */
+	private volatile boolean parked = false;
+
+	/** 임시 저장 파일 */
+	private File bufferFile;
+	/** 임시 저장 파일명 ( dataSourceId,yyyyMMddHHmmss ) */
+	private String bufferFileName;
+	/** 임시 저장 파일 stream */
+	private FileOutputStream outStream;
+	/** 임시 저장 파일 channel */
+	private FileChannel fileChannel;
+	/** 롤링 시간 */
+	private long rollDeadline;
+	/** 임시 저장 파일에 기록한 크기 */
+	private long bufferFileSize;
+	/** write buffer */
+	private ByteBuffer writeBuffer;
+
+	PushReceiveAppender(PushReceiver pushReceiver, String logpolicyId, long fileRollingIntervalMillis, long fileRollingMaxSize) {
+		this.pushReceiver = pushReceiver;
+		this.logpolicyId = logpolicyId;
+		this.fileRollingIntervalMillis = fileRollingIntervalMillis;
+		this.fileRollingMaxSize = fileRollingMaxSize;
+		String ringSize = ConfigLoader.getInstance().get(Config.PUSH_RECEIVE_BUFFER_RING_SIZE);
+		this.ringBuffer = new MpscRingBuffer<byte[]>(Strings.isNullOrEmpty(ringSize) ? DEFAULT_RING_SIZE : Integer.parseInt(ringSize.trim()));
+	}
+
+	/**
+	 * writer thread 구동
+	 */
+	void start() {
+		String threadName = getClass().getSimpleName() + "-" + pushReceiver.getDataSourceId();
+		if(!logpolicyId.equals(pushReceiver.getLogpolicyId())) threadName += "-" + logpolicyId;
+		Thread thread = new Thread(this, threadName);
+		thread.setDaemon(true);
+		writerThread = thread;
+		thread.start();
+	}
+
+	/**
+	 * 로그 추가 ( 수신 thread 에서 호출 )
+	 * @param log 수신 로그
+	 * @return ring buffer 가 가득 찬 경우 false
+	 */
+	boolean append(String log) {
+		return append(log.getBytes(LOG_CHARSET));
+	}
+
+	/**
+	 * 로그 추가 ( 수신 thread 에서 호출 )
+	 * @param log UTF-8 로 인코딩된 수신 로그 ( 추가 후 변경하지 않아야 한다 )
+	 * @return ring buffer 가 가득 찬 경우 false
+	 */
+	boolean append(byte[] log) {
+		if(!ringBuffer.offer(log)) {
+			if(overflowCount.incrementAndGet() % 10000 == 1) {
+				logger.warn(this.getClass().getSimpleName() + ". Ring buffer is full. Drop receive log. dataSourceId=[" + pushReceiver.getDataSourceId() + "], logpolicyId=[" + logpolicyId + "], overflowCount=[" + overflowCount.get() + "]");
+			}
+			return false;
+		}
+		if(parked) LockSupport.unpark(writerThread);
+		return true;
+	}
+
+	/**
+	 * writer thread 종료. 남은 로그를 모두 기록하고 임시 저장 파일을 롤링한다.
+	 */
+	void close() {
+		running = false;
+		Thread thread = writerThread;
+		if(thread == null) return;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	@Override
+	public void run() {
+		logger.info("	Start " + this.getClass().getSimpleName() + ". dataSourceId=[" + pushReceiver.getDataSourceId() + "], logpolicyId=[" + logpolicyId + "]");
+		writeBuffer = CollectBufferPool.INSTANCE.acquireDirect();
+		try {
+			while(true) {
+				int writeCount = 0;
+				try {
+					writeCount = writeBatch();
+				} catch (IOException e) {
+					// 기록된 부분까지 롤링하여 저장하고, 다음 로그는 새 임시 저장 파일에 기록한다.
+					logger.error(this.getClass().getSimpleName() + ". It failed to write buffer file. dataSourceId=[" + pushReceiver.getDataSourceId() + "], logpolicyId=[" + logpolicyId + "]", e);
+					writeBuffer.clear();
+					roll();
+				}
+				if(fileChannel != null && (System.currentTimeMillis() >= rollDeadline || (fileRollingMaxSize > 0 && bufferFileSize >= fileRollingMaxSize))) roll();
+				if(writeCount > 0) continue;
+				if(!running) break;
+
+				parked = true;
+				if(ringBuffer.isEmpty() && running) {
+					long parkNanos = IDLE_PARK_NANOS;
+					if(fileChannel != null) parkNanos = Math.max(1, Math.min(parkNanos, (rollDeadline - System.currentTimeMillis()) * 1000 * 1000));
+					LockSupport.parkNanos(this, parkNanos);
+				}
+				parked = false;
+			}
+			if(fileChannel != null) roll();
+		} finally {
+			CollectBufferPool.INSTANCE.release(writeBuffer);
+			writeBuffer = null;
+			logger.info("	Stop " + this.getClass().getSimpleName() + ". dataSourceId=[" + pushReceiver.getDataSourceId() + "], logpolicyId=[" + logpolicyId + "]");
+		}
+	}
+
+	/**
+	 * ring buffer 의 로그를 모아 임시 저장 파일에 write
+	 * @return write 한 로그 수
+	 * @throws IOException
+	 */
+	private int writeBatch() throws IOException {
+		int count = 0;
+		byte[] log;
+		while(count < MAX_BATCH_COUNT && (log = ringBuffer.poll()) != null) {
+			if(fileChannel == null) openBufferFile();
+			if(fileRollingMaxSize > 0 && bufferFileSize + writeBuffer.position() >= fileRollingMaxSize) {
+				// 최대 크기에 도달한 경우 남은 로그는 다음 임시 저장 파일에 기록
+				flush();
+				roll();
+				openBufferFile();
+			}
+			if(writeBuffer.remaining() < log.length + LINE_SEPARATOR.length) flush();
+			if(writeBuffer.remaining() < log.length + LINE_SEPARATOR.length) {
+				// buffer 보다 큰 로그
+				write(ByteBuffer.wrap(log));
+				write(ByteBuffer.wrap(LINE_SEPARATOR));
+			} else {
+				writeBuffer.put(log).put(LINE_SEPARATOR);
+			}
+			count++;
+		}
+		flush();
+		return count;
+	}
+
+	private void flush() throws IOException {
+		writeBuffer.flip();
+		write(writeBuffer);
+		writeBuffer.clear();
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) bufferFileSize += fileChannel.write(buffer);
+	}
+
+	/**
+	 * 임시 저장 파일 생성 및 롤링 시간 계산
+	 * 데이터소스 정책이 아닌 경우 다른 정책의 임시 저장 파일과 겹치지 않도록 파일 경로에 정책아이디를 붙인다.
+	 * @throws IOException
+	 */
+	private void openBufferFile() throws IOException {
+		Date now = new Date();
+		bufferFileName = pushReceiver.getDataSourceId() + "," + fileRollingDateFormat.format(now);
+		String bufferFilePath = ConfigLoader.getInstance().get(Config.COLLECT_DIR) + File.separator + bufferFileName;
+		if(!logpolicyId.equals(pushReceiver.getLogpolicyId())) bufferFilePath += "," + logpolicyId;
+		bufferFile = new File(bufferFilePath);
+		outStream = new FileOutputStream(bufferFile, true);
+		fileChannel = outStream.getChannel();
+		rollDeadline = now.getTime() + fileRollingIntervalMillis;
+		bufferFileSize = 0;
+	}
+
+	private void closeBufferFile() {
+		if(fileChannel != null) try { fileChannel.close(); } catch (IOException e) {}
+		if(outStream != null) try { outStream.close(); } catch (IOException e) {}
+		fileChannel = null;
+		outStream = null;
+	}
+
+	/**
+	 * 임시 저장 파일을 닫고 수집 디렉토리에 저장
+	 */
+	private void roll() {
+		closeBufferFile();
+		File rollingFile = bufferFile;
+		bufferFile = null;
+		if(rollingFile == null || !rollingFile.exists()) return;
+		try {
+			pushReceiver.saveBufferFile(logpolicyId, rollingFile, bufferFileName);
+		} catch (CollectException e) {
+			logger.error(this.getClass().getSimpleName() + ". It failed to save buffer file. path=[" + rollingFile.getAbsolutePath() + "]", e);
+		}
+	}
+}
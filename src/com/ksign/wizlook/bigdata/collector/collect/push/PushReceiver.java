@@ -1,25 +1,36 @@
 package com.ksign.wizlook.bigdata.collector.collect.push;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.collect.AbstractCollect;
 import com.ksign.wizlook.bigdata.collector.collect.CollectException;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.collect.history.PushCollectHistory;
+import com.ksign.wizlook.bigdata.collector.collect.sink.ChannelSink;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.UdpSocketStat;
 
 /**
  * PushReceiver 클래스
@@ -29,6 +40,8 @@ import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 public abstract class PushReceiver extends AbstractCollect {
 	/** 허용 호스트 ( ,로 구분한 호스트 목록 ) */
 	protected String allowHosts;
+	/** 허용 호스트 목록 ( allowHosts 를 변환한 목록 ) */
+	protected volatile AllowHostList allowHostList = AllowHostList.compile(null, null);
 	/** 포트 */
 	protected int port;
 	/** 수집로그 인코딩 */
@@ -38,10 +51,22 @@ public abstract class PushReceiver extends AbstractCollect {
 	protected Date lastRollingDate = new Date();
 	/** 파일 롤링 주기 */
 	protected long fileRollingIntervalMillis = 1000L;
-	/** 임시 저장 파일 */
-	protected File bufferFile = null;
+	/** 파일 롤링 최대 크기 ( 0 인 경우 크기로 롤링하지 않음 ) */
+	protected long fileRollingMaxSize = 0;
+	/** 정책별 임시 저장 파일 writer ( 정책별 bufferSave 최초 호출 시 생성 ) */
+	private final ConcurrentHashMap<String, PushReceiveAppender> appenderMap = new ConcurrentHashMap<String, PushReceiveAppender>();
+	/** 정책별 spill 파일 writer ( BacklogMonitor 에 의해 수집이 일시 중지된 동안 또는 수신량 제한을 초과하여 수신한 로그 ) */
+	private final Map<String, SpillWriter> spillWriterMap = new HashMap<String, SpillWriter>();
+	/** spill writer thread ( spillAsync 최초 호출 시 생성 ) */
+	private volatile PushSpillAppender spillAppender;
 	/** write Lock */
 	protected Object writeLock = new Object();
+	/** 주기별 수집 이력 ( 메시지마다 수집 이력을 남기지 않고 누적하였다가 주기마다 기록 ) */
+	protected PushCollectHistory collectHistory;
+	/** 송신 IP 별 / receiver 전체 수신량 제한 */
+	protected PushRateLimiter rateLimiter = new PushRateLimiter(null);
+	/** ring buffer 가 가득 차서 버린 로그 수 ( bufferSave ) */
+	private final AtomicLong bufferDropCount = new AtomicLong();
 	/** 롤링파일 날짜 포맷 */
 	private SimpleDateFormat fileRollingDateFormat = new SimpleDateFormat("yyyyMMddHHmmss");
 
@@ -49,99 +74,78 @@ public abstract class PushReceiver extends AbstractCollect {
 		this.logpolicyId = logpolicyId;
 		this.dataSourceId = dataSourceId;
 		this.allowHosts = allowHosts;
+		this.allowHostList = AllowHostList.compile(allowHosts, null);
 		this.port = port;
 		this.collectLogEncoding = collectLogEncoding;
 		this.fileRollingIntervalMillis = ConfigLoader.getInstance().getLong(Config.PUSH_RECEIVE_BUFFER_SAVE_INTERVAL);
+		this.collectHistory = new PushCollectHistory(logpolicyId, dataSourceId);
+		this.rateLimiter = new PushRateLimiter(jobDataMap);
 	}
 
 	/**
 	 * remoteAddress가 허용된 address인지 체크
+	 * init 시 생성한 허용 호스트 목록 ( AllowHostList ) 으로 확인한다.
 	 * @param remoteAddress
 	 * @return
 	 * @throws SocketException
 	 */
 	public boolean isValidClientHost(InetSocketAddress remoteAddress) throws SocketException {
-		// 1번이 false일 경우 2번 수행. 2번이 false일 경우 3번 수행
-
-		// 1. 원격지의 address와 allowHosts를 비교
-		// 2. 원격지가 loopBack이라면, 127.0.0.1외 실제 network설정에 있는 IP도 조회하여 비교
-		// 3. allowHosts가 domain명일수도 있으니, 해당 domain의 IP를 조회하여 비교
 		if(remoteAddress == null) throw new SocketException("cannot be null remote address.");
-		if(Strings.isNullOrEmpty(allowHosts)) {
-			return true;
-		} else {
-			String remoteHostAddress = remoteAddress.getAddress().getHostAddress();
-
-			// 원격지의 address와 allowHosts를 비교
-			String[] allowHostArr = allowHosts.split(",");
-			for(String allowHost : allowHostArr) {
-				if(Strings.isNullOrEmpty(allowHost)) continue;
-				if(allowHost.equals(remoteHostAddress)) {
-					return true;
-				}
-			}
+		return allowHostList.isAllowed(remoteAddress.getAddress());
+	}
 
-//			// hostName을 가져오는 속도가 느리기 때문에 IP비교 결과가 false일 경우 실행
-//			// 속도가 느려서 일단 사용안함 ( 테스트시 대략 4초 걸림.. )
-//			String remoteHostName = remoteAddress.getAddress().getHostName();
-//			// 원격지의 address와 allowHosts를 비교
-//			for(String allowHost : allowHostArr) {
-//				if(Strings.isNullOrEmpty(allowHost)) continue;
-//				if(allowHost.equals(remoteHostName)) {
-//					return true;
-//				}
-//			}
-
-			// 유효성체크 패스를 못하였고, isLoopback일 경우
-			// 자신의 실제 ip를 조회하여 한번 더 체크 (127.0.0.1이 아닌 실제 ip)
-			if(remoteAddress.getAddress().isLoopbackAddress()) {
-				List<String> localAddressList = getLocalAddresses();
-				for(String allowHost : allowHostArr) {
-					if(Strings.isNullOrEmpty(allowHost)) continue;
-					for(String localAddress : localAddressList) {
-						if(allowHost.equals(localAddress) || allowHost.equals(localAddress)) {
-							return true;
-						}
-					}
-				}
-			}
+	/**
+	 * 수신량 제한 확인 ( 허용 호스트 확인 후, 저장 전에 호출 )
+	 * @param source 송신 IP ( 알 수 없는 경우 null )
+	 * @return PushRateLimiter.PASS, DROP, SPILL
+	 */
+	protected int acquireRate(InetAddress source) {
+		if(!rateLimiter.isEnabled()) return PushRateLimiter.PASS;
+		return rateLimiter.acquire(source);
+	}
 
-			for(String allowHost : allowHostArr) {
-				if(Strings.isNullOrEmpty(allowHost)) continue;
-				// allowHost에 domain명이 들어가 있을 경우 실제 아이피를 조회하여 비교
-				try {
-					InetAddress[] inetAddressArr = InetAddress.getAllByName(allowHost);
-					if(inetAddressArr == null || inetAddressArr.length < 1) continue;
-					for(InetAddress address : inetAddressArr) {
-						if(address.getHostAddress().equals(remoteHostAddress)) {
-							return true;
-						}
-					}
-				} catch (Exception e) {
-					logger.error(this.getClass().getSimpleName(), e);
-				}
-			}
-		}
-		return false;
+	/**
+	 * 수신량 제한 현황 등 receiver 상태 정보 추가 ( PushReceiverManager.getPushReceiverStatus )
+	 * @param statusMap receiver 상태 정보
+	 */
+	public void putStatus(Map<String, String> statusMap) {
+		rateLimiter.putStatus(statusMap);
+		statusMap.put("bufferDropCount", String.valueOf(bufferDropCount.get()));
 	}
 
-	private List<String> getLocalAddresses() throws SocketException {
-		List<String> resultList = new ArrayList<String>();
-		Enumeration<NetworkInterface> niEnum = NetworkInterface.getNetworkInterfaces();		
+	/**
+	 * UDP 수신 socket 의 수신 buffer 크기 ( SO_RCVBUF )
+	 * 수신 설정의 receiveBufferSize 가 있으면 사용하고, 없으면 push.udp.receive.buffer.size 를 사용한다.
+	 * @param jobDataMap 데이터소스 수신 설정
+	 * @return 수신 buffer 크기 ( 0 이하인 경우 OS 기본값 사용 )
+	 */
+	protected int getUdpReceiveBufferSize(Map<String, String> jobDataMap) {
+		String value = jobDataMap == null ? null : jobDataMap.get("receiveBufferSize");
+		if(Strings.isNullOrEmpty(value)) value = ConfigLoader.getInstance().get(Config.PUSH_UDP_RECEIVE_BUFFER_SIZE);
+		return Strings.isNullOrEmpty(value) ? 0 : Integer.parseInt(value.trim());
+	}
 
-		while(niEnum.hasMoreElements()) {
-			NetworkInterface ni = niEnum.nextElement();
+	/**
+	 * 수신 port 의 커널 UDP socket 통계를 상태 정보에 추가 ( UDP 로 수신하는 receiver 의 putStatus 에서 호출 )
+	 *  - udpKernelDropCount : socket 수신 buffer 가 가득 차서 커널이 버린 datagram 수
+	 *  - udpReceiveQueue    : 아직 읽지 않은 수신 buffer 사용량 ( byte )
+	 * @param statusMap receiver 상태 정보
+	 */
+	protected void putUdpSocketStatus(Map<String, String> statusMap) {
+		UdpSocketStat stat = UdpSocketStat.read(port);
+		if(stat == null) return;
+		statusMap.put("udpSocketCount", String.valueOf(stat.getSocketCount()));
+		statusMap.put("udpReceiveQueue", String.valueOf(stat.getReceiveQueue()));
+		statusMap.put("udpKernelDropCount", String.valueOf(stat.getDropCount()));
+	}
 
-			Enumeration<InetAddress> inetAddresses = ni.getInetAddresses();
-			while(inetAddresses.hasMoreElements()) { 
-				InetAddress ia = inetAddresses.nextElement();
-				if (ia.getHostAddress() != null && ia.getHostAddress().indexOf(".") != -1) {
-					if("127.0.0.1".equals(ia.getHostAddress())) continue;
-					resultList.add(ia.getHostAddress());
-				}
-			}
-		}
-		return resultList;
+	/**
+	 * 허용 호스트 목록을 다시 생성한다. ( 호스트명의 IP 변경, network 설정 변경 반영 )
+	 * AllowHostRefreshScheduler 에서 주기적으로 호출한다.
+	 */
+	public void refreshAllowHostList() {
+		if(Strings.isNullOrEmpty(allowHosts)) return;
+		allowHostList = AllowHostList.compile(allowHosts, allowHostList);
 	}
 
 	/**
@@ -154,64 +158,268 @@ public abstract class PushReceiver extends AbstractCollect {
 	 * @throws CollectException
 	 */
 	protected boolean save(String log, String fileName, String charSet) throws IOException, CollectException {
+		if(BacklogMonitor.INSTANCE.isPaused()) return spillAsync(logpolicyId, log);
 		long saveFileSize = super.save(log.getBytes(), fileName, charSet, true);
 		return saveFileSize > -1;
 	}
 
+	/**
+	 * 수집한 로그를 String 변환 없이 파일로 저장한다.
+	 * @param log 수집한 로그 byte[]
+	 * @param fileName 저장할 로그 파일명
+	 * @param charSet 수집한 로그의 캐릭터셋
+	 * @return 저장 성공 여부
+	 * @throws IOException
+	 * @throws CollectException
+	 */
+	protected boolean save(byte[] log, String fileName, String charSet) throws IOException, CollectException {
+		return save(logpolicyId, log, fileName, charSet);
+	}
+
+	/**
+	 * 수집한 로그를 String 변환 없이 다른 정책으로 저장한다. ( syslog severity 별 정책 등 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param log 수집한 로그 byte[]
+	 * @param fileName 저장할 로그 파일명
+	 * @param charSet 수집한 로그의 캐릭터셋
+	 * @return 저장 성공 여부
+	 * @throws IOException
+	 * @throws CollectException
+	 */
+	protected boolean save(String logpolicyId, byte[] log, String fileName, String charSet) throws IOException, CollectException {
+		if(BacklogMonitor.INSTANCE.isPaused()) return spillAsync(logpolicyId, new String(log, charSet));
+		long saveFileSize = super.save(logpolicyId, log, fileName, charSet, true);
+		return saveFileSize > -1;
+	}
+
 	/**
 	 * 수집한 로그를 바로 저장하지않고 일정시간동안 모아두었다가 한번에 롤링하여 저장한다.
 	 * PushReceive Traffic이 많을 때 사용한다.
+	 * 로그는 PushReceiveAppender 의 ring buffer 에 넣고 바로 반환하며, 파일 기록 및 롤링은 writer thread 에서 처리한다.
 	 * @param log 수집한 로그 String
-	 * @return 저장 성공 여부
+	 * @return 저장 성공 여부 ( ring buffer 가 가득 찬 경우 false )
 	 * @throws IOException
 	 * @throws ParseException
 	 * @throws CollectException
 	 */
 	protected boolean bufferSave(String log) throws IOException, ParseException, CollectException {
+		if(BacklogMonitor.INSTANCE.isPaused()) return spillAsync(logpolicyId, log);
+		if(getAppender(logpolicyId).append(log)) return true;
+		bufferDropCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * 수집한 로그를 String 변환 없이 bufferSave 한다.
+	 * @param log UTF-8 로 인코딩된 수집 로그 ( 저장 후 변경하지 않아야 한다 )
+	 * @return 저장 성공 여부 ( ring buffer 가 가득 찬 경우 false )
+	 * @throws IOException
+	 */
+	protected boolean bufferSave(byte[] log) throws IOException {
+		return bufferSave(logpolicyId, log);
+	}
+
+	/**
+	 * 수집한 로그를 String 변환 없이 다른 정책으로 bufferSave 한다. ( syslog severity 별 정책 등 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param log UTF-8 로 인코딩된 수집 로그 ( 저장 후 변경하지 않아야 한다 )
+	 * @return 저장 성공 여부 ( ring buffer 가 가득 찬 경우 false )
+	 * @throws IOException
+	 */
+	protected boolean bufferSave(String logpolicyId, byte[] log) throws IOException {
+		if(BacklogMonitor.INSTANCE.isPaused()) return spillAsync(logpolicyId, new String(log, "UTF-8"));
+		if(getAppender(logpolicyId).append(log)) return true;
+		bufferDropCount.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * 파일을 롤링하여 저장한다.
+	 * 주기적인 롤링은 PushReceiveAppender 에서 파일 생성 시 계산한 롤링 시간에 처리하므로
+	 * 강제 롤링 ( 수신 중지 ) 인 경우에만 writer thread 를 종료하여 남은 로그를 저장한다.
+	 * @param forceRolling 강제 롤링 여부
+	 * @throws IOException
+	 * @throws ParseException
+	 * @throws CollectException
+	 */
+	protected void rollingReceiveLogFile(boolean forceRolling) throws IOException, ParseException, CollectException {
+		if(!forceRolling) return;
+		List<PushReceiveAppender> closeAppenderList;
 		synchronized(writeLock) {
-			long saveFileSize = -1;
-			FileWriter writer = null;
+			closeAppenderList = new ArrayList<PushReceiveAppender>(appenderMap.values());
+			appenderMap.clear();
+		}
+		for(PushReceiveAppender closeAppender : closeAppenderList) closeAppender.close();
+		PushSpillAppender closeSpillAppender;
+		synchronized(writeLock) {
+			closeSpillAppender = spillAppender;
+			spillAppender = null;
+		}
+		if(closeSpillAppender != null) closeSpillAppender.close();
+		closeSpillWriter();
+	}
+
+	/**
+	 * 롤링된 임시 저장 파일을 수집 디렉토리에 저장한다. ( PushReceiveAppender writer thread 에서 호출 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param bufferFile 임시 저장 파일
+	 * @param fileName 저장 파일명
+	 * @throws CollectException
+	 */
+	void saveBufferFile(String logpolicyId, File bufferFile, String fileName) throws CollectException {
+		super.save(logpolicyId, bufferFile, fileName, "UTF-8", true);
+	}
+
+	private PushReceiveAppender getAppender(String logpolicyId) {
+		PushReceiveAppender appender = appenderMap.get(logpolicyId);
+		if(appender != null) return appender;
+		synchronized(writeLock) {
+			appender = appenderMap.get(logpolicyId);
+			if(appender == null) {
+				appender = new PushReceiveAppender(this, logpolicyId, fileRollingIntervalMillis, fileRollingMaxSize);
+				appender.start();
+				appenderMap.put(logpolicyId, appender);
+			}
+			return appender;
+		}
+	}
+
+	/**
+	 * spill 할 로그를 spill 디렉토리에 저장한다. ( PushSpillAppender writer thread 에서만 호출 )
+	 * spill 디렉토리의 여유공간이 없는 경우 버린다.
+	 * 데이터소스 정책이 아닌 경우 파일명에 정책아이디를 붙여 drainSpill 시 해당 정책으로 저장되도록 한다.
+	 * 정책별 spill 파일은 UTF-8 writer 를 열어둔 채로 기록하고, SPILL_FLUSH_COUNT 건 또는 SPILL_FLUSH_INTERVAL_MILLIS 마다 flush 한다.
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param log 수집한 로그 String
+	 * @return 저장 성공 여부
+	 * @throws IOException
+	 */
+	boolean spill(String logpolicyId, String log) throws IOException {
+		if(!BacklogMonitor.INSTANCE.isSpillAvailable()) {
+			BacklogMonitor.INSTANCE.countDrop();
+			return false;
+		}
+		synchronized(writeLock) {
+			SpillWriter spillWriter = spillWriterMap.get(logpolicyId);
+			if(spillWriter == null) {
+				File spillDirectory = getSpillDirectory();
+				if(!spillDirectory.exists()) spillDirectory.mkdirs();
+				String spillFileName = fileRollingDateFormat.format(new Date()) + "," + UUID.randomUUID().toString();
+				if(!logpolicyId.equals(this.logpolicyId)) spillFileName += "," + logpolicyId;
+				spillWriter = new SpillWriter(new File(spillDirectory, spillFileName));
+				spillWriterMap.put(logpolicyId, spillWriter);
+			}
 			try {
-				if(bufferFile == null) bufferFile = new File(ConfigLoader.getInstance().get(Config.COLLECT_DIR) + File.separator + dataSourceId + "," + fileRollingDateFormat.format(new Date()));
-				writer = new FileWriter(bufferFile, true);
-				writer.write(log);
-				writer.write(System.lineSeparator());
-				writer.flush();
+				spillWriter.write(log);
 			} catch (IOException e) {
+				// 다음 spill 시 새 파일로 기록
+				spillWriterMap.remove(logpolicyId);
+				spillWriter.close();
 				throw e;
-			} finally {
-				try { writer.close(); } catch (IOException e) {}
 			}
+			return true;
+		}
+	}
 
-			long fileCreateDate = fileRollingDateFormat.parse(bufferFile.getName().split(",")[1]).getTime();
-			long currentDate = new Date().getTime();
-			if(currentDate - fileCreateDate >= fileRollingIntervalMillis) {
-				saveFileSize = super.save(bufferFile, bufferFile.getName(), "UTF-8", true);
-				bufferFile = null;
+	/**
+	 * 수집이 일시 중지된 동안 또는 수신량 제한 ( PushRateLimiter SPILL ) 을 초과하여 수신한 로그를 spill 한다.
+	 * 수신 thread 는 spill writer thread 의 ring buffer 에 넣고 바로 반환하며, 가득 찬 경우 또는 spill 디렉토리의 여유공간이 없는 경우 버린다.
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param log 수집한 로그 String
+	 * @return 버린 경우 false
+	 */
+	protected boolean spillAsync(String logpolicyId, String log) {
+		if(!BacklogMonitor.INSTANCE.isSpillAvailable()) {
+			BacklogMonitor.INSTANCE.countDrop();
+			return false;
+		}
+		PushSpillAppender appender = spillAppender;
+		if(appender == null) {
+			synchronized(writeLock) {
+				appender = spillAppender;
+				if(appender == null) {
+					appender = new PushSpillAppender(this);
+					appender.start();
+					spillAppender = appender;
+				}
 			}
-			return saveFileSize > -1;
 		}
+		return appender.append(logpolicyId, log);
 	}
 
 	/**
-	 * 파일을 롤링하여 저장한다.
-	 * @param forceRolling 강제 롤링 여부
-	 * @throws IOException
-	 * @throws ParseException
-	 * @throws CollectException
+	 * 열려 있는 spill 파일 writer 를 모두 닫는다.
+	 * spill 이 끝나 drainSpill 하기 전 및 수신 중지 시 호출한다.
 	 */
-	protected void rollingReceiveLogFile(boolean forceRolling) throws IOException, ParseException, CollectException {
+	private void closeSpillWriter() {
 		synchronized(writeLock) {
-			if(bufferFile == null) return;
-			if(!forceRolling) {
-				long fileCreateDate = fileRollingDateFormat.parse(bufferFile.getName().split(",")[1]).getTime();
-				long currentDate = new Date().getTime();
-				if(currentDate - fileCreateDate < fileRollingIntervalMillis) return; 
+			for(SpillWriter spillWriter : spillWriterMap.values()) spillWriter.close();
+			spillWriterMap.clear();
+		}
+	}
+
+	/**
+	 * spill 디렉토리에 저장된 로그파일을 수집 디렉토리로 옮겨 전송 대상이 되도록 한다.
+	 * 수집이 다시 일시 중지되면 남은 파일은 다음에 처리한다.
+	 */
+	public void drainSpill() {
+		closeSpillWriter();
+		File[] spillFiles = getSpillDirectory().listFiles();
+		if(spillFiles == null || spillFiles.length == 0) return;
+		Arrays.sort(spillFiles);
+
+		for(File file : spillFiles) {
+			if(BacklogMonitor.INSTANCE.isPaused()) return;
+			synchronized(writeLock) {
+				if(isSpillWriting(file)) continue;
 			}
-			super.save(bufferFile, bufferFile.getName(), "UTF-8", true);
+			// 파일명 : yyyyMMddHHmmss,UUID[,정책아이디]
+			String[] fileNameArr = file.getName().split(",");
+			String spillLogpolicyId = fileNameArr.length > 2 ? fileNameArr[2] : logpolicyId;
+			FileInputStream inStream = null;
+			try {
+				inStream = new FileInputStream(file);
+				super.save(spillLogpolicyId, ChannelSink.wrap(inStream), file.getName(), SpillWriter.CHARSET, false);
+			} catch (IOException | CollectException e) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to save spill file. path=[" + file.getAbsolutePath() + "]", e);
+				return;
+			} finally {
+				if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+			}
+			if(!file.delete()) logger.error(this.getClass().getSimpleName() + ". It failed to delete spill file. path=[" + file.getAbsolutePath() + "]");
+		}
+	}
 
-			bufferFile = null;
+	/**
+	 * drainSpill 도중 다시 spill 이 시작되어 기록 중인 파일인지 여부
+	 * @param file spill 파일
+	 * @return 기록 중 여부
+	 */
+	private boolean isSpillWriting(File file) {
+		for(SpillWriter spillWriter : spillWriterMap.values()) {
+			if(spillWriter.getFile().equals(file)) return true;
 		}
+		return false;
+	}
+
+	/**
+	 * spill 디렉토리 ( collect.spill.dir / dataSourceId )
+	 * @return spill 디렉토리
+	 */
+	private File getSpillDirectory() {
+		return new File(ConfigLoader.getInstance().get(Config.COLLECT_SPILL_DIR), dataSourceId);
+	}
+
+	/**
+	 * 주기 동안 누적된 수집 이력을 기록한다.
+	 * PushCollectHistoryScheduler 및 receiver 중지 시 호출한다.
+	 */
+	public void flushCollectHistory() {
+		if(collectHistory != null) collectHistory.flush();
+	}
+
+	public PushCollectHistory getCollectHistory() {
+		return collectHistory;
 	}
 
 	public String getLogpolicyId() {
@@ -233,4 +441,52 @@ public abstract class PushReceiver extends AbstractCollect {
 	public String getCollectLogEncoding() {
 		return collectLogEncoding;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 정책별 spill 파일 writer
+	 *  - 파일을 열어둔 채로 UTF-8 로 기록하여 로그마다 open / close 하지 않는다.
+	 *  - 건수 또는 시간 단위로 모아서 flush 한다. ( writeLock 안에서만 사용 )
+	 */
+	private static class SpillWriter {
+		/** spill 파일 charset ( drainSpill 시 같은 charset 으로 저장 ) */
+		static final String CHARSET = "UTF-8";
+		/** flush 건수 */
+		private static final int SPILL_FLUSH_COUNT = 1000;
+		/** flush 주기 ( millisecond ) */
+		private static final long SPILL_FLUSH_INTERVAL_MILLIS = 1000L;
+		/** writer buffer 크기 */
+		private static final int BUFFER_SIZE = 64 * 1024;
+
+		private final File file;
+		private final Writer writer;
+		/** flush 되지 않은 로그 수 */
+		private int pendingCount = 0;
+		/** 마지막 flush 시간 */
+		private long lastFlushTime = System.currentTimeMillis();
+
+		SpillWriter(File file) throws IOException {
+			this.file = file;
+			this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), CHARSET), BUFFER_SIZE);
+		}
+
+		void write(String log) throws IOException {
+			writer.write(log);
+			writer.write(System.lineSeparator());
+			pendingCount++;
+			long now = System.currentTimeMillis();
+			if(pendingCount >= SPILL_FLUSH_COUNT || now - lastFlushTime >= SPILL_FLUSH_INTERVAL_MILLIS) {
+				writer.flush();
+				pendingCount = 0;
+				lastFlushTime = now;
+			}
+		}
+
+		void close() {
+			try { writer.close(); } catch (IOException e) {}
+		}
+
+		File getFile() {
+			return file;
+		}
+	}
+}
@@ -3,7 +3,6 @@ package com.ksign.wizlook.bigdata.collector.collect.push;
 import java.io.IOException;
 import java.net.DatagramSocket;
 import java.net.ServerSocket;
-import java.text.ParseException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -40,15 +39,18 @@ public enum PushReceiverManager {
 		Map<String, Map<String, String>> resultMap = new HashMap<String, Map<String, String>>();
 
 		if(Strings.isNullOrEmpty(dataSourceId)) {
-			for(String receiverId : serverMap.keySet()) {
+			for(Entry<String, PushReceiver> entry : serverMap.entrySet()) {
 				Map<String, String> receiverInfo = new HashMap<String, String>();
 				receiverInfo.put("status", CollectAction.RUNNING.toString());
-				resultMap.put(receiverId, receiverInfo);
+				entry.getValue().putStatus(receiverInfo);
+				resultMap.put(entry.getKey(), receiverInfo);
 			}
 		} else {
 			Map<String, String> receiverInfo = new HashMap<String, String>();
-			if(serverMap.containsKey(dataSourceId)) {
+			PushReceiver receiver = serverMap.get(dataSourceId);
+			if(receiver != null) {
 				receiverInfo.put("status", CollectAction.RUNNING.toString());
+				receiver.putStatus(receiverInfo);
 				resultMap.put(dataSourceId, receiverInfo);
 			}
 		}
@@ -160,21 +162,39 @@ public enum PushReceiverManager {
 
 		if(result) {
 			serverMap.remove(dataSourceId);
+			pushReceiver.flushCollectHistory();
 			logger.info("PushReceiver Stop... dataSourceId=["+dataSourceId+ "], Port=["+pushReceiver.getPort()+"], Type=[" + pushReceiver.getClass().getSimpleName() + "]");
 		}
 		return result;
 	}
 
 	/**
-	 * 모든 PushReceiver들의 임시 저장된 로그파일을 롤링
-	 * @throws IOException
-	 * @throws ParseException
-	 * @throws CollectException
+	 * 모든 PushReceiver들의 spill 된 로그파일을 수집 디렉토리로 옮긴다.
+	 * BacklogMonitor 에서 수집 중인 경우 주기적으로 호출한다.
+	 */
+	public void drainSpill() {
+		for(PushReceiver receiver : serverMap.values()) {
+			receiver.drainSpill();
+		}
+	}
+
+	/**
+	 * 모든 PushReceiver들의 허용 호스트 목록을 다시 생성한다.
+	 * AllowHostRefreshScheduler 에서 주기적으로 호출한다.
+	 */
+	public void refreshAllowHostList() {
+		for(PushReceiver receiver : serverMap.values()) {
+			receiver.refreshAllowHostList();
+		}
+	}
+
+	/**
+	 * 모든 PushReceiver들의 주기 동안 누적된 수집 이력을 기록한다.
+	 * PushCollectHistoryScheduler 에서 주기적으로 호출한다.
 	 */
-	public void rollingReceiveLogFile() throws IOException, ParseException, CollectException {
+	public void flushCollectHistory() {
 		for(PushReceiver receiver : serverMap.values()) {
-			// 무조건 강제 롤링이 아님. 파일의 rolling주기가 지났지만 rolling이 되지 않은 파일만 롤링이 된다. ( forceRolling = false )
-			receiver.rollingReceiveLogFile(false);
+			receiver.flushCollectHistory();
 		}
 	}
 
@@ -212,7 +232,9 @@ public enum PushReceiverManager {
 	public void destroy() {
 		Iterator<Entry<String, PushReceiver>> iterator = serverMap.entrySet().iterator();
 		while(iterator.hasNext()) {
-			try {iterator.next().getValue().stop(); } catch (Exception e) { logger.error(this.getClass().getSimpleName(), e); }
+			PushReceiver receiver = iterator.next().getValue();
+			try {receiver.stop(); } catch (Exception e) { logger.error(this.getClass().getSimpleName(), e); }
+			receiver.flushCollectHistory();
 		}
 	}
 	
@@ -0,0 +1,126 @@
+package com.ksign.wizlook.bigdata.collector.collect.push;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.util.MpscRingBuffer;
+
+/**
+ * 수집이 일시 중지된 동안 ( BacklogMonitor ) 또는 수신량 제한 ( PushRateLimiter SPILL ) 을 초과하여 수신한 로그를 spill 파일에 기록하는 writer thread
+ *  - 수신 thread 는 ring buffer 에 로그를 넣기만 하고 바로 반환한다. ( spill 파일 writeLock 대기 없음 )
+ *  - writer thread 가 ring buffer 의 로그를 꺼내 PushReceiver 의 spill 파일에 기록한다.
+ *  - ring buffer 가 가득 찬 경우 로그를 버리고 BacklogMonitor 의 버린 로그 수에 더한다.
+ * @author byw
+ */
+class PushSpillAppender implements Runnable {
+	/** ring buffer 크기 */
+	private static final int RING_SIZE = 65536;
+	/** 로그가 없을 때 최대 대기 시간 ( nano ) */
+	private static final long IDLE_PARK_NANOS = 100L * 1000 * 1000;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 로그를 spill 할 PushReceiver */
+	private final PushReceiver pushReceiver;
+	/** spill 로그 ring buffer */
+	private final MpscRingBuffer<SpillRecord> ringBuffer = new MpscRingBuffer<SpillRecord>(RING_SIZE);
+	/** ring buffer 가 가득 차서 버린 로그 수 */
+	private final AtomicLong overflowCount = new AtomicLong();
+
+	/** writer thread */
+	private volatile Thread writerThread;
+	/** 동작 여부 */
+	private volatile boolean running = true;
+	/** writer thread 대기 여부 ( 대기 중인 경우에만 깨운다 ) */
+	private volatile boolean parked = false;
+
+	PushSpillAppender(PushReceiver pushReceiver) {
+		this.pushReceiver = pushReceiver;
+	}
+
+	/**
+	 * writer thread 구동
+	 */
+	void start() {
+		Thread thread = new Thread(this, getClass().getSimpleName() + "-" + pushReceiver.getDataSourceId());
+		thread.setDaemon(true);
+		writerThread = thread;
+		thread.start();
+	}
+
+	/**
+	 * 로그 추가 ( 수신 thread 에서 호출 )
+	 * @param logpolicyId 저장할 정책아이디
+	 * @param log 수신 로그
+	 * @return ring buffer 가 가득 찬 경우 false
+	 */
+	boolean append(String logpolicyId, String log) {
+		if(!ringBuffer.offer(new SpillRecord(logpolicyId, log))) {
+			BacklogMonitor.INSTANCE.countDrop();
+			if(overflowCount.incrementAndGet() % 10000 == 1) {
+				logger.warn(this.getClass().getSimpleName() + ". Ring buffer is full. Drop spill log. dataSourceId=[" + pushReceiver.getDataSourceId() + "], overflowCount=[" + overflowCount.get() + "]");
+			}
+			return false;
+		}
+		if(parked) LockSupport.unpark(writerThread);
+		return true;
+	}
+
+	/**
+	 * writer thread 종료. 남은 로그를 모두 spill 파일에 기록한다.
+	 */
+	void close() {
+		running = false;
+		Thread thread = writerThread;
+		if(thread == null) return;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void run() {
+		logger.info("	Start " + this.getClass().getSimpleName() + ". dataSourceId=[" + pushReceiver.getDataSourceId() + "]");
+		try {
+			while(true) {
+				SpillRecord record = ringBuffer.poll();
+				if(record != null) {
+					try {
+						pushReceiver.spill(record.logpolicyId, record.log);
+					} catch (IOException e) {
+						logger.error(this.getClass().getSimpleName() + ". It failed to spill log. dataSourceId=[" + pushReceiver.getDataSourceId() + "], logpolicyId=[" + record.logpolicyId + "]", e);
+					}
+					continue;
+				}
+				if(!running) break;
+
+				parked = true;
+				if(ringBuffer.isEmpty() && running) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				parked = false;
+			}
+		} finally {
+			logger.info("	Stop " + this.getClass().getSimpleName() + ". dataSourceId=[" + pushReceiver.getDataSourceId() + "]");
+		}
+	}
+
+	/**
+	 * spill 할 로그
+	 */
+	private static class SpillRecord {
+		private final String logpolicyId;
+		private final String log;
+
+		SpillRecord(String logpolicyId, String log) {
+			this.logpolicyId = logpolicyId;
+			this.log = log;
+		}
+	}
+}
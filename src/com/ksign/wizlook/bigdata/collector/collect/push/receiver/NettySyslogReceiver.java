@@ -0,0 +1,283 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.receiver;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CommProtocol;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.collect.push.PushRateLimiter;
+import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiver;
+import com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty.SyslogFrameDecoder;
+import com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty.SyslogReceiverChannelHandler;
+import com.ksign.wizlook.bigdata.collector.collect.push.syslog.SyslogHeader;
+import com.ksign.wizlook.bigdata.collector.collect.push.syslog.SyslogHeaderParser;
+import com.ksign.wizlook.bigdata.collector.collect.push.syslog.SyslogRouter;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.NettyTransportManager;
+import com.ksign.wizlook.common.util.DateUtil;
+
+/**
+ * 수집유형 Syslog 구현 클래스 ( Netty )
+ *  - UDP : epoll 을 사용할 수 있는 경우 SO_REUSEPORT 로 worker thread 수만큼 같은 port 에 bind 하여
+ *          kernel 이 수신 패킷을 각 thread 에 분산한다. epoll 을 사용할 수 없는 경우 NIO channel 하나로 수신한다.
+ *  - event loop 는 NettyTransportManager 의 공용 thread group 을 사용한다.
+ *  - TCP : RFC 6587 Octet Counting / LF 구분 메시지를 수신한다. ( SyslogFrameDecoder )
+ *  - 수신한 메시지는 String 으로 변환하지 않고 byte 그대로 저장한다. ( 수집로그 인코딩이 UTF-8 이 아닌 경우만 변환 )
+ *  - 수신 설정에 따라 facility / severity 별로 다른 정책에 저장하거나 버린다. ( SyslogRouter )
+ * @author byw
+ */
+public class NettySyslogReceiver extends PushReceiver {
+	/** default 메시지 최대 길이 */
+	private static final int DEFAULT_MAX_FRAME_LENGTH = 65536;
+	/** default UDP 한번의 read 이벤트에서 읽을 최대 datagram 수 */
+	private static final int DEFAULT_MAX_MESSAGES_PER_READ = 64;
+	/** default UDP datagram 최대 크기 ( 초과분은 잘림 ) */
+	private static final int DEFAULT_MAX_DATAGRAM_SIZE = 65507;
+
+	/** 통신프로토콜 ( TCP, UDP ) */
+	private CommProtocol commProtocol = CommProtocol.UDP;
+	/** worker thread count ( 0 이하인 경우 core 수. UDP 는 SO_REUSEPORT bind 수, TCP 는 1 인 경우 event loop 하나에 고정 ) */
+	private int workerThreadCount = 0;
+	/** UDP socket 수신 buffer 크기 ( SO_RCVBUF. 0 이하인 경우 OS 기본값 ) */
+	private int receiveBufferSize = 0;
+	/** UDP 한번의 read 이벤트에서 읽을 최대 datagram 수 */
+	private int maxMessagesPerRead = DEFAULT_MAX_MESSAGES_PER_READ;
+	/** UDP datagram 수신 buffer 크기 */
+	private int maxDatagramSize = DEFAULT_MAX_DATAGRAM_SIZE;
+	/** TCP 메시지 최대 길이 */
+	private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+	/** buffer save 사용 여부 */
+	private boolean bufferSaveEnabled;
+	/** 수집로그 인코딩이 UTF-8 인지 여부 */
+	private boolean utf8Encoding;
+	/** facility / severity 별 저장 정책 */
+	private SyslogRouter syslogRouter;
+	/** event loop thread 별 syslog header parse 결과 */
+	private final ThreadLocal<SyslogHeader> syslogHeader = new ThreadLocal<SyslogHeader>() {
+		@Override
+		protected SyslogHeader initialValue() {
+			return new SyslogHeader();
+		}
+	};
+
+	/** bind 된 server channel ( UDP SO_REUSEPORT 인 경우 worker thread 수 만큼 ) */
+	private final List<Channel> serverChannelList = new ArrayList<Channel>();
+	/** Channel groups that the client is connected ( TCP ) */
+	private ChannelGroup channelGroup;
+
+	@Override
+	public void init(String logpolicyId, String dataSourceId, String allowHosts, int port, String collectLogEncoding, Map<String, String> jobDataMap) {
+
+		super.init(logpolicyId, dataSourceId, allowHosts, port, collectLogEncoding, jobDataMap);
+
+		if(!Strings.isNullOrEmpty(jobDataMap.get("commProtocol"))) {
+			this.commProtocol = CommProtocol.valueOf(jobDataMap.get("commProtocol"));
+		}
+		if(!Strings.isNullOrEmpty(jobDataMap.get("workerThreadCount"))) {
+			this.workerThreadCount = Integer.parseInt(jobDataMap.get("workerThreadCount"));
+		}
+		if(!Strings.isNullOrEmpty(jobDataMap.get("maxFrameLength"))) {
+			this.maxFrameLength = Integer.parseInt(jobDataMap.get("maxFrameLength"));
+		}
+		if(!Strings.isNullOrEmpty(jobDataMap.get("maxMessagesPerRead"))) {
+			this.maxMessagesPerRead = Math.max(1, Integer.parseInt(jobDataMap.get("maxMessagesPerRead")));
+		}
+		if(!Strings.isNullOrEmpty(jobDataMap.get("maxDatagramSize"))) {
+			this.maxDatagramSize = Math.max(512, Integer.parseInt(jobDataMap.get("maxDatagramSize")));
+		}
+		this.receiveBufferSize = super.getUdpReceiveBufferSize(jobDataMap);
+		this.bufferSaveEnabled = ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED);
+		this.utf8Encoding = Strings.isNullOrEmpty(collectLogEncoding) || "UTF-8".equalsIgnoreCase(collectLogEncoding);
+		this.syslogRouter = new SyslogRouter(logpolicyId, jobDataMap);
+	}
+
+	@Override
+	public boolean start() {
+		if(workerThreadCount <= 0) workerThreadCount = Runtime.getRuntime().availableProcessors();
+		channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+		SyslogReceiverChannelHandler handler = new SyslogReceiverChannelHandler(channelGroup, this);
+
+		try {
+			if(CommProtocol.TCP == commProtocol) {
+				startTcp(handler);
+				BacklogMonitor.INSTANCE.registerChannelGroup(channelGroup);
+			} else {
+				startUdp(handler);
+			}
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getName(), e);
+			closeChannels();
+		}
+		return false;
+	}
+
+	/**
+	 * UDP 수신 channel bind
+	 *  - 수신 datagram 은 pooled buffer ( maxDatagramSize 고정 크기 ) 에 읽고, 한번의 read 이벤트에서 maxMessagesPerRead 개까지 연속으로 읽는다.
+	 *  - 수신 buffer ( SO_RCVBUF ) 를 크게 설정하여 순간적으로 몰리는 패킷을 커널에서 버리지 않도록 한다.
+	 * @param handler syslog 수신 Handler
+	 * @throws InterruptedException
+	 */
+	private void startUdp(SyslogReceiverChannelHandler handler) throws InterruptedException {
+		Bootstrap bootStrap = new Bootstrap();
+		bootStrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+				 .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize))
+				 .option(ChannelOption.MAX_MESSAGES_PER_READ, maxMessagesPerRead);
+		if(receiveBufferSize > 0) bootStrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+		bootStrap.channel(NettyTransportManager.INSTANCE.getDatagramChannelClass())
+				 .handler(handler);
+		if(NettyTransportManager.INSTANCE.isEpoll()) {
+			bootStrap.group(NettyTransportManager.INSTANCE.getWorkerGroup())
+					 .option(EpollChannelOption.SO_REUSEPORT, true);
+			// 같은 port 에 worker thread 수만큼 bind ( 각 channel 은 공용 worker group 의 서로 다른 event loop 에 등록된다 )
+			int channelCount = Math.min(workerThreadCount, NettyTransportManager.INSTANCE.getWorkerThreadCount());
+			for(int i=0; i<channelCount; i++) {
+				serverChannelList.add(bootStrap.bind(new InetSocketAddress(port)).sync().channel());
+			}
+		} else {
+			bootStrap.group(NettyTransportManager.INSTANCE.getWorkerGroup(1));
+			serverChannelList.add(bootStrap.bind(new InetSocketAddress(port)).sync().channel());
+		}
+		int actualReceiveBufferSize = ((DatagramChannel) serverChannelList.get(0)).config().getReceiveBufferSize();
+		logger.info(this.getClass().getSimpleName() + ". Bind UDP. dataSourceId=[" + dataSourceId + "], port=[" + port + "], channelCount=[" + serverChannelList.size() + "], epoll=[" + NettyTransportManager.INSTANCE.isEpoll() + "], receiveBufferSize=[" + actualReceiveBufferSize + "]");
+		// linux 는 설정값의 2배를 할당하며 net.core.rmem_max 를 넘을 수 없다.
+		if(receiveBufferSize > 0 && actualReceiveBufferSize < receiveBufferSize) {
+			logger.warn(this.getClass().getSimpleName() + ". UDP receive buffer is limited by OS. Check net.core.rmem_max. dataSourceId=[" + dataSourceId + "], request=[" + receiveBufferSize + "], actual=[" + actualReceiveBufferSize + "]");
+		}
+	}
+
+	/**
+	 * TCP 수신 channel bind
+	 * @param handler syslog 수신 Handler
+	 * @throws InterruptedException
+	 */
+	private void startTcp(final SyslogReceiverChannelHandler handler) throws InterruptedException {
+		ServerBootstrap bootStrap = new ServerBootstrap();
+		bootStrap.group(NettyTransportManager.INSTANCE.getBossGroup(), NettyTransportManager.INSTANCE.getWorkerGroup(workerThreadCount))
+				 .channel(NettyTransportManager.INSTANCE.getServerChannelClass())
+				 .childOption(ChannelOption.SO_KEEPALIVE, true)
+				 .childOption(ChannelOption.TCP_NODELAY, true)
+				 .childHandler(new ChannelInitializer<SocketChannel>() {
+					 @Override
+					 protected void initChannel(SocketChannel ch) throws Exception {
+						 ch.pipeline().addLast(new SyslogFrameDecoder(maxFrameLength));
+						 ch.pipeline().addLast(handler);
+					 }
+				 });
+		serverChannelList.add(bootStrap.bind(new InetSocketAddress(port)).sync().channel());
+		logger.info(this.getClass().getSimpleName() + ". Bind TCP. dataSourceId=[" + dataSourceId + "], port=[" + port + "], epoll=[" + NettyTransportManager.INSTANCE.isEpoll() + "]");
+	}
+
+	/**
+	 * 수신한 syslog 메시지 저장 ( Netty event loop thread 에서 호출 )
+	 * @param content 수신 메시지
+	 * @param remoteAddress 원격지 주소
+	 * @param checkHost 허용 호스트 확인 여부 ( TCP 는 연결 시 확인하므로 false )
+	 */
+	public void receive(ByteBuf content, InetSocketAddress remoteAddress, boolean checkHost) {
+		// 수집 이력은 메시지마다 남기지 않고 PushCollectHistory 에 누적 ( 오류는 상세 로그 기록 )
+		long startNanos = System.nanoTime();
+		try {
+			// 허용 host여부 체크
+			if(checkHost && !isValidClientHost(remoteAddress)) {
+				collectHistory.loggingError("[Check Host] Is not allow Host. Refuse connection. Address=[" + remoteAddress.getAddress().getHostAddress() + "]");
+				return;
+			}
+
+			// 송신 IP 별 / receiver 전체 수신량 제한
+			int rateResult = super.acquireRate(remoteAddress == null ? null : remoteAddress.getAddress());
+			if(rateResult == PushRateLimiter.DROP) return;
+
+			// facility / severity 에 따라 저장할 정책 결정
+			String saveLogpolicyId = logpolicyId;
+			if(syslogRouter.isEnabled()) {
+				saveLogpolicyId = syslogRouter.route(SyslogHeaderParser.parse(content, syslogHeader.get()));
+				if(saveLogpolicyId == null) {
+					collectHistory.loggingSuccess(0, startNanos);
+					return;
+				}
+			}
+
+			// 끝의 LF, CR, NUL 제외
+			int start = content.readerIndex();
+			int end = content.writerIndex();
+			while(end > start) {
+				byte b = content.getByte(end - 1);
+				if(b != '\n' && b != '\r' && b != 0) break;
+				end--;
+			}
+			if(end == start) {
+				collectHistory.loggingSuccess(0, startNanos);
+				return;
+			}
+			byte[] log = new byte[end - start];
+			content.getBytes(start, log);
+
+			// 설정에 따라 buffer save 사용
+			// buffer save를 사용할 경우 temp file에 기록하다가 일정 시간이 지나면 rolling하여 저장한다
+			if(rateResult == PushRateLimiter.SPILL) {
+				super.spillAsync(saveLogpolicyId, new String(log, utf8Encoding ? "UTF-8" : collectLogEncoding));
+			} else if(bufferSaveEnabled) {
+				if(!utf8Encoding) log = new String(log, collectLogEncoding).getBytes("UTF-8");
+				super.bufferSave(saveLogpolicyId, log);
+			} else {
+				super.save(saveLogpolicyId, log, "SYSLOG_" + DateUtil.getCurrentTimestampString(), utf8Encoding ? "UTF-8" : collectLogEncoding);
+			}
+			collectHistory.loggingSuccess(end - start, startNanos);
+		} catch (Exception e) {
+			collectHistory.loggingError("[Exception]", e);
+		}
+	}
+
+	@Override
+	public void putStatus(Map<String, String> statusMap) {
+		super.putStatus(statusMap);
+		if(CommProtocol.TCP != commProtocol) super.putUdpSocketStatus(statusMap);
+	}
+
+	@Override
+	public boolean stop() {
+		try {
+			closeChannels();
+			if(bufferSaveEnabled) {
+				super.rollingReceiveLogFile(true);
+			}
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	private void closeChannels() {
+		// Server 에 연결되어 있는 client socket close
+		if(channelGroup != null) {
+			BacklogMonitor.INSTANCE.unregisterChannelGroup(channelGroup);
+			try { channelGroup.close().await(); } catch (InterruptedException e) { }
+		}
+		for(Channel channel : serverChannelList) {
+			try { channel.close().sync(); } catch (InterruptedException e) { logger.error(this.getClass().getSimpleName(), e); }
+		}
+		serverChannelList.clear();
+	}
+}
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.Vector;
 
 import org.snmp4j.CommandResponder;
@@ -20,8 +22,10 @@ import org.snmp4j.mp.MPv3;
 import org.snmp4j.security.Priv3DES;
 import org.snmp4j.security.SecurityProtocols;
 import org.snmp4j.security.USM;
+import org.snmp4j.smi.Address;
 import org.snmp4j.smi.OctetString;
 import org.snmp4j.smi.TcpAddress;
+import org.snmp4j.smi.TransportIpAddress;
 import org.snmp4j.smi.UdpAddress;
 import org.snmp4j.smi.VariableBinding;
 import org.snmp4j.transport.DefaultTcpTransportMapping;
@@ -29,24 +33,60 @@ import org.snmp4j.transport.DefaultUdpTransportMapping;
 import org.snmp4j.util.MultiThreadedMessageDispatcher;
 import org.snmp4j.util.ThreadPool;
 
+import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CommProtocol;
-import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CollectStatus;
-import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
+import com.ksign.wizlook.bigdata.collector.collect.push.PushRateLimiter;
 import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiver;
+import com.ksign.wizlook.bigdata.collector.collect.push.snmp.SnmpOidNameCache;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 import com.ksign.wizlook.common.util.DateUtil;
 
 /**
  * 수집유형 Snmp Trap 구현 클래스 
+ *  - dispatcherThreadCount ( default : core 수 ) 개의 thread 에서 trap 을 decode 및 처리한다.
+ *  - 수신한 trap 은 바로 저장하지 않고 모아두었다가 batchSize 건 또는 batchIntervalMillis 마다 한번에 저장한다.
+ *  - OID 는 SnmpOidNameCache 를 통해 변환한다.
  * @author byw
  */
 public class SnmpTrapReceiver extends PushReceiver implements CommandResponder {
+	/** default 한번에 저장할 trap 수 */
+	private static final int DEFAULT_BATCH_SIZE = 1000;
+	/** default 저장 주기 */
+	private static final long DEFAULT_BATCH_INTERVAL_MILLIS = 1000;
 
 	private Snmp snmp = null;
 	private TransportMapping<?> transport = null;
 	private ThreadPool threadPool = null;
 	private CommProtocol commProtocol;
+	/** dispatcher thread count ( 0 이하인 경우 core 수 ) */
+	private int dispatcherThreadCount = 0;
+	/** UDP socket 수신 buffer 크기 ( SO_RCVBUF. 0 이하인 경우 OS 기본값 ) */
+	private int receiveBufferSize = 0;
+	/** 한번에 저장할 trap 수 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	/** 저장 주기 */
+	private long batchIntervalMillis = DEFAULT_BATCH_INTERVAL_MILLIS;
+	/** buffer save 사용 여부 */
+	private boolean bufferSaveEnabled;
+
+	/** 저장 대기 trap */
+	private StringBuilder batch = new StringBuilder();
+	/** 저장 대기 trap 수 */
+	private int batchCount = 0;
+	/** 저장 대기 중인 첫 trap 수신 시간 ( System.nanoTime() ) */
+	private long batchStartTime = 0;
+	/** 저장 대기 trap Lock */
+	private final Object batchLock = new Object();
+	/** 저장 주기 timer */
+	private Timer flushTimer = null;
+	/** dispatcher thread 별 trap 로그 작성 buffer */
+	private final ThreadLocal<StringBuilder> trapLogBuilder = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(1024);
+		}
+	};
 
 	@Override
 	public void init(String logpolicyId, String dataSourceId, String allowHosts, int port, String collectLogEncoding, Map<String, String> jobDataMap) {
@@ -54,78 +94,136 @@ public class SnmpTrapReceiver extends PushReceiver implements CommandResponder {
 		super.init(logpolicyId, dataSourceId, allowHosts, port, collectLogEncoding, jobDataMap);
 
 		this.commProtocol = CommProtocol.valueOf(jobDataMap.get("commProtocol"));
+		if(!Strings.isNullOrEmpty(jobDataMap.get("dispatcherThreadCount"))) {
+			this.dispatcherThreadCount = Integer.parseInt(jobDataMap.get("dispatcherThreadCount"));
+		}
+		if(!Strings.isNullOrEmpty(jobDataMap.get("batchSize"))) {
+			this.batchSize = Math.max(1, Integer.parseInt(jobDataMap.get("batchSize")));
+		}
+		if(!Strings.isNullOrEmpty(jobDataMap.get("batchIntervalMillis"))) {
+			this.batchIntervalMillis = Math.max(1, Long.parseLong(jobDataMap.get("batchIntervalMillis")));
+		}
+		this.receiveBufferSize = super.getUdpReceiveBufferSize(jobDataMap);
+		this.bufferSaveEnabled = ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED);
 	}
 
 	/**
-	 * Snmp Trap 로그를 수신하였을 경우 호출되는 메소드
+	 * Snmp Trap 로그를 수신하였을 경우 호출되는 메소드 ( dispatcher thread 에서 호출 )
 	 * @param commandResponderEvent 수신된 snmp Trap 정보
 	 */
 	@Override
 	public void processPdu(CommandResponderEvent commandResponderEvent) {
-		// 로그 수집 이력 logger
-		CollectLogger collectLogger = new CollectLogger(logpolicyId, dataSourceId);
-		// 로그 수집 시작 이력 저장
-		collectLogger.loggingCollectStart(System.currentTimeMillis());
-
-		CollectStatus result = CollectStatus.ERROR;
-		long logSize = 0;
+		long startNanos = System.nanoTime();
+		Address peerAddress = commandResponderEvent.getPeerAddress();
+		InetSocketAddress socketAddress = null;
 		try {
-			try {
-				String remoeteHost = commandResponderEvent.getPeerAddress().toString().split("/")[0];
-				int remoetePort = Integer.parseInt(commandResponderEvent.getPeerAddress().toString().split("/")[1]);
-				InetSocketAddress socketAddress = new InetSocketAddress(remoeteHost, remoetePort);
-
-				// 허용 host여부 체크
+			// 허용 host여부 체크
+			if(peerAddress instanceof TransportIpAddress) {
+				TransportIpAddress ipAddress = (TransportIpAddress) peerAddress;
+				socketAddress = new InetSocketAddress(ipAddress.getInetAddress(), ipAddress.getPort());
 				if(!super.isValidClientHost(socketAddress)) {
-					collectLogger.loggingCollectDetailLog("[Check Host] Is not allow Host. Refuse connection. Address=[" + ((InetSocketAddress)socketAddress).getAddress().getHostAddress()+ ")]");
+					loggingError("[Check Host] Is not allow Host. Refuse connection. Address=[" + socketAddress.getAddress().getHostAddress()+ ")]", null);
 					return;
 				}
-			} catch (SocketException e) {
-				collectLogger.loggingCollectDetailLog("[Exception]", e);
+			} else {
+				loggingError("[Check Host] Is not ip address. Refuse connection. Address=[" + peerAddress + "]", null);
 				return;
 			}
+		} catch (SocketException e) {
+			loggingError("[Exception]", e);
+			return;
+		}
 
-			PDU pdu = commandResponderEvent.getPDU();
-			if(pdu == null) {
-				collectLogger.loggingCollectDetailLog("[Exception] Snmp Trap Receive Error. PDU is null.");
-				return;
-			}
+		// 송신 IP 별 / receiver 전체 수신량 제한
+		int rateResult = super.acquireRate(socketAddress.getAddress());
+		if(rateResult == PushRateLimiter.DROP) return;
 
-			StringBuilder logMsg = new StringBuilder();
-			logMsg.append("pduType=").append(PDU.getTypeString(pdu.getType()))
-				  .append(",peerAddress=").append(commandResponderEvent.getPeerAddress())
-			  	  .append(",requestId=").append(pdu.getRequestID())
-			  	  .append(",variableBindings=");
-
-			Vector<? extends VariableBinding> variableBindings = pdu.getVariableBindings();
-		    for( int i = 0; i < variableBindings.size(); i++){
-		    	if(i > 0) logMsg.append("Ω");
-		    	logMsg.append(variableBindings.get(i).getOid()).append("=");
-		    	if(!variableBindings.get(i).isException()) {
-		    		logMsg.append(variableBindings.get(i).toValueString());
-		    	}
-		    }
-
-		    logSize = logMsg.toString().getBytes().length;
-			try {
-				// 설정에 따라 buffer save 사용
-				// buffer save를 사용할 경우 temp file에 기록하다가 일정 시간이 지나면 rolling하여 저장한다
-				if(ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED)) {
-					super.bufferSave(logMsg.toString());
-				} else {
-					super.save(logMsg.toString(), "SNMP_TRAP_" + DateUtil.getCurrentTimestampString(), "UTF-8");
-				}
-				result = CollectStatus.SUCCESS;
-			} catch (IOException e) {
-				collectLogger.loggingCollectDetailLog("[Exception]", e);
-			} catch (Exception e) {
-				collectLogger.loggingCollectDetailLog("[Exception]", e);
+		PDU pdu = commandResponderEvent.getPDU();
+		if(pdu == null) {
+			loggingError("[Exception] Snmp Trap Receive Error. PDU is null.", null);
+			return;
+		}
+
+		StringBuilder logMsg = trapLogBuilder.get();
+		logMsg.setLength(0);
+		logMsg.append("pduType=").append(PDU.getTypeString(pdu.getType()))
+			  .append(",peerAddress=").append(peerAddress)
+		  	  .append(",requestId=").append(pdu.getRequestID())
+		  	  .append(",variableBindings=");
+
+		Vector<? extends VariableBinding> variableBindings = pdu.getVariableBindings();
+	    for( int i = 0; i < variableBindings.size(); i++){
+	    	VariableBinding variableBinding = variableBindings.get(i);
+	    	if(i > 0) logMsg.append("Ω");
+	    	logMsg.append(SnmpOidNameCache.INSTANCE.getName(variableBinding.getOid())).append("=");
+	    	if(!variableBinding.isException()) {
+	    		logMsg.append(variableBinding.toValueString());
+	    	}
+	    }
+
+	    // 제한을 초과한 trap 은 batch 에 넣지 않고 spill
+	    if(rateResult == PushRateLimiter.SPILL) {
+	    	String log = logMsg.toString();
+	    	super.spillAsync(logpolicyId, log);
+	    	collectHistory.loggingSuccess(log.length(), startNanos);
+	    	return;
+	    }
+
+	    boolean flush = false;
+	    synchronized(batchLock) {
+	    	if(batchCount == 0) {
+	    		batchStartTime = System.nanoTime();
+	    	} else {
+	    		batch.append(System.lineSeparator());
+	    	}
+	    	batch.append(logMsg);
+	    	batchCount++;
+	    	flush = batchCount >= batchSize;
+	    }
+	    // 1MB 이상 커진 buffer 는 재사용하지 않음
+	    if(logMsg.capacity() > 1024 * 1024) trapLogBuilder.remove();
+	    if(flush) flushBatch();
+	}
+
+	/**
+	 * 저장 대기 trap 을 한번에 저장
+	 */
+	private void flushBatch() {
+		String batchLog;
+		int trapCount;
+		long startTime;
+		synchronized(batchLock) {
+			if(batchCount == 0) return;
+			batchLog = batch.toString();
+			trapCount = batchCount;
+			startTime = batchStartTime;
+			batch = new StringBuilder(batchLog.length() + 1024);
+			batchCount = 0;
+		}
+
+		// 수집 이력은 PushCollectHistory 에 누적 ( 처리시간은 가장 먼저 수신한 trap 기준 )
+		try {
+			byte[] log = batchLog.getBytes("UTF-8");
+			// 설정에 따라 buffer save 사용
+			// buffer save를 사용할 경우 temp file에 기록하다가 일정 시간이 지나면 rolling하여 저장한다
+			if(bufferSaveEnabled) {
+				super.bufferSave(log);
+			} else {
+				super.save(log, "SNMP_TRAP_" + DateUtil.getCurrentTimestampString(), "UTF-8");
 			}
-		} finally {
-			// 로그 수집 완료 이력 저장
-			collectLogger.loggingCollectEnd(System.currentTimeMillis(), logSize, result);
+			collectHistory.loggingSuccess(trapCount, log.length, startTime);
+		} catch (Exception e) {
+			collectHistory.loggingError("[Exception] trapCount=[" + trapCount + "]", e);
 		}
-		
+	}
+
+	/**
+	 * 저장 전에 처리하지 못한 trap 의 오류 이력 저장
+	 * @param detailLog 상세 로그
+	 * @param t exception
+	 */
+	private void loggingError(String detailLog, Throwable t) {
+		collectHistory.loggingError(detailLog, t);
 	}
 
 	@Override
@@ -134,12 +232,16 @@ public class SnmpTrapReceiver extends PushReceiver implements CommandResponder {
 		if(CommProtocol.TCP == commProtocol) {
 			transport = new DefaultTcpTransportMapping(new TcpAddress(port));
 		} else if(CommProtocol.UDP == commProtocol) {
-			transport = new DefaultUdpTransportMapping(new UdpAddress(port));
+			DefaultUdpTransportMapping udpTransport = new DefaultUdpTransportMapping(new UdpAddress(port));
+			// 순간적으로 몰리는 trap 을 커널에서 버리지 않도록 수신 buffer 를 크게 설정 ( listen 전에 설정해야 적용됨 )
+			if(receiveBufferSize > 0) udpTransport.setReceiveBufferSize(receiveBufferSize);
+			transport = udpTransport;
 		} else {
 
 		}
 
-		threadPool = ThreadPool.create("DispatcherPool", 1);
+		if(dispatcherThreadCount <= 0) dispatcherThreadCount = Runtime.getRuntime().availableProcessors();
+		threadPool = ThreadPool.create("DispatcherPool-" + dataSourceId, dispatcherThreadCount);
 		MessageDispatcher mDispatcher = new MultiThreadedMessageDispatcher(threadPool, new MessageDispatcherImpl());
 
 		USM usm = new USM(SecurityProtocols.getInstance(), new OctetString(MPv3.createLocalEngineID()), 0);
@@ -163,9 +265,27 @@ public class SnmpTrapReceiver extends PushReceiver implements CommandResponder {
 
 		snmp.listen();
 
+		flushTimer = new Timer("SnmpTrapFlush-" + dataSourceId, true);
+		flushTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					flushBatch();
+				} catch (Exception e) {
+					logger.error(SnmpTrapReceiver.class.getSimpleName(), e);
+				}
+			}
+		}, batchIntervalMillis, batchIntervalMillis);
+
 		return true;
 	}
 
+	@Override
+	public void putStatus(Map<String, String> statusMap) {
+		super.putStatus(statusMap);
+		if(CommProtocol.UDP == commProtocol) super.putUdpSocketStatus(statusMap);
+	}
+
 	@Override
 	public boolean stop() {
 
@@ -176,7 +296,11 @@ public class SnmpTrapReceiver extends PushReceiver implements CommandResponder {
 		if(threadPool != null) {
 			threadPool.cancel();
 		}
-		if(ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED)) {
+		if(flushTimer != null) {
+			flushTimer.cancel();
+		}
+		flushBatch();
+		if(bufferSaveEnabled) {
 			try { super.rollingReceiveLogFile(true); } catch (Exception e) { }
 		}
 		return true;
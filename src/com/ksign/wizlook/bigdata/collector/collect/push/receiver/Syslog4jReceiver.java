@@ -15,9 +15,11 @@ import org.productivity.java.syslog4j.server.impl.net.udp.UDPNetSyslogServerConf
 
 import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CommProtocol;
-import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CollectStatus;
-import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
+import com.ksign.wizlook.bigdata.collector.collect.push.PushRateLimiter;
 import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiver;
+import com.ksign.wizlook.bigdata.collector.collect.push.syslog.SyslogHeader;
+import com.ksign.wizlook.bigdata.collector.collect.push.syslog.SyslogHeaderParser;
+import com.ksign.wizlook.bigdata.collector.collect.push.syslog.SyslogRouter;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 import com.ksign.wizlook.common.util.DateUtil;
@@ -32,6 +34,15 @@ public class Syslog4jReceiver extends PushReceiver implements SyslogServerSessio
 	private SyslogServerIF server = null;
 	/** 통신프로토콜 ( TCP, UDP ) */
 	private CommProtocol commProtocol;
+	/** facility / severity 별 저장 정책 */
+	private transient SyslogRouter syslogRouter;
+	/** thread 별 syslog header parse 결과 */
+	private final transient ThreadLocal<SyslogHeader> syslogHeader = new ThreadLocal<SyslogHeader>() {
+		@Override
+		protected SyslogHeader initialValue() {
+			return new SyslogHeader();
+		}
+	};
 
 	@Override
 	public void init(String logpolicyId, String dataSourceId, String allowHosts, int port, String collectLogEncoding, Map<String, String> jobDataMap) {
@@ -39,6 +50,7 @@ public class Syslog4jReceiver extends PushReceiver implements SyslogServerSessio
 		super.init(logpolicyId, dataSourceId, allowHosts, port, collectLogEncoding, jobDataMap);
 
 		this.commProtocol = CommProtocol.valueOf(jobDataMap.get("commProtocol"));
+		this.syslogRouter = new SyslogRouter(logpolicyId, jobDataMap);
 	}
 
 	/**
@@ -49,49 +61,53 @@ public class Syslog4jReceiver extends PushReceiver implements SyslogServerSessio
 	 */
 	@Override
 	public void event(SyslogServerIF syslogServer, SocketAddress socketAddress, SyslogServerEventIF event) {
-		// 수집이력 저장 logger
-		CollectLogger collectLogger = new CollectLogger(logpolicyId, dataSourceId);
-		// 로그 수집 시작 이력 저장
-		collectLogger.loggingCollectStart(System.currentTimeMillis());
+		// 수집 이력은 메시지마다 남기지 않고 PushCollectHistory 에 누적 ( 오류는 상세 로그 기록 )
+		long startNanos = System.nanoTime();
+		try {
+			// 허용 host여부 체크
+			if(!super.isValidClientHost((InetSocketAddress)socketAddress)) {
+				collectHistory.loggingError("[Check Host] Is not allow Host. Refuse connection. Address=[" + ((InetSocketAddress)socketAddress).getAddress().getHostAddress() + "]"); 
+				return;
+			}
+		} catch (SocketException e) {
+			collectHistory.loggingError("[Exception]", e);
+			return;
+		}
+
+		// 송신 IP 별 / receiver 전체 수신량 제한
+		int rateResult = super.acquireRate(((InetSocketAddress)socketAddress).getAddress());
+		if(rateResult == PushRateLimiter.DROP) return;
 
-		CollectStatus result = CollectStatus.ERROR;
-		long logSize = 0;
+		byte[] raw = event.getRaw();
 		try {
-			try {
-				// 허용 host여부 체크
-				if(!super.isValidClientHost((InetSocketAddress)socketAddress)) {
-					collectLogger.loggingCollectDetailLog("[Check Host] Is not allow Host. Refuse connection. Address=[" + ((InetSocketAddress)socketAddress).getAddress().getHostAddress() + "]"); 
+			// facility / severity 에 따라 저장할 정책 결정
+			String saveLogpolicyId = logpolicyId;
+			if(syslogRouter.isEnabled()) {
+				saveLogpolicyId = syslogRouter.route(SyslogHeaderParser.parse(raw, 0, raw.length, syslogHeader.get()));
+				if(saveLogpolicyId == null) {
+					collectHistory.loggingSuccess(0, startNanos);
 					return;
 				}
-			} catch (SocketException e) {
-				collectLogger.loggingCollectDetailLog("[Exception]", e);
-				return;
 			}
 
-			logSize = event.getRaw().length;
-			try {
-				// 수집로그 인코딩에 따라 로그를 저장
-				String receiveMessage = null;
-				if(Strings.isNullOrEmpty(collectLogEncoding) || "UTF-8".equals(collectLogEncoding)) {
-					receiveMessage = new String(event.getRaw());
-				} else {
-					receiveMessage = new String(event.getRaw(), collectLogEncoding);
-				}
+			// 수집로그 인코딩이 UTF-8 인 경우 수신 byte 를 그대로 저장하고, 그 외 인코딩만 UTF-8 로 변환한다
+			boolean utf8 = Strings.isNullOrEmpty(collectLogEncoding) || "UTF-8".equals(collectLogEncoding);
 
-				// 설정에 따라 buffer save 사용
-				// buffer save를 사용할 경우 temp file에 기록하다가 일정 시간이 지나면 rolling하여 저장한다
+			// 설정에 따라 buffer save 사용
+			// buffer save를 사용할 경우 temp file에 기록하다가 일정 시간이 지나면 rolling하여 저장한다
+			if(rateResult == PushRateLimiter.SPILL) {
+				super.spillAsync(saveLogpolicyId, new String(raw, utf8 ? "UTF-8" : collectLogEncoding));
+			} else {
+				byte[] log = utf8 ? raw : new String(raw, collectLogEncoding).getBytes("UTF-8");
 				if(ConfigLoader.getInstance().getBoolean(Config.PUSH_RECEIVE_BUFFER_SAVE_ENABLED)) {
-					if(server != null) super.bufferSave(receiveMessage);
+					if(server != null) super.bufferSave(saveLogpolicyId, log);
 				} else {
-					super.save(receiveMessage, "SYSLOG_" + DateUtil.getCurrentTimestampString(), "UTF-8");
+					super.save(saveLogpolicyId, log, "SYSLOG_" + DateUtil.getCurrentTimestampString(), "UTF-8");
 				}
-				result = CollectStatus.SUCCESS;
-			} catch (Exception e) {
-				collectLogger.loggingCollectDetailLog("[Exception]", e);
 			}
-		} finally {
-			// 로그 수집 완료 이력 저장
-			collectLogger.loggingCollectEnd(System.currentTimeMillis(), logSize, result);
+			collectHistory.loggingSuccess(raw.length, startNanos);
+		} catch (Exception e) {
+			collectHistory.loggingError("[Exception]", e);
 		}
 	}
 
@@ -127,6 +143,12 @@ public class Syslog4jReceiver extends PushReceiver implements SyslogServerSessio
 		return false;
 	}
 	
+	@Override
+	public void putStatus(Map<String, String> statusMap) {
+		super.putStatus(statusMap);
+		if(CommProtocol.TCP != commProtocol) super.putUdpSocketStatus(statusMap);
+	}
+
 	@Override
 	public boolean stop() {
 		try {
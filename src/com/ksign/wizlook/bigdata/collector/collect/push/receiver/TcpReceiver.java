@@ -4,16 +4,14 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.concurrent.GlobalEventExecutor;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.text.ParseException;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
@@ -21,13 +19,18 @@ import org.apache.logging.log4j.Logger;
 
 import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.collect.CollectException;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
 import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiver;
 import com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty.TcpReceiverChannelInitializer;
-import com.ksign.wizlook.bigdata.collector.config.Config;
-import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.NettyTransportManager;
 
 /**
  * 수집유형 TCP 구현 클래스
+ * connectionType 이 'L' 인 경우 아래 수신 설정을 사용한다.
+ *  - segmentRollingIntervalMillis : 수신 로그를 모아 저장하는 주기 ( default push.receive.buffer.save.interval )
+ *  - segmentMaxSize               : 수신 로그를 모아 저장하는 최대 크기 ( byte. 0 인 경우 크기로 저장하지 않음 )
+ *  - maxLineLength                : 줄바꿈 없이 한 줄로 수신할 수 있는 최대 길이 ( byte. default 65536 )
+ * event loop 는 NettyTransportManager 의 공용 thread group 을 사용한다. ( workerThreadCount 가 1 인 경우 event loop 하나에 고정 )
  * @author byw
  */
 public class TcpReceiver extends PushReceiver {
@@ -36,21 +39,23 @@ public class TcpReceiver extends PushReceiver {
 	public static final String CONNECTION_TYPE_PERMANENT = "P";
 	/** 로그파일 수신 한건 당 한 Connection 유지 */
 	public static final String CONNECTION_TYPE_TEMPORARY = "T";
+	/** 줄바꿈으로 구분된 로그를 연결이 유지되는 동안 계속 수신 ( 모든 Connection 의 로그를 모아 저장 ) */
+	public static final String CONNECTION_TYPE_LINE = "L";
+	/** default 줄 최대 길이 */
+	private static final int DEFAULT_MAX_LINE_LENGTH = 65536;
 
 	/** bootstrap server channel */
 	private Channel channel;
 	/** Channel groups that the client is connected */
 	private ChannelGroup channelGroup;
-	/** Netty nio boss thread group */
-	private EventLoopGroup bossGroup;
-	/** Netty nio worker thread group */
-	private EventLoopGroup workerGroup;
-	/** Connection type ( P / T ) */
+	/** Connection type ( P / T / L ) */
 	private String connectionType = CONNECTION_TYPE_PERMANENT;
-	/** worker thread count */
+	/** worker thread count ( 1 인 경우 공용 event loop 하나에 고정, 그 외는 공용 worker thread group 전체 ) */
 	private int workerThreadCount = 1;
 	/** read timeout millis */
 	private long readTimeoutMillis = 0;
+	/** 줄 최대 길이 ( L ) */
+	private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
 	/** logger */
 	private final Logger logger = LogManager.getLogger();
 
@@ -68,24 +73,29 @@ public class TcpReceiver extends PushReceiver {
 		if(!Strings.isNullOrEmpty(jobDataMap.get("readTimeoutMillis"))) {
 			this.readTimeoutMillis = Long.parseLong(jobDataMap.get("readTimeoutMillis")); 
 		}
+		if(CONNECTION_TYPE_LINE.equals(connectionType)) {
+			if(!Strings.isNullOrEmpty(jobDataMap.get("segmentRollingIntervalMillis"))) {
+				this.fileRollingIntervalMillis = Long.parseLong(jobDataMap.get("segmentRollingIntervalMillis").trim());
+			}
+			if(!Strings.isNullOrEmpty(jobDataMap.get("segmentMaxSize"))) {
+				this.fileRollingMaxSize = Long.parseLong(jobDataMap.get("segmentMaxSize").trim());
+			}
+			if(!Strings.isNullOrEmpty(jobDataMap.get("maxLineLength"))) {
+				this.maxLineLength = Integer.parseInt(jobDataMap.get("maxLineLength").trim());
+			}
+		}
 	}
 
 	@Override
 	public boolean start() {
 
-		bossGroup = new NioEventLoopGroup();
-		if(workerThreadCount > 0) {
-			workerGroup = new NioEventLoopGroup(workerThreadCount);
-		} else {
-			workerGroup = new NioEventLoopGroup(); // default : core count * 2; java option -Dio.netty.eventLoopThreads=30
-		}
-
 		channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
 
 		ServerBootstrap bootStrap = new ServerBootstrap();
 
-		bootStrap.group(bossGroup, workerGroup)
-		   		 .channel(NioServerSocketChannel.class)
+		// 공용 event loop 사용 ( receiver 마다 thread 를 생성하지 않음 )
+		bootStrap.group(NettyTransportManager.INSTANCE.getBossGroup(), NettyTransportManager.INSTANCE.getWorkerGroup(workerThreadCount))
+		   		 .channel(NettyTransportManager.INSTANCE.getServerChannelClass())
 		   		 .childOption(ChannelOption.SO_REUSEADDR, true)
 		   		 .childOption(ChannelOption.SO_KEEPALIVE, true)
 				 .childOption(ChannelOption.TCP_NODELAY, true)
@@ -98,12 +108,11 @@ public class TcpReceiver extends PushReceiver {
 			ChannelFuture future = bootStrap.bind(new InetSocketAddress(port)).sync();
 			if(future.isSuccess()) {
 				channel = future.channel();
+				BacklogMonitor.INSTANCE.registerChannelGroup(channelGroup);
 				return true;
 			}
 		} catch (Exception e) {
 			logger.error(this.getClass().getName(), e);
-			if(bossGroup != null) bossGroup.shutdownGracefully();
-			if(workerGroup != null) workerGroup.shutdownGracefully();
 		}
 		return false;
 	}
@@ -115,6 +124,7 @@ public class TcpReceiver extends PushReceiver {
 
 		// Server 에 연결되어 있는 client socket close
 		if(channelGroup != null) {
+			BacklogMonitor.INSTANCE.unregisterChannelGroup(channelGroup);
 			try { channelGroup.close().await(); } catch (InterruptedException e) { }
 		}
 
@@ -128,12 +138,13 @@ public class TcpReceiver extends PushReceiver {
 			logger.error(this.getClass().getSimpleName(), e);
 		}
 
-		if(bossGroup != null && !bossGroup.isShutdown()) {
-			bossGroup.shutdownGracefully();
-		}
-
-		if(workerGroup != null && !workerGroup.isShutdown()) {
-			workerGroup.shutdownGracefully();
+		// 모아서 저장 중인 로그 저장
+		if(CONNECTION_TYPE_LINE.equals(connectionType)) {
+			try {
+				rollingReceiveLogFile(true);
+			} catch (IOException | ParseException | CollectException e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			}
 		}
 		return result;
 	}
@@ -149,18 +160,50 @@ public class TcpReceiver extends PushReceiver {
 		return super.save(saveFile, saveFile.getName(), collectLogEncoding, false);
 	}
 
+	/**
+	 * 줄바꿈으로 구분된 수신 로그를 모아서 저장 ( connectionType L )
+	 * 수집로그 인코딩이 UTF-8 이 아닌 경우 UTF-8 로 변환하여 저장한다.
+	 * @param lines 완성된 줄들 ( 마지막 줄바꿈 제외 )
+	 * @param lineCount 줄 수
+	 * @param startNanos 수신 시점의 System.nanoTime()
+	 * @return 저장 성공 여부 ( ring buffer 가 가득 찬 경우 false. decoder 가 보관하였다가 다시 저장한다 )
+	 * @throws IOException
+	 */
+	public boolean saveLines(byte[] lines, int lineCount, long startNanos) throws IOException {
+		byte[] log = lines;
+		if(!Strings.isNullOrEmpty(collectLogEncoding) && !"UTF-8".equalsIgnoreCase(collectLogEncoding)) {
+			log = new String(lines, collectLogEncoding).getBytes("UTF-8");
+		}
+		if(!bufferSave(log)) return false;
+		collectHistory.loggingSuccess(lineCount, log.length, startNanos);
+		return true;
+	}
+
+	/**
+	 * 연결 종료 시 남은 줄을 저장 ( connectionType L )
+	 * 더 이상 다시 시도할 수 없으므로 ring buffer 가 가득 찬 경우 spill 하며, spill 도 하지 못한 경우 버린 크기를 수집 이력에 기록한다.
+	 * @param lines 완성된 줄들 ( 마지막 줄바꿈 제외 )
+	 * @param lineCount 줄 수
+	 * @param startNanos 수신 시점의 System.nanoTime()
+	 * @throws IOException
+	 */
+	public void saveClosingLines(byte[] lines, int lineCount, long startNanos) throws IOException {
+		if(saveLines(lines, lineCount, startNanos)) return;
+		String log = Strings.isNullOrEmpty(collectLogEncoding) ? new String(lines, "UTF-8") : new String(lines, collectLogEncoding);
+		if(spillAsync(logpolicyId, log)) {
+			collectHistory.loggingSuccess(lineCount, lines.length, startNanos);
+			return;
+		}
+		collectHistory.loggingError("It failed to save receive lines on close. lineCount=[" + lineCount + "], size=[" + lines.length + "]");
+	}
+
 	/**
 	 * 수신 도중 에러가 날 경우 COLLECT_ERROR_BASE_DIR에 수신받은 부분까지의 파일을 저장
 	 * @param saveFile 에러나기 전까지 수신된 로그 파일
 	 * @return 저장 성공 여부
 	 */
 	public boolean saveErrorFile(File saveFile) {
-		File file = new File(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR) + File.separator +
-							 logpolicyId + File.separator +
-							 dataSourceId + File.separator +
-							 saveFile.getName());
-		if(!file.getParentFile().exists()) file.getParentFile().mkdirs();
-		return saveFile.renameTo(file);
+		return super.saveErrorFile(saveFile, saveFile.getName(), collectLogEncoding);
 	}
 
 	public String getConnectionType() {
@@ -170,4 +213,8 @@ public class TcpReceiver extends PushReceiver {
 	public long getReadTimeoutMillis() {
 		return readTimeoutMillis;
 	}
+
+	public int getMaxLineLength() {
+		return maxLineLength;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+
+import java.util.List;
+
+/**
+ * TCP 로 수신한 syslog 를 메시지 단위로 나누는 Decoder ( RFC 6587 )
+ *  - Octet Counting      : "메시지길이 SP 메시지" 형태. 메시지가 숫자와 SP 로 시작하는 경우
+ *  - Non-Transparent     : LF 로 구분. 메시지가 '<' ( PRI ) 등 숫자가 아닌 문자로 시작하는 경우
+ *  - 최대 길이를 넘는 LF 구분 메시지는 최대 길이 단위로 나누어 전달한다.
+ * @author byw
+ */
+public class SyslogFrameDecoder extends ByteToMessageDecoder {
+	/** 메시지 길이 최대 자리수 */
+	private static final int MAX_LENGTH_DIGITS = 10;
+
+	/** 메시지 최대 길이 */
+	private final int maxFrameLength;
+	/** LF 를 찾지 못한 채 이미 검색한 길이 ( readerIndex 기준. 다음 수신 시 이어서 검색한다 ) */
+	private int scannedLength = 0;
+
+	public SyslogFrameDecoder(int maxFrameLength) {
+		this.maxFrameLength = maxFrameLength;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+		while(in.isReadable()) {
+			ByteBuf frame;
+			byte first = in.getByte(in.readerIndex());
+			if(first >= '0' && first <= '9') {
+				frame = decodeOctetCounting(in);
+			} else {
+				frame = decodeNonTransparent(in);
+			}
+			if(frame == null) return;
+			if(frame.isReadable()) {
+				out.add(frame);
+			} else {
+				frame.release();
+			}
+		}
+	}
+
+	/**
+	 * Octet Counting 메시지 decode
+	 * @return 메시지. 아직 다 수신되지 않은 경우 null
+	 */
+	private ByteBuf decodeOctetCounting(ByteBuf in) {
+		int readerIndex = in.readerIndex();
+		int writerIndex = in.writerIndex();
+		long length = 0;
+		int index = readerIndex;
+		for(; index < writerIndex; index++) {
+			byte b = in.getByte(index);
+			if(b == ' ') break;
+			// 숫자로 시작하는 LF 구분 메시지 ( PRI 가 없는 메시지 )
+			if(b < '0' || b > '9' || index - readerIndex >= MAX_LENGTH_DIGITS) return decodeNonTransparent(in);
+			length = length * 10 + (b - '0');
+		}
+		if(index >= writerIndex) return null;
+		if(length > maxFrameLength) {
+			in.skipBytes(in.readableBytes());
+			throw new CorruptedFrameException("Syslog frame length exceeds " + maxFrameLength + ". length=[" + length + "]");
+		}
+		if(writerIndex - index - 1 < length) return null;
+
+		in.readerIndex(index + 1);
+		return in.readSlice((int) length).retain();
+	}
+
+	/**
+	 * LF 로 구분된 메시지 decode ( 끝의 CR, NUL 제외 )
+	 * @return 메시지. 아직 LF 를 수신하지 않은 경우 null
+	 */
+	private ByteBuf decodeNonTransparent(ByteBuf in) {
+		int readerIndex = in.readerIndex();
+		int lfIndex = in.indexOf(readerIndex + scannedLength, in.writerIndex(), (byte) '\n');
+		if(lfIndex < 0) {
+			if(in.readableBytes() < maxFrameLength) {
+				scannedLength = in.readableBytes();
+				return null;
+			}
+			scannedLength = 0;
+			return in.readSlice(maxFrameLength).retain();
+		}
+		scannedLength = 0;
+
+		int end = lfIndex;
+		while(end > readerIndex && (in.getByte(end - 1) == '\r' || in.getByte(end - 1) == 0)) end--;
+		ByteBuf frame = in.slice(readerIndex, end - readerIndex).retain();
+		in.readerIndex(lfIndex + 1);
+		return frame;
+	}
+}
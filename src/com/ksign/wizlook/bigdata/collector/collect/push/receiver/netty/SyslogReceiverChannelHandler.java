@@ -0,0 +1,83 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+
+import java.net.InetSocketAddress;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.collect.push.receiver.NettySyslogReceiver;
+
+/**
+ * NettySyslogReceiver 의 syslog 수신 Handler
+ *  - UDP : 수신한 DatagramPacket 한건을 메시지 한건으로 처리하며, 패킷마다 허용 호스트를 확인한다.
+ *  - TCP : SyslogFrameDecoder 가 나눈 메시지를 처리하며, 허용 호스트는 연결 시 한번 확인한다.
+ * @author byw
+ */
+@Sharable
+public class SyslogReceiverChannelHandler extends ChannelInboundHandlerAdapter {
+
+	/** connected client group ( TCP ) */
+	private final ChannelGroup channelGroup;
+	/** 해당 Handler 를 사용하는 NettySyslogReceiver */
+	private final NettySyslogReceiver syslogReceiver;
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+
+	public SyslogReceiverChannelHandler(ChannelGroup channelGroup, NettySyslogReceiver syslogReceiver) {
+		this.channelGroup = channelGroup;
+		this.syslogReceiver = syslogReceiver;
+	}
+
+	@Override
+	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		if(ctx.channel() instanceof DatagramChannel) {
+			super.channelActive(ctx);
+			return;
+		}
+		InetSocketAddress sockAddress = (InetSocketAddress)ctx.channel().remoteAddress();
+		if(!syslogReceiver.isValidClientHost(sockAddress)) {
+			syslogReceiver.getCollectHistory().loggingError("[Check Host] Is not allow address. Refuse connection. Adress=[" + sockAddress.getAddress().getHostAddress() + "]");
+			ctx.close();
+			return;
+		}
+		channelGroup.add(ctx.channel());
+		// 수집이 일시 중지된 경우 read 중지
+		BacklogMonitor.INSTANCE.applyAutoRead(ctx.channel());
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		try {
+			if(msg instanceof DatagramPacket) {
+				DatagramPacket packet = (DatagramPacket) msg;
+				syslogReceiver.receive(packet.content(), packet.sender(), true);
+			} else if(msg instanceof ByteBuf) {
+				syslogReceiver.receive((ByteBuf) msg, (InetSocketAddress) ctx.channel().remoteAddress(), false);
+			}
+		} finally {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		logger.error(this.getClass().getSimpleName() + ". dataSourceId=[" + syslogReceiver.getDataSourceId() + "]", cause);
+		// UDP channel 은 수신 server channel 이므로 닫지 않는다.
+		if(!(ctx.channel() instanceof DatagramChannel)) ctx.channel().close();
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		channelGroup.remove(ctx.channel());
+	}
+}
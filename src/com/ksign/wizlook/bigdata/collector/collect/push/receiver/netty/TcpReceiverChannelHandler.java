@@ -7,6 +7,7 @@ import io.netty.channel.group.ChannelGroup;
 import java.net.InetSocketAddress;
 
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CollectStatus;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
 import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
 import com.ksign.wizlook.bigdata.collector.collect.push.receiver.TcpReceiver;
 
@@ -36,8 +37,11 @@ public class TcpReceiverChannelHandler extends ChannelInboundHandlerAdapter {
 			collectLogger.loggingCollectDetailLog("[Check Host] Is not allow address. Refuse connection. Adress=[" + remoteHostAddress + "]");
 			collectLogger.loggingCollectEnd(System.currentTimeMillis(), 0, CollectStatus.ERROR);
 			ctx.close();
+			return;
 		}
 		channelGroup.add(ctx.channel());
+		// 수집이 일시 중지된 경우 read 중지
+		BacklogMonitor.INSTANCE.applyAutoRead(ctx.channel());
 	}
 
 	@Override
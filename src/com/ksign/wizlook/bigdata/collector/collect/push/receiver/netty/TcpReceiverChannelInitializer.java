@@ -42,6 +42,8 @@ public class TcpReceiverChannelInitializer extends ChannelInitializer<SocketChan
 			ch.pipeline().addLast(new TcpReceiverPermanentDecoder(tcpReceiver));
 		} else if(TcpReceiver.CONNECTION_TYPE_TEMPORARY.equals(tcpReceiver.getConnectionType())) {
 			ch.pipeline().addLast(new TcpReceiverTemporaryDecoder(tcpReceiver));
+		} else if(TcpReceiver.CONNECTION_TYPE_LINE.equals(tcpReceiver.getConnectionType())) {
+			ch.pipeline().addLast(new TcpReceiverLineDecoder(tcpReceiver, tcpReceiver.getMaxLineLength()));
 		} else {
 			throw new IllegalArgumentException("Is invalid connectionType. connectionType=[" + tcpReceiver.getConnectionType() + "]");
 		}
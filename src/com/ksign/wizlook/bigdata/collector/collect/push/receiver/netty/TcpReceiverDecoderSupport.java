@@ -0,0 +1,79 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * TcpReceiver Decoder 공통 처리
+ *  - ByteBuf 의 내용을 새 ByteBuf 로 복사하지 않고 FileChannel 에 바로 기록한다.
+ *  - header 의 숫자를 String 으로 변환하지 않고 ByteBuf 에서 바로 parse 한다.
+ * @author byw
+ */
+final class TcpReceiverDecoderSupport {
+	private static final Charset HEADER_CHARSET = Charset.forName("US-ASCII");
+	/** long 최대 자릿수 */
+	private static final int MAX_DIGITS = 18;
+
+	private TcpReceiverDecoderSupport() {
+	}
+
+	/**
+	 * ByteBuf 의 readerIndex 부터 length 만큼 FileChannel 에 기록 ( readerIndex 는 기록한 만큼 증가 )
+	 * direct buffer 인 경우 추가 복사 없이 기록되며, composite buffer 는 gathering write 로 기록된다.
+	 * @param byteBuf 수신 buffer
+	 * @param fileChannel 저장 파일 channel
+	 * @param length 기록할 길이
+	 * @throws IOException
+	 */
+	static void writeFully(ByteBuf byteBuf, FileChannel fileChannel, int length) throws IOException {
+		int remaining = length;
+		while(remaining > 0) {
+			int written = byteBuf.readBytes(fileChannel, remaining);
+			if(written < 0) throw new IOException("It failed to write file. remaining=[" + remaining + "]");
+			remaining -= written;
+		}
+	}
+
+	/**
+	 * 고정 길이 header 의 숫자 parse ( 앞뒤 공백 허용 )
+	 * 성공 / 실패와 관계없이 header 길이만큼 readerIndex 를 증가시킨다.
+	 * @param byteBuf 수신 buffer ( header 길이 이상 read 가능해야 한다 )
+	 * @param headerLength header 길이
+	 * @return header 의 숫자
+	 * @throws IOException 숫자가 아닌 경우
+	 */
+	static long readLengthHeader(ByteBuf byteBuf, int headerLength) throws IOException {
+		int start = byteBuf.readerIndex();
+		int end = start + headerLength;
+		try {
+			int index = start;
+			// String.trim() 과 같이 ' ' 이하 문자는 공백으로 본다.
+			while(index < end && isBlank(byteBuf.getByte(index))) index++;
+			int last = end;
+			while(last > index && isBlank(byteBuf.getByte(last - 1))) last--;
+			if(index < last && byteBuf.getByte(index) == '+') index++;
+			if(index >= last || last - index > MAX_DIGITS) throw invalidHeader(byteBuf, start, headerLength);
+
+			long value = 0;
+			for(; index < last; index++) {
+				byte b = byteBuf.getByte(index);
+				if(b < '0' || b > '9') throw invalidHeader(byteBuf, start, headerLength);
+				value = value * 10 + (b - '0');
+			}
+			return value;
+		} finally {
+			byteBuf.readerIndex(end);
+		}
+	}
+
+	private static boolean isBlank(byte b) {
+		return b >= 0 && b <= ' ';
+	}
+
+	private static IOException invalidHeader(ByteBuf byteBuf, int start, int headerLength) {
+		return new IOException("Invalid BodyLength. value=[" + byteBuf.toString(start, headerLength, HEADER_CHARSET).trim() + "]");
+	}
+}
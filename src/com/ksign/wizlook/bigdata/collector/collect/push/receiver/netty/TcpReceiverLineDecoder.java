@@ -0,0 +1,168 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.collect.push.receiver.TcpReceiver;
+
+/**
+ * client로 부터 메시지를 수신할 때 거치는 클래스
+ * TcpReceiver의 connectionType이 'L'일 경우 동작한다.
+ *  - header 없이 줄바꿈 ( LF ) 으로 구분된 로그를 연결이 유지되는 동안 계속 수신한다.
+ *  - 한번에 수신한 내용 중 완성된 줄까지만 TcpReceiver 에 전달하고, 마지막의 완성되지 않은 줄은 다음 수신 시까지 보관한다.
+ *  - 전달한 로그는 connection 별 파일이 아닌 receiver 의 임시 저장 파일 ( PushReceiveAppender ) 에 모아서 저장된다.
+ *  - maxLineLength 까지 줄바꿈이 없는 경우 maxLineLength 단위로 잘라 한 줄씩 전달한다.
+ *  - 임시 저장 파일의 ring buffer 가 가득 차서 전달하지 못한 경우 버리지 않고 보관하며, 수신을 멈추었다가 다시 전달되면 재개한다.
+ * 각 connection 별 Decoder가 생성된다.
+ * @author byw
+ */
+public class TcpReceiverLineDecoder extends ByteToMessageDecoder {
+	/** 저장 실패 시 다시 시도할 때까지 대기 시간 ( millisecond ) */
+	private static final long RETRY_DELAY_MILLIS = 10;
+
+	/** 해당 Decoder를 사용하는 TcpReceiver */
+	private final TcpReceiver tcpReceiver;
+	/** 줄 최대 길이 */
+	private final int maxLineLength;
+	/** 줄바꿈 위치 및 줄 수 확인 */
+	private final LineFeedCounter lineFeedCounter = new LineFeedCounter();
+	/** readerIndex 부터 줄바꿈이 없는 것으로 확인한 길이 ( 다음 수신 시 이후부터 확인 ) */
+	private int scannedLength = 0;
+	/** 저장 실패로 수신을 멈추고 다시 시도를 기다리는 중인지 여부 ( event loop 에서만 사용 ) */
+	private boolean blocked = false;
+	/** 연결 종료 중인지 여부 ( 다시 시도하지 않고 spill 한다 ) */
+	private boolean closing = false;
+
+	public TcpReceiverLineDecoder(TcpReceiver tcpReceiver, int maxLineLength) {
+		this.tcpReceiver = tcpReceiver;
+		this.maxLineLength = maxLineLength;
+	}
+
+	@Override
+	protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
+		// 다시 시도할 때까지 수신한 내용은 cumulation 에 보관
+		if(blocked) return;
+		int readableBytesSize = byteBuf.readableBytes();
+		if(readableBytesSize <= scannedLength) return;
+
+		long startNanos = System.nanoTime();
+		int scanStart = byteBuf.readerIndex() + scannedLength;
+		lineFeedCounter.reset();
+		byteBuf.forEachByte(scanStart, readableBytesSize - scannedLength, lineFeedCounter);
+
+		if(lineFeedCounter.lineCount == 0) {
+			scannedLength = readableBytesSize;
+		} else {
+			int length = scanStart + lineFeedCounter.lastLineFeedOffset + 1 - byteBuf.readerIndex();
+			if(!saveLines(ctx, byteBuf, length, lineFeedCounter.lineCount, startNanos)) return;
+			// 남은 부분은 마지막 줄바꿈 이후이므로 줄바꿈이 없다.
+			scannedLength = readableBytesSize - length;
+		}
+
+		// 줄바꿈 없이 최대 길이를 넘은 경우 최대 길이 단위로 한 줄씩 저장
+		while(scannedLength >= maxLineLength) {
+			if(!saveLines(ctx, byteBuf, maxLineLength, 1, startNanos)) return;
+			scannedLength -= maxLineLength;
+		}
+	}
+
+	/**
+	 * 연결 종료 시 완성되지 않은 마지막 줄도 저장
+	 * 다시 시도를 기다리던 내용을 포함하여 ring buffer 가 가득 찬 경우 spill 한다. ( TcpReceiver.saveClosingLines )
+	 */
+	@Override
+	protected void decodeLast(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
+		closing = true;
+		blocked = false;
+		decode(ctx, byteBuf, out);
+		if(byteBuf.isReadable()) saveLines(ctx, byteBuf, byteBuf.readableBytes(), 1, System.nanoTime());
+	}
+
+	/**
+	 * readerIndex 부터 length 만큼을 TcpReceiver 에 전달 ( 끝의 줄바꿈은 제외 )
+	 * 저장에 실패한 경우 ( ring buffer 가 가득 찬 경우 ) readerIndex 를 옮기지 않고 수신을 멈춘 후 잠시 뒤 다시 시도한다.
+	 * @return 저장 성공 여부
+	 */
+	private boolean saveLines(ChannelHandlerContext ctx, ByteBuf byteBuf, int length, int lineCount, long startNanos) throws Exception {
+		int start = byteBuf.readerIndex();
+		int end = start + length;
+		int contentEnd = end;
+		if(contentEnd > start && byteBuf.getByte(contentEnd - 1) == '\n') contentEnd--;
+		if(contentEnd > start && byteBuf.getByte(contentEnd - 1) == '\r') contentEnd--;
+
+		if(contentEnd > start) {
+			byte[] lines = new byte[contentEnd - start];
+			byteBuf.getBytes(start, lines);
+			if(closing) {
+				tcpReceiver.saveClosingLines(lines, lineCount, startNanos);
+			} else if(!tcpReceiver.saveLines(lines, lineCount, startNanos)) {
+				block(ctx);
+				return false;
+			}
+		}
+		byteBuf.readerIndex(end);
+		return true;
+	}
+
+	/**
+	 * 수신을 멈추고 ( autoRead false ) RETRY_DELAY_MILLIS 후 보관 중인 내용을 다시 저장한다.
+	 */
+	private void block(final ChannelHandlerContext ctx) {
+		blocked = true;
+		ctx.channel().config().setAutoRead(false);
+		ctx.executor().schedule(new Runnable() {
+			@Override
+			public void run() {
+				retry(ctx);
+			}
+		}, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 보관 중인 내용을 다시 저장하고, 모두 저장한 경우 수신을 재개한다. ( BacklogMonitor 에 의해 중지된 경우 제외 )
+	 */
+	private void retry(ChannelHandlerContext ctx) {
+		if(!blocked || ctx.isRemoved() || !ctx.channel().isActive()) return;
+		blocked = false;
+		try {
+			// 새 수신 없이 cumulation 에 보관 중인 내용으로 decode
+			channelRead(ctx, Unpooled.EMPTY_BUFFER);
+		} catch (Exception e) {
+			ctx.fireExceptionCaught(e);
+			return;
+		}
+		if(!blocked && ctx.channel().isActive() && !BacklogMonitor.INSTANCE.isPaused()) ctx.channel().config().setAutoRead(true);
+	}
+
+	/**
+	 * 줄바꿈 수와 마지막 줄바꿈 위치 ( 확인 시작 위치 기준 ) 확인
+	 */
+	private static class LineFeedCounter implements ByteBufProcessor {
+		private int offset;
+		private int lineCount;
+		private int lastLineFeedOffset;
+
+		void reset() {
+			offset = 0;
+			lineCount = 0;
+			lastLineFeedOffset = -1;
+		}
+
+		@Override
+		public boolean process(byte value) throws Exception {
+			if(value == '\n') {
+				lineCount++;
+				lastLineFeedOffset = offset;
+			}
+			offset++;
+			return true;
+		}
+	}
+}
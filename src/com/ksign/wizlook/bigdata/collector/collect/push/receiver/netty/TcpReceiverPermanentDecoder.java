@@ -2,13 +2,11 @@ package com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
-import java.util.List;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
@@ -19,15 +17,17 @@ import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
 import com.ksign.wizlook.bigdata.collector.collect.push.receiver.TcpReceiver;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.DiskIoDecoder;
 
 /**
  * client로 부터 메시지를 수신할 때 거치는 클래스
  * TcpReceiver의 connectionType이 'P'일 경우 동작한다.
  *  - Header ( 20byte ) 를 통해 bodyLength를 수신받은 뒤 body를 수신받는다.
  *  - 이 과정을 통해 한번의 Connection으로 로그파일을 계속 수신한다.  
+ *  - 파일 기록 및 이동은 event loop 가 아닌 disk I/O thread 에서 수신 순서대로 처리한다. ( DiskIoDecoder )
  * @author byw
  */
-public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
+public class TcpReceiverPermanentDecoder extends DiskIoDecoder {
 
 	/** 해당 Decoder를 사용하는 TcpReceiver */
 	private final TcpReceiver tcpReceiver;
@@ -70,9 +70,10 @@ public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
 	 * 메시지 전문 구성은 아래와 같다.
 	 * header - 20 byte (string) -> bodyLength
 	 * body   - bodyLength byte
+	 * disk I/O thread 에서 호출된다.
 	 */
 	@Override
-	protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
+	protected void decodeFile(ChannelHandlerContext ctx, ByteBuf byteBuf) throws Exception {
 
 		this.byteBuf = byteBuf;
 
@@ -86,17 +87,15 @@ public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
 					return;
 				}
 
-				String bodyLengthStr = null;
 				try {
-					// header(bodyLength) parsing
-					bodyLengthStr = new String(byteBuf.readBytes(HEADER_LENGTH).array()).trim();
-					bodyLength = Long.parseLong(bodyLengthStr);
+					// header(bodyLength) parsing ( String 변환 없이 byteBuf 에서 바로 parse )
+					bodyLength = TcpReceiverDecoderSupport.readLengthHeader(byteBuf, HEADER_LENGTH);
 					if(bodyLength < 1) {
-						throw new IOException("Invalid BodyLength. value=[" + bodyLengthStr + "]");
+						throw new IOException("Invalid BodyLength. value=[" + bodyLength + "]");
 					}
-				} catch (Exception e) { 
+				} catch (IOException e) { 
 					logger.error(this.getClass().getSimpleName(), e);
-					throw new IOException("Invalid BodyLength. value=[" + bodyLengthStr + "]");
+					throw e;
 				}
 
 				// 저장할 file생성
@@ -123,7 +122,7 @@ public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
 				readSize = 0;
 				headerReadComplete = false;
 
-				fileChannel.write(byteBuf.readBytes((int)size).nioBuffer());
+				TcpReceiverDecoderSupport.writeFully(byteBuf, fileChannel, (int)size);
 				fileChannel.close();
 				outStream.close();
 				fileChannel = null;
@@ -141,7 +140,7 @@ public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
 			}
 
 			readSize += readableBytesSize;
-			fileChannel.write(byteBuf.readBytes(readableBytesSize).nioBuffer());
+			TcpReceiverDecoderSupport.writeFully(byteBuf, fileChannel, readableBytesSize);
 
 		} catch(Exception e) {
 			throw e;
@@ -149,19 +148,17 @@ public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
 	}
 
 	@Override
-	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+	protected void closeFile() {
 		if(saveFile != null) errorProcess();
-		super.channelInactive(ctx);
 	}
 
 	@Override
-	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+	protected void failFile(Throwable cause) {
 		if(collectLogger != null) {
 			collectLogger.loggingCollectDetailLog("[Exception]", cause);
 			collectLogger.loggingCollectEnd(System.currentTimeMillis(), 0, CollectStatus.ERROR);
 		}
 		if(saveFile != null) errorProcess();
-		super.exceptionCaught(ctx, cause);
 	}
 
 	/**
@@ -169,7 +166,7 @@ public class TcpReceiverPermanentDecoder extends ByteToMessageDecoder {
 	 */
 	private synchronized void errorProcess() {
 		if(byteBuf != null && byteBuf.readableBytes() > 0 && fileChannel != null) {
-			try { fileChannel.write(byteBuf.readBytes(byteBuf.readableBytes()).nioBuffer()); 
+			try { TcpReceiverDecoderSupport.writeFully(byteBuf, fileChannel, byteBuf.readableBytes()); 
 			} catch (Exception e) { logger.error(this.getClass().getSimpleName(), e); }
 		}
 
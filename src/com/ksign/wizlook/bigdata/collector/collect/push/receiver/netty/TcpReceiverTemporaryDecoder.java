@@ -2,13 +2,11 @@ package com.ksign.wizlook.bigdata.collector.collect.push.receiver.netty;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
-import java.util.List;
 import java.util.UUID;
 
 import org.apache.logging.log4j.LogManager;
@@ -19,15 +17,17 @@ import com.ksign.wizlook.bigdata.collector.collect.history.CollectLogger;
 import com.ksign.wizlook.bigdata.collector.collect.push.receiver.TcpReceiver;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.DiskIoDecoder;
 
 /**
  * client로 부터 메시지를 수신할 때 거치는 클래스
  * TcpReceiver의 connectionType이 'T'일 경우 동작한다.
  *  - 한개의 로그 데이터를 수신한 뒤 해당 connection은 close 된다. 
+ *  - 파일 기록 및 이동은 event loop 가 아닌 disk I/O thread 에서 수신 순서대로 처리한다. ( DiskIoDecoder )
  * 각 connection 별 Decoder가 생성된다.
  * @author byw
  */
-public class TcpReceiverTemporaryDecoder extends ByteToMessageDecoder {
+public class TcpReceiverTemporaryDecoder extends DiskIoDecoder {
 
 	private final TcpReceiver tcpReceiver;
 	private ByteBuf byteBuf;
@@ -47,7 +47,7 @@ public class TcpReceiverTemporaryDecoder extends ByteToMessageDecoder {
 	}
 
 	@Override
-	protected void decode(ChannelHandlerContext ctx, ByteBuf byteBuf, List<Object> out) throws Exception {
+	protected void decodeFile(ChannelHandlerContext ctx, ByteBuf byteBuf) throws Exception {
 
 		this.byteBuf = byteBuf;
 
@@ -67,7 +67,7 @@ public class TcpReceiverTemporaryDecoder extends ByteToMessageDecoder {
 				collectLogger = new CollectLogger(tcpReceiver.getLogpolicyId(), tcpReceiver.getDataSourceId());
 				collectLogger.loggingCollectStart(startTime);
 			}
-			fileChannel.write(byteBuf.readBytes(readableBytesSize).nioBuffer());
+			TcpReceiverDecoderSupport.writeFully(byteBuf, fileChannel, readableBytesSize);
 		} catch(Exception e) {
 			throw e;
 		}
@@ -77,28 +77,32 @@ public class TcpReceiverTemporaryDecoder extends ByteToMessageDecoder {
 	 * File에 저장 중 exception 발생 시 버퍼에 남은 내용을 마저 파일에 쓰고 해당 파일을 에러디렉토리로 이동
 	 */
 	@Override
-	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+	protected void failFile(Throwable cause) {
 		isSuccess = false;
 		errorProcess();
 		if(collectLogger != null) {
 			collectLogger.loggingCollectDetailLog("[Exception]", cause);
 			collectLogger.loggingCollectEnd(System.currentTimeMillis(), 0, CollectStatus.ERROR);
 		}
-		super.exceptionCaught(ctx, cause);
 	}
 
 	@Override
-	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+	protected void closeFile() {
 		if(fileChannel != null) try { fileChannel.close(); } catch (IOException e) {}
 		if(outStream != null) try { outStream.close(); } catch (IOException e) {}
 		// 정상종료 시 파일 이동
 		if(isSuccess && saveFile != null) { 
-			long saveFileSize = tcpReceiver.save(saveFile);
-			// logging
-			collectLogger.loggingCollectEnd(System.currentTimeMillis(), saveFileSize, CollectStatus.SUCCESS);
+			try {
+				long saveFileSize = tcpReceiver.save(saveFile);
+				// logging
+				collectLogger.loggingCollectEnd(System.currentTimeMillis(), saveFileSize, CollectStatus.SUCCESS);
+			} catch (Exception e) {
+				logger.error(this.getClass().getSimpleName(), e);
+				collectLogger.loggingCollectDetailLog("[Exception]", e);
+				collectLogger.loggingCollectEnd(System.currentTimeMillis(), 0, CollectStatus.ERROR);
+			}
 			collectLogger = null;
 		}
-		super.channelInactive(ctx);
 	}
 
 	/**
@@ -106,7 +110,7 @@ public class TcpReceiverTemporaryDecoder extends ByteToMessageDecoder {
 	 */
 	private void errorProcess() {
 		if(byteBuf != null && byteBuf.readableBytes() > 0 && fileChannel != null) {
-			try { fileChannel.write(byteBuf.readBytes(byteBuf.readableBytes()).nioBuffer()); 
+			try { TcpReceiverDecoderSupport.writeFully(byteBuf, fileChannel, byteBuf.readableBytes()); 
 			} catch (Exception e) { logger.error(this.getClass().getSimpleName(), e); }
 		}
 
@@ -0,0 +1,105 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.snmp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.snmp4j.smi.OID;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * SNMP Trap 의 OID 를 로그에 기록할 문자열로 변환하여 보관하는 cache
+ *  - push.snmp.oid.name.file 에 OID 별 이름 ( ex) 1.3.6.1.2.1.2.2.1.1=ifIndex ) 을 지정하면 시작 시 읽어 두고,
+ *    가장 길게 일치하는 OID 의 이름 뒤에 나머지 index 를 붙인다. ( ex) 1.3.6.1.2.1.2.2.1.1.3 -> ifIndex.3 )
+ *  - 이름이 없는 OID 는 기존과 같이 dotted 형식으로 기록한다.
+ *  - 한번 변환한 OID 는 OID 객체를 key 로 보관하여 이후 trap 에서는 문자열 변환 없이 사용한다.
+ * @author byw
+ */
+public enum SnmpOidNameCache {
+	INSTANCE;
+	/** 변환 결과 최대 보관 개수 ( 초과 시 비움 ) */
+	private static final int MAX_CACHE_SIZE = 100000;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 설정 파일의 OID 별 이름 */
+	private final Map<OID, String> symbolicNameMap = new HashMap<OID, String>();
+	/** 이름을 지정한 OID 의 최대 길이 */
+	private int maxSymbolicOidLength = 0;
+	/** OID 별 변환 결과 */
+	private final ConcurrentHashMap<OID, String> cache = new ConcurrentHashMap<OID, String>();
+
+	private SnmpOidNameCache() {
+		String filePath = ConfigLoader.getInstance().get(Config.PUSH_SNMP_OID_NAME_FILE);
+		if(!Strings.isNullOrEmpty(filePath)) load(new File(filePath.trim()));
+	}
+
+	/**
+	 * OID 를 로그에 기록할 문자열로 변환
+	 * @param oid varbind OID
+	 * @return 이름 또는 dotted 형식 OID
+	 */
+	public String getName(OID oid) {
+		String name = cache.get(oid);
+		if(name != null) return name;
+
+		name = resolve(oid);
+		if(cache.size() >= MAX_CACHE_SIZE) cache.clear();
+		// varbind 의 OID 는 PDU 가 계속 참조하므로 복사본을 key 로 사용
+		cache.put(new OID(oid), name);
+		return name;
+	}
+
+	private String resolve(OID oid) {
+		if(symbolicNameMap.isEmpty()) return oid.toDottedString();
+		for(int length = Math.min(oid.size(), maxSymbolicOidLength); length > 0; length--) {
+			String symbolicName = symbolicNameMap.get(length == oid.size() ? oid : new OID(oid.getValue(), 0, length));
+			if(symbolicName == null) continue;
+			StringBuilder name = new StringBuilder(symbolicName);
+			for(int i=length; i<oid.size(); i++) name.append('.').append(oid.getUnsigned(i));
+			return name.toString();
+		}
+		return oid.toDottedString();
+	}
+
+	/**
+	 * OID 이름 파일 load ( properties 형식. OID=이름 )
+	 * @param file OID 이름 파일
+	 */
+	private void load(File file) {
+		Properties properties = new Properties();
+		InputStreamReader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+			properties.load(reader);
+		} catch (IOException e) {
+			logger.error(this.getClass().getSimpleName() + ". It failed to load oid name file. path=[" + file.getAbsolutePath() + "]", e);
+			return;
+		} finally {
+			if(reader != null) try { reader.close(); } catch (IOException e) {}
+		}
+
+		for(String key : properties.stringPropertyNames()) {
+			String name = properties.getProperty(key).trim();
+			if(name.isEmpty()) continue;
+			try {
+				OID oid = new OID(key.trim());
+				symbolicNameMap.put(oid, name);
+				maxSymbolicOidLength = Math.max(maxSymbolicOidLength, oid.size());
+			} catch (RuntimeException e) {
+				logger.error(this.getClass().getSimpleName() + ". Is invalid oid. oid=[" + key + "]");
+			}
+		}
+		logger.info(this.getClass().getSimpleName() + ". Load oid name file. path=[" + file.getAbsolutePath() + "], count=[" + symbolicNameMap.size() + "]");
+	}
+}
@@ -0,0 +1,146 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.syslog;
+
+import java.nio.charset.Charset;
+
+/**
+ * SyslogHeaderParser 의 parse 결과
+ *  - 메시지마다 새로 생성하지 않고 thread 별로 재사용한다.
+ *  - timestamp, hostname, app-name 은 원본 byte 의 위치 ( offset, length ) 만 가지고 있으며
+ *    String 이 필요한 경우에만 getXXX 로 생성한다.
+ * @author byw
+ */
+public class SyslogHeader {
+	/** 형식을 알 수 없는 메시지 ( PRI 만 있거나 PRI 도 없는 메시지 ) */
+	public static final int FORMAT_UNKNOWN = 0;
+	/** RFC 3164 ( BSD syslog ) */
+	public static final int FORMAT_RFC3164 = 1;
+	/** RFC 5424 */
+	public static final int FORMAT_RFC5424 = 2;
+
+	/** PRI 가 없는 경우의 facility ( user-level, RFC 3164 4.3.3 ) */
+	public static final int DEFAULT_FACILITY = 1;
+	/** PRI 가 없는 경우의 severity ( notice, RFC 3164 4.3.3 ) */
+	public static final int DEFAULT_SEVERITY = 5;
+
+	/** ByteBuf 등 배열이 없는 buffer 의 header 를 복사해 둘 배열 크기 */
+	static final int SCRATCH_SIZE = 512;
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	/** ByteBuf parse 시 header 를 복사해 두는 배열 */
+	final byte[] scratch = new byte[SCRATCH_SIZE];
+
+	/** parse 한 byte 배열 */
+	byte[] data;
+	/** parse 범위 끝 ( exclusive ) */
+	int limit;
+
+	/** PRI 값 ( 없는 경우 -1 ) */
+	int pri;
+	int facility;
+	int severity;
+	int format;
+	/** RFC 5424 VERSION ( RFC 3164 인 경우 0 ) */
+	int version;
+	int timestampOffset;
+	int timestampLength;
+	int hostNameOffset;
+	int hostNameLength;
+	int appNameOffset;
+	int appNameLength;
+	/** 메시지 본문 시작 위치 ( RFC 5424 는 STRUCTURED-DATA 포함 ) */
+	int messageOffset;
+
+	void reset(byte[] data, int offset, int limit) {
+		this.data = data;
+		this.limit = limit;
+		this.pri = -1;
+		this.facility = DEFAULT_FACILITY;
+		this.severity = DEFAULT_SEVERITY;
+		this.format = FORMAT_UNKNOWN;
+		this.version = 0;
+		this.timestampOffset = -1;
+		this.timestampLength = 0;
+		this.hostNameOffset = -1;
+		this.hostNameLength = 0;
+		this.appNameOffset = -1;
+		this.appNameLength = 0;
+		this.messageOffset = offset;
+	}
+
+	public boolean hasPri() {
+		return pri > -1;
+	}
+
+	public int getPri() {
+		return pri;
+	}
+
+	public int getFacility() {
+		return facility;
+	}
+
+	public int getSeverity() {
+		return severity;
+	}
+
+	public int getFormat() {
+		return format;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public int getTimestampOffset() {
+		return timestampOffset;
+	}
+
+	public int getTimestampLength() {
+		return timestampLength;
+	}
+
+	public int getHostNameOffset() {
+		return hostNameOffset;
+	}
+
+	public int getHostNameLength() {
+		return hostNameLength;
+	}
+
+	public int getAppNameOffset() {
+		return appNameOffset;
+	}
+
+	public int getAppNameLength() {
+		return appNameLength;
+	}
+
+	public int getMessageOffset() {
+		return messageOffset;
+	}
+
+	/**
+	 * parse 한 byte 배열 ( ByteBuf 를 parse 한 경우 header 를 복사한 배열 )
+	 * @return byte 배열
+	 */
+	public byte[] getData() {
+		return data;
+	}
+
+	public String getTimestamp() {
+		return toString(timestampOffset, timestampLength);
+	}
+
+	public String getHostName() {
+		return toString(hostNameOffset, hostNameLength);
+	}
+
+	public String getAppName() {
+		return toString(appNameOffset, appNameLength);
+	}
+
+	private String toString(int offset, int length) {
+		if(offset < 0) return null;
+		return new String(data, offset, length, CHARSET);
+	}
+}
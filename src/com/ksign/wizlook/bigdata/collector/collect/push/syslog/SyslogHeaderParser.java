@@ -0,0 +1,190 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.syslog;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 수신한 syslog 메시지의 header 를 byte 단위로 parse 하는 클래스 ( 객체 생성 없음 )
+ *  - PRI         : <0~191>. 없는 경우 facility=user, severity=notice 로 본다.
+ *  - RFC 5424    : <PRI>VERSION SP TIMESTAMP SP HOSTNAME SP APP-NAME SP PROCID SP MSGID SP [SD] MSG
+ *  - RFC 3164    : <PRI>Mmm dd hh:mm:ss SP HOSTNAME SP TAG[pid]: MSG
+ *  - 형식이 맞지 않는 부분부터는 parse 하지 않으며, 이 경우에도 PRI 는 사용할 수 있다.
+ * @author byw
+ */
+public class SyslogHeaderParser {
+	/** PRI 최대값 ( facility 23, severity 7 ) */
+	private static final int MAX_PRI = 191;
+	/** RFC 3164 timestamp 길이 ( Mmm dd hh:mm:ss ) */
+	private static final int RFC3164_TIMESTAMP_LENGTH = 15;
+	/** RFC 3164 TAG 최대 길이 */
+	private static final int MAX_TAG_LENGTH = 48;
+
+	private SyslogHeaderParser() {
+	}
+
+	/**
+	 * byte 배열의 syslog header parse
+	 * @param data 수신 메시지
+	 * @param offset 메시지 시작 위치
+	 * @param length 메시지 길이
+	 * @param header parse 결과를 담을 SyslogHeader
+	 * @return header
+	 */
+	public static SyslogHeader parse(byte[] data, int offset, int length, SyslogHeader header) {
+		header.reset(data, offset, offset + length);
+		parseHeader(header, offset);
+		return header;
+	}
+
+	/**
+	 * ByteBuf 의 syslog header parse ( readerIndex 는 변경하지 않음 )
+	 * 배열을 가진 ByteBuf 는 배열을 바로 parse 하고, 그 외에는 앞부분만 SyslogHeader 의 배열에 복사하여 parse 한다.
+	 * @param buf 수신 메시지
+	 * @param header parse 결과를 담을 SyslogHeader
+	 * @return header
+	 */
+	public static SyslogHeader parse(ByteBuf buf, SyslogHeader header) {
+		if(buf.hasArray()) {
+			return parse(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes(), header);
+		}
+		int length = Math.min(buf.readableBytes(), SyslogHeader.SCRATCH_SIZE);
+		buf.getBytes(buf.readerIndex(), header.scratch, 0, length);
+		return parse(header.scratch, 0, length, header);
+	}
+
+	private static void parseHeader(SyslogHeader header, int offset) {
+		byte[] data = header.data;
+		int limit = header.limit;
+		int index = offset;
+
+		// PRI
+		if(index >= limit || data[index] != '<') return;
+		int pri = 0;
+		int digits = 0;
+		index++;
+		while(index < limit && isDigit(data[index]) && digits < 3) {
+			pri = pri * 10 + (data[index] - '0');
+			index++;
+			digits++;
+		}
+		if(digits == 0 || index >= limit || data[index] != '>' || pri > MAX_PRI) return;
+		index++;
+		header.pri = pri;
+		header.facility = pri >> 3;
+		header.severity = pri & 0x07;
+		header.messageOffset = index;
+
+		if(index < limit && isDigit(data[index]) && data[index] != '0') {
+			parseRfc5424(header, index);
+		} else {
+			parseRfc3164(header, index);
+		}
+	}
+
+	/**
+	 * VERSION SP TIMESTAMP SP HOSTNAME SP APP-NAME SP PROCID SP MSGID SP
+	 */
+	private static void parseRfc5424(SyslogHeader header, int index) {
+		byte[] data = header.data;
+		int limit = header.limit;
+
+		int version = 0;
+		int digits = 0;
+		while(index < limit && isDigit(data[index]) && digits < 3) {
+			version = version * 10 + (data[index] - '0');
+			index++;
+			digits++;
+		}
+		// VERSION 다음이 SP 가 아니면 RFC 3164 의 날짜 없는 메시지로 본다.
+		if(index >= limit || data[index] != ' ') return;
+		index++;
+		header.format = SyslogHeader.FORMAT_RFC5424;
+		header.version = version;
+
+		int end = tokenEnd(data, index, limit);
+		header.timestampOffset = index;
+		header.timestampLength = end - index;
+		if(end >= limit) return;
+		index = end + 1;
+
+		end = tokenEnd(data, index, limit);
+		header.hostNameOffset = index;
+		header.hostNameLength = end - index;
+		if(end >= limit) return;
+		index = end + 1;
+
+		end = tokenEnd(data, index, limit);
+		header.appNameOffset = index;
+		header.appNameLength = end - index;
+		if(end >= limit) return;
+		index = end + 1;
+
+		// PROCID, MSGID
+		for(int i=0; i<2; i++) {
+			end = tokenEnd(data, index, limit);
+			if(end >= limit) return;
+			index = end + 1;
+		}
+		header.messageOffset = index;
+	}
+
+	/**
+	 * Mmm dd hh:mm:ss SP HOSTNAME SP TAG
+	 */
+	private static void parseRfc3164(SyslogHeader header, int index) {
+		byte[] data = header.data;
+		int limit = header.limit;
+
+		if(!isRfc3164Timestamp(data, index, limit)) return;
+		header.format = SyslogHeader.FORMAT_RFC3164;
+		header.timestampOffset = index;
+		header.timestampLength = RFC3164_TIMESTAMP_LENGTH;
+		index += RFC3164_TIMESTAMP_LENGTH + 1;
+		header.messageOffset = index;
+
+		int end = tokenEnd(data, index, limit);
+		if(end >= limit || end == index) return;
+		header.hostNameOffset = index;
+		header.hostNameLength = end - index;
+		index = end + 1;
+		header.messageOffset = index;
+
+		// TAG 는 영숫자로 구성되며 '[' ( pid ) 또는 ':' 로 끝난다.
+		int tagLimit = Math.min(limit, index + MAX_TAG_LENGTH);
+		for(end = index; end < tagLimit; end++) {
+			byte b = data[end];
+			if(b == '[' || b == ':') break;
+			if(b == ' ') return;
+		}
+		if(end >= tagLimit || end == index) return;
+		header.appNameOffset = index;
+		header.appNameLength = end - index;
+	}
+
+	/**
+	 * Mmm dd hh:mm:ss 형식 확인 ( 날짜 한자리는 공백으로 채운다. ex) Oct  1 22:14:15 )
+	 */
+	private static boolean isRfc3164Timestamp(byte[] data, int index, int limit) {
+		if(index + RFC3164_TIMESTAMP_LENGTH >= limit) return false;
+		return isAlpha(data[index]) && isAlpha(data[index + 1]) && isAlpha(data[index + 2])
+				&& data[index + 3] == ' '
+				&& (data[index + 4] == ' ' || isDigit(data[index + 4])) && isDigit(data[index + 5])
+				&& data[index + 6] == ' '
+				&& isDigit(data[index + 7]) && isDigit(data[index + 8]) && data[index + 9] == ':'
+				&& isDigit(data[index + 10]) && isDigit(data[index + 11]) && data[index + 12] == ':'
+				&& isDigit(data[index + 13]) && isDigit(data[index + 14])
+				&& data[index + 15] == ' ';
+	}
+
+	private static int tokenEnd(byte[] data, int index, int limit) {
+		while(index < limit && data[index] != ' ') index++;
+		return index;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	private static boolean isAlpha(byte b) {
+		return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+	}
+}
@@ -0,0 +1,100 @@
+package com.ksign.wizlook.bigdata.collector.collect.push.syslog;
+
+import java.util.Map;
+
+import com.google.common.base.Strings;
+
+/**
+ * syslog facility / severity 에 따라 저장할 정책을 결정하는 클래스
+ * 데이터소스 수신 설정 ( receiverConfigData ) 의 아래 항목으로 생성한다.
+ *  - severityLogpolicy : severity 별 저장 정책. ex) 0-3:POLICY_ALERT,4:POLICY_WARN ( 지정하지 않은 severity 는 데이터소스 정책 )
+ *  - dropSeverity      : 저장하지 않을 severity. ex) 6-7
+ *  - dropFacility      : 저장하지 않을 facility. ex) 20,21
+ * severity : 0 Emergency, 1 Alert, 2 Critical, 3 Error, 4 Warning, 5 Notice, 6 Informational, 7 Debug
+ * @author byw
+ */
+public class SyslogRouter {
+	private static final int SEVERITY_COUNT = 8;
+	private static final int FACILITY_COUNT = 24;
+
+	/** severity 별 저장 정책 */
+	private final String[] severityLogpolicy = new String[SEVERITY_COUNT];
+	/** 저장하지 않을 severity */
+	private final boolean[] dropSeverity = new boolean[SEVERITY_COUNT];
+	/** 저장하지 않을 facility */
+	private final boolean[] dropFacility = new boolean[FACILITY_COUNT];
+	/** 설정된 항목이 있는지 여부 */
+	private final boolean enabled;
+
+	/**
+	 * @param logpolicyId 데이터소스 정책아이디
+	 * @param jobDataMap 데이터소스 수신 설정
+	 */
+	public SyslogRouter(String logpolicyId, Map<String, String> jobDataMap) {
+		for(int i=0; i<SEVERITY_COUNT; i++) severityLogpolicy[i] = logpolicyId;
+
+		String severityRoute = jobDataMap == null ? null : jobDataMap.get("severityLogpolicy");
+		String dropSeverityValue = jobDataMap == null ? null : jobDataMap.get("dropSeverity");
+		String dropFacilityValue = jobDataMap == null ? null : jobDataMap.get("dropFacility");
+
+		if(!Strings.isNullOrEmpty(severityRoute)) {
+			for(String route : severityRoute.split(",")) {
+				route = route.trim();
+				if(route.isEmpty()) continue;
+				int colonIndex = route.indexOf(':');
+				if(colonIndex < 1 || colonIndex == route.length() - 1) throw new IllegalArgumentException("Is invalid severityLogpolicy. severityLogpolicy=[" + severityRoute + "]");
+				String routeLogpolicyId = route.substring(colonIndex + 1).trim();
+				boolean[] severities = new boolean[SEVERITY_COUNT];
+				parseRange(route.substring(0, colonIndex), severities);
+				for(int i=0; i<SEVERITY_COUNT; i++) if(severities[i]) severityLogpolicy[i] = routeLogpolicyId;
+			}
+		}
+		if(!Strings.isNullOrEmpty(dropSeverityValue)) parseRange(dropSeverityValue, dropSeverity);
+		if(!Strings.isNullOrEmpty(dropFacilityValue)) parseRange(dropFacilityValue, dropFacility);
+
+		this.enabled = !Strings.isNullOrEmpty(severityRoute) || !Strings.isNullOrEmpty(dropSeverityValue) || !Strings.isNullOrEmpty(dropFacilityValue);
+	}
+
+	/**
+	 * 설정된 항목이 있는지 여부 ( 없는 경우 header 를 parse 하지 않아도 된다 )
+	 * @return 사용 여부
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 저장할 정책 결정
+	 * @param header parse 한 syslog header
+	 * @return 저장할 정책아이디. 저장하지 않는 경우 null
+	 */
+	public String route(SyslogHeader header) {
+		if(dropSeverity[header.severity] || dropFacility[header.facility]) return null;
+		return severityLogpolicy[header.severity];
+	}
+
+	/**
+	 * 0-3,5 형태의 목록을 배열에 표시
+	 */
+	private static void parseRange(String value, boolean[] target) {
+		for(String item : value.split(",")) {
+			item = item.trim();
+			if(item.isEmpty()) continue;
+			int dashIndex = item.indexOf('-');
+			int from;
+			int to;
+			try {
+				if(dashIndex > 0) {
+					from = Integer.parseInt(item.substring(0, dashIndex).trim());
+					to = Integer.parseInt(item.substring(dashIndex + 1).trim());
+				} else {
+					from = to = Integer.parseInt(item);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Is invalid range. value=[" + value + "]", e);
+			}
+			if(from < 0 || to >= target.length || from > to) throw new IllegalArgumentException("Is invalid range. value=[" + value + "]");
+			for(int i=from; i<=to; i++) target[i] = true;
+		}
+	}
+}
@@ -0,0 +1,331 @@
+package com.ksign.wizlook.bigdata.collector.collect.replay;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+import com.ksign.wizlook.bigdata.collector.collect.send.SendCommitLog;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.util.TokenBucket;
+import com.ksign.wizlook.common.util.FileUtil;
+
+/**
+ * 전송 또는 수신에 실패하여 에러 디렉토리에 저장된 로그파일을 다시 전송 대상으로 등록하는 스케줄러 클래스
+ *  - 대상 : collect.error.base.dir / logpolicyId / dataSourceId / yyyyMMdd / logpolicyId,dataSourceId,yyyyMMddHHmmss,logEncoding,fileName.log
+ *  - 재시도 간격은 실패할 때마다 두배씩 늘어나며 ( backoff.min ~ backoff.max ) 최대 재시도 횟수를 넘으면 dead letter 디렉토리로 이동한다.
+ *  - 수집 중인 로그의 전송을 방해하지 않도록 아래의 경우 재전송하지 않는다.
+ *     -> BacklogMonitor 에 의해 수집이 일시 중지된 경우
+ *     -> 전송 대기 파일 수가 collect.error.replay.max.pending.files 이상인 경우
+ *     -> 재전송 크기가 collect.error.replay.rate.kb ( 초당 ) 를 넘는 경우
+ *  - 파일별 재시도 횟수와 다음 재시도 시간은 에러 디렉토리의 replay.state 파일에 저장한다.
+ * @author byw
+ */
+public enum ErrorReplayScheduler {
+	INSTANCE;
+	/** 재시도 상태 저장 파일명 */
+	private static final String STATE_FILE_NAME = "replay.state";
+	/** default 확인 주기 ( second ) */
+	private static final long DEFAULT_INTERVAL_SEC = 10;
+	/** default 최대 재시도 횟수 */
+	private static final long DEFAULT_MAX_RETRY = 10;
+	/** default 최소 / 최대 재시도 간격 ( second ) */
+	private static final long DEFAULT_BACKOFF_MIN_SEC = 60;
+	private static final long DEFAULT_BACKOFF_MAX_SEC = 3600;
+	/** default 초당 재전송 크기 ( KB ) */
+	private static final long DEFAULT_RATE_KB = 10240;
+	/** default 재전송을 중지하는 전송 대기 파일 수 */
+	private static final long DEFAULT_MAX_PENDING_FILES = 1000;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	private final Timer timer;
+
+	private ErrorReplayScheduler() {
+		timer = new Timer(true);
+	}
+
+	/**
+	 * Run ErrorReplayScheduler
+	 * collect.error.replay.interval.sec 주기로 동작
+	 * @return
+	 */
+	public boolean start() {
+		String enabled = ConfigLoader.getInstance().get(Config.COLLECT_ERROR_REPLAY_ENABLED);
+		if(!Strings.isNullOrEmpty(enabled) && !Boolean.parseBoolean(enabled.trim())) return false;
+		try {
+			long interval = getLong(Config.COLLECT_ERROR_REPLAY_INTERVAL, DEFAULT_INTERVAL_SEC);
+			timer.schedule(new ReplayThread(), 1000 * interval, 1000 * interval);
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Stop ErrorReplayScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean stop() {
+		try {
+			timer.cancel();
+			return true;
+		} catch (Exception e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+		return false;
+	}
+
+	/**
+	 * Destroy ErrorReplayScheduler
+	 * @return 중지 결과 반환
+	 */
+	public boolean destroy() {
+		return stop();
+	}
+
+	private long getLong(String key, long defaultValue) {
+		String value = ConfigLoader.getInstance().get(key);
+		return Strings.isNullOrEmpty(value) ? defaultValue : Long.parseLong(value.trim());
+	}
+
+	/**
+	 * 1. 에러 디렉토리에서 재시도 시간이 지난 파일을 찾는다.
+	 *    에러 디렉토리 하위 구조 ex) logpolicyId / dataSourceId / 20140501 / 파일
+	 * 2. 최대 재시도 횟수를 넘은 파일은 dead letter 디렉토리로 이동
+	 * 3. 나머지는 수집 디렉토리로 옮겨 전송 commit log 에 등록
+	 * @author byw
+	 */
+	class ReplayThread extends TimerTask {
+		private final long maxRetry = getLong(Config.COLLECT_ERROR_REPLAY_MAX_RETRY, DEFAULT_MAX_RETRY);
+		private final long backoffMinMillis = getLong(Config.COLLECT_ERROR_REPLAY_BACKOFF_MIN, DEFAULT_BACKOFF_MIN_SEC) * 1000;
+		private final long backoffMaxMillis = getLong(Config.COLLECT_ERROR_REPLAY_BACKOFF_MAX, DEFAULT_BACKOFF_MAX_SEC) * 1000;
+		private final long maxPendingFiles = getLong(Config.COLLECT_ERROR_REPLAY_MAX_PENDING, DEFAULT_MAX_PENDING_FILES);
+		private final TokenBucket replayBucket;
+		/** 파일별 재시도 상태 ( key : 에러 디렉토리 기준 상대경로, value : 재시도 횟수,다음 재시도 시간 ) */
+		private final Properties stateProp = new Properties();
+		private boolean stateLoaded = false;
+
+		ReplayThread() {
+			long rateBytes = getLong(Config.COLLECT_ERROR_REPLAY_RATE, DEFAULT_RATE_KB) * 1024;
+			// 확인 주기마다 동작하므로 한 주기 동안 채워지는 크기까지 보관해야 초당 재전송 크기를 모두 사용할 수 있다.
+			long interval = Math.max(1, getLong(Config.COLLECT_ERROR_REPLAY_INTERVAL, DEFAULT_INTERVAL_SEC));
+			replayBucket = new TokenBucket(rateBytes, rateBytes * interval);
+		}
+
+		@Override
+		public void run() {
+			try {
+				File errorBaseDir = new File(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR));
+				if(!errorBaseDir.exists()) return;
+				File stateFile = new File(errorBaseDir, STATE_FILE_NAME);
+				if(!stateLoaded) {
+					loadState(stateFile);
+					stateLoaded = true;
+				}
+
+				Set<String> foundKeySet = new HashSet<String>();
+				boolean changed = replay(errorBaseDir, foundKeySet);
+
+				// 재전송 후 더 이상 에러 디렉토리에 없는 파일의 상태 정리
+				long now = System.currentTimeMillis();
+				Iterator<Map.Entry<Object, Object>> iterator = stateProp.entrySet().iterator();
+				while(iterator.hasNext()) {
+					Map.Entry<Object, Object> entry = iterator.next();
+					if(foundKeySet.contains(entry.getKey())) continue;
+					if(now > getNextTime((String) entry.getValue()) + backoffMaxMillis) {
+						iterator.remove();
+						changed = true;
+					}
+				}
+				if(changed) saveState(stateFile);
+			} catch (Exception e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			}
+		}
+
+		/**
+		 * 에러 디렉토리의 파일을 재전송
+		 * @param errorBaseDir 에러 디렉토리
+		 * @param foundKeySet 에러 디렉토리에 있는 파일 목록
+		 * @return 재시도 상태 변경 여부
+		 */
+		private boolean replay(File errorBaseDir, Set<String> foundKeySet) {
+			boolean changed = false;
+			boolean replayable = true;
+			File collectDir = new File(ConfigLoader.getInstance().get(Config.COLLECT_DIR));
+
+			// Logpolicy Directory
+			File[] logpolicyDirList = errorBaseDir.listFiles(new DirectoryFilter());
+			if(logpolicyDirList == null) return false;
+			for(File logpolicyDir : logpolicyDirList) {
+				// DataSource Directory
+				File[] dataSourceDirList = logpolicyDir.listFiles(new DirectoryFilter());
+				if(dataSourceDirList == null) continue;
+				for(File dataSourceDir : dataSourceDirList) {
+					// Date Directory
+					File[] dateDirList = dataSourceDir.listFiles(new DirectoryFilter());
+					if(dateDirList == null) continue;
+					Arrays.sort(dateDirList);
+					String namePrefix = logpolicyDir.getName() + "," + dataSourceDir.getName() + ",";
+					for(File dateDir : dateDirList) {
+						File[] errorFileList = dateDir.listFiles();
+						if(errorFileList == null) continue;
+						Arrays.sort(errorFileList);
+						for(File errorFile : errorFileList) {
+							// 전송 대상 파일명 형식이 아닌 파일은 재전송하지 않는다.
+							if(!errorFile.isFile() || !errorFile.getName().startsWith(namePrefix) || !errorFile.getName().endsWith(".log")) continue;
+							String key = logpolicyDir.getName() + "/" + dataSourceDir.getName() + "/" + dateDir.getName() + "/" + errorFile.getName();
+							foundKeySet.add(key);
+							if(!replayable) continue;
+
+							String state = stateProp.getProperty(key);
+							long retryCount = state == null ? 0 : getRetryCount(state);
+							long nextTime = state == null ? errorFile.lastModified() + backoffMinMillis : getNextTime(state);
+							if(state == null) {
+								stateProp.setProperty(key, retryCount + "," + nextTime);
+								changed = true;
+							}
+							if(System.currentTimeMillis() < nextTime) continue;
+
+							if(retryCount >= maxRetry) {
+								moveToDeadLetter(errorFile, key);
+								stateProp.remove(key);
+								changed = true;
+								continue;
+							}
+
+							// 수집 중인 로그 전송을 우선한다.
+							if(BacklogMonitor.INSTANCE.isPaused() || SendCommitLog.INSTANCE.getLag() >= maxPendingFiles || !replayBucket.tryAcquire(errorFile.length())) {
+								replayable = false;
+								continue;
+							}
+
+							if(publish(logpolicyDir.getName(), errorFile, collectDir)) {
+								retryCount++;
+								long backoffMillis = Math.min(backoffMaxMillis, backoffMinMillis << Math.min(retryCount, 30));
+								stateProp.setProperty(key, retryCount + "," + (System.currentTimeMillis() + backoffMillis));
+								changed = true;
+								logger.info(this.getClass().getSimpleName() + ". Replay error file. file=[" + key + "], retryCount=[" + retryCount + "]");
+							}
+						}
+					}
+				}
+			}
+			return changed;
+		}
+
+		/**
+		 * 에러 파일을 수집 디렉토리로 옮겨 전송 commit log 에 등록
+		 * 다른 파일시스템인 경우 복사 후 등록한다.
+		 * @param logpolicyId 정책아이디
+		 * @param errorFile 에러 파일
+		 * @param collectDir 수집 디렉토리
+		 * @return 등록 결과
+		 */
+		private boolean publish(String logpolicyId, File errorFile, File collectDir) {
+			File logFile = new File(collectDir, errorFile.getName());
+			// 이미 전송 대기중인 파일
+			if(logFile.exists()) return false;
+			try {
+				if(!collectDir.exists()) collectDir.mkdirs();
+				if(SendCommitLog.INSTANCE.publish(logpolicyId, errorFile, logFile)) return true;
+
+				File copyFile = new File(collectDir, errorFile.getName().substring(0, errorFile.getName().length() - ".log".length()));
+				FileUtil.transferTo(errorFile, copyFile);
+				if(SendCommitLog.INSTANCE.publish(logpolicyId, copyFile, logFile)) {
+					if(!errorFile.delete()) logger.error(this.getClass().getSimpleName() + ". It failed to delete error file. path=[" + errorFile.getAbsolutePath() + "]");
+					return true;
+				}
+				copyFile.delete();
+			} catch (IOException e) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to replay error file. path=[" + errorFile.getAbsolutePath() + "]", e);
+			}
+			return false;
+		}
+
+		/**
+		 * 최대 재시도 횟수를 넘은 파일을 dead letter 디렉토리로 이동
+		 * @param errorFile 에러 파일
+		 * @param key 에러 디렉토리 기준 상대경로
+		 */
+		private void moveToDeadLetter(File errorFile, String key) {
+			File deadLetterFile = new File(ConfigLoader.getInstance().get(Config.COLLECT_ERROR_DEAD_LETTER_DIR), key.replace("/", File.separator));
+			if(!deadLetterFile.getParentFile().exists()) deadLetterFile.getParentFile().mkdirs();
+			try {
+				if(!errorFile.renameTo(deadLetterFile)) {
+					FileUtil.transferTo(errorFile, deadLetterFile);
+					errorFile.delete();
+				}
+				logger.warn(this.getClass().getSimpleName() + ". Exceeded max retry count. Move to dead letter directory. file=[" + deadLetterFile.getAbsolutePath() + "]");
+			} catch (IOException e) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to move dead letter file. path=[" + errorFile.getAbsolutePath() + "]", e);
+			}
+		}
+
+		private long getRetryCount(String state) {
+			return Long.parseLong(state.split(",")[0]);
+		}
+
+		private long getNextTime(String state) {
+			return Long.parseLong(state.split(",")[1]);
+		}
+
+		private void loadState(File stateFile) {
+			if(!stateFile.exists()) return;
+			FileInputStream inStream = null;
+			try {
+				inStream = new FileInputStream(stateFile);
+				stateProp.load(inStream);
+			} catch (IOException | IllegalArgumentException e) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to load replay state. path=[" + stateFile.getAbsolutePath() + "]", e);
+			} finally {
+				if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+			}
+		}
+
+		private void saveState(File stateFile) {
+			File tmpFile = new File(stateFile.getParentFile(), STATE_FILE_NAME + ".tmp");
+			FileOutputStream outStream = null;
+			try {
+				outStream = new FileOutputStream(tmpFile);
+				stateProp.store(outStream, null);
+				outStream.getFD().sync();
+				outStream.close();
+				outStream = null;
+				if(!tmpFile.renameTo(stateFile)) {
+					stateFile.delete();
+					tmpFile.renameTo(stateFile);
+				}
+			} catch (IOException e) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to save replay state. path=[" + stateFile.getAbsolutePath() + "]", e);
+			} finally {
+				if(outStream != null) try { outStream.close(); } catch (IOException e) {}
+			}
+		}
+
+		class DirectoryFilter implements FileFilter {
+			@Override
+			public boolean accept(File file) {
+				if(file.isDirectory()) return true;
+				return false;
+			}
+		}
+	}
+}
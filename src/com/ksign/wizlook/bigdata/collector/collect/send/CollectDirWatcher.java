@@ -0,0 +1,110 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 수집 디렉토리에 외부에서 생성된 파일을 commit log 에 등록하는 클래스
+ *  - AbstractCollect 를 통해 저장된 파일은 저장 시 commit log 에 등록되므로 중복 등록되지 않는다.
+ *  - 기동 시 및 WatchService 이벤트 유실( OVERFLOW ) 시 디렉토리 전체를 scan 한다.
+ *  - WatchService 를 사용할 수 없는 경우 FileSendThread 가 주기적으로 scan 을 호출한다.
+ * @author byw
+ */
+class CollectDirWatcher implements Runnable {
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 수집 디렉토리 */
+	private final File watchDir;
+	/** 수집 디렉토리 WatchService ( 사용할 수 없는 경우 null ) */
+	private volatile WatchService watchService;
+
+	CollectDirWatcher(File watchDir) {
+		this.watchDir = watchDir;
+		try {
+			this.watchService = FileSystems.getDefault().newWatchService();
+			watchDir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+		} catch (IOException e) {
+			logger.error(this.getClass().getSimpleName() + ". WatchService is not available. It will scan collect directory periodically. path=[" + watchDir.getAbsolutePath() + "]", e);
+			close();
+		}
+	}
+
+	@Override
+	public void run() {
+		logger.info("	Start " + this.getClass().getSimpleName());
+		scan();
+		WatchService service = watchService;
+		try {
+			while(!Thread.currentThread().isInterrupted() && service != null) {
+				WatchKey watchKey = service.take();
+				for(WatchEvent<?> event : watchKey.pollEvents()) {
+					if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						scan();
+						continue;
+					}
+					String fileName = ((Path) event.context()).getFileName().toString();
+					if(!fileName.endsWith(".log")) continue;
+					try {
+						SendCommitLog.INSTANCE.appendIfAbsent(new File(watchDir, fileName));
+					} catch (IOException e) {
+						logger.error(this.getClass().getSimpleName(), e);
+					}
+				}
+				if(!watchKey.reset()) {
+					logger.error(this.getClass().getSimpleName() + ". Watch key is no longer valid. path=[" + watchDir.getAbsolutePath() + "]");
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+		} finally {
+			close();
+		}
+		logger.info("	Stop " + this.getClass().getSimpleName());
+	}
+
+	/**
+	 * commit log 에 등록되지 않은 수집 디렉토리의 파일을 등록
+	 *  - 비정상 종료로 rename 후 append 되지 못한 파일
+	 *  - 외부에서 수집 디렉토리에 넣은 파일
+	 */
+	void scan() {
+		File[] fileList = watchDir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".log");
+			}
+		});
+		if(fileList == null) return;
+		int appendCount = 0;
+		for(File collectedFile : fileList) {
+			try {
+				if(SendCommitLog.INSTANCE.appendIfAbsent(collectedFile)) appendCount++;
+			} catch (IOException e) {
+				logger.error(this.getClass().getSimpleName(), e);
+			}
+		}
+		if(appendCount > 0) logger.info(this.getClass().getSimpleName() + ". Append unregistered collect file to commit log. count=[" + appendCount + "]");
+	}
+
+	boolean isWatchable() {
+		return watchService != null;
+	}
+
+	synchronized void close() {
+		if(watchService != null) try { watchService.close(); } catch (IOException e) { logger.error(this.getClass().getSimpleName(), e); }
+		watchService = null;
+	}
+}
@@ -0,0 +1,163 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ksign.wizlook.common.util.FileUtil;
+
+/**
+ * 전송 대상 파일을 여러 노드 디렉토리로 전달하는 클래스
+ *  - 원본과 같은 파일시스템의 대상 : hard link ( 원본을 보관하지 않는 경우 하나는 rename )
+ *  - 다른 파일시스템의 대상 : 복사. 여러 대상인 경우 send.fanout.thread.count 만큼 동시에 복사한다.
+ * @author byw
+ */
+class FileFanout {
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 복사 thread pool */
+	private final ExecutorService copyExecutor;
+	/** 디렉토리 별 FileStore */
+	private final ConcurrentHashMap<String, FileStore> fileStoreMap = new ConcurrentHashMap<String, FileStore>();
+
+	FileFanout(int copyThreadCount) {
+		this.copyExecutor = Executors.newFixedThreadPool(copyThreadCount);
+	}
+
+	/**
+	 * 원본 파일을 대상 파일들로 전달
+	 * @param sourceFile 원본 파일
+	 * @param targetFileList 대상 파일 목록
+	 * @param moveSource 원본 파일을 대상 파일로 옮겨도 되는지 여부 ( 전달 후 원본을 보관하지 않는 경우 )
+	 * @throws IOException 전달 실패
+	 */
+	void transfer(File sourceFile, List<File> targetFileList, boolean moveSource) throws IOException {
+		FileStore sourceStore = getFileStore(sourceFile.getParentFile());
+
+		File renameTarget = null;
+		List<File> linkTargetList = new ArrayList<File>();
+		List<File> copyTargetList = new ArrayList<File>();
+		for(File targetFile : targetFileList) {
+			if(!targetFile.getParentFile().exists()) targetFile.getParentFile().mkdirs();
+			if(sourceStore != null && sourceStore.equals(getFileStore(targetFile.getParentFile()))) {
+				if(moveSource && renameTarget == null) {
+					renameTarget = targetFile;
+				} else {
+					linkTargetList.add(targetFile);
+				}
+			} else {
+				copyTargetList.add(targetFile);
+			}
+		}
+
+		// 1. 다른 파일시스템 대상은 병렬 복사 ( 마지막 대상은 현재 thread 에서 복사 )
+		List<Future<Void>> copyFutureList = new ArrayList<Future<Void>>();
+		for(int i=0; i<copyTargetList.size()-1; i++) {
+			copyFutureList.add(copyExecutor.submit(new CopyTask(sourceFile, copyTargetList.get(i))));
+		}
+		try {
+			// 2. 같은 파일시스템 대상은 hard link
+			for(File linkTarget : linkTargetList) {
+				link(sourceFile, linkTarget);
+			}
+			if(!copyTargetList.isEmpty()) FileUtil.transferTo(sourceFile, copyTargetList.get(copyTargetList.size()-1));
+		} finally {
+			waitCopy(copyFutureList);
+		}
+
+		// 3. 원본을 보관하지 않는 경우 rename
+		if(renameTarget != null && !sourceFile.renameTo(renameTarget)) {
+			link(sourceFile, renameTarget);
+		}
+	}
+
+	void destroy() {
+		copyExecutor.shutdownNow();
+	}
+
+	/**
+	 * hard link 생성. 실패 시 복사
+	 * @param sourceFile 원본 파일
+	 * @param targetFile 대상 파일
+	 * @throws IOException
+	 */
+	private void link(File sourceFile, File targetFile) throws IOException {
+		try {
+			Files.deleteIfExists(targetFile.toPath());
+			Files.createLink(targetFile.toPath(), sourceFile.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.debug(this.getClass().getSimpleName() + ". It failed to create hard link. Copy file. target=[" + targetFile.getAbsolutePath() + "], cause=[" + e + "]");
+			FileUtil.transferTo(sourceFile, targetFile);
+		}
+	}
+
+	/**
+	 * 병렬 복사 완료 대기
+	 * @param copyFutureList 복사 작업 목록
+	 * @throws IOException 복사 실패
+	 */
+	private void waitCopy(List<Future<Void>> copyFutureList) throws IOException {
+		IOException copyException = null;
+		for(Future<Void> copyFuture : copyFutureList) {
+			try {
+				copyFuture.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for(Future<Void> cancelFuture : copyFutureList) cancelFuture.cancel(true);
+				throw new IOException("Interrupted while copying file to node.", e);
+			} catch (ExecutionException e) {
+				if(copyException == null) copyException = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+			}
+		}
+		if(copyException != null) throw copyException;
+	}
+
+	/**
+	 * 디렉토리의 FileStore 조회
+	 * @param directory 디렉토리
+	 * @return FileStore. 조회 실패 시 null
+	 */
+	private FileStore getFileStore(File directory) {
+		String path = directory.getAbsolutePath();
+		FileStore fileStore = fileStoreMap.get(path);
+		if(fileStore != null) return fileStore;
+		try {
+			fileStore = Files.getFileStore(directory.toPath());
+			fileStoreMap.put(path, fileStore);
+		} catch (IOException e) {
+			logger.error(this.getClass().getSimpleName() + ". It failed to get file store. path=[" + path + "]", e);
+		}
+		return fileStore;
+	}
+
+	/**
+	 * 노드 디렉토리 복사 작업
+	 */
+	private static class CopyTask implements Callable<Void> {
+		private final File sourceFile;
+		private final File targetFile;
+
+		private CopyTask(File sourceFile, File targetFile) {
+			this.sourceFile = sourceFile;
+			this.targetFile = targetFile;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			FileUtil.transferTo(sourceFile, targetFile);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FileSender 들이 전송 대상 record 를 가져가는 shard 큐
+ *  - 정책아이디 별로 shard 를 고정하여 같은 정책의 파일은 commit log 순서대로 처리된다.
+ *  - 같은 정책의 record 는 동시에 하나만 처리된다. ( 처리중인 정책의 record 는 건너뛴다 )
+ *  - 자신의 shard 에 처리할 record 가 없는 경우 다른 shard 의 record 를 가져간다.
+ * @author byw
+ */
+class FileSendPool {
+	/** shard 별 큐 */
+	private final ArrayDeque<SendRecord>[] shardQueues;
+	/** shard 별 큐 최대 크기 */
+	private final int shardQueueSize;
+	/** 처리중인 정책아이디 */
+	private final Set<String> inFlightPolicies = new HashSet<String>();
+	/** 큐 lock */
+	private final ReentrantLock lock = new ReentrantLock();
+	/** 처리 가능한 record 대기 */
+	private final Condition takeable = lock.newCondition();
+	/** shard 큐 여유공간 대기 */
+	private final Condition notFull = lock.newCondition();
+
+	@SuppressWarnings("unchecked")
+	FileSendPool(int shardCount, int shardQueueSize) {
+		this.shardQueues = new ArrayDeque[shardCount];
+		for(int i=0; i<shardCount; i++) {
+			shardQueues[i] = new ArrayDeque<SendRecord>(shardQueueSize);
+		}
+		this.shardQueueSize = shardQueueSize;
+	}
+
+	/**
+	 * 정책아이디의 shard 큐에 record 삽입. shard 큐가 가득 찬 경우 대기
+	 * @param record 전송 대상 record
+	 * @throws InterruptedException
+	 */
+	void put(SendRecord record) throws InterruptedException {
+		ArrayDeque<SendRecord> shardQueue = shardQueues[shardIndex(record.getLogpolicyId())];
+		lock.lockInterruptibly();
+		try {
+			while(shardQueue.size() >= shardQueueSize) notFull.await();
+			shardQueue.offer(record);
+			takeable.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 정책아이디의 shard 큐에 record 삽입. shard 큐가 가득 찬 경우 대기하지 않는다.
+	 * @param record 전송 대상 record
+	 * @return 삽입 여부
+	 */
+	boolean offer(SendRecord record) {
+		ArrayDeque<SendRecord> shardQueue = shardQueues[shardIndex(record.getLogpolicyId())];
+		lock.lock();
+		try {
+			if(shardQueue.size() >= shardQueueSize) return false;
+			shardQueue.offer(record);
+			takeable.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 처리할 record 를 가져온다. 자신의 shard 를 먼저 확인하고, 없으면 다른 shard 에서 가져온다.
+	 * 가져간 record 는 처리 후 반드시 complete 해야 한다.
+	 * @param workerIndex FileSender 번호
+	 * @return 처리할 record
+	 * @throws InterruptedException
+	 */
+	SendRecord take(int workerIndex) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while(true) {
+				for(int i=0; i<shardQueues.length; i++) {
+					SendRecord record = pollTakeable(shardQueues[(workerIndex + i) % shardQueues.length]);
+					if(record != null) {
+						inFlightPolicies.add(record.getLogpolicyId());
+						notFull.signalAll();
+						return record;
+					}
+				}
+				takeable.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * record 처리 완료. 같은 정책의 다음 record 가 처리될 수 있도록 한다.
+	 * @param record 처리 완료된 record
+	 */
+	void complete(SendRecord record) {
+		lock.lock();
+		try {
+			inFlightPolicies.remove(record.getLogpolicyId());
+			takeable.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 전체 shard 의 대기 record 수
+	 * @return 대기 record 수
+	 */
+	int size() {
+		lock.lock();
+		try {
+			int size = 0;
+			for(ArrayDeque<SendRecord> shardQueue : shardQueues) size += shardQueue.size();
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * shard 큐에서 처리중이지 않은 정책의 첫번째 record 를 꺼낸다.
+	 * 앞에서 건너뛴 record 는 모두 처리중인 정책의 record 이므로 정책별 순서는 유지된다.
+	 * @param shardQueue shard 큐
+	 * @return 처리 가능한 record. 없는 경우 null
+	 */
+	private SendRecord pollTakeable(ArrayDeque<SendRecord> shardQueue) {
+		Iterator<SendRecord> iterator = shardQueue.iterator();
+		while(iterator.hasNext()) {
+			SendRecord record = iterator.next();
+			if(!inFlightPolicies.contains(record.getLogpolicyId())) {
+				iterator.remove();
+				return record;
+			}
+		}
+		return null;
+	}
+
+	private int shardIndex(String logpolicyId) {
+		return (logpolicyId.hashCode() & Integer.MAX_VALUE) % shardQueues.length;
+	}
+}
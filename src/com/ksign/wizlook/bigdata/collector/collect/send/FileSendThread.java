@@ -1,18 +1,14 @@
 package com.ksign.wizlook.bigdata.collector.collect.send;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -22,54 +18,100 @@ import org.apache.logging.log4j.Logger;
 import com.google.common.base.Strings;
 import com.ksign.wizlook.bigdata.collector.code.CollectorCode;
 import com.ksign.wizlook.bigdata.collector.collect.CollectException;
+import com.ksign.wizlook.bigdata.collector.collect.backup.BackupPackFile;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
-import com.ksign.wizlook.bigdata.collector.itf.avro.CollectorInterfaceService;
 import com.ksign.wizlook.bigdata.collector.itf.avro.InterfaceException;
-import com.ksign.wizlook.common.util.FileUtil;
 /**
  * 수집된 File을 Engine으로 전달하는 클래스
  * @author byw
  */
 public class FileSendThread implements Runnable {
+	/** default send thread count ( cpu core 수 ) */
+	private final int DEFAULT_SEND_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+	/** default send queue size ( shard 별 ) */
+	private final int DEFAULT_SEND_QUEUE_SIZE = 10;
 	/** send thread count */
-	private final int sendThreadCount = 1;
-	/** send queue size */
-	private final int sendQueueSize = 10;
+	private final int sendThreadCount;
+	/** send queue size ( shard 별 ) */
+	private final int sendQueueSize;
+	/** default 수집 디렉토리 scan 주기 ( second ) */
+	private final long DEFAULT_SCAN_INTERVAL_SEC = 60;
 	/** scan target directory */
 	private final File watchDir;
-	/** send queue */
-	private final BlockingQueue<File> sendQueue;
+	/** 인코딩 변환 파일 저장 디렉토리 */
+	private final File sendLogDir;
+	/** send queue ( 정책아이디 별 shard ) */
+	private final FileSendPool sendPool;
 	/** send thread pool */
 	private final ExecutorService executorService;
+	/** WatchService 를 사용할 수 없는 경우 수집 디렉토리 scan 주기 ( millisecond ) */
+	private final long scanIntervalMillis;
+	/** 수집 디렉토리 외부 생성 파일 감시 */
+	private final CollectDirWatcher collectDirWatcher;
+	/** append 대기 최대 시간 ( millisecond ) */
+	private final long APPEND_WAIT_MILLIS = 1000;
+	/** shard 큐가 가득 차 큐에 넣지 못한 record 가 있는 경우 재시도 대기 시간 ( millisecond ) */
+	private final long PARKED_RETRY_MILLIS = 100;
+	/** shard 큐가 가득 차 큐에 넣지 못한 정책별 record ( dispatch thread 에서만 사용 ) */
+	private final Map<String, SendRecord> parkedRecordMap = new HashMap<String, SendRecord>();
 	/** logger */
 	private final Logger logger = LogManager.getLogger();
 	private final String engineEncoding = "UTF-8";
 
-	private final String COLLECT_FILE_ENCODING_TYPE_JAVA = "1";
 	private final String COLLECT_FILE_ENCODING_TYPE_SHELL = "2";
+	/** 인코딩 변환 및 노드 전송 */
+	private final StreamingTranscoder transcoder;
+	/** default 노드 병렬 복사 thread 수 */
+	private final int DEFAULT_FANOUT_THREAD_COUNT = 4;
+	/** 노드 전달 ( hard link / rename / 병렬 복사 ) */
+	private final FileFanout fileFanout;
 
 	public FileSendThread() throws IOException {
 		this.watchDir = new File(ConfigLoader.getInstance().get(Config.COLLECT_DIR));
 		if(watchDir != null && !watchDir.exists()) {
 			if(!watchDir.mkdirs()) throw new IOException("It failed to create watch directory... path=[" + watchDir.getAbsolutePath() + "]");
 		}
-		this.sendQueue = new ArrayBlockingQueue<File>(sendQueueSize);
+		this.sendLogDir = new File(ConfigLoader.getInstance().get(Config.SEND_LOG_DIR));
+		if(sendLogDir != null && !sendLogDir.exists()) sendLogDir.mkdirs();
+
+		String scanIntervalSec = ConfigLoader.getInstance().get(Config.SEND_COMMIT_LOG_SCAN_INTERVAL_SEC);
+		this.scanIntervalMillis = (Strings.isNullOrEmpty(scanIntervalSec) ? DEFAULT_SCAN_INTERVAL_SEC : Long.parseLong(scanIntervalSec.trim())) * 1000;
+		String sendThreadCountStr = ConfigLoader.getInstance().get(Config.SEND_THREAD_COUNT);
+		String sendQueueSizeStr = ConfigLoader.getInstance().get(Config.SEND_QUEUE_SIZE);
+		this.sendThreadCount = Strings.isNullOrEmpty(sendThreadCountStr) ? DEFAULT_SEND_THREAD_COUNT : Math.max(1, Integer.parseInt(sendThreadCountStr.trim()));
+		this.sendQueueSize = Strings.isNullOrEmpty(sendQueueSizeStr) ? DEFAULT_SEND_QUEUE_SIZE : Math.max(1, Integer.parseInt(sendQueueSizeStr.trim()));
+		this.sendPool = new FileSendPool(sendThreadCount, sendQueueSize);
+
+		// 인코딩 변환 시 잘못된 문자 처리 방식 ( REPORT / IGNORE / REPLACE )
+		String malformedAction = ConfigLoader.getInstance().get(Config.COLLECT_FILE_ENCODING_MALFORMED_ACTION);
+		CodingErrorAction errorAction = CodingErrorAction.REPLACE;
+		if("REPORT".equalsIgnoreCase(Strings.nullToEmpty(malformedAction).trim())) {
+			errorAction = CodingErrorAction.REPORT;
+		} else if("IGNORE".equalsIgnoreCase(Strings.nullToEmpty(malformedAction).trim())) {
+			errorAction = CodingErrorAction.IGNORE;
+		}
+		this.transcoder = new StreamingTranscoder(Charset.forName(engineEncoding), errorAction);
+
+		String fanoutThreadCount = ConfigLoader.getInstance().get(Config.SEND_FANOUT_THREAD_COUNT);
+		this.fileFanout = new FileFanout(Strings.isNullOrEmpty(fanoutThreadCount) ? DEFAULT_FANOUT_THREAD_COUNT : Math.max(1, Integer.parseInt(fanoutThreadCount.trim())));
+
+		SendCommitLog.INSTANCE.init();
+		this.collectDirWatcher = new CollectDirWatcher(watchDir);
 
 		executorService = Executors.newFixedThreadPool(sendThreadCount);
 		for(int i=0; i<sendThreadCount; i++) { 
-			executorService.execute(new FileSender());
+			executorService.execute(new FileSender(i));
 		}
 
-		// 서버 비정상 종료 시 처리되지 못했던 전송대기 파일들 전송처리
+		// 이전 버전에서 전송 디렉토리로 이동된 후 처리되지 못했던 전송대기 파일들 전송처리
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
-				File sendLogDir = new File(ConfigLoader.getInstance().get(Config.SEND_LOG_DIR));
-				if(sendLogDir != null && !sendLogDir.exists()) sendLogDir.mkdirs();
 				File[] sendFileList = sendLogDir.listFiles(new LogFileNameFilter());
+				if(sendFileList == null) return;
 				for(File sendFile : sendFileList) {
-					try { sendQueue.put(sendFile); } catch (InterruptedException e) { logger.error(this.getClass().getSimpleName(), e); }
+					try { sendPool.put(new SendRecord(sendFile.getName().split(",", 2)[0], -1, sendFile, sendFile.length())); } catch (InterruptedException e) { logger.error(this.getClass().getSimpleName(), e); }
 				}
 			}
 		}).start();
@@ -77,34 +119,65 @@ public class FileSendThread implements Runnable {
 
 	@Override
 	public void run() {
-		// 1. 수집된 파일 저장 디렉토리 스캔
-		// 2. 스캔된 파일을 전송디렉토리로 이동 후 큐에 삽입
+		// 1. commit log 에 등록되지 않은 수집 파일 등록 ( WatchService 또는 scan 주기 마다 )
+		// 2. 정책별 commit log partition 에서 전송 대상 record 를 읽어 큐에 삽입
+		// 3. 전송 대상 record 가 없으면 append 알림을 대기
 		logger.info("	Start " + this.getClass().getSimpleName());
+		Thread watcherThread = null;
+		if(collectDirWatcher.isWatchable()) {
+			watcherThread = new Thread(collectDirWatcher);
+			watcherThread.start();
+		}
+
+		long lastScanTime = 0;
 		while(!Thread.currentThread().isInterrupted()) {
-			File[] fileList = watchDir.listFiles(new LogFileNameFilter());
-			if(fileList == null || fileList.length == 0) {
-				try {
-					Thread.sleep(1000); 
-				} catch (InterruptedException e) { 
-					Thread.currentThread().interrupt();
-				}
-				continue;
+			if(watcherThread == null && System.currentTimeMillis() - lastScanTime >= scanIntervalMillis) {
+				collectDirWatcher.scan();
+				lastScanTime = System.currentTimeMillis();
 			}
 
-			for(File collectedFile : fileList) {
-				try {
-					File sendFile = new File(ConfigLoader.getInstance().get(Config.SEND_LOG_DIR) + File.separator + collectedFile.getName());
-					if(collectedFile.renameTo(sendFile)) {
-						sendQueue.put(sendFile);
-					}
-					// TODO : rename 실패처리
-				} catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-				}
+			try {
+				long appendSequence = SendCommitLog.INSTANCE.getAppendSequence();
+				if(!dispatch()) SendCommitLog.INSTANCE.awaitAppend(appendSequence, parkedRecordMap.isEmpty() ? APPEND_WAIT_MILLIS : PARKED_RETRY_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
 		}
 		logger.info("	Stop " + this.getClass().getSimpleName());
+		if(watcherThread != null) watcherThread.interrupt();
+		collectDirWatcher.close();
 		executorService.shutdownNow();
+		fileFanout.destroy();
+	}
+
+	/**
+	 * 정책별 commit log partition 에서 전송 대상 record 를 읽어 큐에 삽입
+	 * 특정 정책이 큐를 독점하지 않도록 partition 별로 최대 sendQueueSize 건씩 읽는다.
+	 * shard 큐가 가득 찬 경우 대기하지 않고 해당 record 를 보관한 뒤 다음 partition 을 처리한다. ( 다른 정책의 전송이 지연되지 않도록 )
+	 * 보관한 record 는 다음 dispatch 시 해당 partition 의 다른 record 보다 먼저 큐에 삽입한다.
+	 * @return 큐에 삽입한 record 존재 여부
+	 */
+	private boolean dispatch() {
+		boolean dispatched = false;
+		for(SendCommitLogPartition partition : SendCommitLog.INSTANCE.getPartitions()) {
+			for(int i=0; i<sendQueueSize; i++) {
+				SendRecord record = parkedRecordMap.remove(partition.getLogpolicyId());
+				if(record == null) {
+					try {
+						record = partition.next();
+					} catch (IOException e) {
+						logger.error(this.getClass().getSimpleName(), e);
+					}
+				}
+				if(record == null) break;
+				if(!sendPool.offer(record)) {
+					parkedRecordMap.put(partition.getLogpolicyId(), record);
+					break;
+				}
+				dispatched = true;
+			}
+		}
+		return dispatched;
 	}
 
 	class LogFileNameFilter implements FilenameFilter {
@@ -116,20 +189,36 @@ public class FileSendThread implements Runnable {
 	}
 
 	class FileSender implements Runnable {
+		/** sender 번호 ( 우선 처리 shard ) */
+		private final int senderIndex;
+
+		FileSender(int senderIndex) {
+			this.senderIndex = senderIndex;
+		}
 
 		@Override
 		public void run() {
-			// 1. 큐에서 전송 대상 파일 추출
+			// 1. 큐에서 전송 대상 파일 추출 ( 같은 정책의 파일은 동시에 처리되지 않는다 )
 			// 2. 저장된 파일명에서 정보 추출 ( 파일명 형식 : logpolicyId,dataSourceId,201505280012,EUC-KR,fileName )
 			// 3. 마스터노드에 조회 ( 어떤 노드로 로그파일을 전송할지 )
 			// 4. 로그파일 전송
 			// 5. 백업 디렉토리로 이동 ( properties의 backup.log가 false면 삭제 )
+			// 6. commit log offset commit
 			while(!Thread.currentThread().isInterrupted()) {
- 				File sendFile = null;
+				SendRecord record = null;
 				try {
-					sendFile = sendQueue.take();
+					record = sendPool.take(senderIndex);
 				} catch (InterruptedException e) {
 					Thread.currentThread().interrupt();
+					continue;
+				}
+
+				File sendFile = record.getFile();
+				// 이미 전송 완료된 파일 ( 전송 후 offset commit 전 비정상 종료 )
+				if(!sendFile.exists()) {
+					SendCommitLog.INSTANCE.commit(record);
+					sendPool.complete(record);
+					continue;
 				}
 
 				String originFilePath = sendFile.getAbsolutePath();
@@ -142,26 +231,24 @@ public class FileSendThread implements Runnable {
 					String fileName = formattedNameArr[4];
 
 					boolean sendResult = true;
-					boolean isUtf8 = true;
+					boolean backupEnabled = ConfigLoader.getInstance().getBoolean(Config.BACKUP_LOG_ENABLED);
+					// 인코딩 변환 시 backup 파일까지 함께 저장되었는지 여부
+					boolean backupSaved = false;
 					if(ConfigLoader.getInstance().getBoolean(Config.SEND_LOG_ENABLED)) {
 						// 수집된 로그의 인코딩이 UTF-8이 아닌 경우 UTF-8로 변환
 						// 수집 단계에서 이미 UTF-8로 수집되었거나 변환해서 수집하였다면 이 단계에서 굳이 인코딩을 바꾸지 않는다.
 						// 파일명의 4번째 값이 현재 파일의 인코딩이다.
 						boolean convertEncoding = ConfigLoader.getInstance().getBoolean(Config.COLLECT_FILE_ENCODING_CONVERT);
  						if(convertEncoding && !Strings.isNullOrEmpty(Strings.nullToEmpty(logEncoding)) && !engineEncoding.equals(logEncoding)) {
-							String engineEncodingFilePath = new StringBuilder().append(sendFile.getParentFile().getAbsolutePath()).append(File.separator)
-																	 .append(logpolicyId).append(",")
-																	 .append(dataSourceId).append(",")
-																	 .append(saveDate).append(",")
-																	 .append(engineEncoding).append(",")
-																	 .append(fileName).toString();
-
-							// java로 인코딩 변환
-							if(COLLECT_FILE_ENCODING_TYPE_JAVA.equals(ConfigLoader.getInstance().get(Config.COLLECT_FILE_ENCODING_CONVERT_TYPE))) {
-								convertFileEncoding(sendFile, logEncoding, new File(engineEncodingFilePath), engineEncoding);
 
 							// shell 을 통해서 인코딩 변환
-							} else if(COLLECT_FILE_ENCODING_TYPE_SHELL.equals(ConfigLoader.getInstance().get(Config.COLLECT_FILE_ENCODING_CONVERT_TYPE))) {
+							if(COLLECT_FILE_ENCODING_TYPE_SHELL.equals(ConfigLoader.getInstance().get(Config.COLLECT_FILE_ENCODING_CONVERT_TYPE))) {
+								String engineEncodingFilePath = new StringBuilder().append(sendLogDir.getAbsolutePath()).append(File.separator)
+																		 .append(logpolicyId).append(",")
+																		 .append(dataSourceId).append(",")
+																		 .append(saveDate).append(",")
+																		 .append(engineEncoding).append(",")
+																		 .append(fileName).toString();
 								String convertEncodingShellPath = ConfigLoader.getInstance().get(Config.COLLECT_FILE_ENCODING_CONVERT_SHELL_PATH);
 								Process process = Runtime.getRuntime().exec(convertEncodingShellPath + " " 
 										+ logEncoding + " " 
@@ -170,45 +257,49 @@ public class FileSendThread implements Runnable {
 										+ engineEncodingFilePath);
 								process.waitFor();
 
-							// java로 인코딩 변환
-							} else {
-								convertFileEncoding(sendFile, logEncoding, new File(engineEncodingFilePath), engineEncoding);
-							}
+								File engineEncodingFile = new File(engineEncodingFilePath);
+								if(engineEncodingFile != null && engineEncodingFile.exists()) {
+									sendFile.delete();
+									sendFile = engineEncodingFile;
+									originFilePath = sendFile.getAbsolutePath();
+									// 수집된 로그를 노드로 전송
+									sendResult = sendFileToNode(sendFile, logpolicyId);
+								} else {
+									logger.error("Convert encoding Error.. convertType=[SHELL], targetFile=[" + sendFile + "] fromEncoding=[" + logEncoding + "], toEncoding=[" + engineEncoding + "]");
+									sendResult = false;
+								}
 
-							File engineEncodingFile = new File(engineEncodingFilePath);
-							if(engineEncodingFile != null && engineEncodingFile.exists()) {
-								sendFile.delete();
-								sendFile = engineEncodingFile;
-								originFilePath = sendFile.getAbsolutePath();
+							// java로 인코딩 변환 ( 노드 및 backup 파일에 한번에 저장 )
 							} else {
-								String convertType = COLLECT_FILE_ENCODING_TYPE_SHELL.equals(ConfigLoader.getInstance().get(Config.COLLECT_FILE_ENCODING_CONVERT_TYPE)) ? "SHELL" : "JAVA";
-								logger.error("Convert encoding Error.. convertType=[" + convertType + "], targetFile=[" + sendFile + "] fromEncoding=[" + logEncoding + "], toEncoding=[" + engineEncoding + "]");
-								isUtf8 = false;
+								File backupTargetFile = backupEnabled ? getBackupFile(ConfigLoader.getInstance().get(Config.BACKUP_LOG_BASE_DIR), logpolicyId, dataSourceId, saveDate, fileName) : null;
+								sendResult = transcodeFileToNode(sendFile, logEncoding, logpolicyId, backupTargetFile);
+								backupSaved = sendResult && backupTargetFile != null;
 							}
-						}
-						if(isUtf8) {
+						} else {
 							// 수집된 로그를 노드로 전송
 							sendResult = sendFileToNode(sendFile, logpolicyId);
-						} else {
-							sendResult = false;
 						}
 					}
 
-					// backup.log=true 일 경우
-					if(ConfigLoader.getInstance().getBoolean(Config.BACKUP_LOG_ENABLED)) {
-						if(sendResult) {
-							// backup directory로 이동
-							backupFile(sendFile, ConfigLoader.getInstance().get(Config.BACKUP_LOG_BASE_DIR), logpolicyId, dataSourceId, saveDate, fileName);
-						} else {
-							// error directory로 이동
-							backupFile(sendFile, ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR), logpolicyId, dataSourceId, saveDate, fileName);
-						}
+					if(!sendResult) {
+						// error directory로 이동 ( 전송 대상 파일명 그대로 저장하여 ErrorReplayScheduler 가 재전송 )
+						backupFile(sendFile, ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR), logpolicyId, dataSourceId, saveDate, sendFile.getName());
+					} else if(backupEnabled && !backupSaved) {
+						// backup.log=true 일 경우 backup directory로 이동
+						backupFile(sendFile, ConfigLoader.getInstance().get(Config.BACKUP_LOG_BASE_DIR), logpolicyId, dataSourceId, saveDate, fileName);
 					}
 				} catch(Exception e) {
 					logger.error(this.getClass().getSimpleName(), e);
+					// error directory로 이동
+					String[] formattedNameArr = sendFile.getName().split(",", 5);
+					if(sendFile.exists() && formattedNameArr.length == 5) {
+						backupFile(sendFile, ConfigLoader.getInstance().get(Config.COLLECT_ERROR_BASE_DIR), formattedNameArr[0], formattedNameArr[1], formattedNameArr[2], sendFile.getName());
+					}
 				} finally {
 					File originFile = new File(originFilePath);
 					if(originFile != null && originFile.exists()) originFile.delete();
+					SendCommitLog.INSTANCE.commit(record);
+					sendPool.complete(record);
 				}
 			}
 		}
@@ -223,6 +314,22 @@ public class FileSendThread implements Runnable {
 		 * @param fileName 파일명
 		 */
 		private void backupFile(File sendFile, String baseDir, String logpolicyId, String dataSourceId, String saveDate, String fileName) {
+			File backupFile = getBackupFile(baseDir, logpolicyId, dataSourceId, saveDate, fileName);
+			// 압축은 일자가 지난 후 BackupCompactScheduler 에서 처리
+			sendFile.renameTo(backupFile);
+		}
+
+		/**
+		 * backup 파일 경로. 상위 디렉토리가 없는 경우 생성한다.
+		 * 저장 시 경로 : baseDir / logpolicyMappingKey / dataSourceId / 20150528 / fileName
+		 * @param baseDir backup 베이스 디렉토리
+		 * @param logpolicyId 정책아이디
+		 * @param dataSourceId 데이터소스아이디
+		 * @param saveDate 저장시간
+		 * @param fileName 파일명
+		 * @return backup 파일
+		 */
+		private File getBackupFile(String baseDir, String logpolicyId, String dataSourceId, String saveDate, String fileName) {
 			File backupFile = new File(new StringBuilder().append(baseDir)
 												  	   	  .append(File.separator).append(logpolicyId)
 												  	   	  .append(File.separator).append(dataSourceId)
@@ -234,80 +341,119 @@ public class FileSendThread implements Runnable {
 					logger.error(this.getClass().getSimpleName() + ". It failed to create directory.. path=[" + backupFile.getParent() + "]");
 				}
 			}
-//				if(ConfigLoader.getInstance().getBoolean(Config.BACKUP_LOG_COMPRESSION)) {
-//				}
-			sendFile.renameTo(backupFile);
+			return backupFile;
 		}
 
 		/**
-		 * 노드 디렉토리로 파일 복사
-		 * TODO : 마스터노드에 전송 대상 노드 조회 요청 및 해당 노드로 전송 로직으로 변경 
+		 * 인코딩을 변환하면서 노드 디렉토리 및 backup 파일에 한번에 저장
+		 * 원본 파일은 한번만 읽으며, 변환에 실패한 경우 저장된 파일은 모두 삭제한다.
 		 * @param sendFile 전송 대상 파일
+		 * @param logEncoding 전송 대상 파일의 인코딩
 		 * @param logpolicyId 정책아이디
+		 * @param backupTargetFile backup 파일 ( backup 하지 않는 경우 null )
 		 * @return 저장 결과
 		 * @throws InterfaceException 수집로그 저장 node 정보 조회 실패
-		 * @throws CollectException 수집로그 저장 실패
 		 */
-		private boolean sendFileToNode(File sendFile, String logpolicyId) throws InterfaceException, CollectException {
+		private boolean transcodeFileToNode(File sendFile, String logEncoding, String logpolicyId, File backupTargetFile) throws InterfaceException {
 
 			String fileName = sendFile.getName();
 			if(fileName.endsWith(".log")) fileName = fileName.substring(0, fileName.length() - ".log".length());
 
-			List<Map<String, String>> policyNodeMapList = CollectorInterfaceService.INSTANCE.getPolicyNode(logpolicyId);
+			List<Map<String, String>> policyNodeMapList = PolicyNodeCache.INSTANCE.getPolicyNode(logpolicyId);
 
+			List<File> targetFileList = new ArrayList<File>();
 			if(policyNodeMapList != null) {
 				for(Map<String, String> policyNodeMap : policyNodeMapList) {
 					String logSaveDirectory = policyNodeMap.get("logBaseDirectory") + File.separator + policyNodeMap.get("logpolicyMappingKey");
-					File saveFile = new File(logSaveDirectory + File.separator + fileName);
-					try {
-						FileUtil.transferTo(sendFile, saveFile);
-						File indexTargetFile = new File(logSaveDirectory + File.separator + saveFile.getName() + ".log");
-						boolean result = saveFile.renameTo(indexTargetFile);
-						logger.debug(new StringBuilder().append("Send file to node.. Logpolicy id=[").append(logpolicyId)
-													    .append("], Save result=[").append(result)
-													    .append("], Node id=[").append(policyNodeMap.get("nodeId"))
-													    .append("], File=[").append(indexTargetFile.getAbsolutePath())
-													    .append("], Size=[").append(indexTargetFile.length()).append("]").toString());
-					} catch (IOException e) {
-						logger.error(this.getClass().getSimpleName(), e);
-						throw new CollectException(CollectorCode.Code.FAIL_SEND_LOG_TO_NODE);
-					}
+					targetFileList.add(new File(logSaveDirectory + File.separator + fileName));
+				}
+			}
+			// backup 파일은 임시 파일명으로 기록 후 rename ( 기록 중인 파일이 BackupCompactScheduler 에 압축되지 않도록 )
+			File backupTempFile = backupTargetFile != null ? new File(backupTargetFile.getPath() + BackupPackFile.TEMP_FILE_SUFFIX) : null;
+			if(backupTempFile != null) targetFileList.add(backupTempFile);
+			if(targetFileList.isEmpty()) return true;
+
+			try {
+				long startTime = System.currentTimeMillis();
+				long transcodeSize = transcoder.transcode(sendFile, logEncoding, targetFileList);
+				logger.debug("Convert encoding.. fromEncoding=[" + logEncoding + "], toEncoding=[" + engineEncoding + "], targetCount=[" + targetFileList.size() + "], size=[" + transcodeSize + "], elapsedTime=[" + (System.currentTimeMillis() - startTime) + "]");
+			} catch (IOException e) {
+				logger.error("Convert encoding Error.. convertType=[JAVA], targetFile=[" + sendFile + "] fromEncoding=[" + logEncoding + "], toEncoding=[" + engineEncoding + "]", e);
+				for(File targetFile : targetFileList) {
+					if(targetFile.exists()) targetFile.delete();
 				}
+				// 노드 정보가 변경되었을 수 있으므로 다음 전송 시 다시 조회
+				PolicyNodeCache.INSTANCE.expire(logpolicyId);
+				return false;
+			}
+
+			if(policyNodeMapList != null) {
+				for(int i=0; i<policyNodeMapList.size(); i++) {
+					Map<String, String> policyNodeMap = policyNodeMapList.get(i);
+					File saveFile = targetFileList.get(i);
+					File indexTargetFile = new File(saveFile.getParent() + File.separator + saveFile.getName() + ".log");
+					boolean result = saveFile.renameTo(indexTargetFile);
+					logger.debug(new StringBuilder().append("Send file to node.. Logpolicy id=[").append(logpolicyId)
+												    .append("], Save result=[").append(result)
+												    .append("], Node id=[").append(policyNodeMap.get("nodeId"))
+												    .append("], File=[").append(indexTargetFile.getAbsolutePath())
+												    .append("], Size=[").append(indexTargetFile.length()).append("]").toString());
+				}
+			}
+			if(backupTempFile != null && !backupTempFile.renameTo(backupTargetFile)) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to rename backup file. file=[" + backupTempFile.getAbsolutePath() + "]");
 			}
 			return true;
 		}
-	}
 
-	/**
-	 * 인코딩 변경
-	 * @param fromFile 인코딩 변경 전 파일
-	 * @param fromEncoding 변경 전 인코딩
-	 * @param toFile 인코딩 변경 후 파일
-	 * @param toEncoding 변경 인코딩
-	 */
-	private void convertFileEncoding(File fromFile, String fromEncoding, File toFile, String toEncoding){
-		BufferedReader reader = null;
-		BufferedWriter writer = null;
-		try {
-			long l = System.currentTimeMillis();
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(fromFile), fromEncoding));
-
-			//기존파일에 엎어쓴다.
-			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(toFile), toEncoding));
-
-			String readLine = null;
-			while ((readLine = reader.readLine()) != null) {
-				writer.write(readLine);
-				writer.newLine();
+		/**
+		 * 노드 디렉토리로 파일 전달
+		 * 같은 파일시스템의 노드는 hard link ( backup 하지 않는 경우 하나는 rename ), 다른 파일시스템의 노드는 병렬로 복사한다.
+		 * TODO : 마스터노드에 전송 대상 노드 조회 요청 및 해당 노드로 전송 로직으로 변경 
+		 * @param sendFile 전송 대상 파일
+		 * @param logpolicyId 정책아이디
+		 * @return 저장 결과
+		 * @throws InterfaceException 수집로그 저장 node 정보 조회 실패
+		 * @throws CollectException 수집로그 저장 실패
+		 */
+		private boolean sendFileToNode(File sendFile, String logpolicyId) throws InterfaceException, CollectException {
+
+			String fileName = sendFile.getName();
+			if(fileName.endsWith(".log")) fileName = fileName.substring(0, fileName.length() - ".log".length());
+
+			List<Map<String, String>> policyNodeMapList = PolicyNodeCache.INSTANCE.getPolicyNode(logpolicyId);
+			if(policyNodeMapList == null || policyNodeMapList.isEmpty()) return true;
+
+			List<File> saveFileList = new ArrayList<File>();
+			for(Map<String, String> policyNodeMap : policyNodeMapList) {
+				String logSaveDirectory = policyNodeMap.get("logBaseDirectory") + File.separator + policyNodeMap.get("logpolicyMappingKey");
+				saveFileList.add(new File(logSaveDirectory + File.separator + fileName));
 			}
-			writer.flush();
-logger.debug("convertFileEncoding time=[" + (System.currentTimeMillis() - l)+ "]");
-
-		} catch (Exception e) {
-        	logger.error(this.getClass().getSimpleName(), e);
-        } finally {
-        	if(reader != null) try { reader.close(); } catch (IOException e) {}
-        	if(writer != null) try { writer.close(); } catch (IOException e) {}
-        }
+
+			try {
+				fileFanout.transfer(sendFile, saveFileList, !ConfigLoader.getInstance().getBoolean(Config.BACKUP_LOG_ENABLED));
+			} catch (IOException e) {
+				logger.error(this.getClass().getSimpleName(), e);
+				for(File saveFile : saveFileList) {
+					if(saveFile.exists()) saveFile.delete();
+				}
+				// 노드 정보가 변경되었을 수 있으므로 다음 전송 시 다시 조회
+				PolicyNodeCache.INSTANCE.expire(logpolicyId);
+				throw new CollectException(CollectorCode.Code.FAIL_SEND_LOG_TO_NODE);
+			}
+
+			for(int i=0; i<policyNodeMapList.size(); i++) {
+				Map<String, String> policyNodeMap = policyNodeMapList.get(i);
+				File saveFile = saveFileList.get(i);
+				File indexTargetFile = new File(saveFile.getParent() + File.separator + saveFile.getName() + ".log");
+				boolean result = saveFile.renameTo(indexTargetFile);
+				logger.debug(new StringBuilder().append("Send file to node.. Logpolicy id=[").append(logpolicyId)
+											    .append("], Save result=[").append(result)
+											    .append("], Node id=[").append(policyNodeMap.get("nodeId"))
+											    .append("], File=[").append(indexTargetFile.getAbsolutePath())
+											    .append("], Size=[").append(indexTargetFile.length()).append("]").toString());
+			}
+			return true;
+		}
 	}
 }
\ No newline at end of file
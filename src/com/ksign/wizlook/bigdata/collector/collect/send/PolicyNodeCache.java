@@ -0,0 +1,113 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+import com.ksign.wizlook.bigdata.collector.itf.avro.CollectorInterfaceService;
+import com.ksign.wizlook.bigdata.collector.itf.avro.InterfaceException;
+
+/**
+ * 정책별 수집로그 전송 노드 정보 cache
+ *  - 파일 전송 시마다 console 에 노드 정보를 조회하지 않도록 send.policy.node.cache.ttl.sec 동안 보관한다.
+ *  - console 의 정책 노드 변경 시 invalidatePolicyNode 인터페이스를 통해 즉시 삭제된다.
+ *  - console 조회에 실패한 경우 만료된 노드 정보를 사용하고 잠시 후 다시 조회한다.
+ * @author byw
+ */
+public enum PolicyNodeCache {
+	INSTANCE;
+	/** default cache 보관 시간 ( second ) */
+	private static final long DEFAULT_TTL_SEC = 60;
+	/** console 조회 실패 시 재조회 간격 ( millisecond ) */
+	private static final long RETRY_INTERVAL_MILLIS = 5000;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 정책아이디 별 노드 정보 */
+	private final ConcurrentHashMap<String, CacheEntry> cacheMap = new ConcurrentHashMap<String, CacheEntry>();
+	/** invalidate 시 증가하는 sequence ( 조회 도중 invalidate 된 결과는 보관하지 않는다 ) */
+	private final AtomicLong invalidateSequence = new AtomicLong();
+	/** cache 보관 시간 ( millisecond ) */
+	private final long ttlMillis;
+
+	private PolicyNodeCache() {
+		String ttlSec = ConfigLoader.getInstance().get(Config.SEND_POLICY_NODE_CACHE_TTL_SEC);
+		this.ttlMillis = (Strings.isNullOrEmpty(ttlSec) ? DEFAULT_TTL_SEC : Long.parseLong(ttlSec.trim())) * 1000;
+	}
+
+	/**
+	 * 수집된 로그를 전송할 노드 정보 조회
+	 * @param logpolicyId 정책아이디
+	 * @return 데이터를 전송할 노드정보
+	 * @throws InterfaceException console 조회에 실패하고 이전 노드 정보도 없는 경우
+	 */
+	public List<Map<String, String>> getPolicyNode(String logpolicyId) throws InterfaceException {
+		if(ttlMillis <= 0) return CollectorInterfaceService.INSTANCE.getPolicyNode(logpolicyId);
+
+		CacheEntry cacheEntry = cacheMap.get(logpolicyId);
+		long now = System.currentTimeMillis();
+		if(cacheEntry != null && now < cacheEntry.expireTime) return cacheEntry.policyNodeMapList;
+
+		long sequence = invalidateSequence.get();
+		try {
+			List<Map<String, String>> policyNodeMapList = CollectorInterfaceService.INSTANCE.getPolicyNode(logpolicyId);
+			if(policyNodeMapList != null) policyNodeMapList = Collections.unmodifiableList(policyNodeMapList);
+			if(sequence == invalidateSequence.get()) cacheMap.put(logpolicyId, new CacheEntry(policyNodeMapList, now + ttlMillis));
+			return policyNodeMapList;
+		} catch (InterfaceException e) {
+			if(cacheEntry == null) throw e;
+			logger.error(this.getClass().getSimpleName() + ". It failed to get policy node. Use previous policy node. logpolicyId=[" + logpolicyId + "]", e);
+			cacheMap.put(logpolicyId, new CacheEntry(cacheEntry.policyNodeMapList, now + Math.min(ttlMillis, RETRY_INTERVAL_MILLIS)));
+			return cacheEntry.policyNodeMapList;
+		}
+	}
+
+	/**
+	 * 정책의 노드 정보 삭제. 다음 전송 시 console 에서 다시 조회한다.
+	 * @param logpolicyId 정책아이디 ( null 인 경우 전체 삭제 )
+	 */
+	public void invalidate(String logpolicyId) {
+		invalidateSequence.incrementAndGet();
+		if(Strings.isNullOrEmpty(logpolicyId)) {
+			cacheMap.clear();
+		} else {
+			cacheMap.remove(logpolicyId);
+		}
+	}
+
+	/**
+	 * 정책의 노드 정보 만료. 다음 전송 시 console 에서 다시 조회하고, 조회에 실패하면 보관 중인 노드 정보를 사용한다.
+	 * ( 전송 실패 시 호출. 노드 정보를 삭제하면 console 장애 시 사용할 노드 정보가 없어진다 )
+	 * @param logpolicyId 정책아이디
+	 */
+	public void expire(String logpolicyId) {
+		if(Strings.isNullOrEmpty(logpolicyId)) return;
+		CacheEntry cacheEntry;
+		while((cacheEntry = cacheMap.get(logpolicyId)) != null && cacheEntry.expireTime > 0) {
+			if(cacheMap.replace(logpolicyId, cacheEntry, new CacheEntry(cacheEntry.policyNodeMapList, 0))) return;
+		}
+	}
+
+	/**
+	 * cache 항목 ( 변경되지 않음 )
+	 */
+	private static class CacheEntry {
+		/** 노드 정보 */
+		private final List<Map<String, String>> policyNodeMapList;
+		/** 만료 시간 */
+		private final long expireTime;
+
+		private CacheEntry(List<Map<String, String>> policyNodeMapList, long expireTime) {
+			this.policyNodeMapList = policyNodeMapList;
+			this.expireTime = expireTime;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * 수집(AbstractCollect)과 전송(FileSendThread) 사이의 전송 대상 파일 commit log
+ *  - 정책아이디 별 partition 으로 구성되며, 수집 완료된 파일을 append 한다.
+ *  - FileSendThread 는 commit 된 offset 부터 순서대로 읽어 전송하고, 전송 완료 시 offset 을 commit 한다.
+ *  - 재기동 시 디렉토리를 다시 scan 하지 않고 commit 된 offset 부터 다시 전송한다.
+ * @author byw
+ */
+public enum SendCommitLog {
+	INSTANCE;
+	/** default segment size */
+	private static final long DEFAULT_SEGMENT_BYTES = 8 * 1024 * 1024;
+	/** default commit log directory */
+	private static final String DEFAULT_COMMIT_LOG_DIR = "commitlog";
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 정책아이디 별 partition */
+	private final ConcurrentHashMap<String, SendCommitLogPartition> partitionMap = new ConcurrentHashMap<String, SendCommitLogPartition>();
+	/** commit log base directory */
+	private File baseDir;
+	/** 수집 디렉토리 */
+	private File collectDir;
+	/** segment 최대 크기 */
+	private long segmentBytes = DEFAULT_SEGMENT_BYTES;
+	/** 초기화 여부 */
+	private volatile boolean initialized = false;
+	/** append 대기 monitor */
+	private final Object appendMonitor = new Object();
+	/** append 발생 시 증가하는 sequence ( appendMonitor 로 동기화 ) */
+	private long appendSequence = 0;
+
+	/**
+	 * commit log 초기화
+	 *  - 기존 partition 을 로딩하여 commit 되지 않은 record 부터 전송될 수 있도록 한다.
+	 * @throws IOException
+	 */
+	public synchronized void init() throws IOException {
+		if(initialized) return;
+
+		String commitLogDir = ConfigLoader.getInstance().get(Config.SEND_COMMIT_LOG_DIR);
+		String segmentBytesStr = ConfigLoader.getInstance().get(Config.SEND_COMMIT_LOG_SEGMENT_BYTES);
+		this.baseDir = new File(Strings.isNullOrEmpty(commitLogDir) ? DEFAULT_COMMIT_LOG_DIR : commitLogDir);
+		this.collectDir = new File(ConfigLoader.getInstance().get(Config.COLLECT_DIR));
+		if(!Strings.isNullOrEmpty(segmentBytesStr)) this.segmentBytes = Long.parseLong(segmentBytesStr.trim());
+
+		if(!baseDir.exists() && !baseDir.mkdirs()) throw new IOException("It failed to create commit log directory... path=[" + baseDir.getAbsolutePath() + "]");
+
+		File[] partitionDirs = baseDir.listFiles();
+		if(partitionDirs != null) {
+			for(File partitionDir : partitionDirs) {
+				if(!partitionDir.isDirectory()) continue;
+				SendCommitLogPartition partition = new SendCommitLogPartition(partitionDir.getName(), partitionDir, collectDir, segmentBytes);
+				partition.open();
+				partitionMap.put(partitionDir.getName(), partition);
+			}
+		}
+		initialized = true;
+	}
+
+	/**
+	 * 저장이 완료된 수집 파일을 전송 대상으로 등록
+	 *  - 파일명을 .log 로 변경하고 해당 정책의 partition 에 append 한다.
+	 *  - commit log 가 초기화되지 않은 경우 파일명만 변경한다. ( 기동 시 수집 디렉토리 scan 으로 등록됨 )
+	 * @param logpolicyId 정책아이디
+	 * @param savedFile 저장된 수집 파일
+	 * @param logFile 전송 대상 파일 ( 파일명.log )
+	 * @return 등록 결과
+	 * @throws IOException
+	 */
+	public boolean publish(String logpolicyId, File savedFile, File logFile) throws IOException {
+		if(!initialized) return savedFile.renameTo(logFile);
+		boolean result = getPartition(logpolicyId).publish(savedFile, logFile);
+		if(result) signalAppend();
+		return result;
+	}
+
+	/**
+	 * commit log 에 등록되지 않은 수집 디렉토리의 파일을 전송 대상으로 등록
+	 *  - 파일명 형식 : logpolicyId,dataSourceId,yyyyMMddHHmmss,encoding,fileName,UUID.log
+	 * @param logFile 수집 디렉토리의 파일
+	 * @return 등록 여부
+	 * @throws IOException
+	 */
+	boolean appendIfAbsent(File logFile) throws IOException {
+		if(!initialized) return false;
+		String[] formattedNameArr = logFile.getName().split(",", 2);
+		if(formattedNameArr.length < 2 || Strings.isNullOrEmpty(formattedNameArr[0])) return false;
+		boolean result = getPartition(formattedNameArr[0]).appendIfAbsent(logFile);
+		if(result) signalAppend();
+		return result;
+	}
+
+	/**
+	 * 현재 append sequence. awaitAppend 호출 전 전송 대상 record 를 확인하기 전에 가져온다.
+	 * @return append sequence
+	 */
+	long getAppendSequence() {
+		synchronized(appendMonitor) {
+			return appendSequence;
+		}
+	}
+
+	/**
+	 * appendSequence 이후 record 가 append 될 때까지 대기
+	 * @param lastAppendSequence 마지막으로 확인한 append sequence
+	 * @param timeoutMillis 최대 대기시간 ( millisecond )
+	 * @throws InterruptedException
+	 */
+	void awaitAppend(long lastAppendSequence, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized(appendMonitor) {
+			while(appendSequence == lastAppendSequence) {
+				long remainMillis = deadline - System.currentTimeMillis();
+				if(remainMillis <= 0) return;
+				appendMonitor.wait(remainMillis);
+			}
+		}
+	}
+
+	/**
+	 * append 대기중인 전송 thread 에 알림
+	 */
+	private void signalAppend() {
+		synchronized(appendMonitor) {
+			appendSequence++;
+			appendMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * 전송 완료된 record commit
+	 * @param record 전송 완료된 record
+	 */
+	void commit(SendRecord record) {
+		if(record.getOffset() < 0) return;
+		SendCommitLogPartition partition = partitionMap.get(record.getLogpolicyId());
+		if(partition == null) return;
+		try {
+			partition.commit(record);
+		} catch (IOException e) {
+			logger.error(this.getClass().getSimpleName(), e);
+		}
+	}
+
+	List<SendCommitLogPartition> getPartitions() {
+		return new ArrayList<SendCommitLogPartition>(partitionMap.values());
+	}
+
+	/**
+	 * 전체 partition 의 전송 대기 record 수
+	 * @return 전송 대기 record 수
+	 */
+	public long getLag() {
+		long lag = 0;
+		for(SendCommitLogPartition partition : partitionMap.values()) {
+			lag += partition.getLag();
+		}
+		return lag;
+	}
+
+	/**
+	 * 전체 partition 의 전송 대기 파일 크기 합계
+	 * @return 전송 대기 byte 수
+	 */
+	public long getPendingBytes() {
+		long pendingBytes = 0;
+		for(SendCommitLogPartition partition : partitionMap.values()) {
+			pendingBytes += partition.getPendingBytes();
+		}
+		return pendingBytes;
+	}
+
+	public synchronized void destroy() {
+		initialized = false;
+		for(SendCommitLogPartition partition : partitionMap.values()) {
+			partition.close();
+		}
+		partitionMap.clear();
+	}
+
+	/**
+	 * 정책아이디의 partition 을 가져온다. 없는 경우 생성
+	 * @param logpolicyId 정책아이디
+	 * @return partition
+	 * @throws IOException
+	 */
+	private SendCommitLogPartition getPartition(String logpolicyId) throws IOException {
+		SendCommitLogPartition partition = partitionMap.get(logpolicyId);
+		if(partition != null) return partition;
+
+		synchronized(partitionMap) {
+			partition = partitionMap.get(logpolicyId);
+			if(partition == null) {
+				partition = new SendCommitLogPartition(logpolicyId, new File(baseDir, logpolicyId), collectDir, segmentBytes);
+				partition.open();
+				partitionMap.put(logpolicyId, partition);
+			}
+		}
+		return partition;
+	}
+}
@@ -0,0 +1,430 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 정책아이디 별 전송 commit log partition
+ *  - segment 파일 ( [base offset 20자리].seg ) 에 record 를 append 한다.
+ *  - record 형식 : [name length(4)][crc32(4)][file size(8)][file name(UTF-8)]
+ *  - 전송이 완료된 offset 은 consumer.offset 파일에 기록하여 재기동 시 해당 offset 부터 다시 읽는다.
+ *  - commit 한 offset 은 OFFSET_FORCE_COUNT 건 또는 OFFSET_FORCE_INTERVAL_MILLIS 마다 모아서 force 한다. ( group commit )
+ *    OS 장애 ( 전원 차단 등 ) 시 force 되지 않은 offset 은 유실되어 해당 record 의 파일을 다시 전송할 수 있다.
+ *  - append 한 record 는 force 하지 않는다. OS 장애로 유실된 record 는 재기동 시 수집 디렉토리 scan ( appendIfAbsent ) 으로 다시 등록된다.
+ *  - 모든 메소드는 partition 단위로 동기화 된다.
+ * @author byw
+ */
+class SendCommitLogPartition {
+	/** segment 파일 확장자 */
+	private static final String SEGMENT_SUFFIX = ".seg";
+	/** consumer offset 파일명 */
+	private static final String OFFSET_FILE_NAME = "consumer.offset";
+	/** record header 크기 */
+	private static final int RECORD_HEADER_SIZE = 4 + 4 + 8;
+	/** 파일명 최대 길이 ( 손상된 record 판별용 ) */
+	private static final int MAX_NAME_LENGTH = 4096;
+	/** record 파일명 charset */
+	private static final Charset NAME_CHARSET = Charset.forName("UTF-8");
+	/** offset force 주기 ( commit 건수 ) */
+	private static final int OFFSET_FORCE_COUNT = 100;
+	/** offset force 주기 ( millisecond ) */
+	private static final long OFFSET_FORCE_INTERVAL_MILLIS = 1000;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 정책아이디 */
+	private final String logpolicyId;
+	/** partition 디렉토리 */
+	private final File partitionDir;
+	/** 수집 디렉토리 ( record 의 파일명 기준 디렉토리 ) */
+	private final File collectDir;
+	/** segment 최대 크기 */
+	private final long segmentBytes;
+	/** base offset 별 segment 파일 */
+	private final TreeMap<Long, File> segmentMap = new TreeMap<Long, File>();
+	/** commit 되지 않은 record 의 파일명 별 파일 크기 */
+	private final Map<String, Long> pendingFileSizeMap = new HashMap<String, Long>();
+	/** commit 되지 않은 record 의 파일 크기 합계 */
+	private long pendingBytes;
+	/** record header read buffer */
+	private final ByteBuffer headerBuffer = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+
+	/** append 대상 segment channel */
+	private FileChannel appendChannel;
+	/** append 대상 segment 크기 */
+	private long appendSize;
+	/** 다음 append offset */
+	private long endOffset;
+
+	/** consumer offset channel */
+	private FileChannel offsetChannel;
+	/** commit 된 offset ( 다음 전송 대상 offset ) */
+	private long committedOffset;
+	/** force 하지 않은 commit 건수 */
+	private int unforcedCommitCount;
+	/** 마지막 offset force 시간 */
+	private long lastForceTime = System.currentTimeMillis();
+
+	/** read 대상 segment channel */
+	private FileChannel readChannel;
+	/** read 대상 segment base offset */
+	private long readSegmentBaseOffset = -1;
+	/** read 대상 segment 내 위치 */
+	private long readPosition;
+	/** 다음 read offset */
+	private long readOffset;
+
+	SendCommitLogPartition(String logpolicyId, File partitionDir, File collectDir, long segmentBytes) {
+		this.logpolicyId = logpolicyId;
+		this.partitionDir = partitionDir;
+		this.collectDir = collectDir;
+		this.segmentBytes = segmentBytes;
+	}
+
+	/**
+	 * partition 로딩
+	 *  - 마지막 segment 의 불완전한 record 는 잘라낸다.
+	 *  - commit 되지 않은 record 의 파일명을 다시 적재한다.
+	 * @throws IOException
+	 */
+	synchronized void open() throws IOException {
+		if(!partitionDir.exists() && !partitionDir.mkdirs()) throw new IOException("It failed to create commit log directory... path=[" + partitionDir.getAbsolutePath() + "]");
+
+		File[] segmentFiles = partitionDir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		if(segmentFiles != null) {
+			for(File segmentFile : segmentFiles) {
+				String name = segmentFile.getName();
+				try {
+					segmentMap.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), segmentFile);
+				} catch(NumberFormatException e) {
+					logger.error(this.getClass().getSimpleName() + ". Invalid segment file. path=[" + segmentFile.getAbsolutePath() + "]");
+				}
+			}
+		}
+
+		offsetChannel = new RandomAccessFile(new File(partitionDir, OFFSET_FILE_NAME), "rw").getChannel();
+		if(offsetChannel.size() >= 8) {
+			ByteBuffer offsetBuffer = ByteBuffer.allocate(8);
+			while(offsetBuffer.hasRemaining() && offsetChannel.read(offsetBuffer, offsetBuffer.position()) > 0);
+			offsetBuffer.flip();
+			committedOffset = offsetBuffer.getLong();
+		}
+
+		if(segmentMap.isEmpty()) {
+			endOffset = committedOffset;
+			openAppendSegment(committedOffset);
+		} else {
+			long lastBaseOffset = segmentMap.lastKey();
+			File lastSegment = segmentMap.get(lastBaseOffset);
+			appendChannel = new RandomAccessFile(lastSegment, "rw").getChannel();
+
+			// 마지막 segment 의 유효한 record 수 확인
+			long position = 0;
+			long recordCount = 0;
+			long recordSize;
+			while((recordSize = validateRecord(appendChannel, position)) > 0) {
+				position += recordSize;
+				recordCount++;
+			}
+			if(position < appendChannel.size()) {
+				logger.info(this.getClass().getSimpleName() + ". Truncate incomplete record. segment=[" + lastSegment.getAbsolutePath() + "], size=[" + appendChannel.size() + "], validSize=[" + position + "]");
+				appendChannel.truncate(position);
+			}
+			appendChannel.position(position);
+			appendSize = position;
+			endOffset = lastBaseOffset + recordCount;
+		}
+
+		if(committedOffset > endOffset) committedOffset = endOffset;
+		if(committedOffset < segmentMap.firstKey()) committedOffset = segmentMap.firstKey();
+
+		// commit 되지 않은 record 재적재
+		readOffset = committedOffset;
+		SendRecord record;
+		while((record = next()) != null) {
+			addPending(record.getFile().getName(), record.getSize());
+		}
+		seekRead(committedOffset);
+		deleteConsumedSegments();
+
+		logger.debug(this.getClass().getSimpleName() + ". Open commit log. logpolicyId=[" + logpolicyId + "], committedOffset=[" + committedOffset + "], endOffset=[" + endOffset + "]");
+	}
+
+	/**
+	 * 수집 파일명을 .log 로 변경 후 record 를 append 한다.
+	 * rename 과 append 를 동기화하여 수집 디렉토리 scan 시 중복 적재되지 않도록 한다.
+	 * @param savedFile 저장된 수집 파일
+	 * @param logFile 전송 대상 파일 ( 파일명.log )
+	 * @return rename 결과
+	 * @throws IOException
+	 */
+	synchronized boolean publish(File savedFile, File logFile) throws IOException {
+		if(!savedFile.equals(logFile) && !savedFile.renameTo(logFile)) return false;
+		append(logFile);
+		return true;
+	}
+
+	/**
+	 * 수집 디렉토리에 존재하지만 commit log 에 없는 파일을 append 한다.
+	 * @param logFile 전송 대상 파일
+	 * @return append 여부
+	 * @throws IOException
+	 */
+	synchronized boolean appendIfAbsent(File logFile) throws IOException {
+		if(pendingFileSizeMap.containsKey(logFile.getName())) return false;
+		if(!logFile.exists()) return false;
+		append(logFile);
+		return true;
+	}
+
+	/**
+	 * 다음 전송 대상 record 를 읽는다.
+	 * @return 다음 record. 읽을 record 가 없는 경우 null
+	 * @throws IOException
+	 */
+	synchronized SendRecord next() throws IOException {
+		if(appendChannel == null) return null;
+		while(readOffset < endOffset) {
+			Long baseOffset = segmentMap.floorKey(readOffset);
+			if(baseOffset == null) {
+				readOffset = segmentMap.firstKey();
+				continue;
+			}
+			if(readChannel == null || readSegmentBaseOffset != baseOffset) seekRead(readOffset);
+
+			long recordSize = validateRecord(readChannel, readPosition);
+			if(recordSize <= 0) {
+				// 손상된 record. 다음 segment 로 skip
+				Long nextBaseOffset = segmentMap.higherKey(baseOffset);
+				long skipOffset = nextBaseOffset == null ? endOffset : nextBaseOffset;
+				logger.error(this.getClass().getSimpleName() + ". Invalid record. logpolicyId=[" + logpolicyId + "], offset=[" + readOffset + "], skip to offset=[" + skipOffset + "]");
+				readOffset = skipOffset;
+				closeReadChannel();
+				continue;
+			}
+
+			SendRecord record = readRecord(readChannel, readPosition, readOffset);
+			readPosition += recordSize;
+			readOffset++;
+			return record;
+		}
+		return null;
+	}
+
+	/**
+	 * 전송이 완료된 record 를 commit 한다.
+	 * @param record 전송 완료된 record
+	 * @throws IOException
+	 */
+	synchronized void commit(SendRecord record) throws IOException {
+		Long pendingSize = pendingFileSizeMap.remove(record.getFile().getName());
+		if(pendingSize != null) pendingBytes -= pendingSize;
+		if(offsetChannel == null) return;
+		if(record.getOffset() + 1 <= committedOffset) return;
+
+		committedOffset = record.getOffset() + 1;
+		ByteBuffer offsetBuffer = ByteBuffer.allocate(8);
+		offsetBuffer.putLong(committedOffset).flip();
+		while(offsetBuffer.hasRemaining()) offsetChannel.write(offsetBuffer, offsetBuffer.position());
+		unforcedCommitCount++;
+		long now = System.currentTimeMillis();
+		if(unforcedCommitCount >= OFFSET_FORCE_COUNT || now - lastForceTime >= OFFSET_FORCE_INTERVAL_MILLIS) {
+			offsetChannel.force(false);
+			unforcedCommitCount = 0;
+			lastForceTime = now;
+		}
+
+		deleteConsumedSegments();
+	}
+
+	/**
+	 * 전송 대기중인 record 수
+	 * @return 전송 대기 record 수
+	 */
+	synchronized long getLag() {
+		return endOffset - committedOffset;
+	}
+
+	/**
+	 * 전송 대기중인 파일 크기 합계
+	 * @return 전송 대기 byte 수
+	 */
+	synchronized long getPendingBytes() {
+		return pendingBytes;
+	}
+
+	synchronized void close() {
+		closeReadChannel();
+		if(appendChannel != null) try { appendChannel.close(); } catch (IOException e) { logger.error(this.getClass().getSimpleName(), e); }
+		if(offsetChannel != null) try { offsetChannel.force(true); offsetChannel.close(); } catch (IOException e) { logger.error(this.getClass().getSimpleName(), e); }
+		appendChannel = null;
+		offsetChannel = null;
+	}
+
+	String getLogpolicyId() {
+		return logpolicyId;
+	}
+
+	/**
+	 * record append
+	 * @param logFile 전송 대상 파일
+	 * @throws IOException
+	 */
+	private void append(File logFile) throws IOException {
+		// 종료된 partition. 재기동 시 수집 디렉토리 scan 으로 등록된다.
+		if(appendChannel == null) return;
+		if(appendSize >= segmentBytes) {
+			appendChannel.close();
+			openAppendSegment(endOffset);
+		}
+
+		byte[] nameBytes = logFile.getName().getBytes(NAME_CHARSET);
+		long fileSize = logFile.length();
+
+		CRC32 crc = new CRC32();
+		ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + nameBytes.length);
+		recordBuffer.putLong(4 + 4, fileSize);
+		crc.update(recordBuffer.array(), 4 + 4, 8);
+		crc.update(nameBytes);
+
+		recordBuffer.putInt(nameBytes.length)
+					.putInt((int) crc.getValue())
+					.putLong(fileSize)
+					.put(nameBytes)
+					.flip();
+		while(recordBuffer.hasRemaining()) appendChannel.write(recordBuffer);
+
+		appendSize += RECORD_HEADER_SIZE + nameBytes.length;
+		endOffset++;
+		addPending(logFile.getName(), fileSize);
+	}
+
+	private void addPending(String fileName, long fileSize) {
+		Long previousSize = pendingFileSizeMap.put(fileName, fileSize);
+		if(previousSize != null) pendingBytes -= previousSize;
+		pendingBytes += fileSize;
+	}
+
+	/**
+	 * append 대상 segment 생성
+	 * @param baseOffset segment base offset
+	 * @throws IOException
+	 */
+	private void openAppendSegment(long baseOffset) throws IOException {
+		File segmentFile = new File(partitionDir, String.format("%020d", baseOffset) + SEGMENT_SUFFIX);
+		appendChannel = new RandomAccessFile(segmentFile, "rw").getChannel();
+		appendChannel.position(appendChannel.size());
+		appendSize = appendChannel.size();
+		segmentMap.put(baseOffset, segmentFile);
+	}
+
+	/**
+	 * 해당 offset 을 읽을 수 있도록 read channel 위치 이동
+	 * @param offset 이동할 offset
+	 * @throws IOException
+	 */
+	private void seekRead(long offset) throws IOException {
+		closeReadChannel();
+		readOffset = offset;
+		Long baseOffset = segmentMap.floorKey(offset);
+		if(baseOffset == null) return;
+
+		readChannel = new RandomAccessFile(segmentMap.get(baseOffset), "r").getChannel();
+		readSegmentBaseOffset = baseOffset;
+		readPosition = 0;
+		for(long skipOffset = baseOffset; skipOffset < offset; skipOffset++) {
+			long recordSize = validateRecord(readChannel, readPosition);
+			if(recordSize <= 0) break;
+			readPosition += recordSize;
+		}
+	}
+
+	/**
+	 * 해당 위치의 record 가 온전한지 확인
+	 * @param channel segment channel
+	 * @param position record 위치
+	 * @return record 크기. 불완전하거나 손상된 경우 -1
+	 * @throws IOException
+	 */
+	private long validateRecord(FileChannel channel, long position) throws IOException {
+		if(channel.size() - position < RECORD_HEADER_SIZE) return -1;
+		headerBuffer.clear();
+		while(headerBuffer.hasRemaining() && channel.read(headerBuffer, position + headerBuffer.position()) > 0);
+		headerBuffer.flip();
+		int nameLength = headerBuffer.getInt();
+		int recordCrc = headerBuffer.getInt();
+		if(nameLength <= 0 || nameLength > MAX_NAME_LENGTH) return -1;
+		if(channel.size() - position - RECORD_HEADER_SIZE < nameLength) return -1;
+
+		ByteBuffer bodyBuffer = ByteBuffer.allocate(8 + nameLength);
+		while(bodyBuffer.hasRemaining() && channel.read(bodyBuffer, position + 4 + 4 + bodyBuffer.position()) > 0);
+		CRC32 crc = new CRC32();
+		crc.update(bodyBuffer.array(), 0, bodyBuffer.position());
+		if((int) crc.getValue() != recordCrc) return -1;
+		return RECORD_HEADER_SIZE + nameLength;
+	}
+
+	/**
+	 * 해당 위치의 record 를 읽는다. ( validateRecord 로 확인된 record )
+	 * @param channel segment channel
+	 * @param position record 위치
+	 * @param offset record offset
+	 * @return record
+	 * @throws IOException
+	 */
+	private SendRecord readRecord(FileChannel channel, long position, long offset) throws IOException {
+		headerBuffer.clear();
+		while(headerBuffer.hasRemaining() && channel.read(headerBuffer, position + headerBuffer.position()) > 0);
+		headerBuffer.flip();
+		int nameLength = headerBuffer.getInt();
+		headerBuffer.getInt();
+		long fileSize = headerBuffer.getLong();
+
+		ByteBuffer nameBuffer = ByteBuffer.allocate(nameLength);
+		while(nameBuffer.hasRemaining() && channel.read(nameBuffer, position + RECORD_HEADER_SIZE + nameBuffer.position()) > 0);
+		String fileName = new String(nameBuffer.array(), NAME_CHARSET);
+		return new SendRecord(logpolicyId, offset, new File(collectDir, fileName), fileSize);
+	}
+
+	/**
+	 * 전송이 완료된 segment 삭제 ( append 대상 segment 는 삭제하지 않는다 )
+	 */
+	private void deleteConsumedSegments() {
+		while(segmentMap.size() > 1) {
+			Map.Entry<Long, File> firstEntry = segmentMap.firstEntry();
+			Long nextBaseOffset = segmentMap.higherKey(firstEntry.getKey());
+			if(nextBaseOffset > committedOffset || nextBaseOffset > readOffset) break;
+
+			if(readChannel != null && readSegmentBaseOffset == firstEntry.getKey()) closeReadChannel();
+			if(!firstEntry.getValue().delete()) {
+				logger.error(this.getClass().getSimpleName() + ". It failed to delete segment. path=[" + firstEntry.getValue().getAbsolutePath() + "]");
+				break;
+			}
+			segmentMap.remove(firstEntry.getKey());
+		}
+	}
+
+	private void closeReadChannel() {
+		if(readChannel != null) try { readChannel.close(); } catch (IOException e) { logger.error(this.getClass().getSimpleName(), e); }
+		readChannel = null;
+		readSegmentBaseOffset = -1;
+		readPosition = 0;
+	}
+}
@@ -0,0 +1,43 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.io.File;
+
+/**
+ * 전송 commit log 의 record
+ *  - 수집 디렉토리에 저장된 수집 파일 1건을 나타낸다.
+ *  - offset 이 -1 인 경우 commit log 를 거치지 않은 파일 ( send.log.dir 에 남아있던 이전 버전 파일 )
+ * @author byw
+ */
+class SendRecord {
+	/** 정책아이디 ( commit log partition ) */
+	private final String logpolicyId;
+	/** partition 내 offset */
+	private final long offset;
+	/** 전송 대상 파일 */
+	private final File file;
+	/** 저장 시 파일 크기 */
+	private final long size;
+
+	SendRecord(String logpolicyId, long offset, File file, long size) {
+		this.logpolicyId = logpolicyId;
+		this.offset = offset;
+		this.file = file;
+		this.size = size;
+	}
+
+	String getLogpolicyId() {
+		return logpolicyId;
+	}
+
+	long getOffset() {
+		return offset;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	long getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,134 @@
+package com.ksign.wizlook.bigdata.collector.collect.send;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+
+import com.ksign.wizlook.bigdata.collector.collect.sink.CollectBufferPool;
+
+/**
+ * 수집 파일의 인코딩을 변환하면서 여러 대상 파일( 노드, 백업 )에 동시에 저장하는 클래스
+ *  - 원본 파일을 한번만 읽어 CharsetDecoder / CharsetEncoder 로 변환 후 모든 대상 파일에 write 한다.
+ *  - 줄바꿈 문자 등 원본 내용은 변경하지 않는다.
+ *  - 잘못된 문자 처리 방식 : REPORT ( 변환 실패 ), IGNORE ( 제거 ), REPLACE ( 대체문자로 변환 )
+ * @author byw
+ */
+class StreamingTranscoder {
+	/** 변환 인코딩 */
+	private final Charset targetCharset;
+	/** 잘못된 문자 처리 방식 */
+	private final CodingErrorAction errorAction;
+
+	StreamingTranscoder(Charset targetCharset, CodingErrorAction errorAction) {
+		this.targetCharset = targetCharset;
+		this.errorAction = errorAction;
+	}
+
+	/**
+	 * 인코딩 변환 후 대상 파일들에 저장
+	 * @param sourceFile 원본 파일
+	 * @param sourceEncoding 원본 인코딩
+	 * @param targetFiles 저장 대상 파일 목록
+	 * @return 변환된 파일 크기
+	 * @throws IOException 읽기/쓰기 실패 또는 REPORT 인 경우 잘못된 문자 발견
+	 */
+	long transcode(File sourceFile, String sourceEncoding, List<File> targetFiles) throws IOException {
+		CharsetDecoder decoder = Charset.forName(sourceEncoding).newDecoder().onMalformedInput(errorAction).onUnmappableCharacter(errorAction);
+		CharsetEncoder encoder = targetCharset.newEncoder().onMalformedInput(errorAction).onUnmappableCharacter(errorAction);
+
+		ByteBuffer inBuffer = CollectBufferPool.INSTANCE.acquireDirect();
+		ByteBuffer outBuffer = CollectBufferPool.INSTANCE.acquireDirect();
+		CharBuffer charBuffer = CharBuffer.allocate(inBuffer.capacity());
+
+		FileInputStream inStream = null;
+		FileChannel inChannel = null;
+		FileOutputStream[] outStreams = new FileOutputStream[targetFiles.size()];
+		FileChannel[] outChannels = new FileChannel[targetFiles.size()];
+		try {
+			inStream = new FileInputStream(sourceFile);
+			inChannel = inStream.getChannel();
+			for(int i=0; i<targetFiles.size(); i++) {
+				File targetFile = targetFiles.get(i);
+				if(!targetFile.getParentFile().exists()) targetFile.getParentFile().mkdirs();
+				outStreams[i] = new FileOutputStream(targetFile, false);
+				outChannels[i] = outStreams[i].getChannel();
+			}
+
+			long written = 0;
+			boolean endOfInput = false;
+			while(true) {
+				if(!endOfInput && inChannel.read(inBuffer) < 0) endOfInput = true;
+				inBuffer.flip();
+				CoderResult decodeResult = decoder.decode(inBuffer, charBuffer, endOfInput);
+				inBuffer.compact();
+				if(decodeResult.isError()) decodeResult.throwException();
+
+				charBuffer.flip();
+				written += encode(encoder, charBuffer, outBuffer, outChannels, false);
+				charBuffer.compact();
+
+				if(endOfInput && decodeResult.isUnderflow()) break;
+			}
+
+			decoder.flush(charBuffer);
+			charBuffer.flip();
+			written += encode(encoder, charBuffer, outBuffer, outChannels, true);
+			while(encoder.flush(outBuffer).isOverflow()) {
+				written += write(outBuffer, outChannels);
+			}
+			written += write(outBuffer, outChannels);
+			return written;
+		} finally {
+			if(inChannel != null) try { inChannel.close(); } catch (IOException e) {}
+			if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+			for(int i=0; i<outChannels.length; i++) {
+				if(outChannels[i] != null) try { outChannels[i].close(); } catch (IOException e) {}
+				if(outStreams[i] != null) try { outStreams[i].close(); } catch (IOException e) {}
+			}
+			CollectBufferPool.INSTANCE.release(inBuffer);
+			CollectBufferPool.INSTANCE.release(outBuffer);
+		}
+	}
+
+	/**
+	 * charBuffer 를 encoding 하여 outBuffer 가 가득 찰 때마다 대상 파일들에 write
+	 * @return write 한 크기
+	 * @throws IOException
+	 */
+	private long encode(CharsetEncoder encoder, CharBuffer charBuffer, ByteBuffer outBuffer, FileChannel[] outChannels, boolean endOfInput) throws IOException {
+		long written = 0;
+		while(true) {
+			CoderResult encodeResult = encoder.encode(charBuffer, outBuffer, endOfInput);
+			if(encodeResult.isError()) encodeResult.throwException();
+			if(!encodeResult.isOverflow()) break;
+			written += write(outBuffer, outChannels);
+		}
+		return written;
+	}
+
+	/**
+	 * outBuffer 의 내용을 모든 대상 파일에 write 후 outBuffer 를 비운다.
+	 * @return write 한 크기
+	 * @throws IOException
+	 */
+	private long write(ByteBuffer outBuffer, FileChannel[] outChannels) throws IOException {
+		outBuffer.flip();
+		int length = outBuffer.remaining();
+		for(FileChannel outChannel : outChannels) {
+			ByteBuffer writeBuffer = outBuffer.duplicate();
+			while(writeBuffer.hasRemaining()) outChannel.write(writeBuffer);
+		}
+		outBuffer.clear();
+		return length;
+	}
+}
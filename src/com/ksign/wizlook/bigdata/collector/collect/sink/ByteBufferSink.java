@@ -0,0 +1,38 @@
+package com.ksign.wizlook.bigdata.collector.collect.sink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * ByteBuffer ( byte[] ) 형태의 수집데이터 저장
+ *  -> LocalFileTailerJob, LocalShellExecuterJob, SnmpJob, TelnetShellExecuterJob
+ * @author byw
+ */
+public class ByteBufferSink implements CollectSink {
+
+	/** 저장할 데이터 */
+	private final ByteBuffer buffer;
+
+	public ByteBufferSink(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * byte[] 를 복사하지 않고 wrap 하여 생성
+	 * @param byteData 수집한 byte[] 데이터
+	 * @return ByteBufferSink
+	 */
+	public static ByteBufferSink wrap(byte[] byteData) {
+		return new ByteBufferSink(ByteBuffer.wrap(byteData));
+	}
+
+	@Override
+	public long transferTo(FileChannel target) throws IOException {
+		long writeLength = 0;
+		while(buffer.hasRemaining()) {
+			writeLength += target.write(buffer);
+		}
+		return writeLength;
+	}
+}
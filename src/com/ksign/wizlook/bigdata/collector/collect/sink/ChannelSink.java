@@ -0,0 +1,47 @@
+package com.ksign.wizlook.bigdata.collector.collect.sink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * ReadableByteChannel ( InputStream ) 형태의 수집데이터 저장
+ * FileChannel.transferFrom 을 사용하여 중간 heap buffer 없이 저장한다.
+ *  -> FtpDirScannerJob, SshShellExecuterJob
+ * @author byw
+ */
+public class ChannelSink implements CollectSink {
+
+	/** 한번의 transferFrom 호출로 전달할 최대 크기 */
+	private static final long TRANSFER_CHUNK_SIZE = 8L * 1024L * 1024L;
+	/** 수집데이터를 read할 channel */
+	private final ReadableByteChannel source;
+
+	public ChannelSink(ReadableByteChannel source) {
+		this.source = source;
+	}
+
+	/**
+	 * InputStream 을 channel 로 변환하여 생성
+	 * @param inputStream 수집한 데이터를 read할 inputStream
+	 * @return ChannelSink
+	 */
+	public static ChannelSink wrap(InputStream inputStream) {
+		return new ChannelSink(Channels.newChannel(inputStream));
+	}
+
+	@Override
+	public long transferTo(FileChannel target) throws IOException {
+		long position = target.position();
+		long startPosition = position;
+		long transferLength = 0;
+		// transferFrom 은 source 가 EOF 일 경우 0 을 반환한다.
+		while((transferLength = target.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+			position += transferLength;
+		}
+		target.position(position);
+		return position - startPosition;
+	}
+}
@@ -0,0 +1,94 @@
+package com.ksign.wizlook.bigdata.collector.collect.sink;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * 수집데이터 저장 시 사용하는 ByteBuffer Pool
+ * 수집 건마다 buffer를 새로 할당하지 않도록 direct buffer 와 heap buffer 를 재사용한다.
+ *  - buffer 크기 : collect.buffer.size
+ *  - 최대 보관 buffer 수 : collect.buffer.pool.size ( 초과분은 반납 시 버려진다 )
+ * @author byw
+ */
+public enum CollectBufferPool {
+	INSTANCE;
+	/** default buffer size */
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	/** default pool size */
+	private static final int DEFAULT_POOL_SIZE = 32;
+
+	/** buffer size */
+	private final int bufferSize;
+	/** 최대 보관 buffer 수 */
+	private final int poolSize;
+	/** direct buffer pool */
+	private final Queue<ByteBuffer> directPool = new ConcurrentLinkedQueue<ByteBuffer>();
+	/** heap buffer pool */
+	private final Queue<ByteBuffer> heapPool = new ConcurrentLinkedQueue<ByteBuffer>();
+	/** direct buffer pool 보관 수 */
+	private final AtomicInteger directPoolCount = new AtomicInteger();
+	/** heap buffer pool 보관 수 */
+	private final AtomicInteger heapPoolCount = new AtomicInteger();
+
+	private CollectBufferPool() {
+		String bufferSizeStr = ConfigLoader.getInstance().get(Config.COLLECT_BUFFER_SIZE);
+		String poolSizeStr = ConfigLoader.getInstance().get(Config.COLLECT_BUFFER_POOL_SIZE);
+		this.bufferSize = Strings.isNullOrEmpty(bufferSizeStr) ? DEFAULT_BUFFER_SIZE : Integer.parseInt(bufferSizeStr.trim());
+		this.poolSize = Strings.isNullOrEmpty(poolSizeStr) ? DEFAULT_POOL_SIZE : Integer.parseInt(poolSizeStr.trim());
+	}
+
+	/**
+	 * direct buffer 를 가져온다. 사용 후 반드시 release 해야 한다.
+	 * @return clear 된 direct buffer
+	 */
+	public ByteBuffer acquireDirect() {
+		ByteBuffer buffer = directPool.poll();
+		if(buffer == null) return ByteBuffer.allocateDirect(bufferSize);
+		directPoolCount.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * heap buffer 를 가져온다. ( byte[] 로만 read 할 수 있는 client 용 ) 사용 후 반드시 release 해야 한다.
+	 * @return clear 된 heap buffer
+	 */
+	public ByteBuffer acquireHeap() {
+		ByteBuffer buffer = heapPool.poll();
+		if(buffer == null) return ByteBuffer.allocate(bufferSize);
+		heapPoolCount.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * 사용한 buffer 를 pool 에 반납
+	 * @param buffer acquireDirect / acquireHeap 으로 가져온 buffer
+	 */
+	public void release(ByteBuffer buffer) {
+		if(buffer == null || buffer.capacity() != bufferSize) return;
+		if(buffer.isDirect()) {
+			if(directPoolCount.incrementAndGet() > poolSize) {
+				directPoolCount.decrementAndGet();
+				return;
+			}
+			directPool.offer(buffer);
+		} else {
+			if(heapPoolCount.incrementAndGet() > poolSize) {
+				heapPoolCount.decrementAndGet();
+				return;
+			}
+			heapPool.offer(buffer);
+		}
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+}
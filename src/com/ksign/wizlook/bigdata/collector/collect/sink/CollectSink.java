@@ -0,0 +1,21 @@
+package com.ksign.wizlook.bigdata.collector.collect.sink;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * 수집데이터를 수집 디렉토리의 파일로 전달하는 인터페이스
+ * 각 Protocol 별 수집데이터 형태( ByteBuffer, ByteBuf, Channel, File, Sftp handle )에 맞게 구현하며
+ * AbstractCollect 는 데이터 형태와 관계없이 저장 파일의 FileChannel 만 넘겨준다.
+ * @author byw
+ */
+public interface CollectSink {
+
+	/**
+	 * 수집데이터를 저장 파일의 FileChannel로 전달
+	 * @param target 저장 파일 FileChannel
+	 * @return 전달한 데이터 크기
+	 * @throws IOException
+	 */
+	public long transferTo(FileChannel target) throws IOException;
+}
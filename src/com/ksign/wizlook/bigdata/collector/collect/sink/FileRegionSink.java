@@ -0,0 +1,49 @@
+package com.ksign.wizlook.bigdata.collector.collect.sink;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * 로컬 파일의 특정 영역( position ~ position + count )을 수집데이터로 저장
+ * FileChannel.transferTo 를 사용하여 user 영역으로 복사하지 않고 저장한다.
+ *  -> LocalFileTailerJob
+ * @author byw
+ */
+public class FileRegionSink implements CollectSink {
+
+	/** 원본 파일 */
+	private final File file;
+	/** 시작 위치 */
+	private final long position;
+	/** 저장할 크기 */
+	private final long count;
+
+	public FileRegionSink(File file, long position, long count) {
+		this.file = file;
+		this.position = position;
+		this.count = count;
+	}
+
+	@Override
+	public long transferTo(FileChannel target) throws IOException {
+		FileInputStream inStream = null;
+		FileChannel source = null;
+		try {
+			inStream = new FileInputStream(file);
+			source = inStream.getChannel();
+
+			long transferred = 0;
+			while(transferred < count) {
+				long transferLength = source.transferTo(position + transferred, count - transferred, target);
+				if(transferLength <= 0) break;
+				transferred += transferLength;
+			}
+			return transferred;
+		} finally {
+			if(source != null) try { source.close(); } catch (IOException e) {}
+			if(inStream != null) try { inStream.close(); } catch (IOException e) {}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.ksign.wizlook.bigdata.collector.collect.sink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import ch.ethz.ssh2.SFTPv3Client;
+import ch.ethz.ssh2.SFTPv3FileHandle;
+
+/**
+ * Sftp handle 형태의 수집데이터 저장
+ * SFTPv3Client 는 byte[] 로만 read 할 수 있기 때문에 pool 의 heap buffer 를 재사용한다.
+ *  -> SftpDirScannerJob
+ * @author byw
+ */
+public class SftpSink implements CollectSink {
+
+	/** SFTPv3Client 가 한번에 read 할 수 있는 최대 크기 */
+	private static final int SFTP_MAX_READ_LENGTH = 32768;
+	/** 수집할 sftp handle */
+	private final SFTPv3FileHandle sftpFileHandle;
+
+	public SftpSink(SFTPv3FileHandle sftpFileHandle) {
+		this.sftpFileHandle = sftpFileHandle;
+	}
+
+	@Override
+	public long transferTo(FileChannel target) throws IOException {
+		SFTPv3Client sftp = sftpFileHandle.getClient();
+		ByteBuffer buffer = CollectBufferPool.INSTANCE.acquireHeap();
+		try {
+			byte[] array = buffer.array();
+			int readMaxLength = Math.min(array.length, SFTP_MAX_READ_LENGTH);
+
+			long offset = 0;
+			int readLength = 0;
+			while((readLength = sftp.read(sftpFileHandle, offset, array, 0, readMaxLength)) != -1) {
+				buffer.clear();
+				buffer.limit(readLength);
+				while(buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+				offset += readLength;
+			}
+			return offset;
+		} finally {
+			CollectBufferPool.INSTANCE.release(buffer);
+		}
+	}
+}
@@ -31,11 +31,41 @@ public interface Config {
 	// ### collect config ###
 	public static final String COLLECT_DIR 						= "collect.dir";
 	public static final String COLLECT_ERROR_BASE_DIR 			= "collect.error.base.dir";
+	public static final String COLLECT_ERROR_DEAD_LETTER_DIR 	= "collect.error.dead.letter.dir";
+	public static final String COLLECT_ERROR_REPLAY_ENABLED 	= "collect.error.replay.enabled";
+	public static final String COLLECT_ERROR_REPLAY_INTERVAL 	= "collect.error.replay.interval.sec";
+	public static final String COLLECT_ERROR_REPLAY_MAX_RETRY 	= "collect.error.replay.max.retry";
+	public static final String COLLECT_ERROR_REPLAY_BACKOFF_MIN = "collect.error.replay.backoff.min.sec";
+	public static final String COLLECT_ERROR_REPLAY_BACKOFF_MAX = "collect.error.replay.backoff.max.sec";
+	public static final String COLLECT_ERROR_REPLAY_RATE 		= "collect.error.replay.rate.kb";
+	public static final String COLLECT_ERROR_REPLAY_MAX_PENDING = "collect.error.replay.max.pending.files";
 	public static final String COLLECT_METAINFO_BASE_DIR 		= "collect.metainfo.base.dir";
 	public static final String COLLECT_LAST_MODIFIED_FILE 		= "collect.last.modified.file";
 	public static final String POLL_SCHEDULER_THREAD_COUNT 		= "poll.scheduler.thread.count";
+	public static final String COLLECT_BUFFER_SIZE 				= "collect.buffer.size";
+	public static final String COLLECT_BUFFER_POOL_SIZE 		= "collect.buffer.pool.size";
+	public static final String COLLECT_SPILL_DIR 				= "collect.spill.dir";
+	public static final String COLLECT_SPILL_DISK_FREE_MIN 		= "collect.spill.disk.free.min.percent";
+	public static final String COLLECT_BACKLOG_ENABLED 			= "collect.backlog.enabled";
+	public static final String COLLECT_BACKLOG_CHECK_INTERVAL 	= "collect.backlog.check.interval.sec";
+	public static final String COLLECT_BACKLOG_FILES_HIGH 		= "collect.backlog.files.high";
+	public static final String COLLECT_BACKLOG_FILES_LOW 		= "collect.backlog.files.low";
+	public static final String COLLECT_BACKLOG_BYTES_HIGH 		= "collect.backlog.bytes.high.mb";
+	public static final String COLLECT_BACKLOG_BYTES_LOW 		= "collect.backlog.bytes.low.mb";
+	public static final String COLLECT_BACKLOG_DISK_FREE_PAUSE 	= "collect.backlog.disk.free.pause.percent";
+	public static final String COLLECT_BACKLOG_DISK_FREE_RESUME = "collect.backlog.disk.free.resume.percent";
 	public static final String PUSH_RECEIVE_BUFFER_SAVE_ENABLED  = "push.receive.buffer.save.enabled";
 	public static final String PUSH_RECEIVE_BUFFER_SAVE_INTERVAL = "push.receive.buffer.save.interval.millis";
+	public static final String PUSH_RECEIVE_BUFFER_RING_SIZE     = "push.receive.buffer.ring.size";
+	public static final String PUSH_ALLOW_HOST_REFRESH_INTERVAL  = "push.allow.host.refresh.interval.sec";
+	public static final String PUSH_SNMP_OID_NAME_FILE           = "push.snmp.oid.name.file";
+	public static final String PUSH_COLLECT_HISTORY_INTERVAL     = "push.collect.history.interval.sec";
+	public static final String PUSH_UDP_RECEIVE_BUFFER_SIZE      = "push.udp.receive.buffer.size";
+	public static final String NETTY_EPOLL_ENABLED               = "netty.epoll.enabled";
+	public static final String NETTY_WORKER_THREAD_COUNT         = "netty.worker.thread.count";
+	public static final String DISK_IO_THREAD_COUNT              = "disk.io.thread.count";
+	public static final String DISK_IO_HIGH_WATER_MARK           = "disk.io.high.water.mark";
+	public static final String DISK_IO_LOW_WATER_MARK            = "disk.io.low.water.mark";
 
 	// ### collect jdbc config ###
 	public static final String JDBC_LOGIN_TIMEOUT_SEC			= "jdbc.login.timeout.sec";
@@ -50,19 +80,35 @@ public interface Config {
 	public static final String COLLECT_FILE_ENCODING_CONVERT 		 	= "collect.file.encoding.convert";
 	public static final String COLLECT_FILE_ENCODING_CONVERT_TYPE 	 	= "collect.file.encoding.convert.type";
 	public static final String COLLECT_FILE_ENCODING_CONVERT_SHELL_PATH = "collect.file.encoding.convert.shell.path";
+	public static final String COLLECT_FILE_ENCODING_MALFORMED_ACTION = "collect.file.encoding.malformed.action";
 
 	// ### backup config ###
 	public static final String BACKUP_LOG_ENABLED				= "backup.log.enabled";
 	public static final String BACKUP_LOG_BASE_DIR 				= "backup.log.base.dir";
 	public static final String BACKUP_LOG_RETENTION_PERIOD 		= "backup.log.retention.period.day";
+	public static final String BACKUP_LOG_COMPRESSION			= "backup.log.compression";
+	public static final String BACKUP_LOG_COMPACTION_INTERVAL	= "backup.log.compaction.interval.min";
 
 	public static final String AGENT_RECEIVER_ENABLED			= "agent.receiver.enabled";
 	public static final String AGENT_RECEIVER_IMPL_CLASS_PATH 	= "agent.receiver.impl.class.path";
 	public static final String AGENT_RECEIVER_PORT 				= "agent.receiver.port";
+	public static final String AGENT_RECEIVER_HMAC_ALGORITHM	= "agent.receiver.hmac.algorithm";
+	public static final String AGENT_RECEIVER_HMAC_KEY			= "agent.receiver.hmac.key";
+	public static final String AGENT_RECEIVER_INLINE_DECOMPRESS	= "agent.receiver.inline.decompress";
+	public static final String AGENT_RECEIVER_STAGING_DIR		= "agent.receiver.staging.dir";
+	public static final String AGENT_RECEIVER_ACK_INTERVAL_BYTES	= "agent.receiver.ack.interval.bytes";
+	public static final String AGENT_RECEIVER_STAGING_RETENTION_HOUR	= "agent.receiver.staging.retention.hour";
 
 	// ### send log to node Config ###
 	public static final String SEND_LOG_ENABLED					= "send.log.enabled";
 	public static final String SEND_LOG_DIR 					= "send.log.dir";
+	public static final String SEND_THREAD_COUNT 				= "send.thread.count";
+	public static final String SEND_QUEUE_SIZE 					= "send.queue.size";
+	public static final String SEND_FANOUT_THREAD_COUNT 		= "send.fanout.thread.count";
+	public static final String SEND_POLICY_NODE_CACHE_TTL_SEC 	= "send.policy.node.cache.ttl.sec";
+	public static final String SEND_COMMIT_LOG_DIR 				= "send.commit.log.dir";
+	public static final String SEND_COMMIT_LOG_SEGMENT_BYTES 	= "send.commit.log.segment.bytes";
+	public static final String SEND_COMMIT_LOG_SCAN_INTERVAL_SEC = "send.commit.log.scan.interval.sec";
 
 	// ### interface config ###
 	public static final String INTERFACE_PORT 					= "interface.port";
@@ -52,7 +52,8 @@ public enum CollectHistoryDAO {
 		try {
 			StringBuilder queryBuilder = new StringBuilder();
 			queryBuilder.append(" SELECT  SESSION_ID, START_DATE, END_DATE, LOGPOLICY_ID,  ")
-						.append("		  DATA_SOURCE_ID, ELAPSED_TIME, STATUS, LOG_SIZE ")
+						.append("		  DATA_SOURCE_ID, ELAPSED_TIME, STATUS, LOG_SIZE, ")
+						.append("		  MESSAGE_COUNT, ERROR_COUNT, MIN_LATENCY, MAX_LATENCY ")
 						.append(" FROM    TBL_COLLECT_HISTORY ")
 						.append(" WHERE   1 = 1 ");
 			if(!Strings.isNullOrEmpty(logpolicyId)) queryBuilder.append(" AND LOGPOLICY_ID = '").append(logpolicyId.toString()).append("'");
@@ -78,6 +79,11 @@ public enum CollectHistoryDAO {
 				resultMap.put("elapsedTime", rs.getString("ELAPSED_TIME"));
 				resultMap.put("status", rs.getString("STATUS"));
 				resultMap.put("logSize", rs.getString("LOG_SIZE"));
+				// PushReceiver 집계 이력 ( 그 외의 이력은 null )
+				resultMap.put("messageCount", rs.getString("MESSAGE_COUNT"));
+				resultMap.put("errorCount", rs.getString("ERROR_COUNT"));
+				resultMap.put("minLatency", rs.getString("MIN_LATENCY"));
+				resultMap.put("maxLatency", rs.getString("MAX_LATENCY"));
 				resultMapList.add(resultMap);
 			}
 		} catch(SQLException e) {
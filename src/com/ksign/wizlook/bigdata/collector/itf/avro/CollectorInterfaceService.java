@@ -25,6 +25,7 @@ import com.ksign.wizlook.bigdata.collector.code.CollectorCode.CollectAction;
 import com.ksign.wizlook.bigdata.collector.collect.CollectException;
 import com.ksign.wizlook.bigdata.collector.collect.poll.PollJobManager;
 import com.ksign.wizlook.bigdata.collector.collect.push.PushReceiverManager;
+import com.ksign.wizlook.bigdata.collector.collect.send.PolicyNodeCache;
 import com.ksign.wizlook.bigdata.collector.config.Config;
 import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
 import com.ksign.wizlook.bigdata.collector.dao.history.CollectHistoryDAO;
@@ -335,6 +336,45 @@ public enum CollectorInterfaceService {
 		return resultMap;
 	}
 
+	/**
+	 * 정책의 수집로그 전송 노드 정보 cache 삭제 ( 정책 노드 변경 시 console 에서 호출 )
+	 *  - logpolicyId 가 없는 경우 전체 정책의 cache 를 삭제한다.
+	 * @param message Request Message
+	 * @return Response Message
+	 */
+	public static Object invalidatePolicyNode(Message message) {
+		Map<String, Object> requestContentMap = null;
+		try {
+			requestContentMap = new ObjectMapper().readValue( message.getContent(), new TypeReference<Map<String, Object>>(){} );
+		} catch( IOException e ) {
+			logger.error(CollectorInterfaceService.class.getSimpleName(), e);
+			message.setResponseCode(CollectorCode.Code.INVALID_REQUEST_MESSAGE.getCode());
+		}
+
+		try {
+//			String version = requestContentMap.get("version");
+			@SuppressWarnings("unchecked")
+			List<String> logpolicyIdList = (List<String>)requestContentMap.get("logpolicyIdList");
+			String logpolicyId = (String)requestContentMap.get("logpolicyId");
+
+			if(logpolicyIdList != null) {
+				for(String invalidateLogpolicyId : logpolicyIdList) {
+					if(!Strings.isNullOrEmpty(invalidateLogpolicyId)) PolicyNodeCache.INSTANCE.invalidate(invalidateLogpolicyId);
+				}
+			} else {
+				PolicyNodeCache.INSTANCE.invalidate(logpolicyId);
+			}
+			message.setResponseCode(CollectorCode.Code.SUCCESS.getCode());
+		} catch (Exception e) {
+			logger.error(CollectorInterfaceService.class.getSimpleName(), e);
+			message.setResponseCode(CollectorCode.Code.UNKNOWN_ERROR.getCode());
+		}
+
+		Map<String, String> resultMap = new HashMap<String, String>();
+		resultMap.put("version", "1.0.0");
+		return resultMap;
+	}
+
 	/*********** Server Function END ***********/
 	/*******************************************/
 
@@ -0,0 +1,163 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * 수신 데이터를 disk I/O thread 에서 처리하는 Decoder
+ *  - event loop 에서는 수신 데이터를 connection 별 DiskIoTaskQueue 에 등록만 하고, 파일 기록 등은 disk I/O thread 에서 처리한다.
+ *    ( disk 가 느려도 같은 event loop 를 사용하는 다른 connection 의 수신이 지연되지 않는다 )
+ *  - 수신 데이터는 복사하지 않고 retain 한 slice 로 전달하며, disk I/O thread 에서 처리 후 release 한다.
+ *    ( 수신 데이터를 모두 read 하므로 ByteToMessageDecoder 는 누적 buffer 를 release 하고 다음 수신 buffer 를 새로 사용한다.
+ *      release 되어도 slice 가 retain 한 동안 메모리는 유지되며, refCnt 가 1 보다 큰 누적 buffer 는 그 자리에서 정리되거나 이어 쓰이지 않는다. )
+ *  - 하위 클래스의 decodeFile, failFile, closeFile 은 disk I/O thread 에서 순서대로 호출되므로 동기화가 필요 없다.
+ * 각 connection 별로 생성된다.
+ * @author byw
+ */
+public abstract class DiskIoDecoder extends ByteToMessageDecoder {
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** connection 별 disk I/O 작업 queue */
+	private DiskIoTaskQueue taskQueue;
+	/** disk I/O thread 에서 사용하는 누적 buffer ( 처리하지 못하고 남은 수신 데이터 ) */
+	private ByteBuf cumulation;
+	/** 오류 처리 완료 여부 ( 이후 수신 데이터는 버린다 ) */
+	private boolean failed = false;
+
+	/**
+	 * 수신 데이터 처리 ( disk I/O thread )
+	 * 처리할 수 있는 만큼 read 하고 반환한다. read 하지 않은 데이터는 다음 수신 데이터와 함께 다시 전달된다.
+	 * @param ctx Netty ChannelHandlerContext
+	 * @param byteBuf 수신 데이터
+	 * @throws Exception
+	 */
+	protected abstract void decodeFile(ChannelHandlerContext ctx, ByteBuf byteBuf) throws Exception;
+
+	/**
+	 * 처리 도중 또는 통신 도중 Exception 이 발생하였을 때 수신 중인 파일 처리 ( disk I/O thread )
+	 * @param cause 발생한 Throwable 객체
+	 */
+	protected abstract void failFile(Throwable cause);
+
+	/**
+	 * connection 이 종료되었을 때 수신 중인 파일 처리 ( disk I/O thread )
+	 */
+	protected abstract void closeFile();
+
+	/**
+	 * event loop 에서 호출. 수신 데이터를 slice 로 disk I/O thread 에 전달한다. ( receive 에서 release )
+	 */
+	@Override
+	protected final void decode(final ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+		int length = in.readableBytes();
+		if(length < 1) return;
+		final ByteBuf received = in.readSlice(length).retain();
+		getTaskQueue(ctx).execute(new Runnable() {
+			@Override
+			public void run() {
+				receive(ctx, received);
+			}
+		}, length);
+	}
+
+	/**
+	 * client의 connection이 종료되었을 때 호출되는 메소드
+	 * 남은 수신 데이터를 모두 처리한 뒤 closeFile 을 호출한다.
+	 * @param ctx Netty ChannelHandlerContext
+	 */
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		super.channelInactive(ctx);
+		getTaskQueue(ctx).execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if(!failed) closeFile();
+				} finally {
+					failed = true;
+					releaseCumulation();
+				}
+			}
+		});
+	}
+
+	/**
+	 * 통신 도중 Exception이 발생하였을 경우 호출되는 메소드
+	 * 먼저 수신한 데이터를 처리한 뒤 failFile 을 호출한다.
+	 * @param ctx Netty ChannelHandlerContext
+	 * @param cause 통신도중 발생된 Throwable 객체
+	 */
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+		getTaskQueue(ctx).execute(new Runnable() {
+			@Override
+			public void run() {
+				fail(cause);
+			}
+		});
+		super.exceptionCaught(ctx, cause);
+	}
+
+	/**
+	 * 수신 데이터를 누적 buffer 에 추가하여 처리 ( disk I/O thread )
+	 */
+	private void receive(ChannelHandlerContext ctx, ByteBuf received) {
+		if(failed) {
+			received.release();
+			return;
+		}
+		if(cumulation == null) {
+			cumulation = received;
+		} else {
+			// 남은 데이터는 header 등 일부이므로 복사하여 합친다.
+			ByteBuf merged = ctx.alloc().buffer(cumulation.readableBytes() + received.readableBytes());
+			merged.writeBytes(cumulation).writeBytes(received);
+			cumulation.release();
+			received.release();
+			cumulation = merged;
+		}
+
+		try {
+			while(cumulation.isReadable()) {
+				int readableBytes = cumulation.readableBytes();
+				decodeFile(ctx, cumulation);
+				// 더 이상 처리할 수 없는 경우 다음 수신 데이터를 기다린다.
+				if(readableBytes == cumulation.readableBytes()) break;
+			}
+		} catch (Throwable cause) {
+			fail(cause);
+			// 다음 handler 로 전달 ( client 에게 오류 응답 후 connection 종료 )
+			ctx.fireExceptionCaught(cause instanceof DecoderException ? cause : new DecoderException(cause));
+		} finally {
+			if(cumulation != null && (failed || !cumulation.isReadable())) releaseCumulation();
+		}
+	}
+
+	private void fail(Throwable cause) {
+		if(failed) return;
+		failed = true;
+		try {
+			failFile(cause);
+		} catch (Throwable t) {
+			logger.error(this.getClass().getSimpleName(), t);
+		}
+	}
+
+	private void releaseCumulation() {
+		if(cumulation != null) cumulation.release();
+		cumulation = null;
+	}
+
+	private DiskIoTaskQueue getTaskQueue(ChannelHandlerContext ctx) {
+		if(taskQueue == null) taskQueue = DiskIoExecutorManager.INSTANCE.newTaskQueue(ctx.channel());
+		return taskQueue;
+	}
+}
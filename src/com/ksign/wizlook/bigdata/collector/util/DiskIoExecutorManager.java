@@ -0,0 +1,93 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * TCP / Agent 수신 파일 disk I/O 전용 thread pool 관리 클래스
+ *  - 파일 기록, hmac 검증, 압축 해제, 수집 디렉토리 이동 등 disk I/O 를 Netty event loop 대신 전용 thread 에서 처리한다.
+ *  - connection 별로 DiskIoTaskQueue 를 생성하여 같은 connection 의 작업은 수신 순서대로 처리한다.
+ *  - thread 수는 disk.io.thread.count ( 0 인 경우 core 수 ) 로 설정한다.
+ * 최초 사용 시 생성하며 collector 종료 시 destroy 한다.
+ * @author byw
+ */
+public enum DiskIoExecutorManager {
+	/** singleton instance */
+	INSTANCE;
+
+	/** default 처리 대기 크기 high / low watermark ( byte ) */
+	private static final long DEFAULT_HIGH_WATER_MARK = 4L * 1024 * 1024;
+	private static final long DEFAULT_LOW_WATER_MARK  = 1L * 1024 * 1024;
+	/** 종료 시 남은 작업 처리 대기 시간 ( second ) */
+	private static final long SHUTDOWN_TIMEOUT_SEC = 30;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** disk I/O thread pool */
+	private ExecutorService executor;
+	/** connection 별 처리 대기 크기 high / low watermark */
+	private long highWaterMark;
+	private long lowWaterMark;
+
+	private DiskIoExecutorManager() { }
+
+	/**
+	 * disk I/O thread pool 생성
+	 */
+	private void init() {
+		if(executor != null) return;
+
+		ConfigLoader config = ConfigLoader.getInstance();
+		String threadCount = config.get(Config.DISK_IO_THREAD_COUNT);
+		int diskIoThreadCount = Strings.isNullOrEmpty(threadCount) ? 0 : Integer.parseInt(threadCount.trim());
+		if(diskIoThreadCount <= 0) diskIoThreadCount = Runtime.getRuntime().availableProcessors();
+
+		String high = config.get(Config.DISK_IO_HIGH_WATER_MARK);
+		String low = config.get(Config.DISK_IO_LOW_WATER_MARK);
+		highWaterMark = Strings.isNullOrEmpty(high) ? DEFAULT_HIGH_WATER_MARK : Long.parseLong(high.trim());
+		lowWaterMark = Strings.isNullOrEmpty(low) ? DEFAULT_LOW_WATER_MARK : Long.parseLong(low.trim());
+		if(lowWaterMark > highWaterMark) lowWaterMark = highWaterMark;
+
+		executor = Executors.newFixedThreadPool(diskIoThreadCount, new DefaultThreadFactory("disk-io", true));
+		logger.info(this.getClass().getSimpleName() + ". Create disk I/O executor. threadCount=[" + diskIoThreadCount + "], highWaterMark=[" + highWaterMark + "], lowWaterMark=[" + lowWaterMark + "]");
+	}
+
+	/**
+	 * connection 별 작업 queue 생성
+	 * @param channel 연결된 client channel ( 처리 대기 크기에 따라 autoRead 를 설정한다 )
+	 * @return 작업 queue
+	 */
+	public synchronized DiskIoTaskQueue newTaskQueue(Channel channel) {
+		init();
+		return new DiskIoTaskQueue(channel, executor, highWaterMark, lowWaterMark);
+	}
+
+	/**
+	 * disk I/O thread pool 종료 ( 모든 receiver 중지 후 호출. 남은 작업은 처리한 뒤 종료 )
+	 */
+	public synchronized void destroy() {
+		if(executor == null) return;
+		executor.shutdown();
+		try {
+			if(!executor.awaitTermination(SHUTDOWN_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+				logger.warn(this.getClass().getSimpleName() + ". Disk I/O tasks are not completed. timeout=[" + SHUTDOWN_TIMEOUT_SEC + "]");
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+	}
+}
@@ -0,0 +1,137 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+import io.netty.channel.Channel;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ksign.wizlook.bigdata.collector.collect.backlog.BacklogMonitor;
+
+/**
+ * connection 별 disk I/O 작업 queue
+ *  - 등록한 순서대로 disk I/O thread pool 에서 하나씩 처리한다. ( 같은 connection 의 작업은 동시에 처리되지 않는다 )
+ *  - 처리 대기 중인 수신 데이터가 high watermark 이상이면 channel 의 autoRead 를 중지하고, low watermark 이하로 처리되면 재개한다.
+ *    ( 메모리에 수신 데이터가 쌓이지 않고 client 쪽으로 TCP backpressure 전달 )
+ * 작업 등록은 event loop thread 에서 호출한다.
+ * @author byw
+ */
+public class DiskIoTaskQueue implements Runnable {
+	/** 한 번에 처리할 최대 작업 수 ( 다른 connection 의 작업도 처리되도록 ) */
+	private static final int MAX_TASKS_PER_RUN = 64;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	private final Channel channel;
+	private final Executor executor;
+	private final long highWaterMark;
+	private final long lowWaterMark;
+	/** 처리 대기 작업 */
+	private final Queue<Task> taskQueue = new ConcurrentLinkedQueue<Task>();
+	/** thread pool 에 등록 여부 */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	/** 처리 대기 중인 수신 데이터 크기 */
+	private final AtomicLong pendingBytes = new AtomicLong(0);
+
+	/** autoRead 재개 ( event loop 에서 실행 ) */
+	private final Runnable resumeRead = new Runnable() {
+		@Override
+		public void run() {
+			// 재개 전에 다시 쌓였거나 BacklogMonitor 에 의해 중지된 경우 재개하지 않는다.
+			if(pendingBytes.get() > lowWaterMark || channel.config().isAutoRead() || BacklogMonitor.INSTANCE.isPaused()) return;
+			channel.config().setAutoRead(true);
+		}
+	};
+
+	DiskIoTaskQueue(Channel channel, Executor executor, long highWaterMark, long lowWaterMark) {
+		this.channel = channel;
+		this.executor = executor;
+		this.highWaterMark = highWaterMark;
+		this.lowWaterMark = lowWaterMark;
+	}
+
+	/**
+	 * 작업 등록 ( 수신 데이터 없음 )
+	 * @param task 작업
+	 */
+	public void execute(Runnable task) {
+		execute(task, 0);
+	}
+
+	/**
+	 * 작업 등록
+	 * @param task 작업
+	 * @param bytes 작업이 처리할 수신 데이터 크기 ( 처리 완료 시 대기 크기에서 제외 )
+	 */
+	public void execute(Runnable task, int bytes) {
+		taskQueue.add(new Task(task, bytes));
+		if(bytes > 0 && pendingBytes.addAndGet(bytes) >= highWaterMark && channel.config().isAutoRead()) {
+			channel.config().setAutoRead(false);
+		}
+		schedule();
+	}
+
+	private void schedule() {
+		if(!scheduled.compareAndSet(false, true)) return;
+		try {
+			executor.execute(this);
+		} catch (RejectedExecutionException e) {
+			// collector 종료 중인 경우 남은 작업은 호출 thread 에서 처리 ( 수신 데이터 유실 방지 )
+			run();
+		}
+	}
+
+	/**
+	 * 등록된 작업을 순서대로 처리 ( disk I/O thread )
+	 */
+	@Override
+	public void run() {
+		int count = 0;
+		Task task;
+		while(count++ < MAX_TASKS_PER_RUN && (task = taskQueue.poll()) != null) {
+			try {
+				task.runnable.run();
+			} catch (Throwable t) {
+				logger.error(this.getClass().getSimpleName(), t);
+			} finally {
+				if(task.bytes > 0) release(task.bytes);
+			}
+		}
+		scheduled.set(false);
+		if(!taskQueue.isEmpty()) schedule();
+	}
+
+	/**
+	 * 처리 완료한 수신 데이터 크기 제외. low watermark 이하로 내려간 경우 autoRead 재개
+	 */
+	private void release(int bytes) {
+		long pending = pendingBytes.addAndGet(-bytes);
+		if(pending <= lowWaterMark && pending + bytes > lowWaterMark) {
+			channel.eventLoop().execute(resumeRead);
+		}
+	}
+
+	/**
+	 * 처리 대기 중인 수신 데이터 크기
+	 * @return byte
+	 */
+	public long getPendingBytes() {
+		return pendingBytes.get();
+	}
+
+	private static final class Task {
+		private final Runnable runnable;
+		private final int bytes;
+
+		private Task(Runnable runnable, int bytes) {
+			this.runnable = runnable;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 여러 thread 가 넣고 하나의 thread 가 꺼내는 고정 크기 ring buffer ( lock 미사용 )
+ *  - 각 slot 의 sequence 로 slot 상태를 확인한다.
+ *     -> sequence == 위치          : 비어있는 slot ( producer 가 사용 가능 )
+ *     -> sequence == 위치 + 1      : 값이 들어있는 slot ( consumer 가 사용 가능 )
+ *  - 가득 찬 경우 offer 는 대기하지 않고 false 를 반환한다.
+ * @author byw
+ */
+public class MpscRingBuffer<E> {
+	/** slot 배열 */
+	private final Object[] buffer;
+	/** slot 별 sequence */
+	private final AtomicLongArray sequences;
+	/** index mask ( capacity - 1 ) */
+	private final int mask;
+	/** 다음 offer 위치 */
+	private final AtomicLong tail = new AtomicLong();
+	/** 다음 poll 위치 ( consumer thread 만 사용 ) */
+	private long head = 0;
+
+	/**
+	 * @param capacity 최대 보관 개수 ( 2의 거듭제곱으로 올림 )
+	 */
+	public MpscRingBuffer(int capacity) {
+		int size = 1;
+		while(size < capacity) size <<= 1;
+		this.buffer = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		this.mask = size - 1;
+		for(int i=0; i<size; i++) sequences.set(i, i);
+	}
+
+	/**
+	 * 값을 넣는다. ( 여러 thread 에서 호출 가능 )
+	 * @param e 넣을 값
+	 * @return 가득 찬 경우 false
+	 */
+	public boolean offer(E e) {
+		if(e == null) throw new NullPointerException();
+		long position = tail.get();
+		int index;
+		while(true) {
+			index = (int) (position & mask);
+			long diff = sequences.get(index) - position;
+			if(diff == 0) {
+				if(tail.compareAndSet(position, position + 1)) break;
+				position = tail.get();
+			} else if(diff < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+		buffer[index] = e;
+		sequences.lazySet(index, position + 1);
+		return true;
+	}
+
+	/**
+	 * 값을 꺼낸다. ( 하나의 thread 에서만 호출 )
+	 * @return 비어있는 경우 null
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		int index = (int) (head & mask);
+		if(sequences.get(index) != head + 1) return null;
+		E e = (E) buffer[index];
+		buffer[index] = null;
+		sequences.lazySet(index, head + buffer.length);
+		head++;
+		return e;
+	}
+
+	/**
+	 * 비어있는지 여부 ( consumer thread 에서 호출 )
+	 * @return 비어있는 경우 true
+	 */
+	public boolean isEmpty() {
+		return sequences.get((int) (head & mask)) != head + 1;
+	}
+
+	public int capacity() {
+		return buffer.length;
+	}
+}
@@ -0,0 +1,146 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.google.common.base.Strings;
+import com.ksign.wizlook.bigdata.collector.config.Config;
+import com.ksign.wizlook.bigdata.collector.config.ConfigLoader;
+
+/**
+ * TcpReceiver, NettySyslogReceiver, AgentTcpReceiver 가 공용으로 사용하는 Netty event loop 관리 클래스
+ *  - receiver 마다 boss / worker thread group 을 생성하지 않고 collector 전체에서 한 쌍을 공유한다.
+ *  - epoll 을 사용할 수 있고 netty.epoll.enabled 가 true 인 경우 native epoll, 아닌 경우 NIO 를 사용한다.
+ *  - worker thread 수는 netty.worker.thread.count ( 0 인 경우 core 수 * 2 ) 로 설정한다.
+ *  - receiver 의 workerThreadCount 가 1 인 경우 worker event loop 하나에 고정하여 해당 receiver 의 모든 connection 을 한 thread 에서 처리한다.
+ * 최초 사용 시 생성하며 collector 종료 시 destroy 한다.
+ * @author byw
+ */
+public enum NettyTransportManager {
+	/** singleton instance */
+	INSTANCE;
+
+	/** logger */
+	private final Logger logger = LogManager.getLogger();
+	/** 공용 boss thread group ( accept ) */
+	private EventLoopGroup bossGroup;
+	/** 공용 worker thread group ( read / write ) */
+	private EventLoopGroup workerGroup;
+	/** epoll 사용 여부 */
+	private boolean epoll;
+	/** worker thread 수 */
+	private int workerThreadCount;
+
+	private NettyTransportManager() { }
+
+	/**
+	 * 공용 event loop 생성
+	 */
+	private void init() {
+		if(workerGroup != null) return;
+
+		String epollEnabled = ConfigLoader.getInstance().get(Config.NETTY_EPOLL_ENABLED);
+		epoll = (Strings.isNullOrEmpty(epollEnabled) || Boolean.parseBoolean(epollEnabled.trim())) && Epoll.isAvailable();
+
+		String threadCount = ConfigLoader.getInstance().get(Config.NETTY_WORKER_THREAD_COUNT);
+		workerThreadCount = Strings.isNullOrEmpty(threadCount) ? 0 : Integer.parseInt(threadCount.trim());
+		if(workerThreadCount <= 0) workerThreadCount = Integer.getInteger("io.netty.eventLoopThreads", Runtime.getRuntime().availableProcessors() * 2);
+
+		if(epoll) {
+			bossGroup = new EpollEventLoopGroup(1, new DefaultThreadFactory("netty-boss", true));
+			workerGroup = new EpollEventLoopGroup(workerThreadCount, new DefaultThreadFactory("netty-worker", true));
+		} else {
+			bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("netty-boss", true));
+			workerGroup = new NioEventLoopGroup(workerThreadCount, new DefaultThreadFactory("netty-worker", true));
+		}
+		logger.info(this.getClass().getSimpleName() + ". Create shared event loop. epoll=[" + epoll + "], workerThreadCount=[" + workerThreadCount + "]");
+	}
+
+	/**
+	 * 공용 boss thread group
+	 * @return boss thread group
+	 */
+	public synchronized EventLoopGroup getBossGroup() {
+		init();
+		return bossGroup;
+	}
+
+	/**
+	 * 공용 worker thread group
+	 * @return worker thread group
+	 */
+	public synchronized EventLoopGroup getWorkerGroup() {
+		init();
+		return workerGroup;
+	}
+
+	/**
+	 * receiver 에 할당할 worker thread group
+	 * @param threadCount receiver 의 workerThreadCount ( 1 인 경우 event loop 하나에 고정, 그 외는 공용 worker thread group 전체 )
+	 * @return worker thread group
+	 */
+	public synchronized EventLoopGroup getWorkerGroup(int threadCount) {
+		init();
+		// 공용 group 에서 순서대로 할당하므로 고정된 receiver 들은 event loop 에 고르게 분산된다.
+		if(threadCount == 1) return workerGroup.next();
+		return workerGroup;
+	}
+
+	/**
+	 * TCP server channel class ( event loop 종류에 맞춰야 한다 )
+	 * @return server channel class
+	 */
+	public synchronized Class<? extends ServerChannel> getServerChannelClass() {
+		init();
+		return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+	}
+
+	/**
+	 * UDP channel class ( event loop 종류에 맞춰야 한다 )
+	 * @return datagram channel class
+	 */
+	public synchronized Class<? extends Channel> getDatagramChannelClass() {
+		init();
+		return epoll ? EpollDatagramChannel.class : NioDatagramChannel.class;
+	}
+
+	/**
+	 * epoll 사용 여부
+	 * @return 사용 여부
+	 */
+	public synchronized boolean isEpoll() {
+		init();
+		return epoll;
+	}
+
+	/**
+	 * 공용 worker thread 수
+	 * @return worker thread 수
+	 */
+	public synchronized int getWorkerThreadCount() {
+		init();
+		return workerThreadCount;
+	}
+
+	/**
+	 * 공용 event loop 종료 ( 모든 receiver 중지 후 호출 )
+	 */
+	public synchronized void destroy() {
+		if(bossGroup != null && !bossGroup.isShutdown()) bossGroup.shutdownGracefully();
+		if(workerGroup != null && !workerGroup.isShutdown()) workerGroup.shutdownGracefully();
+		bossGroup = null;
+		workerGroup = null;
+	}
+}
@@ -0,0 +1,65 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+/**
+ * 초당 허용량을 제한하기 위한 token bucket
+ *  - 초당 rate 만큼 token 이 채워지며 최대 capacity 까지 보관한다.
+ *  - capacity 보다 큰 요청은 bucket 이 가득 찬 경우 허용하고 부족분은 이후 채워지는 token 에서 차감한다.
+ * @author byw
+ */
+public class TokenBucket {
+	/** 초당 채워지는 token 수 */
+	private final long ratePerSec;
+	/** 최대 보관 token 수 */
+	private final long capacity;
+	/** 현재 token 수 ( 큰 요청을 허용한 경우 음수 ) */
+	private double tokens;
+	/** 마지막으로 token 을 채운 시간 ( nano ) */
+	private long lastRefillNanos;
+
+	/**
+	 * @param ratePerSec 초당 허용량
+	 * @param capacity 최대 순간 허용량
+	 */
+	public TokenBucket(long ratePerSec, long capacity) {
+		if(ratePerSec <= 0) throw new IllegalArgumentException("ratePerSec must be greater than 0. ratePerSec=[" + ratePerSec + "]");
+		this.ratePerSec = ratePerSec;
+		this.capacity = Math.max(1, capacity);
+		this.tokens = this.capacity;
+		this.lastRefillNanos = System.nanoTime();
+	}
+
+	/**
+	 * token 사용 요청
+	 * @param permits 사용할 token 수
+	 * @return 사용 가능 여부 ( 가능한 경우 차감 )
+	 */
+	public synchronized boolean tryAcquire(long permits) {
+		refill();
+		if(tokens < Math.min(permits, capacity)) return false;
+		tokens -= permits;
+		return true;
+	}
+
+	/**
+	 * 현재 사용 가능한 token 수
+	 * @return token 수
+	 */
+	public synchronized long getAvailable() {
+		refill();
+		return (long) tokens;
+	}
+
+	public long getRatePerSec() {
+		return ratePerSec;
+	}
+
+	public long getCapacity() {
+		return capacity;
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerSec / 1000000000.0);
+		lastRefillNanos = now;
+	}
+}
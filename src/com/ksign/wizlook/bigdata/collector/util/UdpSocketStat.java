@@ -0,0 +1,79 @@
+package com.ksign.wizlook.bigdata.collector.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * 커널의 UDP socket 통계 ( /proc/net/udp, /proc/net/udp6 ) 조회 클래스 ( Linux )
+ *  - drops          : socket 수신 buffer 가 가득 차서 커널이 버린 datagram 수 ( socket 생성 이후 누적 )
+ *  - rx_queue       : 아직 읽지 않은 수신 buffer 사용량 ( byte )
+ * 같은 port 에 여러 socket 이 bind 된 경우 ( SO_REUSEPORT ) 합산한다.
+ * @author byw
+ */
+public class UdpSocketStat {
+	private static final String[] PROC_NET_UDP = { "/proc/net/udp", "/proc/net/udp6" };
+
+	/** port 에 bind 된 socket 수 */
+	private int socketCount;
+	/** 수신 buffer 사용량 ( byte ) */
+	private long receiveQueue;
+	/** 커널이 버린 datagram 수 */
+	private long dropCount;
+
+	private UdpSocketStat() {
+	}
+
+	/**
+	 * local port 의 UDP socket 통계 조회
+	 * @param port local port
+	 * @return 통계. /proc/net/udp 가 없는 경우 ( Linux 가 아닌 경우 ) null
+	 */
+	public static UdpSocketStat read(int port) {
+		String portHex = ":" + toHex(port);
+		UdpSocketStat stat = null;
+		for(String path : PROC_NET_UDP) {
+			File file = new File(path);
+			if(!file.canRead()) continue;
+			if(stat == null) stat = new UdpSocketStat();
+			BufferedReader reader = null;
+			try {
+				reader = new BufferedReader(new FileReader(file));
+				// header
+				String line = reader.readLine();
+				while((line = reader.readLine()) != null) {
+					// sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode ref pointer drops
+					String[] fields = line.trim().split("\\s+");
+					if(fields.length < 13 || !fields[1].endsWith(portHex)) continue;
+					stat.socketCount++;
+					stat.receiveQueue += Long.parseLong(fields[4].substring(fields[4].indexOf(':') + 1), 16);
+					stat.dropCount += Long.parseLong(fields[12]);
+				}
+			} catch (IOException | RuntimeException e) {
+				// 형식이 다른 경우 조회된 값까지만 사용
+			} finally {
+				if(reader != null) try { reader.close(); } catch (IOException e) {}
+			}
+		}
+		return stat;
+	}
+
+	private static String toHex(int port) {
+		String hex = Integer.toHexString(port).toUpperCase();
+		while(hex.length() < 4) hex = "0" + hex;
+		return hex;
+	}
+
+	public int getSocketCount() {
+		return socketCount;
+	}
+
+	public long getReceiveQueue() {
+		return receiveQueue;
+	}
+
+	public long getDropCount() {
+		return dropCount;
+	}
+}